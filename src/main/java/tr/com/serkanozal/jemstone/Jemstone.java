@@ -17,15 +17,21 @@
 package tr.com.serkanozal.jemstone;
 
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import tr.com.serkanozal.jemstone.sa.HotSpotSAPluginInvalidArgumentException;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentManager;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPlugin;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResultProcessor;
 import tr.com.serkanozal.jemstone.sa.impl.DefaultHotSpotSAResultProcessor;
 import tr.com.serkanozal.jemstone.sa.impl.HotSpotServiceabilityAgentManagerImpl;
+import tr.com.serkanozal.jemstone.sa.impl.discovery.HotSpotSAJvmInfo;
+import tr.com.serkanozal.jemstone.sa.impl.fleet.HotSpotSAFleetResult;
 import tr.com.serkanozal.jemstone.scanner.JemstoneScanner;
 import tr.com.serkanozal.jemstone.scanner.JemstoneScannerFactory;
 import tr.com.serkanozal.jemstone.util.ReflectionUtil;
@@ -37,6 +43,14 @@ import tr.com.serkanozal.jemstone.util.ReflectionUtil;
  */
 public final class Jemstone {
 
+    private static final String ALL_JVMS_ARGUMENT = "all";
+    private static final String ALL_MATCHING_JVMS_ARGUMENT_PREFIX = "all=";
+    private static final String ALL_JVMS_PARALLELISM_PARAMETER = "jemstone.allJvmsParallelism";
+    private static final int DEFAULT_ALL_JVMS_PARALLELISM = 
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int ALL_JVMS_PARALLELISM = 
+            Integer.getInteger(ALL_JVMS_PARALLELISM_PARAMETER, DEFAULT_ALL_JVMS_PARALLELISM);
+    
     private static HotSpotServiceabilityAgentManager hotSpotSAManager = 
             HotSpotServiceabilityAgentManagerImpl.getInstance();
     @SuppressWarnings("rawtypes")
@@ -103,6 +117,10 @@ public final class Jemstone {
                     }
                     String[] pluginArgs = new String[args.length - 2]; 
                     System.arraycopy(args, 2, pluginArgs, 0, pluginArgs.length);
+                    if (isAllJvmsArgument(pluginArgs)) {
+                        runPluginOnAllJvms(plugin, pluginArgs);
+                        return;
+                    }
                     try {
                         HotSpotServiceabilityAgentResult result = 
                                 hotSpotSAManager.runPlugin(pluginId, pluginArgs);
@@ -124,6 +142,10 @@ public final class Jemstone {
                     HotSpotServiceabilityAgentPlugin plugin = ReflectionUtil.getInstance(pluginClassName);
                     String[] pluginArgs = new String[args.length - 2]; 
                     System.arraycopy(args, 2, pluginArgs, 0, pluginArgs.length);
+                    if (isAllJvmsArgument(pluginArgs)) {
+                        runPluginOnAllJvms(plugin, pluginArgs);
+                        return;
+                    }
                     try {
                         HotSpotServiceabilityAgentResult result = 
                                 hotSpotSAManager.runPlugin(plugin, pluginArgs);
@@ -139,6 +161,8 @@ public final class Jemstone {
                 } 
             } else if ("-l".equals(args[0])) {
                 printPlugins();
+            } else if ("-j".equals(args[0])) {
+                printJvms(args.length > 1 ? args[1] : null);
             } else if ("-h".equals(args[0]) || "-help".equals(args[0])) {
                 printUsage(false);
             } else {
@@ -147,6 +171,66 @@ public final class Jemstone {
         }
     }
     
+    private static boolean isAllJvmsArgument(String[] pluginArgs) {
+        return pluginArgs.length > 0 
+                && (ALL_JVMS_ARGUMENT.equals(pluginArgs[0]) 
+                        || pluginArgs[0].startsWith(ALL_MATCHING_JVMS_ARGUMENT_PREFIX));
+    }
+    
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static void runPluginOnAllJvms(HotSpotServiceabilityAgentPlugin plugin, String[] pluginArgs) {
+        String javaCommandPattern = null;
+        if (pluginArgs[0].startsWith(ALL_MATCHING_JVMS_ARGUMENT_PREFIX)) {
+            javaCommandPattern = pluginArgs[0].substring(ALL_MATCHING_JVMS_ARGUMENT_PREFIX.length());
+        }
+        String currentProcessId = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        HotSpotServiceabilityAgentResultProcessor resultProcessor = plugin.getResultProcessor();
+        if (resultProcessor == null) {
+            resultProcessor = hotSpotSAResultProcessor;
+        }
+        List<HotSpotSAJvmInfo> jvms = new ArrayList<HotSpotSAJvmInfo>();
+        for (HotSpotSAJvmInfo jvm : hotSpotSAManager.discoverJvms(javaCommandPattern)) {
+            if (!String.valueOf(jvm.getProcessId()).equals(currentProcessId)) {
+                jvms.add(jvm);
+            }
+        }
+        if (jvms.isEmpty()) {
+            return;
+        }
+        int[] processIds = new int[jvms.size()];
+        for (int i = 0; i < processIds.length; i++) {
+            processIds[i] = jvms.get(i).getProcessId();
+        }
+        HotSpotServiceabilityAgentParameter param;
+        try {
+            // Plugins take target process id as their first argument, 
+            // but their parameters don't depend on it since it is only used for their configs
+            String[] jvmPluginArgs = pluginArgs.clone();
+            jvmPluginArgs[0] = String.valueOf(processIds[0]);
+            param = plugin.getParamater(jvmPluginArgs);
+        } catch (HotSpotSAPluginInvalidArgumentException e) {
+            handlePluginInvalidArgumentException(e, plugin);
+            return;
+        }
+        // Processes are attached in parallel, but each one is attached by its own HotSpot agent process. 
+        // So the parallelism is bounded to not to overload the machine.
+        HotSpotSAFleetResult fleetResult = 
+                hotSpotSAManager.executeOnProcesses(plugin.getWorker(), param, processIds, ALL_JVMS_PARALLELISM);
+        for (HotSpotSAJvmInfo jvm : jvms) {
+            int processId = jvm.getProcessId();
+            System.out.println("* Process Id: " + processId + ", Main Class: " + jvm.getMainClass() + 
+                               ", JVM Version: " + jvm.getJvmVersion() + ", Uptime: " + jvm.getUptime() + " ms");
+            if (fleetResult.isFailed(processId)) {
+                // Failure on a process (for example, it has terminated meanwhile) 
+                // doesn't prevent the others from being run on
+                System.err.println("Running plugin " + plugin.getId() + 
+                                   " on process " + processId + " has failed: " + fleetResult.getError(processId));
+            } else {
+                resultProcessor.processResult(fleetResult.getResult(processId));
+            }
+        }
+    }
+    
     @SuppressWarnings("rawtypes")
     private static void handlePluginInvalidArgumentException(HotSpotSAPluginInvalidArgumentException exception, 
             HotSpotServiceabilityAgentPlugin plugin) {
@@ -174,9 +258,24 @@ public final class Jemstone {
                 " | " + 
                 "(-p <plugin_class_name> [arg]*)" +
                 " | " + 
+                "(-j)" +
+                " | " + 
                 "(-l)" + 
                 " | " + 
                 "(-h | -help)");
+        ps.println("\t- \"" + ALL_JVMS_ARGUMENT + "\" or \"" + ALL_MATCHING_JVMS_ARGUMENT_PREFIX + 
+                   "<java_command_regex>\" as <process_id> argument of plugin " + 
+                   "means that run plugin on all (matching) local JVMs");
+        ps.println("\t- \"-j [java_command_regex]\" lists all (matching) local JVMs");
+    }
+    
+    private static void printJvms(String javaCommandPattern) {
+        for (HotSpotSAJvmInfo jvm : hotSpotSAManager.discoverJvms(javaCommandPattern)) {
+            System.out.println("* Process Id: " + jvm.getProcessId());
+            System.out.println("\tJava Command: " + jvm.getJavaCommand());
+            System.out.println("\tJVM: " + jvm.getJvmName() + " " + jvm.getJvmVersion());
+            System.out.println("\tUptime: " + jvm.getUptime() + " ms");
+        }
     }
     
     @SuppressWarnings("rawtypes")
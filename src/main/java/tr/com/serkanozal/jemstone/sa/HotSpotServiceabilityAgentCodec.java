@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * Interface for encoding objects transferred between caller process and HotSpot agent process 
+ * (such as {@link HotSpotServiceabilityAgentParameter}s and {@link HotSpotServiceabilityAgentResult}s)
+ * into the compact binary format and decoding them back.
+ * </p>
+ * 
+ * <p>
+ * Objects without a registered codec are transferred by Java serialization. 
+ * Since codecs are also instantiated at HotSpot agent process by their class names, 
+ * implementations must be public and have a public no-arg constructor.
+ * </p>
+ * 
+ * @see HotSpotServiceabilityAgentManager#registerCodec(HotSpotServiceabilityAgentCodec)
+ *
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentCodec<T> {
+
+    /**
+     * Gets the exact type of objects handled by this codec.
+     * 
+     * @return the type of objects handled by this codec
+     */
+    Class<T> getType();
+    
+    /**
+     * Encodes the given object.
+     * 
+     * @param obj     the object to be encoded
+     * @param encoder the {@link HotSpotServiceabilityAgentEncoder} to write to
+     * @throws IOException if encoding fails
+     */
+    void encode(T obj, HotSpotServiceabilityAgentEncoder encoder) throws IOException;
+    
+    /**
+     * Decodes an object written by {@link #encode(Object, HotSpotServiceabilityAgentEncoder)}.
+     * 
+     * @param decoder the {@link HotSpotServiceabilityAgentDecoder} to read from
+     * @return the decoded object
+     * @throws IOException if decoding fails
+     */
+    T decode(HotSpotServiceabilityAgentDecoder decoder) throws IOException;
+    
+}
@@ -29,6 +29,10 @@ public class HotSpotServiceabilityAgentConfig {
     private int timeoutInMsecs = CONFIG_NOT_SET;
     private int pipelineSizeInBytes = CONFIG_NOT_SET;
     private int processId = CONFIG_NOT_SET;
+    private int maxPauseTimeInMsecs = CONFIG_NOT_SET;
+    private boolean snapshot;
+    private String coreFile;
+    private String javaExecutable;
     
     public HotSpotServiceabilityAgentConfig() {
         
@@ -64,13 +68,68 @@ public class HotSpotServiceabilityAgentConfig {
     public void setProcessId(int processId) {
         this.processId = processId;
     }
+    
+    public int getMaxPauseTimeInMsecs() {
+        return maxPauseTimeInMsecs;
+    }
+
+    public void setMaxPauseTimeInMsecs(int maxPauseTimeInMsecs) {
+        this.maxPauseTimeInMsecs = maxPauseTimeInMsecs;
+    }
+    
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Sets whether worker is executed on a snapshot (core file) of the target process 
+     * taken by snapshot command, so target process is paused only while snapshot is being taken.
+     * 
+     * @param snapshot <code>true</code> for executing on snapshot of the target process, 
+     *                 <code>false</code> for using the default
+     */
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+    
+    public String getCoreFile() {
+        return coreFile;
+    }
+
+    /**
+     * Sets the core file to run workers on instead of a live process. 
+     * If core file is set, process id is ignored.
+     * 
+     * @param coreFile the path of the core file of a HotSpot JVM
+     */
+    public void setCoreFile(String coreFile) {
+        this.coreFile = coreFile;
+    }
+    
+    public String getJavaExecutable() {
+        return javaExecutable;
+    }
+
+    /**
+     * Sets the Java executable which has produced the core file. 
+     * If it is not set, Java executable of the current JVM is used.
+     * 
+     * @param javaExecutable the path of the Java executable
+     */
+    public void setJavaExecutable(String javaExecutable) {
+        this.javaExecutable = javaExecutable;
+    }
 
     @Override
     public String toString() {
         return "HotSpotServiceabilityAgentConfig [" + 
                     "timeoutInMsecs=" + timeoutInMsecs + 
                     ", pipelineSizeInBytes=" + pipelineSizeInBytes + 
-                    ", processId=" + processId + "]";
+                    ", processId=" + processId + 
+                    ", maxPauseTimeInMsecs=" + maxPauseTimeInMsecs + 
+                    ", snapshot=" + snapshot + 
+                    ", coreFile=" + coreFile + 
+                    ", javaExecutable=" + javaExecutable + "]";
     }
 
 }
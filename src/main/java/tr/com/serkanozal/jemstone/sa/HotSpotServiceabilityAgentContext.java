@@ -20,15 +20,58 @@ import sun.jvm.hotspot.HotSpotAgent;
 import sun.jvm.hotspot.runtime.VM;
 
 /**
+ * <p>
  * Context to hold required some important HotSpot SA instances such as
  * {@link HotSpotAgent}, {@link VM}. etc ...
+ * </p>
+ * 
+ * <p>
+ * Also holds the cancellation flag of the running {@link HotSpotServiceabilityAgentWorker}. 
+ * When the worker exceeds the maximum pause time of its request, it is cancelled 
+ * and its thread is interrupted. Long-running workers should check {@link #isCancelled()} 
+ * periodically and return the result they have produced so far, 
+ * then it is returned as incomplete. Workers can also publish the result they have produced so far 
+ * by {@link #publishPartialResult(HotSpotServiceabilityAgentResult)}, which is returned as incomplete 
+ * if they don't return in time after cancellation. 
+ * </p>
+ * 
+ * <p>
+ * Big results can be streamed to the caller record by record through {@link #getResultSink()} 
+ * while the worker is running.
+ * </p>
+ * 
+ * <p>
+ * Workers which need to observe the target process more than once (such as sampling profilers) 
+ * can let the target process run for a while between their observations by {@link #resumeTarget(long)} 
+ * if it is supported by the context ({@link #isTargetResumable()}).
+ * </p>
  * 
  * @author Serkan Ozal
  */
 public class HotSpotServiceabilityAgentContext {
 
+    private static final HotSpotServiceabilityAgentResultSink DISCARDING_RESULT_SINK = 
+            new HotSpotServiceabilityAgentResultSink() {
+                @Override
+                public boolean isEnabled() {
+                    return false;
+                }
+                
+                @Override
+                public void emit(Object record) {
+                    if (record == null) {
+                        throw new IllegalArgumentException("Record cannot be null");
+                    }
+                    // Nobody consumes records, so just discard
+                }
+            };
+    
     private final HotSpotAgent hotSpotAgent;
-    private final VM vm;
+    private volatile VM vm;
+    private volatile boolean cancelled;
+    private volatile HotSpotServiceabilityAgentResult partialResult;
+    private volatile HotSpotServiceabilityAgentResultSink resultSink = DISCARDING_RESULT_SINK;
+    private volatile TargetResumer targetResumer;
 
     public HotSpotServiceabilityAgentContext(HotSpotAgent hotSpotAgent, VM vm) {
         this.hotSpotAgent = hotSpotAgent;
@@ -52,5 +95,132 @@ public class HotSpotServiceabilityAgentContext {
     public VM getVM() {
         return vm;
     }
+    
+    /**
+     * Returns <code>true</code> if the running {@link HotSpotServiceabilityAgentWorker} has been cancelled, 
+     * otherwise <code>false</code>. 
+     * 
+     * @return the cancellation state of the running {@link HotSpotServiceabilityAgentWorker}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Cancels the running {@link HotSpotServiceabilityAgentWorker}. 
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Clears the cancellation state and the published partial result 
+     * before running the next {@link HotSpotServiceabilityAgentWorker} 
+     * on the same context (for example, over a session).
+     */
+    public void clearCancellation() {
+        cancelled = false;
+        partialResult = null;
+    }
+    
+    /**
+     * Publishes the result the running {@link HotSpotServiceabilityAgentWorker} has produced so far. 
+     * If the worker doesn't return in time after it has been cancelled, 
+     * the last published result is returned as incomplete instead of its own result. 
+     * Published result must not be modified by the worker anymore, 
+     * so a new instance should be published on every call.
+     * 
+     * @param partialResult the result produced so far
+     */
+    public void publishPartialResult(HotSpotServiceabilityAgentResult partialResult) {
+        this.partialResult = partialResult;
+    }
+    
+    /**
+     * Gets the last result published by the running {@link HotSpotServiceabilityAgentWorker}. 
+     * 
+     * @return the last published result, <code>null</code> if there is no published result
+     */
+    public HotSpotServiceabilityAgentResult getPartialResult() {
+        return partialResult;
+    }
+    
+    /**
+     * Gets the {@link HotSpotServiceabilityAgentResultSink} to emit result records 
+     * of the running {@link HotSpotServiceabilityAgentWorker} to the caller. 
+     * If the caller doesn't consume records, the returned sink is not enabled and discards them.
+     * 
+     * @return the {@link HotSpotServiceabilityAgentResultSink} of the running worker
+     */
+    public HotSpotServiceabilityAgentResultSink getResultSink() {
+        return resultSink;
+    }
+    
+    /**
+     * Sets the {@link HotSpotServiceabilityAgentResultSink} of the running {@link HotSpotServiceabilityAgentWorker}. 
+     * 
+     * @param resultSink the {@link HotSpotServiceabilityAgentResultSink} to be used, 
+     *                   <code>null</code> for discarding records
+     */
+    public void setResultSink(HotSpotServiceabilityAgentResultSink resultSink) {
+        this.resultSink = resultSink != null ? resultSink : DISCARDING_RESULT_SINK;
+    }
+    
+    /**
+     * Returns <code>true</code> if the target process can be resumed by {@link #resumeTarget(long)} 
+     * in this context, otherwise <code>false</code>. Target process can be resumed only on 
+     * one-shot executions on live processes (not on sessions, snapshots and core files).
+     * 
+     * @return the resumability of the target process in this context
+     */
+    public boolean isTargetResumable() {
+        return targetResumer != null;
+    }
+    
+    /**
+     * Detaches from the target process to let it run for the given time 
+     * and attaches to it again. The {@link VM} instance changes by re-attach, 
+     * so it must be retrieved again by {@link #getVM()} after this call 
+     * and anything read from the previous one must not be used anymore. 
+     * The time the target process runs is not counted as pause time.
+     * 
+     * @param timeInMsecs the time in milliseconds to let the target process run
+     * @throws InterruptedException if the worker is interrupted while the target process is running
+     *                              (for example, the worker has been cancelled)
+     * @throws UnsupportedOperationException if the target process cannot be resumed in this context
+     */
+    public void resumeTarget(long timeInMsecs) throws InterruptedException {
+        TargetResumer resumer = targetResumer;
+        if (resumer == null) {
+            throw new UnsupportedOperationException("Target process cannot be resumed in this context");
+        }
+        vm = resumer.resume(timeInMsecs);
+    }
+    
+    /**
+     * Sets the {@link TargetResumer} to resume the target process in this context. 
+     * 
+     * @param targetResumer the {@link TargetResumer} to be used, 
+     *                      <code>null</code> if the target process cannot be resumed
+     */
+    public void setTargetResumer(TargetResumer targetResumer) {
+        this.targetResumer = targetResumer;
+    }
+    
+    /**
+     * Interface for detaching from and re-attaching to the target process on behalf of the context.
+     */
+    public interface TargetResumer {
+        
+        /**
+         * Detaches from the target process, waits for the given time and attaches to it again.
+         * 
+         * @param timeInMsecs the time in milliseconds to let the target process run
+         * @return the {@link VM} instance of the re-attach
+         * @throws InterruptedException if the current thread is interrupted while waiting
+         */
+        VM resume(long timeInMsecs) throws InterruptedException;
+        
+    }
 
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * {@link DataInput} used by {@link HotSpotServiceabilityAgentCodec}s 
+ * which additionally supports deduplicated strings and nested objects.
+ * 
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentDecoder extends DataInput {
+
+    /**
+     * Reads a string written by {@link HotSpotServiceabilityAgentEncoder#writeString(String)}.
+     * 
+     * @return the read string
+     * @throws IOException if reading fails
+     */
+    String readString() throws IOException;
+    
+    /**
+     * Reads an object written by {@link HotSpotServiceabilityAgentEncoder#writeObject(Object)}.
+     * 
+     * @return the read object
+     * @throws IOException if reading fails
+     */
+    <T> T readObject() throws IOException;
+    
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link DataOutput} used by {@link HotSpotServiceabilityAgentCodec}s 
+ * which additionally supports deduplicated strings and nested objects.
+ * 
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentEncoder extends DataOutput {
+
+    /**
+     * Writes the given string. Every distinct string is written only once per message, 
+     * following occurrences are written as references to it. 
+     * Unlike {@link #writeUTF(String)}, <code>null</code> and long strings are also supported.
+     * 
+     * @param str the string to be written
+     * @throws IOException if writing fails
+     */
+    void writeString(String str) throws IOException;
+    
+    /**
+     * Writes the given object with its registered {@link HotSpotServiceabilityAgentCodec} 
+     * or with Java serialization if there is no registered codec for its type.
+     * 
+     * @param obj the object to be written
+     * @throws IOException if writing fails
+     */
+    void writeObject(Object obj) throws IOException;
+    
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+/**
+ * Holds the information about an execution on HotSpot agent process such as 
+ * how long the attach took and how long the target process has been paused.
+ * 
+ * @see HotSpotServiceabilityAgentExecutionListener
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotServiceabilityAgentExecutionInfo {
+
+    private final int processId;
+    private final String workerClassName;
+    private final long attachTimeInNanos;
+    private final long pauseTimeInNanos;
+    private final boolean detached;
+    private final boolean incomplete;
+    private final Throwable error;
+    
+    public HotSpotServiceabilityAgentExecutionInfo(int processId, String workerClassName, 
+            long attachTimeInNanos, long pauseTimeInNanos, boolean detached, Throwable error) {
+        this(processId, workerClassName, attachTimeInNanos, pauseTimeInNanos, detached, false, error);
+    }
+    
+    public HotSpotServiceabilityAgentExecutionInfo(int processId, String workerClassName, 
+            long attachTimeInNanos, long pauseTimeInNanos, boolean detached, boolean incomplete, 
+            Throwable error) {
+        this.processId = processId;
+        this.workerClassName = workerClassName;
+        this.attachTimeInNanos = attachTimeInNanos;
+        this.pauseTimeInNanos = pauseTimeInNanos;
+        this.detached = detached;
+        this.incomplete = incomplete;
+        this.error = error;
+    }
+
+    /**
+     * Gets the id of the target process.
+     * 
+     * @return the id of the target process
+     */
+    public int getProcessId() {
+        return processId;
+    }
+
+    /**
+     * Gets the class name of the executed {@link HotSpotServiceabilityAgentWorker}. 
+     * 
+     * @return the class name of the executed {@link HotSpotServiceabilityAgentWorker}, 
+     *         <code>null</code> if there is no worker (for example, opening or closing a session)
+     */
+    public String getWorkerClassName() {
+        return workerClassName;
+    }
+
+    /**
+     * Gets the time in nanoseconds passed until VM of the target process is ready to use 
+     * since attach has been started. 
+     * 
+     * @return the attach time in nanoseconds, 
+     *         <code>0</code> if this execution didn't attach (for example, executions over a session)
+     */
+    public long getAttachTimeInNanos() {
+        return attachTimeInNanos;
+    }
+
+    /**
+     * Gets the time in nanoseconds the target process has been paused. 
+     * If the target process is still attached (for example, executions over a session), 
+     * this is the time passed since attach has been started.
+     * 
+     * @return the pause time in nanoseconds
+     */
+    public long getPauseTimeInNanos() {
+        return pauseTimeInNanos;
+    }
+
+    /**
+     * Returns <code>true</code> if the target process has been detached at the end of this execution, 
+     * otherwise <code>false</code>.
+     * 
+     * @return the detached state of the target process
+     */
+    public boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * Returns <code>true</code> if the worker has been cancelled for exceeding the maximum pause time, 
+     * so its result is incomplete, otherwise <code>false</code>.
+     * 
+     * @return the incomplete state of the result
+     */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+
+    /**
+     * Gets the error if this execution has failed.
+     * 
+     * @return the error if this execution has failed, otherwise <code>null</code>
+     */
+    public Throwable getError() {
+        return error;
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotServiceabilityAgentExecutionInfo [" + 
+                "processId=" + processId + 
+                ", workerClassName=" + workerClassName + 
+                ", attachTimeInNanos=" + attachTimeInNanos + 
+                ", pauseTimeInNanos=" + pauseTimeInNanos + 
+                ", detached=" + detached + 
+                ", incomplete=" + incomplete + 
+                ", error=" + error + "]";
+    }
+    
+}
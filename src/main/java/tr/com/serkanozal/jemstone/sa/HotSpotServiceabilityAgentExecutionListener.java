@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+/**
+ * Interface for getting notified about executions on HotSpot agent process. 
+ * It is called on the caller thread after each execution, 
+ * so implementations should return quickly.
+ * 
+ * @see HotSpotServiceabilityAgentExecutionInfo
+ * @see HotSpotServiceabilityAgentManager#addExecutionListener(HotSpotServiceabilityAgentExecutionListener)
+ *
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentExecutionListener {
+
+    /**
+     * Called when an execution on HotSpot agent process has completed.
+     * 
+     * @param executionInfo the {@link HotSpotServiceabilityAgentExecutionInfo} about the completed execution
+     */
+    void onExecutionCompleted(HotSpotServiceabilityAgentExecutionInfo executionInfo);
+    
+}
@@ -17,9 +17,15 @@
 package tr.com.serkanozal.jemstone.sa;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchItem;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchResult;
 import tr.com.serkanozal.jemstone.sa.impl.compressedrefs.HotSpotSACompressedReferencesResult;
 import tr.com.serkanozal.jemstone.sa.impl.compressedrefs.HotSpotSACompressedReferencesWorker;
+import tr.com.serkanozal.jemstone.sa.impl.discovery.HotSpotSAJvmInfo;
+import tr.com.serkanozal.jemstone.sa.impl.fleet.HotSpotSAFleetResult;
 import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerResult;
 
 /**
@@ -39,12 +45,20 @@ public interface HotSpotServiceabilityAgentManager {
     
     /**
      * Returns <code>true</code> if HotSpot Serviceability Agent support is enable, 
-     * otherwise <code>false</code>.
+     * otherwise <code>false</code>. If support hasn't been probed yet, 
+     * waits until it is probed.
      * 
      * @return the enable state of HotSpot Serviceability Agent support
      */
     boolean isEnable();
     
+    /**
+     * Gets the current state of HotSpot Serviceability Agent support without waiting probe to complete.
+     * 
+     * @return the {@link HotSpotServiceabilityAgentStatus}
+     */
+    HotSpotServiceabilityAgentStatus getStatus();
+    
     /**
      * Executes given typed {@link HotSpotServiceabilityAgentWorker} on HotSpot
      * agent process and returns a {@link HotSpotServiceabilityAgentResult} instance as result.
@@ -153,6 +167,266 @@ public interface HotSpotServiceabilityAgentManager {
     R executeOnHotSpotSA(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
                 int timeoutInMsecs, int pipelineSizeInBytes, int processId);
     
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on HotSpot agent
+     * process with the given {@link HotSpotServiceabilityAgentConfig} 
+     * and returns a {@link HotSpotServiceabilityAgentResult} instance as result. 
+     * Configurations which are not set in the given {@link HotSpotServiceabilityAgentConfig} 
+     * are taken from the defaults. 
+     * If the target process is paused longer than the maximum pause time in the configuration, 
+     * the worker is cancelled over {@link HotSpotServiceabilityAgentContext} and 
+     * the target process is detached. Then the result returned by the worker is marked as incomplete 
+     * if it is a {@link HotSpotServiceabilityAgentPartialResult}.
+     *
+     * @param worker    the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param     the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @param config    the {@link HotSpotServiceabilityAgentConfig} for the execution
+     * @return the {@link HotSpotServiceabilityAgentResult} instance as result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R executeOnHotSpotSA(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+                HotSpotServiceabilityAgentConfig config);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on HotSpot agent process 
+     * with the given {@link HotSpotServiceabilityAgentConfig} and passes the records emitted by the worker 
+     * through {@link HotSpotServiceabilityAgentContext#getResultSink()} to the given 
+     * {@link HotSpotServiceabilityAgentRecordHandler} while the worker is running. 
+     * All the records are handled before this method returns. 
+     * When the target process is the current process, records are handled after detach.
+     *
+     * @param worker        the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param         the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @param config        the {@link HotSpotServiceabilityAgentConfig} for the execution, 
+     *                      <code>null</code> for the defaults
+     * @param recordHandler the {@link HotSpotServiceabilityAgentRecordHandler} to handle emitted records
+     * @return the {@link HotSpotServiceabilityAgentResult} instance as result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult, T> 
+    R executeWithRecordsOnHotSpotSA(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+                HotSpotServiceabilityAgentConfig config, HotSpotServiceabilityAgentRecordHandler<T> recordHandler);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} asynchronously on HotSpot agent process 
+     * with the given {@link HotSpotServiceabilityAgentConfig} and returns 
+     * a {@link HotSpotServiceabilityAgentRecordStream} over the records emitted by the worker 
+     * through {@link HotSpotServiceabilityAgentContext#getResultSink()}. 
+     * Records are available as soon as they are emitted and the worker waits 
+     * while the consumed records are behind. If the execution fails, 
+     * the error is thrown from the stream after the records emitted before the failure. 
+     * Closing the stream before all the records have been consumed cancels the execution.
+     *
+     * @param worker    the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param     the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @param config    the {@link HotSpotServiceabilityAgentConfig} for the execution, 
+     *                  <code>null</code> for the defaults
+     * @return the {@link HotSpotServiceabilityAgentRecordStream} over the records emitted by the worker
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult, T> 
+    HotSpotServiceabilityAgentRecordStream<T> streamOnHotSpotSA(HotSpotServiceabilityAgentWorker<P, R> worker, 
+                P param, HotSpotServiceabilityAgentConfig config);
+    
+    /**
+     * Executes given {@link HotSpotSABatchItem}s sequentially on the same attach to the current process 
+     * and returns their results in a {@link HotSpotSABatchResult} instance. 
+     * Failure of an item is reported in the result and doesn't prevent the other items from being executed.
+     * 
+     * @param items the {@link HotSpotSABatchItem}s to execute
+     * @return the {@link HotSpotSABatchResult} instance holding the results of items in the same order
+     */
+    HotSpotSABatchResult executeBatchOnHotSpotSA(List<HotSpotSABatchItem<?, ?>> items);
+    
+    /**
+     * Executes given {@link HotSpotSABatchItem}s sequentially on the same attach to the specified process 
+     * and returns their results in a {@link HotSpotSABatchResult} instance. 
+     * Failure of an item is reported in the result and doesn't prevent the other items from being executed.
+     * 
+     * @param items                 the {@link HotSpotSABatchItem}s to execute
+     * @param timeoutInMsecs        the timeout in milliseconds to wait at most for terminating
+     *                              connection between current process and HotSpot agent process
+     * @param pipelineSizeInBytes   the maximum size of pipeline in bytes for getting result 
+     *                              from HotSpot SA process 
+     * @param processId             id of target process to attach and run on it  
+     * @return the {@link HotSpotSABatchResult} instance holding the results of items in the same order
+     */
+    HotSpotSABatchResult executeBatchOnHotSpotSA(List<HotSpotSABatchItem<?, ?>> items, 
+                int timeoutInMsecs, int pipelineSizeInBytes, int processId);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on all of the specified processes concurrently 
+     * (each one with its own HotSpot agent process) and returns their results 
+     * in a {@link HotSpotSAFleetResult} instance by their process ids. 
+     * Failure on a process is reported in the result and doesn't prevent the other processes 
+     * from being executed on.
+     * 
+     * @param worker        the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param         the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @param processIds    ids of target processes to attach and run on them
+     * @param parallelism   the maximum number of processes to be attached at the same time
+     * @return the {@link HotSpotSAFleetResult} instance holding the results by process ids
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    HotSpotSAFleetResult<R> executeOnProcesses(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+                int[] processIds, int parallelism);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on all of the specified processes concurrently 
+     * (each one with its own HotSpot agent process) and returns their results 
+     * in a {@link HotSpotSAFleetResult} instance by their process ids. 
+     * Failure on a process is reported in the result and doesn't prevent the other processes 
+     * from being executed on.
+     * 
+     * @param worker                the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param                 the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @param processIds            ids of target processes to attach and run on them
+     * @param parallelism           the maximum number of processes to be attached at the same time
+     * @param timeoutInMsecs        the timeout in milliseconds to wait at most for the execution 
+     *                              on each process. Execution on a process which has not completed in time 
+     *                              is cancelled (as by cancelling an asynchronous execution) and 
+     *                              reported with a {@link java.util.concurrent.TimeoutException}.
+     * @param pipelineSizeInBytes   the maximum size of pipeline in bytes for getting result 
+     *                              from HotSpot SA process 
+     * @return the {@link HotSpotSAFleetResult} instance holding the results by process ids
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    HotSpotSAFleetResult<R> executeOnProcesses(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+                int[] processIds, int parallelism, int timeoutInMsecs, int pipelineSizeInBytes);
+    
+    /**
+     * Discovers the live HotSpot JVMs on the local machine from their performance data 
+     * (<code>hsperfdata</code>) files without attaching to them. 
+     * So process ids of discovered JVMs can be given to 
+     * {@link #executeOnProcesses(HotSpotServiceabilityAgentWorker, HotSpotServiceabilityAgentParameter, int[], int)}
+     * as target processes.
+     * 
+     * @return the {@link HotSpotSAJvmInfo}s of discovered JVMs ordered by their process ids
+     */
+    List<HotSpotSAJvmInfo> discoverJvms();
+    
+    /**
+     * Discovers the live HotSpot JVMs on the local machine 
+     * whose Java command (main class and arguments) contains a match of the given pattern 
+     * from their performance data (<code>hsperfdata</code>) files without attaching to them.
+     * 
+     * @param javaCommandPattern the regular expression to be found in Java command of JVMs
+     * @return the {@link HotSpotSAJvmInfo}s of discovered JVMs ordered by their process ids
+     */
+    List<HotSpotSAJvmInfo> discoverJvms(String javaCommandPattern);
+    
+    /**
+     * Executes given typed {@link HotSpotServiceabilityAgentWorker} on HotSpot agent process asynchronously 
+     * and returns a {@link CompletableFuture} to get its {@link HotSpotServiceabilityAgentResult} result.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param workerClass the type of {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param       the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @return the {@link CompletableFuture} to get result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass, 
+                P param);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on HotSpot agent process asynchronously 
+     * and returns a {@link CompletableFuture} to get its {@link HotSpotServiceabilityAgentResult} result.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param worker the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @return the {@link CompletableFuture} to get result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(HotSpotServiceabilityAgentWorker<P, R> worker);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on HotSpot agent process asynchronously 
+     * and returns a {@link CompletableFuture} to get its {@link HotSpotServiceabilityAgentResult} result.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param worker the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param  the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @return the {@link CompletableFuture} to get result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(HotSpotServiceabilityAgentWorker<P, R> worker, P param);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on HotSpot agent process asynchronously 
+     * and returns a {@link CompletableFuture} to get its {@link HotSpotServiceabilityAgentResult} result.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param worker                the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param                 the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @param timeoutInMsecs        the timeout in milliseconds to wait at most for terminating
+     *                              connection between current process and HotSpot agent process
+     * @param pipelineSizeInBytes   the maximum size of pipeline in bytes for getting result 
+     *                              from HotSpot SA process 
+     * @param processId             id of target process to attach and run on it  
+     * @return the {@link CompletableFuture} to get result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+                int timeoutInMsecs, int pipelineSizeInBytes, int processId);
+    
+    /**
+     * Opens a {@link HotSpotServiceabilityAgentSession} attached to the specified process
+     * for executing multiple {@link HotSpotServiceabilityAgentWorker}s on the same attach.
+     * Note that session can't be opened on the current process, 
+     * because attached process stays paused while session is open.
+     * 
+     * @param processId id of target process to attach and run on it
+     * @return the opened {@link HotSpotServiceabilityAgentSession}
+     */
+    HotSpotServiceabilityAgentSession openSession(int processId);
+    
+    /**
+     * Opens a {@link HotSpotServiceabilityAgentSession} with the given {@link HotSpotServiceabilityAgentConfig}
+     * for executing multiple {@link HotSpotServiceabilityAgentWorker}s on the same attach.
+     * 
+     * @param config the {@link HotSpotServiceabilityAgentConfig} to be used for the session
+     * @return the opened {@link HotSpotServiceabilityAgentSession}
+     */
+    HotSpotServiceabilityAgentSession openSession(HotSpotServiceabilityAgentConfig config);
+    
+    /**
+     * Registers the given {@link HotSpotServiceabilityAgentExecutionListener} to be notified 
+     * after each execution on HotSpot agent process.
+     * 
+     * @param listener the {@link HotSpotServiceabilityAgentExecutionListener} to be registered
+     */
+    void addExecutionListener(HotSpotServiceabilityAgentExecutionListener listener);
+    
+    /**
+     * Deregisters the given {@link HotSpotServiceabilityAgentExecutionListener}.
+     * 
+     * @param listener the {@link HotSpotServiceabilityAgentExecutionListener} to be deregistered
+     */
+    void removeExecutionListener(HotSpotServiceabilityAgentExecutionListener listener);
+    
+    /**
+     * Registers the given {@link HotSpotServiceabilityAgentCodec} to transfer objects of its type 
+     * (such as custom parameters and results) in the compact binary format 
+     * instead of Java serialization.
+     * 
+     * @param codec the {@link HotSpotServiceabilityAgentCodec} to be registered
+     */
+    <T> void registerCodec(HotSpotServiceabilityAgentCodec<T> codec);
+    
+    /**
+     * Deregisters the {@link HotSpotServiceabilityAgentCodec} of the given type. 
+     * Objects of this type are transferred by Java serialization after that.
+     * 
+     * @param type the type whose {@link HotSpotServiceabilityAgentCodec} to be deregistered
+     */
+    void deregisterCodec(Class<?> type);
+    
     /**
      * Get the requested {@link HotSpotServiceabilityAgentPlugin} with the specified <code>id</code>.
      * 
@@ -280,6 +554,49 @@ public interface HotSpotServiceabilityAgentManager {
      W extends HotSpotServiceabilityAgentWorker<P, R>> 
     R runPlugin(HotSpotServiceabilityAgentPlugin<P, R, W> plugin, String[] args);
     
+    /**
+     * Runs the {@link HotSpotServiceabilityAgentPlugin} has specified <code>id</code> asynchronously.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param id the id of {@link HotSpotServiceabilityAgentPlugin} to be run
+     * @return the {@link CompletableFuture} to get result of plugin execution
+     */
+    <R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsync(String id);
+    
+    /**
+     * Runs the {@link HotSpotServiceabilityAgentPlugin} has specified <code>id</code> 
+     * with given {@link HotSpotServiceabilityAgentParameter} asynchronously.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param id    the id of {@link HotSpotServiceabilityAgentPlugin} to be run
+     * @param param the {@link HotSpotServiceabilityAgentParameter} instance to be used as parameter 
+     *              by the plugin
+     * @return the {@link CompletableFuture} to get result of plugin execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsync(String id, P param);
+    
+    /**
+     * Runs the {@link HotSpotServiceabilityAgentPlugin} has specified <code>id</code> 
+     * with given {@link HotSpotServiceabilityAgentParameter} asynchronously.
+     * Cancelling the returned {@link CompletableFuture} destroys the one-shot HotSpot agent process 
+     * serving the execution. Daemon and session processes are not destroyed, 
+     * instead the execution is cancelled over its pipeline.
+     * 
+     * @param id        the id of {@link HotSpotServiceabilityAgentPlugin} to be run
+     * @param param     the {@link HotSpotServiceabilityAgentParameter} instance to be used as parameter 
+     *                  by the plugin
+     * @param config    the execution configuration             
+     * @return the {@link CompletableFuture} to get result of plugin execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsync(String id, P param, HotSpotServiceabilityAgentConfig config);
+    
     /**
      * Gets the compressed references information as of current process
      * {@link HotSpotSACompressedReferencesResult} instance.
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+/**
+ * Interface for {@link HotSpotServiceabilityAgentResult} implementations 
+ * which can be returned partially by their workers when they are cancelled 
+ * for exceeding the maximum pause time. Such results are marked as incomplete 
+ * before they are returned to the caller.
+ * 
+ * @see HotSpotServiceabilityAgentContext#isCancelled()
+ *
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentPartialResult extends HotSpotServiceabilityAgentResult {
+
+    /**
+     * Returns <code>true</code> if this result is incomplete, otherwise <code>false</code>.
+     * 
+     * @return the incomplete state of this result
+     */
+    boolean isIncomplete();
+    
+    /**
+     * Sets the incomplete state of this result.
+     * 
+     * @param incomplete the incomplete state of this result
+     */
+    void setIncomplete(boolean incomplete);
+    
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+/**
+ * Interface for consuming the records emitted through {@link HotSpotServiceabilityAgentResultSink} 
+ * by a running {@link HotSpotServiceabilityAgentWorker}. 
+ * It is called on a dedicated reader thread in the order of the emits, 
+ * and HotSpot agent process waits while it is busy. So implementations should return quickly.
+ * 
+ * @see HotSpotServiceabilityAgentManager#executeWithRecordsOnHotSpotSA(HotSpotServiceabilityAgentWorker, 
+ *      HotSpotServiceabilityAgentParameter, HotSpotServiceabilityAgentConfig, HotSpotServiceabilityAgentRecordHandler)
+ *
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentRecordHandler<T> {
+
+    /**
+     * Called when a record has been emitted by the running worker.
+     * 
+     * @param record the emitted record
+     */
+    void onRecord(T record);
+    
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * {@link Iterator} over the records emitted by a {@link HotSpotServiceabilityAgentWorker} 
+ * which is running asynchronously. Closing it cancels the execution 
+ * (see {@link HotSpotServiceabilityAgentManager#executeOnHotSpotSAAsync(HotSpotServiceabilityAgentWorker)}), 
+ * so the caller can stop consuming the records before all of them have been emitted.
+ * 
+ * @see HotSpotServiceabilityAgentManager#streamOnHotSpotSA(HotSpotServiceabilityAgentWorker, 
+ *      HotSpotServiceabilityAgentParameter, HotSpotServiceabilityAgentConfig)
+ *
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentRecordStream<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Cancels the execution if it is still running and discards the records which have not been consumed yet. 
+     * After that, {@link #hasNext()} returns <code>false</code>.
+     */
+    @Override
+    void close();
+    
+}
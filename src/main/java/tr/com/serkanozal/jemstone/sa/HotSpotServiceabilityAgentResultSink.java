@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+/**
+ * Interface for emitting result records from a running {@link HotSpotServiceabilityAgentWorker} 
+ * to the caller while the worker is still running, instead of building the whole result in memory. 
+ * Emitted records are encoded and streamed to the caller through the pipeline one by one, 
+ * so emitting blocks when the caller doesn't consume them fast enough.
+ * 
+ * @see HotSpotServiceabilityAgentContext#getResultSink()
+ * @see HotSpotServiceabilityAgentRecordHandler
+ *
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentResultSink {
+
+    /**
+     * Returns <code>true</code> if the caller consumes the emitted records, otherwise <code>false</code>. 
+     * When it is not enabled, emitted records are discarded, 
+     * so workers should put them into their results instead.
+     * 
+     * @return the enabled state of this sink
+     */
+    boolean isEnabled();
+    
+    /**
+     * Emits the given record to the caller.
+     * 
+     * @param record the record to emit. It cannot be <code>null</code> and must be encodable 
+     *               (a registered codec exists for its type or it is {@link java.io.Serializable})
+     */
+    void emit(Object record);
+    
+}
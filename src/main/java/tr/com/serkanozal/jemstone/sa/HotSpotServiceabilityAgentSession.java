@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+import java.io.Closeable;
+
+/**
+ * <p>
+ * Interface for executing multiple {@link HotSpotServiceabilityAgentWorker}s 
+ * on the same attach to the target process. 
+ * </p>
+ * 
+ * <p>
+ * The target process is attached as HotSpot agent once while opening the session 
+ * and it is detached while closing the session. So all of the workers executed 
+ * over the session share the same {@link HotSpotServiceabilityAgentContext} and 
+ * the target process is paused only once instead of per worker execution.
+ * Since the target process stays paused while the session is open, 
+ * session should be closed as soon as possible.
+ * </p>
+ * 
+ * @see HotSpotServiceabilityAgentManager#openSession(int)
+ * 
+ * @author Serkan Ozal
+ */
+public interface HotSpotServiceabilityAgentSession extends Closeable {
+
+    /**
+     * Gets the id of the process attached by this session.
+     * 
+     * @return the id of the attached process
+     */
+    int getProcessId();
+    
+    /**
+     * Returns <code>true</code> if this session is still attached to the target process, 
+     * otherwise <code>false</code>.
+     * 
+     * @return the open state of this session
+     */
+    boolean isOpen();
+    
+    /**
+     * Executes given typed {@link HotSpotServiceabilityAgentWorker} on the attached process 
+     * and returns a {@link HotSpotServiceabilityAgentResult} instance as result.
+     * 
+     * @param workerClass the type of {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @return the {@link HotSpotServiceabilityAgentResult} instance as result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass);
+    
+    /**
+     * Executes given typed {@link HotSpotServiceabilityAgentWorker} on the attached process 
+     * and returns a {@link HotSpotServiceabilityAgentResult} instance as result.
+     * 
+     * @param workerClass the type of {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param       the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @return the {@link HotSpotServiceabilityAgentResult} instance as result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass, P param);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on the attached process 
+     * and returns a {@link HotSpotServiceabilityAgentResult} instance as result.
+     * 
+     * @param worker the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @return the {@link HotSpotServiceabilityAgentResult} instance as result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(HotSpotServiceabilityAgentWorker<P, R> worker);
+    
+    /**
+     * Executes given {@link HotSpotServiceabilityAgentWorker} on the attached process 
+     * and returns a {@link HotSpotServiceabilityAgentResult} instance as result.
+     * 
+     * @param worker the {@link HotSpotServiceabilityAgentWorker} instance to execute
+     * @param param  the {@link HotSpotServiceabilityAgentParameter} instance as parameter to worker
+     * @return the {@link HotSpotServiceabilityAgentResult} instance as result of worker execution
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(HotSpotServiceabilityAgentWorker<P, R> worker, P param);
+    
+    /**
+     * Detaches from the target process and releases the resources of this session.
+     */
+    @Override
+    void close();
+    
+}
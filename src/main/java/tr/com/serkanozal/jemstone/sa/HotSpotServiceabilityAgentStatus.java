@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa;
+
+/**
+ * Represents the state of HotSpot Serviceability Agent support. 
+ * Support is probed by a trial attach to the current process on the first use 
+ * (or in background if it is configured) instead of at class loading.
+ * 
+ * @see HotSpotServiceabilityAgentManager#getStatus()
+ *
+ * @author Serkan Ozal
+ */
+public enum HotSpotServiceabilityAgentStatus {
+
+    /**
+     * Support hasn't been probed yet.
+     */
+    UNKNOWN,
+    
+    /**
+     * Support is being probed right now.
+     */
+    PROBING,
+    
+    /**
+     * Support has been probed and it is enable.
+     */
+    ENABLED,
+    
+    /**
+     * Support is disabled by configuration or probe has failed.
+     */
+    DISABLED
+    
+}
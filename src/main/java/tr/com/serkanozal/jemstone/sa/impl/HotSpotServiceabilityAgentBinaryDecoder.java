@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+
+/**
+ * {@link HotSpotServiceabilityAgentDecoder} implementation which reads 
+ * what is written by {@link HotSpotServiceabilityAgentBinaryEncoder}.
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentBinaryDecoder 
+        extends DataInputStream implements HotSpotServiceabilityAgentDecoder {
+
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    private final List<String> stringTable = new ArrayList<String>();
+    
+    HotSpotServiceabilityAgentBinaryDecoder(InputStream in, 
+            HotSpotServiceabilityAgentCodecRegistry codecRegistry) {
+        super(in);
+        this.codecRegistry = codecRegistry;
+    }
+    
+    HotSpotServiceabilityAgentCodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    @Override
+    public String readString() throws IOException {
+        int index = readInt();
+        if (index == HotSpotServiceabilityAgentBinaryEncoder.NULL_STRING) {
+            return null;
+        }
+        if (index == HotSpotServiceabilityAgentBinaryEncoder.NEW_STRING) {
+            byte[] data = new byte[readInt()];
+            readFully(data);
+            String str = new String(data, StandardCharsets.UTF_8);
+            stringTable.add(str);
+            return str;
+        }
+        if (index < 0 || index >= stringTable.size()) {
+            throw new StreamCorruptedException("Invalid string reference: " + index);
+        }
+        return stringTable.get(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T readObject() throws IOException {
+        byte type = readByte();
+        switch (type) {
+            case HotSpotServiceabilityAgentBinaryEncoder.NULL_OBJECT:
+                return null;
+            case HotSpotServiceabilityAgentBinaryEncoder.CODEC_OBJECT:
+                String typeName = readString();
+                HotSpotServiceabilityAgentCodec<?> codec = codecRegistry.getCodec(typeName);
+                if (codec == null) {
+                    throw new StreamCorruptedException("No codec has been registered for type " + typeName);
+                }
+                return (T) codec.decode(this);
+            case HotSpotServiceabilityAgentBinaryEncoder.SERIALIZED_OBJECT:
+                byte[] data = new byte[readInt()];
+                readFully(data);
+                ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+                try {
+                    return (T) ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                } finally {
+                    ois.close();
+                }
+            default:
+                throw new StreamCorruptedException("Invalid object type: " + type);    
+        }
+    }
+
+}
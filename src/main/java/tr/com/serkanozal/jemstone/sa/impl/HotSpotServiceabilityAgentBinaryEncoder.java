@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+
+/**
+ * {@link HotSpotServiceabilityAgentEncoder} implementation which writes 
+ * length-prefixed strings into a per message string table 
+ * and objects with their registered {@link HotSpotServiceabilityAgentCodec}s.
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentBinaryEncoder 
+        extends DataOutputStream implements HotSpotServiceabilityAgentEncoder {
+
+    static final int NULL_STRING = -1;
+    static final int NEW_STRING = -2;
+    
+    static final byte NULL_OBJECT = 0;
+    static final byte CODEC_OBJECT = 1;
+    static final byte SERIALIZED_OBJECT = 2;
+    
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    private final Map<String, Integer> stringTable = new HashMap<String, Integer>();
+    
+    HotSpotServiceabilityAgentBinaryEncoder(OutputStream out, 
+            HotSpotServiceabilityAgentCodecRegistry codecRegistry) {
+        super(out);
+        this.codecRegistry = codecRegistry;
+    }
+    
+    HotSpotServiceabilityAgentCodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+
+    @Override
+    public void writeString(String str) throws IOException {
+        if (str == null) {
+            writeInt(NULL_STRING);
+            return;
+        }
+        Integer index = stringTable.get(str);
+        if (index != null) {
+            // Already written, so just refer to it
+            writeInt(index);
+        } else {
+            byte[] data = str.getBytes(StandardCharsets.UTF_8);
+            writeInt(NEW_STRING);
+            writeInt(data.length);
+            write(data);
+            stringTable.put(str, stringTable.size());
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public void writeObject(Object obj) throws IOException {
+        if (obj == null) {
+            writeByte(NULL_OBJECT);
+            return;
+        }
+        HotSpotServiceabilityAgentCodec codec = codecRegistry.getCodec(obj.getClass().getName());
+        if (codec != null) {
+            writeByte(CODEC_OBJECT);
+            writeString(obj.getClass().getName());
+            codec.encode(obj, this);
+        } else {
+            // There is no codec for this type, so fallback to Java serialization
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            try {
+                oos.writeObject(obj);
+            } finally {
+                oos.close();
+            }
+            byte[] data = baos.toByteArray();
+            writeByte(SERIALIZED_OBJECT);
+            writeInt(data.length);
+            write(data);
+        }
+    }
+    
+}
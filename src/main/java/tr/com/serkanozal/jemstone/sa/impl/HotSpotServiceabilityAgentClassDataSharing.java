@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * <p>
+ * Maintains a class data sharing (CDS) archive for HotSpot agent processes, 
+ * so HotSpot SA classes are mapped from the archive instead of being loaded and verified 
+ * from <code>sa-jdi.jar</code> by every HotSpot agent process.
+ * </p>
+ * 
+ * <p>
+ * On Java 8, only the classes on the boot classpath can be archived. 
+ * So <code>sa-jdi.jar</code> is appended to the boot classpath of HotSpot agent processes 
+ * and the archive is generated (in background on the first use) from the default class list of the JDK 
+ * and all the classes in <code>sa-jdi.jar</code>. Until the archive is ready, 
+ * HotSpot agent processes are started without it. Since archive is used with <code>-Xshare:auto</code>, 
+ * JVM just ignores it if it is not usable.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentClassDataSharing {
+
+    private static final String JAVA_8 = "1.8";
+    
+    private final String saJdiJarPath;
+    private final File archiveFile;
+    private final AtomicBoolean archiveGenerationStarted = new AtomicBoolean();
+    
+    private HotSpotServiceabilityAgentClassDataSharing(String saJdiJarPath, File archiveFile) {
+        this.saJdiJarPath = saJdiJarPath;
+        this.archiveFile = archiveFile;
+    }
+    
+    /**
+     * Creates a {@link HotSpotServiceabilityAgentClassDataSharing} 
+     * for the given classpath of HotSpot agent processes.
+     * 
+     * @param cacheDirectory    the directory to store the archive
+     * @param classpathForAgent the classpath of HotSpot agent processes
+     * @return the created {@link HotSpotServiceabilityAgentClassDataSharing} 
+     *         or <code>null</code> if it is not supported for the current JVM or the given classpath
+     */
+    static HotSpotServiceabilityAgentClassDataSharing create(File cacheDirectory, String classpathForAgent) {
+        if (!JAVA_8.equals(System.getProperty("java.specification.version"))) {
+            return null;
+        }
+        for (String cp : classpathForAgent.split(File.pathSeparator)) {
+            File saJdiJar = new File(cp);
+            // HotSpot SA classes loaded through composite library (sa-jdi-all.jar) 
+            // by custom classloader cannot be archived
+            if (saJdiJar.getName().equals("sa-jdi.jar") && saJdiJar.isFile()) {
+                String key = System.getProperty("java.home") + File.pathSeparator + 
+                             System.getProperty("java.vm.version") + File.pathSeparator + 
+                             saJdiJar.getAbsolutePath() + File.pathSeparator + 
+                             saJdiJar.length() + File.pathSeparator + 
+                             saJdiJar.lastModified();
+                File archiveFile = 
+                        new File(cacheDirectory, "hotspotsa-" + Integer.toHexString(key.hashCode()) + ".jsa");
+                return new HotSpotServiceabilityAgentClassDataSharing(saJdiJar.getAbsolutePath(), archiveFile);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the VM arguments for starting a HotSpot agent process. 
+     * Starts generating the archive in background if it doesn't exist yet.
+     * 
+     * @return the VM arguments for starting a HotSpot agent process
+     */
+    List<String> getVmArguments() {
+        List<String> vmArgs = new ArrayList<String>();
+        vmArgs.add("-Xbootclasspath/a:" + saJdiJarPath);
+        if (archiveFile.exists()) {
+            vmArgs.add("-XX:+UnlockDiagnosticVMOptions");
+            vmArgs.add("-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath());
+            vmArgs.add("-Xshare:auto");
+        } else if (archiveGenerationStarted.compareAndSet(false, true)) {
+            Thread archiveGenerationThread = new Thread("jemstone-hotspotsa-cds") {
+                @Override
+                public void run() {
+                    generateArchive();
+                }
+            };
+            // Don't prevent the application from terminating
+            archiveGenerationThread.setDaemon(true);
+            archiveGenerationThread.start();
+        }
+        return vmArgs;
+    }
+    
+    private void generateArchive() {
+        File classListFile = null;
+        File tempArchiveFile = null;
+        File logFile = null;
+        try {
+            File cacheDirectory = archiveFile.getParentFile();
+            if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+                return;
+            }
+            classListFile = File.createTempFile(archiveFile.getName(), ".classlist", cacheDirectory);
+            tempArchiveFile = File.createTempFile(archiveFile.getName(), ".tmp", cacheDirectory);
+            logFile = File.createTempFile(archiveFile.getName(), ".log", cacheDirectory);
+            writeClassList(classListFile);
+            
+            List<String> args = new ArrayList<String>();
+            args.add(System.getProperty("java.home") + "/bin/java");
+            args.add("-XX:+UnlockDiagnosticVMOptions");
+            args.add("-Xshare:dump");
+            args.add("-XX:SharedClassListFile=" + classListFile.getAbsolutePath());
+            args.add("-XX:SharedArchiveFile=" + tempArchiveFile.getAbsolutePath());
+            args.add("-Xbootclasspath/a:" + saJdiJarPath);
+            ProcessBuilder processBuilder = new ProcessBuilder(args);
+            processBuilder.redirectErrorStream(true);
+            processBuilder.redirectOutput(logFile);
+            Process process = processBuilder.start();
+            if (process.waitFor() == 0 && tempArchiveFile.length() > 0) {
+                // Move it when it is completed, 
+                // so HotSpot agent processes never see a partially written archive
+                Files.move(tempArchiveFile.toPath(), archiveFile.toPath(), 
+                           StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                tempArchiveFile = null;
+            }
+        } catch (IOException e) {
+            // Archive is just an optimization, so there is nothing to do
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (classListFile != null) {
+                classListFile.delete();
+            }
+            if (tempArchiveFile != null) {
+                tempArchiveFile.delete();
+            }
+            if (logFile != null) {
+                logFile.delete();
+            }
+        }
+    }
+    
+    private void writeClassList(File classListFile) throws IOException {
+        Writer writer = 
+                new BufferedWriter(new OutputStreamWriter(new FileOutputStream(classListFile), StandardCharsets.UTF_8));
+        try {
+            // Default class list of the JDK is still needed, 
+            // since the archive replaces the default archive of the JDK
+            File defaultClassListFile = new File(System.getProperty("java.home") + "/lib/classlist");
+            if (defaultClassListFile.isFile()) {
+                writer.write(new String(Files.readAllBytes(defaultClassListFile.toPath()), StandardCharsets.UTF_8));
+                writer.write('\n');
+            }
+            JarFile saJdiJar = new JarFile(saJdiJarPath);
+            try {
+                Enumeration<JarEntry> entries = saJdiJar.entries();
+                while (entries.hasMoreElements()) {
+                    String entryName = entries.nextElement().getName();
+                    if (entryName.endsWith(".class")) {
+                        writer.write(entryName.substring(0, entryName.length() - ".class".length()));
+                        writer.write('\n');
+                    }
+                }
+            } finally {
+                saJdiJar.close();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+    
+}
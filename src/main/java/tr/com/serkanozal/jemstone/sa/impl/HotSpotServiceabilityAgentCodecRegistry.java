@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchResultCodec;
+import tr.com.serkanozal.jemstone.sa.impl.compressedrefs.HotSpotSACompressedReferencesResultCodec;
+import tr.com.serkanozal.jemstone.sa.impl.profiler.HotSpotSASamplingProfilerResultCodec;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerResultCodec;
+import tr.com.serkanozal.jemstone.util.ReflectionUtil;
+
+/**
+ * <p>
+ * Holds the {@link HotSpotServiceabilityAgentCodec}s by their types 
+ * and encodes/decodes messages between caller process and HotSpot agent process with them.
+ * </p>
+ * 
+ * <p>
+ * Codecs of the internal messages and the built-in results are always registered. 
+ * Custom codecs are sent to HotSpot agent process by their class names with every request 
+ * and replace the custom codecs there, so the same codecs are registered at both sides.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentCodecRegistry {
+
+    private final ConcurrentMap<String, HotSpotServiceabilityAgentCodec<?>> codecMap = 
+            new ConcurrentHashMap<String, HotSpotServiceabilityAgentCodec<?>>();
+    private final ConcurrentMap<String, HotSpotServiceabilityAgentCodec<?>> customCodecMap = 
+            new ConcurrentHashMap<String, HotSpotServiceabilityAgentCodec<?>>();
+    
+    HotSpotServiceabilityAgentCodecRegistry() {
+        registerBuiltInCodec(new HotSpotServiceabilityAgentRequestCodec());
+        registerBuiltInCodec(new HotSpotServiceabilityAgentResponseCodec());
+        registerBuiltInCodec(new HotSpotServiceabilityAgentResultWrapperCodec());
+        registerBuiltInCodec(new HotSpotSAStackTracerResultCodec());
+        registerBuiltInCodec(new HotSpotSACompressedReferencesResultCodec());
+        registerBuiltInCodec(new HotSpotSABatchResultCodec());
+        registerBuiltInCodec(new HotSpotSASamplingProfilerResultCodec());
+    }
+    
+    private void registerBuiltInCodec(HotSpotServiceabilityAgentCodec<?> codec) {
+        codecMap.put(codec.getType().getName(), codec);
+    }
+    
+    void registerCodec(HotSpotServiceabilityAgentCodec<?> codec) {
+        String typeName = codec.getType().getName();
+        if (codecMap.containsKey(typeName) && !customCodecMap.containsKey(typeName)) {
+            throw new IllegalArgumentException("Codec of built-in type " + typeName + " cannot be overridden");
+        }
+        customCodecMap.put(typeName, codec);
+        codecMap.put(typeName, codec);
+    }
+    
+    /**
+     * Replaces the custom codecs with the ones of the given class names.
+     * Custom codecs which are not in the given list are deregistered, 
+     * so the registry mirrors the one at the caller process side at every request.
+     */
+    void replaceCustomCodecs(List<String> codecClassNames) {
+        Set<String> codecClassNameSet = new HashSet<String>(codecClassNames);
+        for (HotSpotServiceabilityAgentCodec<?> codec : customCodecMap.values()) {
+            if (!codecClassNameSet.remove(codec.getClass().getName())) {
+                // Deregistered at the caller process side
+                deregisterCodec(codec.getType());
+            }
+        }
+        // Remaining ones are not registered yet
+        for (String codecClassName : codecClassNameSet) {
+            HotSpotServiceabilityAgentCodec<?> codec = ReflectionUtil.getInstance(codecClassName);
+            registerCodec(codec);
+        }
+    }
+    
+    void deregisterCodec(Class<?> type) {
+        String typeName = type.getName();
+        if (customCodecMap.remove(typeName) != null) {
+            codecMap.remove(typeName);
+        }
+    }
+    
+    HotSpotServiceabilityAgentCodec<?> getCodec(String typeName) {
+        return codecMap.get(typeName);
+    }
+    
+    List<String> getCustomCodecClassNames() {
+        List<String> codecClassNames = new ArrayList<String>(customCodecMap.size());
+        for (HotSpotServiceabilityAgentCodec<?> codec : customCodecMap.values()) {
+            codecClassNames.add(codec.getClass().getName());
+        }
+        return codecClassNames;
+    }
+    
+    byte[] encode(Object obj) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        HotSpotServiceabilityAgentBinaryEncoder encoder = new HotSpotServiceabilityAgentBinaryEncoder(baos, this);
+        try {
+            encoder.writeObject(obj);
+        } finally {
+            encoder.close();
+        }
+        return baos.toByteArray();
+    }
+    
+    <T> T decode(byte[] data) throws IOException {
+        HotSpotServiceabilityAgentBinaryDecoder decoder = 
+                new HotSpotServiceabilityAgentBinaryDecoder(new ByteArrayInputStream(data), this);
+        try {
+            return decoder.readObject();
+        } finally {
+            decoder.close();
+        }
+    }
+    
+    void writeMessage(DataOutputStream out, Object message) throws IOException {
+        byte[] data = encode(message);
+        // Messages are length-prefixed, so a message which cannot be decoded 
+        // doesn't break the following messages on the same stream
+        out.writeInt(data.length);
+        out.write(data);
+        out.flush();
+    }
+    
+    <T> T readMessage(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return decode(data);
+    }
+    
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentSession;
+
+/**
+ * <p>
+ * Cache of the sessions attached to core files, so one attach serves all the executions
+ * on the same core file. Each session has its own HotSpot agent process,
+ * so the cache is bounded:
+ * <ul>
+ *  <li>the least recently used sessions are closed when there are more sessions than the maximum</li>
+ *  <li>sessions which have not been used for the idle timeout are closed by a background thread</li>
+ * </ul>
+ * Sessions are acquired for an execution and released after it,
+ * so a session is never closed while an execution is using it.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentCoreFileSessionCache<S extends HotSpotServiceabilityAgentSession> {
+    
+    private final int maxSessions;
+    private final long idleTimeoutInNanos;
+    // Access ordered, so the least recently used session is the first one
+    private final Map<String, Entry<S>> sessions = new LinkedHashMap<String, Entry<S>>(16, 0.75f, true);
+    private ScheduledExecutorService idleSessionCloser;
+    private ScheduledFuture<?> idleSessionCloserFuture;
+    
+    /**
+     * Opens the session on a core file when there is no open session on it in the cache.
+     */
+    interface SessionOpener<S extends HotSpotServiceabilityAgentSession> {
+        
+        S openSession();
+    
+    }
+    
+    private static final class Entry<S extends HotSpotServiceabilityAgentSession> {
+        
+        private final S session;
+        private int users;
+        private long lastUsedTime;
+        
+        private Entry(S session) {
+            this.session = session;
+        }
+    
+    }
+    
+    HotSpotServiceabilityAgentCoreFileSessionCache(int maxSessions, long idleTimeoutInMsecs) {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Max core file sessions must be positive: " + maxSessions);
+        }
+        if (idleTimeoutInMsecs <= 0) {
+            throw new IllegalArgumentException("Core file session idle timeout must be positive: " +
+                                               idleTimeoutInMsecs);
+        }
+        this.maxSessions = maxSessions;
+        this.idleTimeoutInNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutInMsecs);
+    }
+    
+    /**
+     * Acquires the open session with the given key or opens a new one by the given opener.
+     * Acquired session must be released by {@link #release(String, HotSpotServiceabilityAgentSession)}
+     * after it is used.
+     *
+     * @param key       key of the core file
+     * @param opener    opener of the session if there is no open session with the given key
+     * @return the acquired session
+     */
+    S acquire(String key, SessionOpener<S> opener) {
+        List<S> evictedSessions = new ArrayList<S>();
+        try {
+            synchronized (sessions) {
+                Entry<S> entry = sessions.get(key);
+                if (entry != null && !entry.session.isOpen()) {
+                    sessions.remove(key);
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = new Entry<S>(opener.openSession());
+                    sessions.put(key, entry);
+                }
+                entry.users++;
+                entry.lastUsedTime = System.nanoTime();
+                evictLeastRecentlyUsedSessions(evictedSessions);
+                startIdleSessionCloser();
+                return entry.session;
+            }
+        } finally {
+            closeSessions(evictedSessions);
+        }
+    }
+    
+    /**
+     * Releases the session acquired by {@link #acquire(String, SessionOpener)}.
+     *
+     * @param key       key of the core file
+     * @param session   the acquired session
+     */
+    void release(String key, S session) {
+        synchronized (sessions) {
+            Entry<S> entry = sessions.get(key);
+            // Session might have been closed and replaced by another one while it was in use
+            if (entry != null && entry.session == session) {
+                entry.users--;
+                entry.lastUsedTime = System.nanoTime();
+            }
+        }
+    }
+    
+    /**
+     * Closes the sessions which are not in use and have not been used
+     * since the idle timeout before the given time.
+     *
+     * @param now the current time in nanoseconds as given by {@link System#nanoTime()}
+     */
+    void closeIdleSessions(long now) {
+        List<S> idleSessions = new ArrayList<S>();
+        synchronized (sessions) {
+            Iterator<Entry<S>> iter = sessions.values().iterator();
+            while (iter.hasNext()) {
+                Entry<S> entry = iter.next();
+                if (entry.users == 0 && now - entry.lastUsedTime >= idleTimeoutInNanos) {
+                    iter.remove();
+                    idleSessions.add(entry.session);
+                }
+            }
+            if (sessions.isEmpty()) {
+                stopIdleSessionCloser();
+            }
+        }
+        closeSessions(idleSessions);
+    }
+    
+    /**
+     * Closes all of the sessions in the cache.
+     */
+    void closeAll() {
+        List<S> allSessions = new ArrayList<S>();
+        synchronized (sessions) {
+            for (Entry<S> entry : sessions.values()) {
+                allSessions.add(entry.session);
+            }
+            sessions.clear();
+            stopIdleSessionCloser();
+        }
+        closeSessions(allSessions);
+    }
+    
+    int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+    
+    private void evictLeastRecentlyUsedSessions(List<S> evictedSessions) {
+        int excess = sessions.size() - maxSessions;
+        Iterator<Entry<S>> iter = sessions.values().iterator();
+        while (excess > 0 && iter.hasNext()) {
+            Entry<S> entry = iter.next();
+            // Sessions in use are not closed, so there might be more sessions than the maximum for a while
+            if (entry.users == 0) {
+                iter.remove();
+                evictedSessions.add(entry.session);
+                excess--;
+            }
+        }
+    }
+    
+    private void startIdleSessionCloser() {
+        if (idleSessionCloserFuture != null) {
+            return;
+        }
+        if (idleSessionCloser == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "hotspot-sa-core-file-session-closer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            idleSessionCloser = executor;
+        }
+        long checkPeriodInNanos = Math.max(1, idleTimeoutInNanos / 2);
+        idleSessionCloserFuture =
+                idleSessionCloser.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        closeIdleSessions(System.nanoTime());
+                    }
+                }, checkPeriodInNanos, checkPeriodInNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private void stopIdleSessionCloser() {
+        if (idleSessionCloserFuture != null) {
+            idleSessionCloserFuture.cancel(false);
+            idleSessionCloserFuture = null;
+        }
+    }
+    
+    private void closeSessions(List<S> sessionsToClose) {
+        for (S session : sessionsToClose) {
+            try {
+                session.close();
+            } catch (RuntimeException e) {
+                // There is nothing to do, HotSpot agent process terminates anyway
+            }
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * <p>
+ * Long-lived HotSpot agent process which serves the 
+ * {@link HotSpotServiceabilityAgentRequest}s sent over its standard input one after another 
+ * and sends back their {@link HotSpotServiceabilityAgentResponse}s over its standard output.
+ * </p>
+ * 
+ * <p>
+ * Every request still attaches to and detaches from its own target process, 
+ * but HotSpot SA classes are loaded (and JIT-warmed) only once 
+ * instead of creating a new Java process for each request.
+ * </p>
+ * 
+ * <p>
+ * Daemon process retires itself after a request whose worker didn't respond to cancellation, 
+ * since the worker might still be running on it. Retired daemon process doesn't take any more request 
+ * and terminates after the result of its last request has been transferred.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentDaemon {
+
+    private static final int SHUTDOWN_TIMEOUT_IN_MSECS = 1000; // 1 second
+    
+    private final Process process;
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private volatile boolean retired;
+    
+    HotSpotServiceabilityAgentDaemon(Process process, HotSpotServiceabilityAgentCodecRegistry codecRegistry) {
+        this.process = process;
+        this.codecRegistry = codecRegistry;
+        this.out = new DataOutputStream(process.getOutputStream());
+        this.in = new DataInputStream(process.getInputStream());
+    }
+    
+    Process getProcess() {
+        return process;
+    }
+    
+    boolean isAlive() {
+        return !retired && process.isAlive();
+    }
+    
+    boolean isRetired() {
+        return retired;
+    }
+    
+    /**
+     * Sends the given request and gets its response.
+     * 
+     * @param request       the request to send
+     * @param recordReader  the reader to consume records of the request, 
+     *                      started just before sending the request. Can be <code>null</code>.
+     * @return the response of the request, 
+     *         <code>null</code> if the daemon process has retired before the request could be sent
+     */
+    synchronized <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    HotSpotServiceabilityAgentResponse<R> execute(HotSpotServiceabilityAgentRequest<P, R> request, 
+            HotSpotServiceabilityAgentRecordReader recordReader) throws IOException {
+        if (retired) {
+            return null;
+        }
+        if (recordReader != null) {
+            recordReader.start(process);
+        }
+        codecRegistry.writeMessage(out, request);
+        HotSpotServiceabilityAgentResponse<R> response = codecRegistry.readMessage(in);
+        if (response.isRetired()) {
+            retired = true;
+        }
+        return response;
+    }
+    
+    void shutdown() {
+        try {
+            // Closing standard input of daemon process means that there is no more request,
+            // so it terminates itself gracefully
+            out.close();
+        } catch (IOException e) {
+            // There is nothing to do, so just ignore
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            // There is nothing to do, so just ignore
+        }
+        try {
+            if (!process.waitFor(SHUTDOWN_TIMEOUT_IN_MSECS, TimeUnit.MILLISECONDS)) {
+                process.destroy();
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+}
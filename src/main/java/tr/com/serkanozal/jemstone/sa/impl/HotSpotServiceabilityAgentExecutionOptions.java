@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordHandler;
+
+/**
+ * <p>
+ * Options of a single execution on HotSpot agent process,
+ * which are resolved by the manager from the given configuration and the defaults.
+ * </p>
+ *
+ * <p>
+ * By default, a one-shot (not pooled) HotSpot agent process is used,
+ * which attaches to the target process before running the worker and detaches after it.
+ * </p>
+ *
+ * @see HotSpotServiceabilityAgentExecutor
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentExecutionOptions {
+
+    private final int processId;
+    private final int timeoutInMsecs;
+    private final int pipelineSizeInBytes;
+    private boolean sudoRequired;
+    private boolean pooledProcess;
+    private boolean sharedDaemon;
+    private HotSpotServiceabilityAgentDaemon sessionDaemon;
+    private boolean attach = true;
+    private boolean detach = true;
+    private int maxPauseTimeInMsecs;
+    private String snapshotCommand;
+    private int snapshotTimeoutInMsecs;
+    private String coreFile;
+    private String javaExecutable;
+    private HotSpotServiceabilityAgentRecordHandler<?> recordHandler;
+    
+    HotSpotServiceabilityAgentExecutionOptions(int processId, int timeoutInMsecs, int pipelineSizeInBytes) {
+        this.processId = processId;
+        this.timeoutInMsecs = timeoutInMsecs;
+        this.pipelineSizeInBytes = pipelineSizeInBytes;
+    }
+    
+    int getProcessId() {
+        return processId;
+    }
+    
+    int getTimeoutInMsecs() {
+        return timeoutInMsecs;
+    }
+    
+    int getPipelineSizeInBytes() {
+        return pipelineSizeInBytes;
+    }
+    
+    boolean isSudoRequired() {
+        return sudoRequired;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setSudoRequired(boolean sudoRequired) {
+        this.sudoRequired = sudoRequired;
+        return this;
+    }
+    
+    boolean isPooledProcess() {
+        return pooledProcess;
+    }
+    
+    /**
+     * Sets whether an idle HotSpot agent process can be taken from the pool for a one-shot execution.
+     */
+    HotSpotServiceabilityAgentExecutionOptions setPooledProcess(boolean pooledProcess) {
+        this.pooledProcess = pooledProcess;
+        return this;
+    }
+    
+    boolean isSharedDaemon() {
+        return sharedDaemon;
+    }
+    
+    /**
+     * Sets whether the execution is served by the shared long-lived HotSpot agent process.
+     */
+    HotSpotServiceabilityAgentExecutionOptions setSharedDaemon(boolean sharedDaemon) {
+        this.sharedDaemon = sharedDaemon;
+        return this;
+    }
+    
+    HotSpotServiceabilityAgentDaemon getSessionDaemon() {
+        return sessionDaemon;
+    }
+    
+    /**
+     * Sets the HotSpot agent process owned by the session to serve the execution.
+     */
+    HotSpotServiceabilityAgentExecutionOptions setSessionDaemon(HotSpotServiceabilityAgentDaemon sessionDaemon) {
+        this.sessionDaemon = sessionDaemon;
+        return this;
+    }
+    
+    boolean isAttach() {
+        return attach;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setAttach(boolean attach) {
+        this.attach = attach;
+        return this;
+    }
+    
+    boolean isDetach() {
+        return detach;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setDetach(boolean detach) {
+        this.detach = detach;
+        return this;
+    }
+    
+    int getMaxPauseTimeInMsecs() {
+        return maxPauseTimeInMsecs;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setMaxPauseTimeInMsecs(int maxPauseTimeInMsecs) {
+        this.maxPauseTimeInMsecs = maxPauseTimeInMsecs;
+        return this;
+    }
+    
+    String getSnapshotCommand() {
+        return snapshotCommand;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setSnapshotCommand(String snapshotCommand) {
+        this.snapshotCommand = snapshotCommand;
+        return this;
+    }
+    
+    int getSnapshotTimeoutInMsecs() {
+        return snapshotTimeoutInMsecs;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setSnapshotTimeoutInMsecs(int snapshotTimeoutInMsecs) {
+        this.snapshotTimeoutInMsecs = snapshotTimeoutInMsecs;
+        return this;
+    }
+    
+    String getCoreFile() {
+        return coreFile;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setCoreFile(String coreFile) {
+        this.coreFile = coreFile;
+        return this;
+    }
+    
+    String getJavaExecutable() {
+        return javaExecutable;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setJavaExecutable(String javaExecutable) {
+        this.javaExecutable = javaExecutable;
+        return this;
+    }
+    
+    HotSpotServiceabilityAgentRecordHandler<?> getRecordHandler() {
+        return recordHandler;
+    }
+    
+    HotSpotServiceabilityAgentExecutionOptions setRecordHandler(
+            HotSpotServiceabilityAgentRecordHandler<?> recordHandler) {
+        this.recordHandler = recordHandler;
+        return this;
+    }
+
+}
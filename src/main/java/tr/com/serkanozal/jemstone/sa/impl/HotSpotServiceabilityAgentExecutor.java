@@ -0,0 +1,570 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionInfo;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionListener;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentManager;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPartialResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * <p>
+ * Executes workers on HotSpot agent processes on the caller process side.
+ * </p>
+ *
+ * <p>
+ * Sends the request to the HotSpot agent process selected by the
+ * {@link HotSpotServiceabilityAgentExecutionOptions} (a one-shot or pooled process,
+ * the shared daemon process or the process of a session), consumes the records and the result data
+ * transferred through the memory mapped file based pipeline and notifies the execution listeners.
+ * Sessions (including the ones reused by the executions on the same core file) are also opened here.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentExecutor {
+
+    private static final int DAEMON_EXIT_WAIT_TIMEOUT_IN_MSECS = 1000; // 1 second
+    
+    private final HotSpotServiceabilityAgentProcessLauncher launcher;
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    private final List<HotSpotServiceabilityAgentExecutionListener> executionListeners;
+    private final int currentProcessId;
+    
+    // Sessions attached to core files, reused by the executions on the same core file
+    private final HotSpotServiceabilityAgentCoreFileSessionCache<HotSpotServiceabilityAgentSessionImpl> 
+            coreFileSessions;
+    private final Object coreFileSessionLock = new Object();
+    private boolean coreFileSessionShutdownHookRegistered;
+    
+    HotSpotServiceabilityAgentExecutor(HotSpotServiceabilityAgentProcessLauncher launcher,
+            List<HotSpotServiceabilityAgentExecutionListener> executionListeners, int currentProcessId, 
+            int maxCoreFileSessions, long coreFileSessionIdleTimeoutInMsecs) {
+        this.launcher = launcher;
+        this.codecRegistry = launcher.getCodecRegistry();
+        this.executionListeners = executionListeners;
+        this.currentProcessId = currentProcessId;
+        this.coreFileSessions = 
+                new HotSpotServiceabilityAgentCoreFileSessionCache<HotSpotServiceabilityAgentSessionImpl>(
+                        maxCoreFileSessions, coreFileSessionIdleTimeoutInMsecs);
+    }
+    
+    private static void safelyClose(OutputStream out) {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                // ignore
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+    
+    private static void safelyClose(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+    
+    private static void safelyClose(Reader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+    
+    private static void safelyClose(MappedByteBuffer buffer) {
+        if (buffer != null) {
+            sun.misc.Cleaner cleaner = ((sun.nio.ch.DirectBuffer) buffer).cleaner();
+            cleaner.clean();
+        }
+    }
+    
+    private static void safelyClose(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+    
+    private static void safelyClose(File file) {
+        if (file != null) {
+            file.delete();
+        }
+    }
+    
+    private <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+    HotSpotServiceabilityAgentResponse<R> executeOnDaemon(HotSpotServiceabilityAgentDaemon agentDaemon,
+            HotSpotServiceabilityAgentRequest<P, R> request, HotSpotServiceabilityAgentRecordReader recordReader)
+            throws Exception {
+        try {
+            return agentDaemon.execute(request, recordReader);
+        } catch (IOException e) {
+            // Daemon process is not usable anymore (possibly it has terminated),
+            // so throw it away. If it is the shared one, a new one will be created on the next call.
+            launcher.discardDaemon(agentDaemon);
+            Process agentProcess = agentDaemon.getProcess();
+            if (agentProcess.waitFor(DAEMON_EXIT_WAIT_TIMEOUT_IN_MSECS, TimeUnit.MILLISECONDS)
+                    && agentProcess.exitValue() == HotSpotServiceabilityAgentProcess.PROCESS_ATTACH_FAILED_EXIT_CODE) {
+                throw new ProcessAttachFailedException("Attaching as Hotspot SA to process " +
+                                                       "(id=" + request.getProcessId() + ") from daemon process failed");
+            }
+            throw e;
+        }
+    }
+    
+    @SuppressWarnings({ "unchecked", "resource" })
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+    R execute(HotSpotServiceabilityAgentWorker<P, R> worker, P param,
+            HotSpotServiceabilityAgentExecutionOptions options) {
+        DataInputStream in = null;
+        DataOutputStream out = null;
+        BufferedReader err = null;
+        Process agentProcess = null;
+        File pipelineFile = null;
+        FileChannel pipelineChannel = null;
+        MappedByteBuffer pipelineBuffer = null;
+        HotSpotServiceabilityAgentRecordReader recordReader = null;
+        int procId = options.getProcessId();
+        int pipelineSizeInBytes = options.getPipelineSizeInBytes();
+        
+        try {
+            // Create a temporary file to be used as pipeline between caller process and HotSpot SA process
+            pipelineFile = File.createTempFile(UUID.randomUUID().toString(), ".tmp");
+            pipelineFile.deleteOnExit();
+            
+            // Open a connection to memory mapped file based pipeline between caller process and HotSpot SA process
+            pipelineChannel = new RandomAccessFile(pipelineFile, "rw").getChannel();
+            pipelineBuffer = pipelineChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                 HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + pipelineSizeInBytes);
+            
+            if (procId == HotSpotServiceabilityAgentManager.ATTACH_TO_CURRENT_PROCESS) {
+                procId = currentProcessId;
+            }
+            int recordMode = HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_NONE;
+            if (worker != null && options.getRecordHandler() != null) {
+                recordReader = new HotSpotServiceabilityAgentRecordReader(pipelineBuffer, pipelineSizeInBytes,
+                                                                          codecRegistry, options.getRecordHandler());
+                // Current process cannot consume records while it is paused
+                recordMode = procId == currentProcessId
+                                && options.getCoreFile() == null && options.getSnapshotCommand() == null
+                        ? HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_DEFERRED
+                        : HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_STREAMED;
+            }
+            HotSpotServiceabilityAgentRequest<P, R> request =
+                    new HotSpotServiceabilityAgentRequest<P, R>(procId, pipelineFile.getAbsolutePath(),
+                                                                worker, param, options.getTimeoutInMsecs(),
+                                                                pipelineSizeInBytes,
+                                                                options.isAttach(), options.isDetach(),
+                                                                options.getMaxPauseTimeInMsecs(),
+                                                                options.getSnapshotCommand(),
+                                                                options.getSnapshotTimeoutInMsecs(),
+                                                                options.getCoreFile(), options.getJavaExecutable(),
+                                                                recordMode);
+            
+            HotSpotServiceabilityAgentResponse<R> response = null;
+            byte[] pipelineData = null;
+            if (options.getSessionDaemon() != null) {
+                HotSpotServiceabilityAgentDaemon sessionDaemon = options.getSessionDaemon();
+                bindToAsyncExecution(pipelineBuffer);
+                // Send request to the HotSpot agent process owned by the session and get its response
+                response = executeOnDaemon(sessionDaemon, request, recordReader);
+                if (response == null) {
+                    throw new IllegalStateException("HotSpot agent process of the session has retired");
+                }
+                try {
+                    pipelineData = readPipelineData(response, pipelineBuffer, request, sessionDaemon.getProcess(),
+                                                    recordReader);
+                } finally {
+                    if (response.isRetired()) {
+                        // Session cannot be used anymore, so it is reported as closed from now on
+                        launcher.discardDaemon(sessionDaemon);
+                    }
+                }
+            } else if (options.isSharedDaemon()) {
+                HotSpotServiceabilityAgentDaemon agentDaemon = null;
+                // Shared daemon process must not be destroyed on cancel, since it serves other executions too
+                bindToAsyncExecution(pipelineBuffer);
+                while (response == null) {
+                    // If the shared daemon process has retired while the request was waiting for it,
+                    // send the request to the new one
+                    agentDaemon = launcher.getOrCreateSharedDaemon(options.isSudoRequired());
+                    // Send request to the long-lived HotSpot agent process and get its response
+                    response = executeOnDaemon(agentDaemon, request, recordReader);
+                }
+                try {
+                    pipelineData = readPipelineData(response, pipelineBuffer, request, agentDaemon.getProcess(),
+                                                    recordReader);
+                } finally {
+                    if (response.isRetired()) {
+                        // Result of the last request has been transferred, so it can terminate now
+                        launcher.discardDaemon(agentDaemon);
+                    }
+                }
+            } else {
+                // Create an external Java process to connect this process as HotSpot agent
+                agentProcess = launcher.takeOrCreateProcess(options.isSudoRequired(), options.isPooledProcess());
+                bindToAsyncExecution(agentProcess);
+                startRecordReader(recordReader, agentProcess);
+                
+                // Get input, output and error streams
+                InputStream is = agentProcess.getInputStream();
+                OutputStream os = agentProcess.getOutputStream();
+                InputStream es = agentProcess.getErrorStream();
+                
+                // Send request HotSpot agent process to execute
+                out = new DataOutputStream(os);
+                codecRegistry.writeMessage(out, request);
+                
+                try {
+                    in = new DataInputStream(is);
+                    // Get response from HotSpot agent process
+                    response = codecRegistry.readMessage(in);
+                    // Result data is transferred after the response and
+                    // HotSpot agent process doesn't terminate until it is read
+                    pipelineData = readPipelineData(response, pipelineBuffer, request, agentProcess, recordReader);
+                } catch (EOFException e) {
+                    // HotSpot agent process has terminated without response, reason is checked below
+                }
+                
+                // At least, for all cases, wait process to finish
+                int exitCode = agentProcess.waitFor();
+                // Reset it, it has terminated and no need to destroy at the finally
+                // block
+                agentProcess = null;
+                
+                // If process attach failed,
+                if (exitCode == HotSpotServiceabilityAgentProcess.PROCESS_ATTACH_FAILED_EXIT_CODE) {
+                    throw new ProcessAttachFailedException("Attaching as Hotspot SA to process " +
+                                                           "(id=" + procId + ") from external process failed");
+                }
+                
+                // At first, check errors
+                err = new BufferedReader(new InputStreamReader(es));
+                
+                StringBuilder errBuilder = null;
+                for (String line = err.readLine(); line != null; line = err.readLine()) {
+                    if (errBuilder == null) {
+                        errBuilder = new StringBuilder();
+                    }
+                    errBuilder.append(line).append("\n");
+                }
+                if (errBuilder != null) {
+                    String errStr = errBuilder.toString();
+                    if (!errStr.startsWith("WARNING")) {
+                        throw new RuntimeException(errStr);
+                    }
+                }
+                
+                if (response == null) {
+                    throw new IllegalStateException("HotSpot agent process has terminated " +
+                                                    "(exit code=" + exitCode + ") without response");
+                }
+            }
+            
+            if (response != null) {
+                if (response.getError() != null) {
+                    Throwable error = response.getError();
+                    notifyExecutionListeners(procId, worker, pipelineBuffer, false, error);
+                    throw error;
+                } else {
+                    int pipelineDataSize = response.getPipelineDataSize();
+                    HotSpotServiceabilityAgentResultWrapper<R> resultWrapper = null;
+                    if (pipelineDataSize == HotSpotServiceabilityAgentResponse.PIPELINE_DATA_NOT_USED) {
+                        // If pipeline has not been used, get result directly over response
+                        resultWrapper = response.getResultWrapper();
+                        if (resultWrapper == null) {
+                            // There is no result since there is no worker
+                            notifyExecutionListeners(procId, worker, pipelineBuffer, false, null);
+                            return null;
+                        }
+                    } else {
+                        // If pipeline has been used, deserialize data read from pipeline to result
+                        resultWrapper = codecRegistry.decode(pipelineData);
+                    }
+                    
+                    notifyExecutionListeners(procId, worker, pipelineBuffer, resultWrapper.isIncomplete(), null);
+                    
+                    if (recordReader != null && recordReader.getError() != null) {
+                        // Records have been consumed, but record handler has failed
+                        throw recordReader.getError();
+                    }
+                    
+                    R result = resultWrapper.getResult();
+                    if (resultWrapper.isIncomplete() && result instanceof HotSpotServiceabilityAgentPartialResult) {
+                        ((HotSpotServiceabilityAgentPartialResult) result).setIncomplete(true);
+                    }
+                    
+                    // Print standard output content if it is exist
+                    if (resultWrapper.getStdOut() != null) {
+                        System.out.print(resultWrapper.getStdOut());
+                    }
+                    
+                    // Print standard error content if it is exist
+                    if (resultWrapper.getStdErr() != null) {
+                        System.err.print(resultWrapper.getStdErr());
+                    }
+                    
+                    return result;
+                }
+            } else {
+                return null;
+            }
+        } catch (ProcessAttachFailedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t.getMessage(), t);
+        } finally {
+            // Cancel handler might use the pipeline, so unbind it before closing the pipeline
+            unbindFromAsyncExecution();
+            
+            safelyClose(out);
+            safelyClose(in);
+            safelyClose(err);
+            safelyClose(pipelineBuffer);
+            safelyClose(pipelineChannel);
+            safelyClose(pipelineFile);
+            
+            if (recordReader != null) {
+                recordReader.stop();
+            }
+            
+            if (agentProcess != null) {
+                // If process is still in use, destroy it.
+                // When it has terminated, it is set to "null" after "waitFor".
+                agentProcess.destroy();
+            }
+        }
+    }
+    
+    private static byte[] readPipelineData(HotSpotServiceabilityAgentResponse<?> response,
+            ByteBuffer pipelineBuffer, HotSpotServiceabilityAgentRequest<?, ?> request,
+            Process agentProcess, HotSpotServiceabilityAgentRecordReader recordReader) throws IOException {
+        if (response != null && recordReader != null) {
+            // Records are transferred before the result data through the same pipeline
+            recordReader.await(request.getTimeout());
+        }
+        if (response == null
+                || response.getPipelineDataSize() == HotSpotServiceabilityAgentResponse.PIPELINE_DATA_NOT_USED) {
+            return null;
+        }
+        // Drain result data from pipeline as HotSpot agent process writes
+        return HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, request.getPipelineSize(),
+                                                               response.getPipelineDataSize(),
+                                                               request.getTimeout(), agentProcess);
+    }
+    
+    private void notifyExecutionListeners(int procId, HotSpotServiceabilityAgentWorker<?, ?> worker,
+            ByteBuffer pipelineBuffer, boolean incomplete, Throwable error) {
+        if (executionListeners.isEmpty()) {
+            return;
+        }
+        // Get the attach and pause times reported by HotSpot agent process over pipeline header
+        int status = HotSpotServiceabilityAgentPipelineHeader.getStatus(pipelineBuffer);
+        HotSpotServiceabilityAgentExecutionInfo executionInfo =
+                new HotSpotServiceabilityAgentExecutionInfo(
+                        procId,
+                        worker != null ? worker.getClass().getName() : null,
+                        HotSpotServiceabilityAgentPipelineHeader.getAttachTime(pipelineBuffer),
+                        HotSpotServiceabilityAgentPipelineHeader.getPauseTime(pipelineBuffer),
+                        status == HotSpotServiceabilityAgentPipelineHeader.STATUS_DETACHED,
+                        incomplete,
+                        error);
+        for (HotSpotServiceabilityAgentExecutionListener listener : executionListeners) {
+            try {
+                listener.onExecutionCompleted(executionInfo);
+            } catch (Throwable t) {
+                // Failure of a listener must not affect the execution, so just ignore
+            }
+        }
+    }
+    
+    private static void startRecordReader(HotSpotServiceabilityAgentRecordReader recordReader,
+            Process agentProcess) {
+        if (recordReader != null) {
+            // Start consuming records before sending the request, since they are emitted while worker is running
+            recordReader.start(agentProcess);
+        }
+    }
+    
+    private static void bindToAsyncExecution(final Process agentProcess) {
+        HotSpotServiceabilityAgentFuture<?> future = HotSpotServiceabilityAgentFuture.current();
+        if (future != null) {
+            // So the one-shot HotSpot agent process is destroyed if the execution is cancelled
+            future.setCancelHandler(new Runnable() {
+                @Override
+                public void run() {
+                    agentProcess.destroy();
+                }
+            });
+        }
+    }
+    
+    private static void bindToAsyncExecution(final ByteBuffer pipelineBuffer) {
+        HotSpotServiceabilityAgentFuture<?> future = HotSpotServiceabilityAgentFuture.current();
+        if (future != null) {
+            // So the HotSpot agent process cancels the worker (or skips the request if it hasn't started yet)
+            // if the execution is cancelled
+            future.setCancelHandler(new Runnable() {
+                @Override
+                public void run() {
+                    HotSpotServiceabilityAgentPipelineHeader.requestCancel(pipelineBuffer);
+                }
+            });
+        }
+    }
+    
+    private static void unbindFromAsyncExecution() {
+        HotSpotServiceabilityAgentFuture<?> future = HotSpotServiceabilityAgentFuture.current();
+        if (future != null) {
+            future.setCancelHandler(null);
+        }
+    }
+    
+    /**
+     * Opens a session which owns a dedicated HotSpot agent process
+     * staying attached to the target process (or to the core file) until it is closed.
+     *
+     * @param options options of the session. Attach and detach flags, daemon processes
+     *                and record handler are ignored, since they are decided by the session itself.
+     * @return the open session
+     */
+    HotSpotServiceabilityAgentSessionImpl openSession(HotSpotServiceabilityAgentExecutionOptions options) {
+        HotSpotServiceabilityAgentDaemon sessionDaemon = null;
+        try {
+            sessionDaemon = launcher.createDaemon(options.isSudoRequired());
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        try {
+            // Attach once, HotSpot agent process stays attached until session is closed
+            HotSpotServiceabilityAgentExecutionOptions attachOptions =
+                    new HotSpotServiceabilityAgentExecutionOptions(options.getProcessId(),
+                                                                   options.getTimeoutInMsecs(),
+                                                                   options.getPipelineSizeInBytes())
+                            .setSessionDaemon(sessionDaemon)
+                            .setAttach(true)
+                            .setDetach(false);
+            if (options.getCoreFile() != null) {
+                attachOptions.setCoreFile(options.getCoreFile())
+                             .setJavaExecutable(options.getJavaExecutable() != null
+                                                    ? options.getJavaExecutable()
+                                                    : getDefaultJavaExecutable());
+            }
+            execute(null, null, attachOptions);
+        } catch (RuntimeException e) {
+            sessionDaemon.shutdown();
+            throw e;
+        }
+        return new HotSpotServiceabilityAgentSessionImpl(this, sessionDaemon, options.getProcessId(),
+                                                         options.getTimeoutInMsecs(),
+                                                         options.getPipelineSizeInBytes(),
+                                                         options.getMaxPauseTimeInMsecs());
+    }
+    
+    /**
+     * Executes the given worker on the open session on the core file given by the options 
+     * or opens a new one, since core file doesn't change and one attach serves all the executions on it.
+     * Sessions are closed when they are idle for a while or 
+     * when there are too many of them (see {@link HotSpotServiceabilityAgentCoreFileSessionCache}).
+     */
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R executeOnCoreFile(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            final HotSpotServiceabilityAgentExecutionOptions options) {
+        final String javaExecutable = options.getJavaExecutable() != null
+                ? options.getJavaExecutable()
+                : getDefaultJavaExecutable();
+        String key;
+        try {
+            key = new File(options.getCoreFile()).getCanonicalPath() + File.pathSeparator + javaExecutable;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid core file " + options.getCoreFile(), e);
+        }
+        registerCoreFileSessionShutdownHook();
+        HotSpotServiceabilityAgentSessionImpl session = 
+                coreFileSessions.acquire(key, 
+                        new HotSpotServiceabilityAgentCoreFileSessionCache
+                                .SessionOpener<HotSpotServiceabilityAgentSessionImpl>() {
+                            @Override
+                            public HotSpotServiceabilityAgentSessionImpl openSession() {
+                                return HotSpotServiceabilityAgentExecutor.this.openSession(
+                                        options.setJavaExecutable(javaExecutable));
+                            }
+                        });
+        try {
+            return session.execute(worker, param, options.getRecordHandler());
+        } finally {
+            coreFileSessions.release(key, session);
+        }
+    }
+    
+    private void registerCoreFileSessionShutdownHook() {
+        synchronized (coreFileSessionLock) {
+            if (!coreFileSessionShutdownHookRegistered) {
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        coreFileSessions.closeAll();
+                    }
+                });
+                coreFileSessionShutdownHookRegistered = true;
+            }
+        }
+    }
+    
+    private static String getDefaultJavaExecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+}
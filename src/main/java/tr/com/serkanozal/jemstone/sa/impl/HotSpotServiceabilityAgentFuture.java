@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link CompletableFuture} implementation for asynchronous executions on HotSpot agent process. 
+ * Cancelling it runs the cancel handler bound by the execution: 
+ * one-shot HotSpot agent process serving the execution is destroyed, 
+ * so the target process is detached immediately. 
+ * But the long-lived ones (daemon and session processes) are shared by other executions, 
+ * so only the execution is cancelled over its pipeline.
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentFuture<R> extends CompletableFuture<R> {
+
+    // Used to bind the HotSpot agent process to the asynchronous execution served by the current thread
+    private static final ThreadLocal<HotSpotServiceabilityAgentFuture<?>> CURRENT = 
+            new ThreadLocal<HotSpotServiceabilityAgentFuture<?>>();
+    
+    private static final long NOT_STARTED = -1;
+    
+    private Runnable cancelHandler;
+    private volatile long startTime = NOT_STARTED;
+    
+    /**
+     * Gets the asynchronous execution served by the current thread if there is.
+     */
+    static HotSpotServiceabilityAgentFuture<?> current() {
+        return CURRENT.get();
+    }
+    
+    void bindToCurrentThread() {
+        CURRENT.set(this);
+    }
+    
+    void unbindFromCurrentThread() {
+        CURRENT.remove();
+    }
+    
+    /**
+     * Marks the execution as started, so its timeout starts from now.
+     */
+    void markStarted() {
+        startTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Waits for the result at most the given timeout counted from the start of the execution. 
+     * Execution which has not been started yet (as waiting for a free thread) is waited until it is started.
+     */
+    R getAfterStart(long timeoutInMsecs) throws InterruptedException, ExecutionException, TimeoutException {
+        long waitTime = timeoutInMsecs;
+        while (true) {
+            try {
+                return get(waitTime, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                long started = startTime;
+                if (started == NOT_STARTED) {
+                    // Still waiting for a free thread, which is released at the latest 
+                    // when the execution holding it times out
+                    continue;
+                }
+                waitTime = started + timeoutInMsecs - System.currentTimeMillis();
+                if (waitTime <= 0) {
+                    throw new TimeoutException("Execution has not completed in " + timeoutInMsecs + " milliseconds");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sets the handler to cancel the execution on HotSpot agent process. 
+     * Handler is run at most once and never run after it is unset by <code>null</code>, 
+     * so resources used by the handler can be released after that.
+     */
+    synchronized void setCancelHandler(Runnable cancelHandler) {
+        if (cancelHandler != null && isCancelled()) {
+            // Already cancelled before the handler has been set
+            this.cancelHandler = null;
+            cancelHandler.run();
+        } else {
+            this.cancelHandler = cancelHandler;
+        }
+    }
+    
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            synchronized (this) {
+                // "cancel" returns true also when it has already been cancelled, 
+                // so handler is unset to run it only once
+                Runnable handler = cancelHandler;
+                cancelHandler = null;
+                if (handler != null) {
+                    handler.run();
+                }
+            }
+        }
+        return cancelled;
+    }
+    
+}
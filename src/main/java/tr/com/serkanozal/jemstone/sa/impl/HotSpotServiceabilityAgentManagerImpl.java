@@ -16,49 +16,58 @@
 
 package tr.com.serkanozal.jemstone.sa.impl;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
-import java.io.PrintStream;
-import java.io.RandomAccessFile;
-import java.io.Reader;
-import java.io.Serializable;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.nio.BufferOverflowException;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
-import sun.jvm.hotspot.HotSpotAgent;
-import sun.jvm.hotspot.runtime.VM;
 import sun.management.VMManagement;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentConfig;
-import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionListener;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentManager;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPlugin;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPlugin.JavaVersion;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordHandler;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordStream;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentSession;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentStatus;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchItem;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchParameter;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchResult;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchWorker;
 import tr.com.serkanozal.jemstone.sa.impl.compressedrefs.HotSpotSACompressedReferencesResult;
 import tr.com.serkanozal.jemstone.sa.impl.compressedrefs.HotSpotSACompressedReferencesWorker;
+import tr.com.serkanozal.jemstone.sa.impl.discovery.HotSpotSAJvmDiscovery;
+import tr.com.serkanozal.jemstone.sa.impl.discovery.HotSpotSAJvmInfo;
+import tr.com.serkanozal.jemstone.sa.impl.fleet.HotSpotSAFleetResult;
 import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerParameter;
 import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerResult;
 import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerWorker;
@@ -91,22 +100,37 @@ import tr.com.serkanozal.jemstone.util.ClasspathUtil;
  */
 public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabilityAgentManager {
 
-    private static final String SKIP_HOTSPOT_SA_INIT_FLAG = "jemstone.hotspotsa.skipHotspotSAInit";
     private static final String SKIP_HOTSPOT_SA_ATTACH_FLAG = "jemstone.hotspotsa.skipHotspotSAAttach";
     private static final String SKIP_CLASSPATH_LOOKUP_FLAG = "jemstone.hotspotsa.skipClasspathLookup";
     private static final String SKIP_JDK_HOME_LOOKUP_FLAG = "jemstone.hotspotsa.skipJdkHomeLookup";
     private static final String SKIP_ALL_JAR_LOOKUP_FLAG = "jemstone.hotspotsa.skipAllJarLookup";
     private static final String PIPELINE_SIZE_PARAMETER = "jemstone.hotspotsa.pipelineSize";
-    private static final String MAX_PIPELINE_SIZE_PARAMETER = "jemstone.hotspotsa.maxPipelineSize";
-    private static final String DISABLE_EXPANDING_PIPELINE_PARAMETER = "jemstone.hotspotsa.disableExpandingPipeline";
     private static final String TIMEOUT_PARAMETER = "jemstone.hotspotsa.timeout";
     private static final String TRY_WITH_SUDO_FLAG = "jemstone.hotspotsa.tryWithSudo";
+    private static final String USE_DAEMON_FLAG = "jemstone.hotspotsa.useDaemon";
+    private static final String ASYNC_THREAD_COUNT_PARAMETER = "jemstone.hotspotsa.asyncThreadCount";
+    private static final String ASYNC_QUEUE_SIZE_PARAMETER = "jemstone.hotspotsa.asyncQueueSize";
+    private static final String BACKGROUND_PROBE_FLAG = "jemstone.hotspotsa.backgroundProbe";
+    private static final String DISABLE_PROBE_CACHE_FLAG = "jemstone.hotspotsa.disableProbeCache";
+    private static final String PROBE_CACHE_DIRECTORY_PARAMETER = "jemstone.hotspotsa.probeCacheDirectory";
+    private static final String PROCESS_POOL_SIZE_PARAMETER = "jemstone.hotspotsa.processPoolSize";
+    private static final String DISABLE_CLASS_DATA_SHARING_FLAG = "jemstone.hotspotsa.disableClassDataSharing";
+    private static final String MAX_PAUSE_TIME_PARAMETER = "jemstone.hotspotsa.maxPauseTime";
+    private static final String USE_SNAPSHOT_FLAG = "jemstone.hotspotsa.useSnapshot";
+    private static final String SNAPSHOT_COMMAND_PARAMETER = "jemstone.hotspotsa.snapshotCommand";
+    private static final String SNAPSHOT_TIMEOUT_PARAMETER = "jemstone.hotspotsa.snapshotTimeout";
+    private static final String MAX_CORE_FILE_SESSIONS_PARAMETER = "jemstone.hotspotsa.maxCoreFileSessions";
+    private static final String CORE_FILE_SESSION_IDLE_TIMEOUT_PARAMETER = 
+            "jemstone.hotspotsa.coreFileSessionIdleTimeout";
 
     private static final int DEFAULT_TIMEOUT_IN_MSECS = 5000; // 5 seconds
-    private static final int VM_CHECK_PERIOD_SENSITIVITY_IN_MSECS = 1000; // 1 seconds
     private static final int DEFAULT_PIPELINE_SIZE_IN_BYTES = 16 * 1024; // 16 KB
-    private static final int DEFAULT_MAX_PIPELINE_SIZE_IN_BYTES = 256 * 1024 * 1024; // 256 MB
-    private static final int PROCESS_ATTACH_FAILED_EXIT_CODE = 128;
+    private static final int DEFAULT_SNAPSHOT_TIMEOUT_IN_MSECS = 60 * 1000; // 1 minute
+    private static final int DEFAULT_MAX_CORE_FILE_SESSIONS = 4;
+    private static final int DEFAULT_CORE_FILE_SESSION_IDLE_TIMEOUT_IN_MSECS = 60 * 1000; // 1 minute
+    private static final int DEFAULT_ASYNC_THREAD_COUNT = 4;
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 1024;
+    private static final int ASYNC_THREAD_KEEP_ALIVE_TIME_IN_MSECS = 60 * 1000; // 1 minute
     
     private static final String JAVA_6 = "1.6";
     private static final String JAVA_7 = "1.7";
@@ -114,32 +138,61 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
     
     private static final String JAVA_SPEC_VERSION = System.getProperty("java.specification.version");
     
-    private static final boolean enable;
     private static final int currentProcessId;
     private static final String classpathForAgent;
     private static final int timeout;
     private static final int pipelineSize;
-    private static final int maxPipelineSize;
-    private static final boolean disableExpandingPipeline;
-    private static final boolean sudoRequired;
+    private static final boolean useDaemon;
+    private static final int asyncThreadCount;
+    private static final int asyncQueueSize;
+    private static final int processPoolSize;
+    private static final int maxPauseTime;
+    private static final boolean useSnapshot;
+    private static final String snapshotCommand;
+    private static final int snapshotTimeout;
     private static final Map<String, String> additionalVmArguments = new HashMap<String, String>();
-    private static final String errorMessage;
+    
+    private static final HotSpotServiceabilityAgentProbeCache probeCache;
+    private static final Object probeLock = new Object();
+    private static volatile HotSpotServiceabilityAgentStatus status;
+    private static volatile boolean sudoRequired;
+    private static volatile String errorMessage;
+    
+    private static final HotSpotServiceabilityAgentCodecRegistry codecRegistry = 
+            new HotSpotServiceabilityAgentCodecRegistry();
+    
+    private static final List<HotSpotServiceabilityAgentExecutionListener> executionListeners = 
+            new CopyOnWriteArrayList<HotSpotServiceabilityAgentExecutionListener>();
+    
+    private static final HotSpotServiceabilityAgentProcessLauncher launcher;
+    private static final HotSpotServiceabilityAgentExecutor executor;
+    
+    private static final Object asyncExecutorLock = new Object();
+    private static ThreadPoolExecutor asyncExecutor;
 
     static {
-        final boolean skipInit = Boolean.getBoolean(SKIP_HOTSPOT_SA_INIT_FLAG);
+        final boolean skipInit = Boolean.getBoolean(HotSpotServiceabilityAgentProcess.SKIP_HOTSPOT_SA_INIT_FLAG);
 
         boolean active = true;
         int currentProcId = -1;
         String classpathForAgentProc = null;
         String errorMsg = null;
-        boolean sudoNeeded = false;
+        HotSpotServiceabilityAgentProbeCache probeCch = null;
+        HotSpotServiceabilityAgentProbeCache.Entry cachedProbe = null;
+        HotSpotServiceabilityAgentClassDataSharing cds = null;
 
         timeout = Integer.getInteger(TIMEOUT_PARAMETER, DEFAULT_TIMEOUT_IN_MSECS);
         pipelineSize = Integer.getInteger(PIPELINE_SIZE_PARAMETER, 
                                           DEFAULT_PIPELINE_SIZE_IN_BYTES);
-        maxPipelineSize = Integer.getInteger(MAX_PIPELINE_SIZE_PARAMETER, 
-                                             DEFAULT_MAX_PIPELINE_SIZE_IN_BYTES);
-        disableExpandingPipeline = Boolean.getBoolean(DISABLE_EXPANDING_PIPELINE_PARAMETER);
+        useDaemon = Boolean.getBoolean(USE_DAEMON_FLAG);
+        asyncThreadCount = Integer.getInteger(ASYNC_THREAD_COUNT_PARAMETER, DEFAULT_ASYNC_THREAD_COUNT);
+        asyncQueueSize = Integer.getInteger(ASYNC_QUEUE_SIZE_PARAMETER, DEFAULT_ASYNC_QUEUE_SIZE);
+        processPoolSize = Integer.getInteger(PROCESS_POOL_SIZE_PARAMETER, 0);
+        maxPauseTime = Integer.getInteger(MAX_PAUSE_TIME_PARAMETER, 0);
+        useSnapshot = Boolean.getBoolean(USE_SNAPSHOT_FLAG);
+        snapshotCommand = System.getProperty(SNAPSHOT_COMMAND_PARAMETER, 
+                                             HotSpotServiceabilityAgentSnapshot.DEFAULT_SNAPSHOT_COMMAND);
+        snapshotTimeout = Integer.getInteger(SNAPSHOT_TIMEOUT_PARAMETER, DEFAULT_SNAPSHOT_TIMEOUT_IN_MSECS);
         
         if (!skipInit) {
             if (Boolean.getBoolean(SKIP_HOTSPOT_SA_ATTACH_FLAG)) {
@@ -179,6 +232,22 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
                 final String currentClasspath = 
                         normalizePath(ManagementFactory.getRuntimeMXBean().getClassPath());
                 
+                final File cacheDirectory = 
+                        new File(System.getProperty(PROBE_CACHE_DIRECTORY_PARAMETER, 
+                                                    System.getProperty("user.home") + "/.jemstone"));
+                
+                if (!Boolean.getBoolean(DISABLE_PROBE_CACHE_FLAG)) {
+                    probeCch = new HotSpotServiceabilityAgentProbeCache(cacheDirectory, currentClasspath);
+                    // If support has already been probed with the same JDK and classpath, reuse its outcome
+                    cachedProbe = probeCch.load();
+                    if (cachedProbe != null) {
+                        classpathForAgentProc = cachedProbe.getClasspathForAgent();
+                        additionalVmArguments.putAll(cachedProbe.getAdditionalVmArguments());
+                        tryToLookupAtClasspath = false;
+                        skipLookups = true;
+                    }
+                }
+                
                 if (tryToLookupAtClasspath) {
                     try {
                         // Search it at classpath
@@ -250,46 +319,51 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
                                    "So skipping Hotspot SA support ...";
                     }
                 }    
-            }
-
-            if (active) {
-                try {
-                    // First check attempt for HotSpot agent connection without "sudo" command
-                    executeOnHotSpotSAInternal(currentProcId, classpathForAgentProc, false, null, null,
-                                               timeout, pipelineSize);
-                } catch (ProcessAttachFailedException e1) {
-                    // Possibly because of insufficient privilege. So "sudo" is required.
-                    // So if "sudo" command is valid on OS and user allows "sudo" usage
-                    if (isSudoValidOS() && Boolean.getBoolean(TRY_WITH_SUDO_FLAG)) {
-                        try {
-                            // Second check attempt for HotSpot agent connection but this time with "sudo" command
-                            executeOnHotSpotSAInternal(currentProcId, classpathForAgentProc, true, null, null,
-                                                       timeout, pipelineSize);
-
-                            sudoNeeded = true;
-                        } catch (Throwable t2) {
-                            active = false;
-                            errorMsg = "Initial Hotspot SA process attach check failed also with 'sudo' " + "(" + t2.getMessage() + ") " +  
-                                      "So skipping Hotspot SA support ...";
-                        }
-                    } else {
-                        active = false;
-                        errorMsg = "Initial Hotspot SA process attach check failed " + "(" + e1.getMessage()  + ") " + 
-                                   "So skipping Hotspot SA support ...";
-                    }
-                } catch (Throwable t1) {
-                    active = false;
-                    errorMsg = "Initial Hotspot SA process attach check failed " + "(" + t1.getMessage() + ") " + 
-                               "So skipping Hotspot SA support ...";
+                
+                if (active && classpathForAgentProc != null 
+                        && !Boolean.getBoolean(DISABLE_CLASS_DATA_SHARING_FLAG)) {
+                    cds = HotSpotServiceabilityAgentClassDataSharing.create(cacheDirectory, classpathForAgentProc);
                 }
             }
         }
 
-        enable = active;
         currentProcessId = currentProcId;
         classpathForAgent = classpathForAgentProc;
         errorMessage = errorMsg;
-        sudoRequired = sudoNeeded;
+        probeCache = probeCch;
+        launcher = new HotSpotServiceabilityAgentProcessLauncher(
+                            classpathForAgentProc, additionalVmArguments, cds, 
+                            Boolean.getBoolean(HotSpotServiceabilityAgentProcess.DISABLE_PROC_MEM_READ_FLAG), 
+                            processPoolSize, codecRegistry);
+        executor = new HotSpotServiceabilityAgentExecutor(
+                            launcher, executionListeners, currentProcId, 
+                            Integer.getInteger(MAX_CORE_FILE_SESSIONS_PARAMETER, DEFAULT_MAX_CORE_FILE_SESSIONS), 
+                            Integer.getInteger(CORE_FILE_SESSION_IDLE_TIMEOUT_PARAMETER, 
+                                               DEFAULT_CORE_FILE_SESSION_IDLE_TIMEOUT_IN_MSECS));
+        
+        if (skipInit) {
+            status = HotSpotServiceabilityAgentStatus.ENABLED;
+        } else if (!active) {
+            status = HotSpotServiceabilityAgentStatus.DISABLED;
+        } else if (cachedProbe != null) {
+            // Already probed by a previous process, so there is no need to probe again
+            sudoRequired = cachedProbe.isSudoRequired();
+            status = HotSpotServiceabilityAgentStatus.ENABLED;
+        } else {
+            // Trial attach to the current process pauses it and takes a few seconds, 
+            // so it is done on the first use (or in background if it is configured) instead of here
+            status = HotSpotServiceabilityAgentStatus.UNKNOWN;
+            if (Boolean.getBoolean(BACKGROUND_PROBE_FLAG)) {
+                Thread probeThread = new Thread("jemstone-hotspotsa-probe") {
+                    @Override
+                    public void run() {
+                        ensureProbed();
+                    }
+                };
+                probeThread.setDaemon(true);
+                probeThread.start();
+            }
+        }
     }
     
     private static final HotSpotServiceabilityAgentManager INSTANCE = new HotSpotServiceabilityAgentManagerImpl();
@@ -310,8 +384,81 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
         return path.replace('\\', '/');
     }
 
+    private static void ensureProbed() {
+        if (status != HotSpotServiceabilityAgentStatus.UNKNOWN 
+                && status != HotSpotServiceabilityAgentStatus.PROBING) {
+            return;
+        }
+        synchronized (probeLock) {
+            // Probe might have been completed by another thread (such as background probe thread) 
+            // while waiting for the lock
+            if (status == HotSpotServiceabilityAgentStatus.UNKNOWN) {
+                status = HotSpotServiceabilityAgentStatus.PROBING;
+                status = probe();
+            }
+        }
+    }
+    
+    private static HotSpotServiceabilityAgentStatus probe() {
+        boolean active = true;
+        boolean sudoNeeded = false;
+        String errorMsg = null;
+        
+        try {
+            // First check attempt for HotSpot agent connection without "sudo" command
+            executor.execute(null, null, 
+                             new HotSpotServiceabilityAgentExecutionOptions(currentProcessId, timeout, pipelineSize));
+        } catch (ProcessAttachFailedException e1) {
+            // Possibly because of insufficient privilege. So "sudo" is required.
+            // So if "sudo" command is valid on OS and user allows "sudo" usage
+            if (isSudoValidOS() && Boolean.getBoolean(TRY_WITH_SUDO_FLAG)) {
+                try {
+                    // Second check attempt for HotSpot agent connection but this time with "sudo" command
+                    executor.execute(null, null, 
+                                     new HotSpotServiceabilityAgentExecutionOptions(currentProcessId, timeout, pipelineSize)
+                                             .setSudoRequired(true));
+
+                    sudoNeeded = true;
+                } catch (Throwable t2) {
+                    active = false;
+                    errorMsg = "Initial Hotspot SA process attach check failed also with 'sudo' " + "(" + t2.getMessage() + ") " +  
+                              "So skipping Hotspot SA support ...";
+                }
+            } else {
+                active = false;
+                errorMsg = "Initial Hotspot SA process attach check failed " + "(" + e1.getMessage()  + ") " + 
+                           "So skipping Hotspot SA support ...";
+            }
+        } catch (Throwable t1) {
+            active = false;
+            errorMsg = "Initial Hotspot SA process attach check failed " + "(" + t1.getMessage() + ") " + 
+                       "So skipping Hotspot SA support ...";
+        }
+
+        sudoRequired = sudoNeeded;
+        errorMessage = errorMsg;
+        
+        // Only successful outcome is cached, since failure might be temporary
+        if (active && probeCache != null) {
+            probeCache.store(new HotSpotServiceabilityAgentProbeCache.Entry(classpathForAgent, 
+                                                                           additionalVmArguments, 
+                                                                           sudoNeeded));
+        }
+        
+        return active ? HotSpotServiceabilityAgentStatus.ENABLED : HotSpotServiceabilityAgentStatus.DISABLED;
+    }
+    
     private static void checkEnable() {
-        if (!enable) {
+        ensureProbed();
+        if (status != HotSpotServiceabilityAgentStatus.ENABLED) {
+            throw new IllegalStateException(errorMessage);
+        }
+    }
+    
+    private static void checkNotDisabled() {
+        // Doesn't wait for the probe, so asynchronous executions don't block the caller thread.
+        // If the probe is still in progress, it is waited by the execution itself on the executor thread.
+        if (status == HotSpotServiceabilityAgentStatus.DISABLED) {
             throw new IllegalStateException(errorMessage);
         }
     }
@@ -356,280 +503,103 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
         }
     }
 
-    private static void safelyClose(OutputStream out) {
-        if (out != null) {
-            try {
-                out.flush();
-            } catch (IOException e) {
-                // ignore
-            }
-            try {
-                out.close();
-            } catch (IOException e) {
-                // ignore
-            }
-        }
-    }
-
-    private static void safelyClose(InputStream in) {
-        if (in != null) {
-            try {
-                in.close();
-            } catch (IOException e) {
-                // ignore
-            }
-        }
-    }
-
-    private static void safelyClose(Reader reader) {
-        if (reader != null) {
-            try {
-                reader.close();
-            } catch (IOException e) {
-                // ignore
-            }
-        }
-    }
-    
-    private static void safelyClose(MappedByteBuffer buffer) {
-        if (buffer != null) {
-            sun.misc.Cleaner cleaner = ((sun.nio.ch.DirectBuffer) buffer).cleaner();
-            cleaner.clean();
-        }
-    }
-    
-    private static void safelyClose(FileChannel channel) {
-        if (channel != null) {
-            try {
-                channel.close();
-            } catch (IOException e) {
-                // ignore
-            }
-        }
+    private static HotSpotServiceabilityAgentExecutionOptions createExecutionOptions(int processId, 
+            int timeoutInMsecs, int pipelineSizeInBytes) {
+        return new HotSpotServiceabilityAgentExecutionOptions(processId, timeoutInMsecs, pipelineSizeInBytes)
+                        .setSudoRequired(sudoRequired)
+                        .setPooledProcess(true)
+                        .setMaxPauseTimeInMsecs(maxPauseTime)
+                        .setSnapshotTimeoutInMsecs(snapshotTimeout);
     }
     
-    private static void safelyClose(File file) {
-        if (file != null) {
-            file.delete();
+    private static HotSpotServiceabilityAgentExecutionOptions createExecutionOptions(
+            HotSpotServiceabilityAgentConfig config) {
+        HotSpotServiceabilityAgentExecutionOptions options = 
+                createExecutionOptions(config.getProcessId() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET ?
+                                               config.getProcessId() : currentProcessId,
+                                       config.getTimeoutInMsecs() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET ?
+                                               config.getTimeoutInMsecs() : timeout,
+                                       config.getPipelineSizeInBytes() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET ?
+                                               config.getPipelineSizeInBytes() : pipelineSize);
+        if (config.getMaxPauseTimeInMsecs() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET) {
+            options.setMaxPauseTimeInMsecs(config.getMaxPauseTimeInMsecs());
         }
+        return options.setCoreFile(config.getCoreFile())
+                      .setJavaExecutable(config.getJavaExecutable());
     }
     
-    private static byte[] serializeObject(Object obj) throws IOException {
-        ByteArrayOutputStream baos = null;
-        ObjectOutputStream oos = null;
-        try {
-            baos = new ByteArrayOutputStream();
-            oos = new ObjectOutputStream(baos);
-            oos.writeObject(obj);
-            oos.flush();
-            return baos.toByteArray();
-        } finally {
-            safelyClose(oos);
-            safelyClose(baos);
-        }
+    private static 
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R executeOnHotSpotSAInternal(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            int timeoutInMsecs, int pipelineSizeInBytes, int processId) {
+        return executeOnHotSpotSAInternal(worker, param, 
+                                          createExecutionOptions(processId, timeoutInMsecs, pipelineSizeInBytes), 
+                                          useSnapshot);
     }
     
-    @SuppressWarnings("unchecked")
-    private static <T> T deserializeObject(byte[] data) throws IOException, ClassNotFoundException {
-        ByteArrayInputStream bais = null;
-        ObjectInputStream ois = null;
-        try {
-            bais = new ByteArrayInputStream(data);
-            ois = new ObjectInputStream(bais);
-            return (T) ois.readObject();
-        } finally {
-            safelyClose(ois);
-            safelyClose(bais);
-        }
-    }
-
     private static 
     <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
     R executeOnHotSpotSAInternal(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
-            int timeoutInMsecs, int pipelineSizeInBytes, int processId) {
+            HotSpotServiceabilityAgentExecutionOptions options, boolean snapshot) {
         checkEnable();
 
-        return executeOnHotSpotSAInternal(processId, classpathForAgent, sudoRequired, worker, param, 
-                                          timeoutInMsecs, pipelineSizeInBytes);
+        return executor.execute(worker, param, 
+                                options.setSharedDaemon(useDaemon)
+                                       .setSnapshotCommand(snapshot ? snapshotCommand : null));
     }
     
-    private static 
-    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
-    R executeOnHotSpotSAInternal(int procId, String classpath, boolean sudoRequired,
-            HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
-            int timeoutInMsecs, int pipelineSizeInBytes) {
-        try {
-            return doExecuteOnHotSpotSAInternal(procId, classpath, sudoRequired, worker, param, 
-                                                timeoutInMsecs, pipelineSizeInBytes);
-        } catch (Throwable t) {
-            Throwable cause = t.getCause();
-            if (t instanceof BufferOverflowException || cause instanceof BufferOverflowException) {
-                if (!disableExpandingPipeline) {
-                    int nextPipelineSizeInBytes = 2 * pipelineSizeInBytes;
-                    if (nextPipelineSizeInBytes <= maxPipelineSize) {
-                        return executeOnHotSpotSAInternal(procId, classpath, sudoRequired, worker, param, 
-                                                          timeoutInMsecs, nextPipelineSizeInBytes);
-                    }
-                }
+    private static ThreadPoolExecutor getOrCreateAsyncExecutor() {
+        synchronized (asyncExecutorLock) {
+            if (asyncExecutor == null) {
+                asyncExecutor = 
+                        new ThreadPoolExecutor(asyncThreadCount, asyncThreadCount, 
+                                               ASYNC_THREAD_KEEP_ALIVE_TIME_IN_MSECS, TimeUnit.MILLISECONDS, 
+                                               new ArrayBlockingQueue<Runnable>(asyncQueueSize), 
+                                               new ThreadFactory() {
+                            private final AtomicInteger threadCounter = new AtomicInteger();
+                            
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r, "jemstone-hotspotsa-async-" + threadCounter.incrementAndGet());
+                                // Don't prevent the application from terminating
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+                asyncExecutor.allowCoreThreadTimeOut(true);
             }
-            throw t;
+            return asyncExecutor;
         }
     }
-
-    @SuppressWarnings({ "unchecked", "resource" })
-    private static 
-    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
-    R doExecuteOnHotSpotSAInternal(int procId, String classpath, boolean sudoRequired,
-            HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
-            int timeoutInMsecs, int pipelineSizeInBytes) {
-        // Generate required arguments to create an external Java process
-        List<String> args = new ArrayList<String>();
-        if (sudoRequired) {
-            args.add("sudo");
-        }
-        args.add(normalizePath(System.getProperty("java.home")) + "/" + "bin" + "/" + "java");
-        // For preventing infinite loop if attaching process touches this class
-        args.add("-D" + SKIP_HOTSPOT_SA_INIT_FLAG + "=true");
-        args.add("-cp");
-        args.add(classpath);
-        for (Map.Entry<String, String> vmArg : additionalVmArguments.entrySet()) {
-            args.add("-D" + vmArg.getKey() + "=" + vmArg.getValue());
-        }
-        args.add(HotSpotServiceabilityAgentManagerImpl.class.getName());
-
-        ObjectInputStream in = null;
-        ObjectOutputStream out = null;
-        BufferedReader err = null;
-        Process agentProcess = null;
-        File pipelineFile = null;
-        FileChannel pipelineChannel = null;
-        MappedByteBuffer pipelineBuffer = null;
-        
+    
+    private static <R> CompletableFuture<R> executeAsync(final Callable<R> task) {
+        final HotSpotServiceabilityAgentFuture<R> future = new HotSpotServiceabilityAgentFuture<R>();
         try {
-            // Create an external Java process to connect this process as HotSpot agent
-            agentProcess = new ProcessBuilder(args).start();
-
-            // Create a temporary file to be used as pipeline between caller process and HotSpot SA process
-            pipelineFile = File.createTempFile(UUID.randomUUID().toString(), ".tmp");
-            pipelineFile.deleteOnExit();
-            
-            // Open a connection to memory mapped file based pipeline between caller process and HotSpot SA process
-            pipelineChannel = new RandomAccessFile(pipelineFile, "rw").getChannel();
-            pipelineBuffer = pipelineChannel.map(FileChannel.MapMode.READ_WRITE, 0, pipelineSizeInBytes);
-            
-            if (procId == ATTACH_TO_CURRENT_PROCESS) {
-                procId = currentProcessId;
-            }
-            HotSpotServiceabilityAgentRequest<P, R> request = 
-                    new HotSpotServiceabilityAgentRequest<P, R>(procId, pipelineFile.getAbsolutePath(), 
-                                                                worker, param, timeoutInMsecs, 
-                                                                pipelineSizeInBytes);
-
-            // Get input, output and error streams
-            InputStream is = agentProcess.getInputStream();
-            OutputStream os = agentProcess.getOutputStream();
-            InputStream es = agentProcess.getErrorStream();
-
-            // Send request HotSpot agent process to execute
-            out = new ObjectOutputStream(os);
-            out.writeObject(request);
-            out.flush();
-
-            // At least, for all cases, wait process to finish
-            int exitCode = agentProcess.waitFor();
-            // Reset it, it has terminated and no need to destroy at the finally
-            // block
-            agentProcess = null;
-
-            // If process attach failed,
-            if (exitCode == PROCESS_ATTACH_FAILED_EXIT_CODE) {
-                throw new ProcessAttachFailedException("Attaching as Hotspot SA to process " + 
-                                                       "(id=" + procId + ") from external process failed");
-            }
-
-            // At first, check errors
-            err = new BufferedReader(new InputStreamReader(es));
-
-            StringBuilder errBuilder = null;
-            for (String line = err.readLine(); line != null; line = err.readLine()) {
-                if (errBuilder == null) {
-                    errBuilder = new StringBuilder();
-                }
-                errBuilder.append(line).append("\n");
-            }
-            if (errBuilder != null) {
-                String errStr = errBuilder.toString();
-                if (!errStr.startsWith("WARNING")) {
-                    throw new RuntimeException(errStr);
-                }    
-            }
-
-            in = new ObjectInputStream(is);
-            // Get response from HotSpot agent process
-            HotSpotServiceabilityAgentResponse<R> response = (HotSpotServiceabilityAgentResponse<R>) in.readObject();
-
-            if (response != null) {
-                if (response.getError() != null) {
-                    Throwable error = response.getError();
-                    throw error;
-                } else {
-                    int pipelineDataSize = response.getPipelineDataSize();
-                    HotSpotServiceabilityAgentResultWrapper<R> resultWrapper = null;
-                    if (pipelineDataSize == HotSpotServiceabilityAgentResponse.PIPELINE_DATA_NOT_USED) {
-                        // If pipeline has not been used, get result directly over response
-                        resultWrapper = response.getResultWrapper();
-                    } else {
-                        // If pipeline has been used, read data as byte[] from pipeline and deserialize it to result
-                        byte[] data = null;
-                        pipelineBuffer = pipelineBuffer.load();
-                        if (pipelineBuffer.hasArray()) {
-                            data = pipelineBuffer.array();
-                        } else {
-                            data = new byte[pipelineDataSize];
-                            pipelineBuffer.get(data);
-                        }
-                        resultWrapper = deserializeObject(data);
-                    }
-                    
-                    // Print standard output content if it is exist
-                    if (resultWrapper.getStdOut() != null) {
-                        System.out.print(resultWrapper.getStdOut());
+            getOrCreateAsyncExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone()) {
+                        // Already cancelled before started
+                        return;
                     }
-                        
-                    // Print standard error content if it is exist
-                    if (resultWrapper.getStdErr() != null) {
-                        System.err.print(resultWrapper.getStdErr());
+                    future.bindToCurrentThread();
+                    try {
+                        future.complete(task.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    } finally {
+                        future.unbindFromCurrentThread();
                     }
-                        
-                    return resultWrapper.getResult();
                 }
-            } else {
-                return null;
-            }
-        } catch (ProcessAttachFailedException e) {
-            throw e;
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Throwable t) {
-            throw new RuntimeException(t.getMessage(), t);
-        } finally {
-            safelyClose(out);
-            safelyClose(in);
-            safelyClose(err);
-            safelyClose(pipelineBuffer);
-            safelyClose(pipelineChannel);
-            safelyClose(pipelineFile);
-
-            if (agentProcess != null) {
-                // If process is still in use, destroy it.
-                // When it has terminated, it is set to "null" after "waitFor".
-                agentProcess.destroy();
-            }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
         }
+        return future;
     }
 
     @SuppressWarnings("rawtypes")
-    private static HotSpotServiceabilityAgentWorker createWorkerInstance(
+    static HotSpotServiceabilityAgentWorker createWorkerInstance(
             Class<? extends HotSpotServiceabilityAgentWorker> workerClass) {
         try {
             return workerClass.newInstance();
@@ -639,295 +609,20 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
     }
 
     /**
-     * Specific exception type to represent process attach fail cases.
-     */
-    @SuppressWarnings("serial")
-    private static class ProcessAttachFailedException extends RuntimeException {
-
-        private ProcessAttachFailedException(String message) {
-            super(message);
-        }
-
-    }
-
-    /**
-     * Represents request to HotSpot agent process by holding process id,
-     * timeout and {@link HotSpotServiceabilityAgentWorker} to execute.
-     */
-    @SuppressWarnings("serial")
-    private static class HotSpotServiceabilityAgentRequest<P extends HotSpotServiceabilityAgentParameter, 
-                                                           R extends HotSpotServiceabilityAgentResult> 
-            implements Serializable {
-
-        private final int processId;
-        private final String pipelineFilePath;
-        private final HotSpotServiceabilityAgentWorker<P, R> worker;
-        private final P param;
-        private final int timeout;
-        private final int pipelineSize;
-
-        private HotSpotServiceabilityAgentRequest(int processId, String pipelineFilePath,
-                HotSpotServiceabilityAgentWorker<P, R> worker, P param) {
-            this.processId = processId;
-            this.pipelineFilePath = pipelineFilePath;
-            this.worker = worker;
-            this.param = param;
-            this.timeout = HotSpotServiceabilityAgentManagerImpl.timeout;
-            this.pipelineSize = HotSpotServiceabilityAgentManagerImpl.pipelineSize;
-        }
-
-        private HotSpotServiceabilityAgentRequest(int processId, String pipelineFilePath,
-                HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
-                int timeout, int pipelineSize) {
-            this.processId = processId;
-            this.pipelineFilePath = pipelineFilePath;
-            this.worker = worker;
-            this.param = param;
-            this.timeout = timeout;
-            this.pipelineSize = pipelineSize;
-        }
-
-        public int getProcessId() {
-            return processId;
-        }
-        
-        public String getPipelineFilePath() {
-            return pipelineFilePath;
-        }
-
-        public HotSpotServiceabilityAgentWorker<P, R> getWorker() {
-            return worker;
-        }
-        
-        public P getParameter() {
-            return param;
-        }
-
-        public int getTimeout() {
-            return timeout;
-        }
-        
-        public int getPipelineSize() {
-            return pipelineSize;
-        }
-
-    }
-
-    /**
-     * Represents response from HotSpot agent process by holding result and error if occurred.
+     * {@inheritDoc}
      */
-    @SuppressWarnings("serial")
-    private static class HotSpotServiceabilityAgentResponse<R extends HotSpotServiceabilityAgentResult> 
-            implements Serializable {
-
-        private static final int PIPELINE_DATA_NOT_USED = -1;
-        
-        private final HotSpotServiceabilityAgentResultWrapper<R> resultWrapper;
-        private final Throwable error;
-        private final int pipelineDataSize;
-
-        private HotSpotServiceabilityAgentResponse(HotSpotServiceabilityAgentResultWrapper<R> resultWrapper) {
-            this.resultWrapper = resultWrapper;
-            this.error = null;
-            this.pipelineDataSize = PIPELINE_DATA_NOT_USED;
-        }
-
-        private HotSpotServiceabilityAgentResponse(Throwable error) {
-            this.resultWrapper = null;
-            this.error = error;
-            this.pipelineDataSize = PIPELINE_DATA_NOT_USED;
-        }
-        
-        private HotSpotServiceabilityAgentResponse(int pipelineDataSize) {
-            this.resultWrapper = null;
-            this.error = null;
-            this.pipelineDataSize = pipelineDataSize;
-        }
-
-        public HotSpotServiceabilityAgentResultWrapper<R> getResultWrapper() {
-            return resultWrapper;
-        }
-
-        public Throwable getError() {
-            return error;
-        }
-        
-        public int getPipelineDataSize() {
-            return pipelineDataSize;
-        }
-
+    @Override
+    public boolean isEnable() {
+        ensureProbed();
+        return status == HotSpotServiceabilityAgentStatus.ENABLED;
     }
     
-    /**
-     * Represents a wrapper object from HotSpot agent process by holding 
-     * result, standard output and standard error contents.
-     */
-    @SuppressWarnings("serial")
-    private static class HotSpotServiceabilityAgentResultWrapper<R extends HotSpotServiceabilityAgentResult> 
-            implements Serializable {
-        
-        private final R result;
-        private String stdOut;
-        private String stdErr;
-        
-        private HotSpotServiceabilityAgentResultWrapper(R result) {
-            this.result = result;
-        }
-        
-        public R getResult() {
-            return result;
-        }
-        
-        public String getStdOut() {
-            return stdOut;
-        }
-        
-        public void setStdOut(String stdOut) {
-            this.stdOut = stdOut;
-        }
-        
-        public String getStdErr() {
-            return stdErr;
-        }
-        
-        public void setStdErr(String stdErr) {
-            this.stdErr = stdErr;
-        }
-        
-    }
-
-    @SuppressWarnings({ "unchecked", "resource" })
-    public static 
-    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
-    void main(final String[] args) {  
-        PrintStream originalStdOutStream = System.out;
-        ByteArrayOutputStream stdOutOutputStream = new ByteArrayOutputStream();
-        PrintStream stdOutStream = new PrintStream(stdOutOutputStream);
-        System.setOut(stdOutStream);
-        
-        ByteArrayOutputStream stdErrOutputStream = new ByteArrayOutputStream();
-        PrintStream stdErrStream = new PrintStream(stdErrOutputStream);
-        System.setErr(stdErrStream);
-        
-        HotSpotAgent hotSpotAgent = null;
-        VM vm = null;
-        HotSpotServiceabilityAgentResponse<R> response = null;
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectInputStream in = null;
-        ObjectOutputStream out = null;
-        FileChannel pipelineChannel = null;
-        MappedByteBuffer pipelineBuffer = null;
-
-        try {
-            // Gets request from caller process over standard input
-            in = new ObjectInputStream(System.in);
-            out = new ObjectOutputStream(bos);
-
-            System.setProperty("sun.jvm.hotspot.debugger.useProcDebugger", "true");
-            System.setProperty("sun.jvm.hotspot.debugger.useWindbgDebugger", "true");
-            System.setProperty("sun.jvm.hotspot.runtime.VM.disableVersionCheck", "true");
-
-            final HotSpotServiceabilityAgentRequest<P, R> request = 
-                    (HotSpotServiceabilityAgentRequest<P, R>) in.readObject();
-            
-            // Open a connection to memory mapped file based pipeline between caller process and HotSpot SA process
-            pipelineChannel = new RandomAccessFile(request.getPipelineFilePath(), "rw").getChannel();
-            pipelineBuffer = pipelineChannel.map(FileChannel.MapMode.READ_WRITE, 0, request.getPipelineSize());
-
-            hotSpotAgent = HotSpotServiceabilityAgentUtil.getHotSpotAgentInstance();
-            final HotSpotAgent agent = hotSpotAgent;
-            
-            Thread t = new Thread() {
-                public void run() {
-                    try {
-                        // Attach to the caller process as HotSpot agent
-                        agent.attach(request.getProcessId());
-                    } catch (Throwable t) {
-                        System.exit(PROCESS_ATTACH_FAILED_EXIT_CODE);
-                    }
-                };
-            };
-            t.start();
-
-            // Check until timeout
-            for (int i = 0; i < request.getTimeout(); i += VM_CHECK_PERIOD_SENSITIVITY_IN_MSECS) {
-                Thread.sleep(VM_CHECK_PERIOD_SENSITIVITY_IN_MSECS); // Wait a little before an attempt
-                try {
-                    if ((vm = HotSpotServiceabilityAgentUtil.getVMInstance()) != null) {
-                        break;
-                    }
-                } catch (Throwable err) {
-                    // There is nothing to do, try another
-                }
-            }
-
-            // Check about if VM is initialized and ready to use
-            if (vm != null) {
-                final HotSpotServiceabilityAgentWorker<P, R> worker = request.getWorker();
-                final P param = request.getParameter();
-                if (worker != null) {
-                    // Execute worker and gets its result
-                    final R result = worker.run(new HotSpotServiceabilityAgentContext(hotSpotAgent, vm), param);
-                    
-                    // Wrap the result
-                    final HotSpotServiceabilityAgentResultWrapper<R> resultWrapper = 
-                            new HotSpotServiceabilityAgentResultWrapper<R>(result);
-                    
-                    // Insert standard output content to result wrapper if there is
-                    byte[] stdOutData = stdOutOutputStream.toByteArray();
-                    if (stdOutData != null && stdOutData.length > 0) {
-                        resultWrapper.setStdOut(new String(stdOutData));
-                    }
-                    
-                    // Insert standard error content to result wrapper if there is
-                    byte[] stdErrData = stdErrOutputStream.toByteArray();
-                    if (stdErrData != null && stdErrData.length > 0) {
-                        resultWrapper.setStdErr(new String(stdErrData));
-                    }
-                    
-                    // Serialize result
-                    byte[] resultData = serializeObject(resultWrapper);
-                    
-                    // Create a response with size of result
-                    response = new HotSpotServiceabilityAgentResponse<R>(resultData.length);
-
-                    // Write result to pipeline
-                    pipelineBuffer.put(resultData);
-                    pipelineBuffer.force();
-                }
-            } else {
-                throw new IllegalStateException("VM couldn't be initialized !");
-            }
-        } catch (Throwable t) {
-            // If there is an error, attach it to response
-            response = new HotSpotServiceabilityAgentResponse<R>(t);
-        } finally {
-            if (out != null) {
-                try {
-                    // Send response back to caller process over standard output
-                    out.writeObject(response);
-                    out.flush();
-                    originalStdOutStream.write(bos.toByteArray());
-                } catch (IOException e) {
-                    // There is nothing to do, so just ignore
-                }
-            }
-            if (hotSpotAgent != null) {
-                try {
-                    hotSpotAgent.detach();
-                } catch (IllegalArgumentException e) {
-                    // There is nothing to do, so just ignore
-                }
-            }
-        }
-    }
-
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean isEnable() {
-        return enable;
+    public HotSpotServiceabilityAgentStatus getStatus() {
+        return status;
     }
     
     /**
@@ -1014,6 +709,336 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
         return executeOnHotSpotSAInternal(worker, param, timeoutInMsecs, pipelineSizeInBytes, processId);
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R executeOnHotSpotSA(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            HotSpotServiceabilityAgentConfig config) {
+        return executeOnHotSpotSAInternal(worker, param, config, null);
+    }
+    
+    private <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R executeOnHotSpotSAInternal(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            HotSpotServiceabilityAgentConfig config, HotSpotServiceabilityAgentRecordHandler<?> recordHandler) {
+        if (config.getCoreFile() != null) {
+            checkEnable();
+            
+            return executor.executeOnCoreFile(worker, param, 
+                                              createExecutionOptions(config).setRecordHandler(recordHandler));
+        }
+        return executeOnHotSpotSAInternal(worker, param, 
+                                          createExecutionOptions(config).setRecordHandler(recordHandler), 
+                                          config.isSnapshot() || useSnapshot);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult, T> 
+    R executeWithRecordsOnHotSpotSA(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            HotSpotServiceabilityAgentConfig config, HotSpotServiceabilityAgentRecordHandler<T> recordHandler) {
+        if (recordHandler == null) {
+            throw new IllegalArgumentException("Record handler cannot be null");
+        }
+        return executeOnHotSpotSAInternal(worker, param, 
+                                          config != null ? config : new HotSpotServiceabilityAgentConfig(), 
+                                          recordHandler);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult, T> 
+    HotSpotServiceabilityAgentRecordStream<T> streamOnHotSpotSA(final HotSpotServiceabilityAgentWorker<P, R> worker, 
+            final P param, 
+            final HotSpotServiceabilityAgentConfig config) {
+        checkNotDisabled();
+        
+        final HotSpotServiceabilityAgentRecordIterator<T> recordIterator = 
+                new HotSpotServiceabilityAgentRecordIterator<T>();
+        CompletableFuture<R> execution = executeAsync(new Callable<R>() {
+            @Override
+            public R call() {
+                try {
+                    R result = executeWithRecordsOnHotSpotSA(worker, param, config, recordIterator);
+                    recordIterator.complete(null);
+                    return result;
+                } catch (RuntimeException e) {
+                    recordIterator.complete(e);
+                    throw e;
+                }
+            }
+        });
+        execution.whenComplete(new BiConsumer<R, Throwable>() {
+            @Override
+            public void accept(R result, Throwable t) {
+                if (t instanceof RejectedExecutionException) {
+                    // Execution has not been started at all
+                    recordIterator.complete(t);
+                }
+            }
+        });
+        recordIterator.bind(execution);
+        return recordIterator;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HotSpotSABatchResult executeBatchOnHotSpotSA(List<HotSpotSABatchItem<?, ?>> items) {
+        return executeOnHotSpotSAInternal(new HotSpotSABatchWorker(), new HotSpotSABatchParameter(items), 
+                                          timeout, pipelineSize, currentProcessId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HotSpotSABatchResult executeBatchOnHotSpotSA(List<HotSpotSABatchItem<?, ?>> items, 
+            int timeoutInMsecs, int pipelineSizeInBytes, int processId) {
+        return executeOnHotSpotSAInternal(new HotSpotSABatchWorker(), new HotSpotSABatchParameter(items), 
+                                          timeoutInMsecs, pipelineSizeInBytes, processId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    HotSpotSAFleetResult<R> executeOnProcesses(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            int[] processIds, int parallelism) {
+        return executeOnProcesses(worker, param, processIds, parallelism, timeout, pipelineSize);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    HotSpotSAFleetResult<R> executeOnProcesses(final HotSpotServiceabilityAgentWorker<P, R> worker, final P param, 
+            int[] processIds, int parallelism, final int timeoutInMsecs, final int pipelineSizeInBytes) {
+        checkEnable();
+        
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        
+        // A process cannot be attached by multiple HotSpot agent processes at the same time
+        Set<Integer> uniqueProcessIds = new LinkedHashSet<Integer>();
+        for (int processId : processIds) {
+            uniqueProcessIds.add(processId == ATTACH_TO_CURRENT_PROCESS ? currentProcessId : processId);
+        }
+        
+        HotSpotSAFleetResult<R> fleetResult = new HotSpotSAFleetResult<R>();
+        if (uniqueProcessIds.isEmpty()) {
+            return fleetResult;
+        }
+        
+        ExecutorService fleetExecutor = 
+                Executors.newFixedThreadPool(Math.min(parallelism, uniqueProcessIds.size()), new ThreadFactory() {
+                    private final AtomicInteger threadCounter = new AtomicInteger();
+                    
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "jemstone-hotspotsa-fleet-" + threadCounter.incrementAndGet());
+                        // Don't prevent the application from terminating
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        try {
+            Map<Integer, HotSpotServiceabilityAgentFuture<R>> futures = 
+                    new LinkedHashMap<Integer, HotSpotServiceabilityAgentFuture<R>>();
+            for (final int processId : uniqueProcessIds) {
+                final HotSpotServiceabilityAgentFuture<R> future = new HotSpotServiceabilityAgentFuture<R>();
+                futures.put(processId, future);
+                fleetExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (future.isDone()) {
+                            // Already cancelled before started
+                            return;
+                        }
+                        future.markStarted();
+                        // So the HotSpot agent process is destroyed if the execution on this process times out
+                        future.bindToCurrentThread();
+                        try {
+                            // Shared daemon process serves requests one by one, 
+                            // so each process is executed on by its own HotSpot agent process
+                            future.complete(executor.execute(worker, param, 
+                                                             createExecutionOptions(processId, timeoutInMsecs, 
+                                                                                    pipelineSizeInBytes)
+                                                                     .setSnapshotCommand(useSnapshot 
+                                                                                         ? snapshotCommand 
+                                                                                         : null)));
+                        } catch (Throwable t) {
+                            future.completeExceptionally(t);
+                        } finally {
+                            future.unbindFromCurrentThread();
+                        }
+                    }
+                });
+            }
+            InterruptedException interruption = null;
+            for (Map.Entry<Integer, HotSpotServiceabilityAgentFuture<R>> entry : futures.entrySet()) {
+                int processId = entry.getKey();
+                HotSpotServiceabilityAgentFuture<R> future = entry.getValue();
+                if (interruption != null) {
+                    future.cancel(true);
+                    fleetResult.addError(processId, interruption);
+                    continue;
+                }
+                try {
+                    // Executions may wait for a free thread, so their timeouts start when they are started
+                    fleetResult.addResult(processId, future.getAfterStart(timeoutInMsecs));
+                } catch (ExecutionException e) {
+                    fleetResult.addError(processId, e.getCause());
+                } catch (TimeoutException e) {
+                    // Destroys its HotSpot agent process, so the thread is released for the remaining ones
+                    future.cancel(true);
+                    fleetResult.addError(processId, 
+                                         new TimeoutException("Execution on process (id=" + processId + ") " + 
+                                                              "has not completed in " + timeoutInMsecs + 
+                                                              " milliseconds"));
+                } catch (InterruptedException e) {
+                    // Don't wait for the remaining ones, their HotSpot agent processes are destroyed by cancelling
+                    interruption = e;
+                    future.cancel(true);
+                    fleetResult.addError(processId, e);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            fleetExecutor.shutdownNow();
+        }
+        return fleetResult;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<HotSpotSAJvmInfo> discoverJvms() {
+        // Discovery doesn't attach to processes, so doesn't require HotSpot SA support
+        return HotSpotSAJvmDiscovery.discoverJvms();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<HotSpotSAJvmInfo> discoverJvms(String javaCommandPattern) {
+        return HotSpotSAJvmDiscovery.discoverJvms(javaCommandPattern);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass, 
+            P param) {
+        return executeOnHotSpotSAAsync((HotSpotServiceabilityAgentWorker<P, R>) createWorkerInstance(workerClass), 
+                                       param, timeout, pipelineSize, currentProcessId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(HotSpotServiceabilityAgentWorker<P, R> worker) {
+        return executeOnHotSpotSAAsync(worker, null, timeout, pipelineSize, currentProcessId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(HotSpotServiceabilityAgentWorker<P, R> worker, P param) {
+        return executeOnHotSpotSAAsync(worker, param, timeout, pipelineSize, currentProcessId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> executeOnHotSpotSAAsync(final HotSpotServiceabilityAgentWorker<P, R> worker, final P param, 
+            final int timeoutInMsecs, final int pipelineSizeInBytes, final int processId) {
+        checkNotDisabled();
+        
+        return executeAsync(new Callable<R>() {
+            @Override
+            public R call() {
+                return executeOnHotSpotSAInternal(worker, param, timeoutInMsecs, pipelineSizeInBytes, processId);
+            }
+        });
+    }
+    
+    private HotSpotServiceabilityAgentSessionImpl openSessionInternal(
+            HotSpotServiceabilityAgentExecutionOptions options) {
+        checkEnable();
+        
+        int processId = options.getProcessId();
+        if (options.getCoreFile() == null 
+                && (processId == ATTACH_TO_CURRENT_PROCESS || processId == currentProcessId)) {
+            // Attached process stays paused while session is open. 
+            // So current process couldn't send any request to its own session.
+            throw new IllegalArgumentException("Session can't be opened on the current process");
+        }
+        return executor.openSession(options);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HotSpotServiceabilityAgentSession openSession(int processId) {
+        return openSessionInternal(createExecutionOptions(processId, timeout, pipelineSize));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HotSpotServiceabilityAgentSession openSession(HotSpotServiceabilityAgentConfig config) {
+        return openSessionInternal(createExecutionOptions(config));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addExecutionListener(HotSpotServiceabilityAgentExecutionListener listener) {
+        executionListeners.add(listener);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeExecutionListener(HotSpotServiceabilityAgentExecutionListener listener) {
+        executionListeners.remove(listener);
+    }
+    
+    @Override
+    public <T> void registerCodec(HotSpotServiceabilityAgentCodec<T> codec) {
+        codecRegistry.registerCodec(codec);
+    }
+    
+    @Override
+    public void deregisterCodec(Class<?> type) {
+        codecRegistry.deregisterCodec(type);
+    }
+    
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public <P extends HotSpotServiceabilityAgentPlugin>
@@ -1099,14 +1124,7 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
         checkPluginAndJavaVersionCompatibility(plugin);
 
         if (config != null) {
-            return executeOnHotSpotSA(plugin.getWorker(), 
-                                      param,
-                                      config.getTimeoutInMsecs() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET ?
-                                              config.getTimeoutInMsecs() : timeout,
-                                      config.getPipelineSizeInBytes() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET ?
-                                              config.getPipelineSizeInBytes() : pipelineSize,
-                                      config.getProcessId() != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET ?
-                                              config.getProcessId() : currentProcessId);
+            return executeOnHotSpotSA(plugin.getWorker(), param, config);
         } else {
             return executeOnHotSpotSA(plugin.getWorker(), param);
         }
@@ -1228,6 +1246,56 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
         return runPluginInternal(plugin, plugin.getParamater(args));
     }
     
+    @SuppressWarnings("rawtypes")
+    private <R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsyncInternal(String id, final HotSpotServiceabilityAgentParameter param, 
+            final HotSpotServiceabilityAgentConfig config) {
+        checkNotDisabled();
+        
+        final HotSpotServiceabilityAgentPlugin plugin = pluginMap.get(id);
+        if (plugin == null) {
+            throw new IllegalArgumentException("No plugin found with id " + id);
+        }
+        return executeAsync(new Callable<R>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public R call() {
+                if (config != null) {
+                    return (R) runPluginInternal(plugin, param, config);
+                } else {
+                    return (R) runPluginInternal(plugin, param);
+                }
+            }
+        });
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsync(String id) {
+        return runPluginAsyncInternal(id, null, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsync(String id, P param) {
+        return runPluginAsyncInternal(id, param, null);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    CompletableFuture<R> runPluginAsync(String id, P param, HotSpotServiceabilityAgentConfig config) {
+        return runPluginAsyncInternal(id, param, config);
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -1282,7 +1350,7 @@ public class HotSpotServiceabilityAgentManagerImpl implements HotSpotServiceabil
         checkEnable();
 
         return "HotspotServiceabilityAgentSupport [" + 
-                "enable=" + enable + 
+                "status=" + status + 
                 ", processId=" + currentProcessId + 
                 ", classpathForAgent=" + classpathForAgent + 
                 ", errorMessage=" + errorMessage + "]";
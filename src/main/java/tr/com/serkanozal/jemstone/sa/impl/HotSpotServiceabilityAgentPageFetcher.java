@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import sun.jvm.hotspot.HotSpotAgent;
+import sun.jvm.hotspot.debugger.Debugger;
+import sun.jvm.hotspot.debugger.DebuggerBase;
+import sun.jvm.hotspot.debugger.Page;
+import sun.jvm.hotspot.debugger.PageCache;
+import sun.jvm.hotspot.debugger.PageFetcher;
+
+/**
+ * <p>
+ * {@link PageFetcher} implementation which reads whole pages of the attached process 
+ * from <code>/proc/&lt;pid&gt;/mem</code> with a single read 
+ * instead of reading them word by word through <code>ptrace</code> as HotSpot agent does.
+ * </p>
+ * 
+ * <p>
+ * It is installed into the LRU page cache of the HotSpot agent debugger, 
+ * so every memory access (oops, addresses, etc ...) is served from the cached pages 
+ * and only missing pages are fetched from the process. 
+ * Pages which couldn't be read from <code>/proc/&lt;pid&gt;/mem</code> 
+ * (for example, unmapped pages) are fetched by the original fetcher of the debugger. 
+ * Cached pages are dropped on uninstall since process continues after detach.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentPageFetcher implements PageFetcher {
+
+    private static final long DEFAULT_PAGE_SIZE = 4096;
+    private static final long DEFAULT_MAX_NUM_PAGES = 4096;
+    
+    private final DebuggerBase debugger;
+    private final PageCache originalCache;
+    private final PageFetcher originalFetcher;
+    private final RandomAccessFile memFile;
+    private final FileChannel memChannel;
+    private final PageCache cache;
+    
+    private HotSpotServiceabilityAgentPageFetcher(DebuggerBase debugger, PageCache originalCache, 
+            PageFetcher originalFetcher, RandomAccessFile memFile, long pageSize, long maxNumPages) {
+        this.debugger = debugger;
+        this.originalCache = originalCache;
+        this.originalFetcher = originalFetcher;
+        this.memFile = memFile;
+        this.memChannel = memFile.getChannel();
+        this.cache = new PageCache(pageSize, maxNumPages, this);
+    }
+    
+    /**
+     * Installs page fetcher into the debugger of the given attached HotSpot agent. 
+     * 
+     * @param hotSpotAgent the HotSpot agent attached to the process
+     * @param processId    id of the attached process
+     * @return the installed page fetcher, <code>null</code> if it couldn't be installed 
+     *         (for example, not on Linux or debugger internals are not accessible)
+     */
+    static HotSpotServiceabilityAgentPageFetcher install(HotSpotAgent hotSpotAgent, int processId) {
+        File memPath = new File("/proc/" + processId + "/mem");
+        if (!memPath.exists()) {
+            return null;
+        }
+        Debugger dbg = hotSpotAgent.getDebugger();
+        if (!(dbg instanceof DebuggerBase)) {
+            return null;
+        }
+        DebuggerBase debugger = (DebuggerBase) dbg;
+        RandomAccessFile memFile = null;
+        try {
+            Field cacheField = DebuggerBase.class.getDeclaredField("cache");
+            cacheField.setAccessible(true);
+            PageCache originalCache = (PageCache) cacheField.get(debugger);
+            if (originalCache == null) {
+                // Debugger doesn't use cache, so pages can't be intercepted
+                return null;
+            }
+            long pageSize = getField(originalCache, "pageSize", DEFAULT_PAGE_SIZE);
+            long maxNumPages = getField(originalCache, "maxNumPages", DEFAULT_MAX_NUM_PAGES);
+            Field fetcherField = PageCache.class.getDeclaredField("fetcher");
+            fetcherField.setAccessible(true);
+            PageFetcher originalFetcher = (PageFetcher) fetcherField.get(originalCache);
+            
+            // Attached (so traced) process memory is readable by its tracer
+            memFile = new RandomAccessFile(memPath, "r");
+            
+            HotSpotServiceabilityAgentPageFetcher pageFetcher = 
+                    new HotSpotServiceabilityAgentPageFetcher(debugger, originalCache, originalFetcher, 
+                                                              memFile, pageSize, maxNumPages);
+            cacheField.set(debugger, pageFetcher.cache);
+            return pageFetcher;
+        } catch (Throwable t) {
+            // Fallback to the default way of HotSpot agent for reading memory
+            closeQuietly(memFile);
+            return null;
+        }
+    }
+    
+    private static long getField(PageCache cache, String fieldName, long defaultValue) {
+        try {
+            Field field = PageCache.class.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return field.getLong(cache);
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+    
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // There is nothing to do, so just ignore
+            }
+        }
+    }
+    
+    @Override
+    public Page fetchPage(long pageBaseAddress, long numBytes) {
+        byte[] data = new byte[(int) numBytes];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            long position = pageBaseAddress;
+            while (buffer.hasRemaining()) {
+                int read = memChannel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            // Possibly unmapped page, let original fetcher handle it
+        }
+        if (buffer.hasRemaining()) {
+            return originalFetcher.fetchPage(pageBaseAddress, numBytes);
+        }
+        return new Page(pageBaseAddress, data);
+    }
+    
+    /**
+     * Restores the original page cache of the debugger and 
+     * drops the pages cached while attached.
+     */
+    void uninstall() {
+        cache.clear();
+        try {
+            Field cacheField = DebuggerBase.class.getDeclaredField("cache");
+            cacheField.setAccessible(true);
+            if (cacheField.get(debugger) == cache) {
+                originalCache.clear();
+                cacheField.set(debugger, originalCache);
+            }
+        } catch (Exception e) {
+            // There is nothing to do, so just ignore
+        } finally {
+            closeQuietly(memFile);
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+import sun.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * <p>
+ * Layout of the header at the beginning of the memory mapped file based pipeline 
+ * between caller process and HotSpot agent process. 
+ * Result data is transferred through the data area after the header 
+ * which is used as a ring buffer (see {@link HotSpotServiceabilityAgentPipelineTransfer}).
+ * </p>
+ * 
+ * <pre>
+ *      +-------------------------+ 0
+ *      | status (int)            |
+ *      +-------------------------+ 8
+ *      | attach time (long)      | in nanoseconds
+ *      +-------------------------+ 16
+ *      | pause time (long)       | in nanoseconds
+ *      +-------------------------+ 24
+ *      | write sequence (long)   | total bytes written by HotSpot agent process
+ *      +-------------------------+ 32
+ *      | read sequence (long)    | total bytes read by caller process
+ *      +-------------------------+ 40
+ *      | cancel requested (int)  | set by caller process to cancel the execution
+ *      +-------------------------+ 44
+ *      | ...                     |
+ *      +-------------------------+ 64
+ *      | data area ...           |
+ * </pre>
+ *
+ * @author Serkan Ozal
+ */
+final class HotSpotServiceabilityAgentPipelineHeader {
+
+    static final int STATUS_NOT_ATTACHED = 0;
+    static final int STATUS_ATTACHED = 1;
+    static final int STATUS_ATTACH_FAILED = 2;
+    static final int STATUS_DETACHED = 3;
+    
+    static final int STATUS_OFFSET = 0;
+    static final int ATTACH_TIME_OFFSET = 8;
+    static final int PAUSE_TIME_OFFSET = 16;
+    static final int WRITE_SEQUENCE_OFFSET = 24;
+    static final int READ_SEQUENCE_OFFSET = 32;
+    static final int CANCEL_REQUESTED_OFFSET = 40;
+    static final int HEADER_SIZE = 64;
+    
+    // Sequences and cancel request are accessed by different processes concurrently, 
+    // so they are accessed with volatile semantic directly over memory
+    private static final Unsafe UNSAFE;
+    
+    static {
+        try {
+            Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            UNSAFE = (Unsafe) unsafeField.get(null);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to get unsafe", t);
+        }
+    }
+    
+    private HotSpotServiceabilityAgentPipelineHeader() {
+        
+    }
+    
+    private static long addressOf(ByteBuffer buffer) {
+        return ((DirectBuffer) buffer).address();
+    }
+    
+    static int getStatus(ByteBuffer buffer) {
+        return buffer.getInt(STATUS_OFFSET);
+    }
+    
+    static void setStatus(ByteBuffer buffer, int status) {
+        buffer.putInt(STATUS_OFFSET, status);
+    }
+    
+    static long getAttachTime(ByteBuffer buffer) {
+        return buffer.getLong(ATTACH_TIME_OFFSET);
+    }
+    
+    static void setAttachTime(ByteBuffer buffer, long attachTimeInNanos) {
+        buffer.putLong(ATTACH_TIME_OFFSET, attachTimeInNanos);
+    }
+    
+    static long getPauseTime(ByteBuffer buffer) {
+        return buffer.getLong(PAUSE_TIME_OFFSET);
+    }
+    
+    static void setPauseTime(ByteBuffer buffer, long pauseTimeInNanos) {
+        buffer.putLong(PAUSE_TIME_OFFSET, pauseTimeInNanos);
+    }
+    
+    static long getWriteSequence(ByteBuffer buffer) {
+        return UNSAFE.getLongVolatile(null, addressOf(buffer) + WRITE_SEQUENCE_OFFSET);
+    }
+    
+    static void setWriteSequence(ByteBuffer buffer, long writeSequence) {
+        UNSAFE.putLongVolatile(null, addressOf(buffer) + WRITE_SEQUENCE_OFFSET, writeSequence);
+    }
+    
+    static long getReadSequence(ByteBuffer buffer) {
+        return UNSAFE.getLongVolatile(null, addressOf(buffer) + READ_SEQUENCE_OFFSET);
+    }
+    
+    static void setReadSequence(ByteBuffer buffer, long readSequence) {
+        UNSAFE.putLongVolatile(null, addressOf(buffer) + READ_SEQUENCE_OFFSET, readSequence);
+    }
+    
+    static boolean isCancelRequested(ByteBuffer buffer) {
+        return UNSAFE.getIntVolatile(null, addressOf(buffer) + CANCEL_REQUESTED_OFFSET) != 0;
+    }
+    
+    static void requestCancel(ByteBuffer buffer) {
+        UNSAFE.putIntVolatile(null, addressOf(buffer) + CANCEL_REQUESTED_OFFSET, 1);
+    }
+    
+}
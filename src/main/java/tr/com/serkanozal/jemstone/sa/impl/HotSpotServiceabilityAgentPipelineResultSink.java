@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResultSink;
+
+/**
+ * <p>
+ * {@link HotSpotServiceabilityAgentResultSink} implementation used by HotSpot agent process 
+ * which streams the emitted records to the caller process through the pipeline 
+ * while the worker is running. 
+ * </p>
+ * 
+ * <p>
+ * Each record is written as a length-prefixed frame and 
+ * the stream is terminated by {@link #END_OF_RECORDS} after the worker has finished, 
+ * so caller process consumes all the records before the result data 
+ * which is transferred through the same pipeline. 
+ * Since the data area of the pipeline is used as a ring buffer, 
+ * emitting waits for caller process to consume the previous records when it is full.
+ * </p>
+ * 
+ * <p>
+ * When the target process is the caller process itself, caller process cannot consume 
+ * any record while it is paused. So in that case, records are kept 
+ * and transferred on close after detach.
+ * </p>
+ * 
+ * @see HotSpotServiceabilityAgentRecordReader
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentPipelineResultSink implements HotSpotServiceabilityAgentResultSink {
+
+    static final int RECORD_MODE_NONE = 0;
+    static final int RECORD_MODE_STREAMED = 1;
+    static final int RECORD_MODE_DEFERRED = 2;
+    
+    static final int END_OF_RECORDS = -1;
+    
+    private final ByteBuffer pipelineBuffer;
+    private final HotSpotServiceabilityAgentRequest<?, ?> request;
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    private final List<byte[]> deferredFrames;
+    private boolean closed;
+    
+    HotSpotServiceabilityAgentPipelineResultSink(ByteBuffer pipelineBuffer, 
+            HotSpotServiceabilityAgentRequest<?, ?> request, HotSpotServiceabilityAgentCodecRegistry codecRegistry) {
+        this.pipelineBuffer = pipelineBuffer;
+        this.request = request;
+        this.codecRegistry = codecRegistry;
+        this.deferredFrames = request.getRecordMode() == RECORD_MODE_DEFERRED ? new ArrayList<byte[]>() : null;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+    
+    @Override
+    public synchronized void emit(Object record) {
+        if (record == null) {
+            // Null cannot be told apart from the end of records by the iterator consuming them
+            throw new IllegalArgumentException("Record cannot be null");
+        }
+        if (closed) {
+            // Worker is still running after it has been given up (for example, on cancel)
+            throw new IllegalStateException("Result sink has been closed");
+        }
+        try {
+            byte[] data = codecRegistry.encode(record);
+            ByteBuffer frame = ByteBuffer.allocate(4 + data.length);
+            frame.putInt(data.length);
+            frame.put(data);
+            if (deferredFrames != null) {
+                deferredFrames.add(frame.array());
+            } else {
+                write(frame.array());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Record couldn't be emitted: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Transfers the kept records if there are and terminates the stream of records, 
+     * so caller process stops consuming records.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (deferredFrames != null) {
+                for (byte[] frame : deferredFrames) {
+                    write(frame);
+                }
+                deferredFrames.clear();
+            }
+            write(ByteBuffer.allocate(4).putInt(END_OF_RECORDS).array());
+        } catch (IOException e) {
+            // Caller process has given up reading, so there is nothing to do
+        }
+    }
+    
+    private void write(byte[] data) throws IOException {
+        HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, request.getPipelineSize(), 
+                                                         data, request.getTimeout());
+    }
+    
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Transfers data of any size through the fixed size data area of the pipeline 
+ * between HotSpot agent process (writer) and caller process (reader) 
+ * by using the data area as a ring buffer. 
+ * </p>
+ * 
+ * <p>
+ * Writer writes frames as big as the free space in the data area and publishes them 
+ * by advancing the write sequence at the pipeline header. 
+ * Reader consumes the published frames and frees their space 
+ * by advancing the read sequence at the pipeline header. 
+ * So the mapped memory is bounded by the pipeline size regardless of the data size.
+ * </p>
+ * 
+ * @see HotSpotServiceabilityAgentPipelineHeader
+ *
+ * @author Serkan Ozal
+ */
+final class HotSpotServiceabilityAgentPipelineTransfer {
+
+    private static final long WAIT_PERIOD_IN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    
+    private HotSpotServiceabilityAgentPipelineTransfer() {
+        
+    }
+    
+    /**
+     * Writes the given data to the pipeline by waiting reader to free space when the data area is full.
+     * 
+     * @param pipelineBuffer    the buffer of the pipeline
+     * @param dataAreaSize      the size of the data area of the pipeline
+     * @param data              the data to write
+     * @param timeoutInMsecs    the timeout in milliseconds to wait at most for reader to free space
+     * @throws IOException if reader doesn't free any space in time
+     */
+    static void write(ByteBuffer pipelineBuffer, int dataAreaSize, byte[] data, 
+            long timeoutInMsecs) throws IOException {
+        ByteBuffer dataArea = pipelineBuffer.duplicate();
+        long writeSequence = HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(pipelineBuffer);
+        int written = 0;
+        long lastProgressTime = System.nanoTime();
+        while (written < data.length) {
+            long readSequence = HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer);
+            int free = dataAreaSize - (int) (writeSequence - readSequence);
+            if (free > 0) {
+                int position = (int) (writeSequence % dataAreaSize);
+                // Don't pass the end of the data area, rest of the frame is written to the beginning 
+                int frameSize = Math.min(Math.min(free, dataAreaSize - position), data.length - written);
+                dataArea.position(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + position);
+                dataArea.put(data, written, frameSize);
+                written += frameSize;
+                writeSequence += frameSize;
+                // Publish the frame to reader
+                HotSpotServiceabilityAgentPipelineHeader.setWriteSequence(pipelineBuffer, writeSequence);
+                lastProgressTime = System.nanoTime();
+            } else {
+                if (System.nanoTime() - lastProgressTime > TimeUnit.MILLISECONDS.toNanos(timeoutInMsecs)) {
+                    throw new IOException("Pipeline has not been drained by caller process in " + 
+                                          timeoutInMsecs + " milliseconds");
+                }
+                LockSupport.parkNanos(WAIT_PERIOD_IN_NANOS);
+            }
+        }
+    }
+    
+    /**
+     * Reads the data with given length from the pipeline by waiting writer when the data area is empty.
+     * 
+     * @param pipelineBuffer    the buffer of the pipeline
+     * @param dataAreaSize      the size of the data area of the pipeline
+     * @param length            the length of the data to read
+     * @param timeoutInMsecs    the timeout in milliseconds to wait at most for writer to write
+     * @param writerProcess     the process writes the data
+     * @return the read data
+     * @throws IOException if writer doesn't write in time or has terminated
+     */
+    static byte[] read(ByteBuffer pipelineBuffer, int dataAreaSize, int length, 
+            long timeoutInMsecs, Process writerProcess) throws IOException {
+        ByteBuffer dataArea = pipelineBuffer.duplicate();
+        byte[] data = new byte[length];
+        long readSequence = HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer);
+        int read = 0;
+        long lastProgressTime = System.nanoTime();
+        while (read < length) {
+            long writeSequence = HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(pipelineBuffer);
+            int available = (int) (writeSequence - readSequence);
+            if (available > 0) {
+                int position = (int) (readSequence % dataAreaSize);
+                // More data might have been published than requested (for example, the following records)
+                int frameSize = Math.min(Math.min(available, dataAreaSize - position), length - read);
+                dataArea.position(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + position);
+                dataArea.get(data, read, frameSize);
+                read += frameSize;
+                readSequence += frameSize;
+                // Free the space of the frame for writer
+                HotSpotServiceabilityAgentPipelineHeader.setReadSequence(pipelineBuffer, readSequence);
+                lastProgressTime = System.nanoTime();
+            } else {
+                if (!writerProcess.isAlive() 
+                        // Writer might have published the last frame just before terminating
+                        && HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(pipelineBuffer) == readSequence) {
+                    throw new IOException("HotSpot agent process has terminated before transferring whole data " + 
+                                          "(" + read + "/" + length + " bytes)");
+                }
+                if (System.nanoTime() - lastProgressTime > TimeUnit.MILLISECONDS.toNanos(timeoutInMsecs)) {
+                    throw new IOException("HotSpot agent process has not transferred any data in " + 
+                                          timeoutInMsecs + " milliseconds");
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted while waiting for HotSpot agent process " + 
+                                                     "to transfer data");
+                }
+                LockSupport.parkNanos(WAIT_PERIOD_IN_NANOS);
+            }
+        }
+        return data;
+    }
+    
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * <p>
+ * On-disk cache of the successful HotSpot SA support probe outcome 
+ * (classpath and VM arguments for HotSpot agent process and whether "sudo" is required).
+ * </p>
+ * 
+ * <p>
+ * Outcome depends on the JDK and the classpath of the current process, 
+ * so cache entries are keyed by <code>java.home</code>, JVM version and classpath. 
+ * Then later starts with the same JDK and classpath skip both library lookups and the trial attach.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentProbeCache {
+
+    private static final String KEY_PROPERTY = "key";
+    private static final String CLASSPATH_FOR_AGENT_PROPERTY = "classpathForAgent";
+    private static final String SUDO_REQUIRED_PROPERTY = "sudoRequired";
+    private static final String VM_ARGUMENT_PROPERTY_PREFIX = "vmArgument.";
+    
+    private final String key;
+    private final File cacheFile;
+    
+    HotSpotServiceabilityAgentProbeCache(File cacheDirectory, String classpath) {
+        this.key = System.getProperty("java.home") + File.pathSeparator + 
+                   System.getProperty("java.vm.version") + File.pathSeparator + 
+                   classpath;
+        this.cacheFile = new File(cacheDirectory, "hotspotsa-probe-" + Integer.toHexString(key.hashCode()) + ".properties");
+    }
+    
+    Entry load() {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(cacheFile);
+            props.load(in);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        // Different keys might have the same hash, so verify the whole key
+        String classpathForAgent = props.getProperty(CLASSPATH_FOR_AGENT_PROPERTY);
+        if (!key.equals(props.getProperty(KEY_PROPERTY)) || classpathForAgent == null) {
+            return null;
+        }
+        Map<String, String> additionalVmArguments = new HashMap<String, String>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith(VM_ARGUMENT_PROPERTY_PREFIX)) {
+                additionalVmArguments.put(name.substring(VM_ARGUMENT_PROPERTY_PREFIX.length()), 
+                                          props.getProperty(name));
+            }
+        }
+        boolean sudoRequired = Boolean.parseBoolean(props.getProperty(SUDO_REQUIRED_PROPERTY));
+        return new Entry(classpathForAgent, additionalVmArguments, sudoRequired);
+    }
+    
+    void store(Entry entry) {
+        Properties props = new Properties();
+        props.setProperty(KEY_PROPERTY, key);
+        props.setProperty(CLASSPATH_FOR_AGENT_PROPERTY, entry.getClasspathForAgent());
+        props.setProperty(SUDO_REQUIRED_PROPERTY, String.valueOf(entry.isSudoRequired()));
+        for (Map.Entry<String, String> vmArg : entry.getAdditionalVmArguments().entrySet()) {
+            props.setProperty(VM_ARGUMENT_PROPERTY_PREFIX + vmArg.getKey(), vmArg.getValue());
+        }
+        File tempFile = null;
+        OutputStream out = null;
+        try {
+            File cacheDirectory = cacheFile.getParentFile();
+            if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+                return;
+            }
+            // Write to a temporary file and move it, 
+            // so concurrently starting processes never see a partially written entry
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+            out = new FileOutputStream(tempFile);
+            props.store(out, "Jemstone HotSpot SA probe outcome");
+            out.close();
+            out = null;
+            Files.move(tempFile.toPath(), cacheFile.toPath(), 
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        } catch (IOException e) {
+            // Cache is just an optimization, so there is nothing to do
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+    
+    static class Entry {
+        
+        private final String classpathForAgent;
+        private final Map<String, String> additionalVmArguments;
+        private final boolean sudoRequired;
+        
+        Entry(String classpathForAgent, Map<String, String> additionalVmArguments, boolean sudoRequired) {
+            this.classpathForAgent = classpathForAgent;
+            this.additionalVmArguments = Collections.unmodifiableMap(additionalVmArguments);
+            this.sudoRequired = sudoRequired;
+        }
+        
+        String getClasspathForAgent() {
+            return classpathForAgent;
+        }
+        
+        Map<String, String> getAdditionalVmArguments() {
+            return additionalVmArguments;
+        }
+        
+        boolean isSudoRequired() {
+            return sudoRequired;
+        }
+        
+    }
+    
+}
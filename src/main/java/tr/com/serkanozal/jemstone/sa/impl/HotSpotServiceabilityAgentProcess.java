@@ -0,0 +1,606 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import sun.jvm.hotspot.HotSpotAgent;
+import sun.jvm.hotspot.runtime.VM;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * <p>
+ * Entry point of HotSpot agent process which is started by
+ * {@link HotSpotServiceabilityAgentProcessLauncher} on the caller process side.
+ * </p>
+ *
+ * <p>
+ * Gets {@link HotSpotServiceabilityAgentRequest}s over its standard input,
+ * attaches to the target process (or its snapshot), runs the worker
+ * and sends back {@link HotSpotServiceabilityAgentResponse}s over its standard output.
+ * Result data is transferred through the memory mapped file based pipeline of the request.
+ * One-shot process serves only one request, daemon process serves requests until its standard input is closed.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentProcess {
+
+    static final String SKIP_HOTSPOT_SA_INIT_FLAG = "jemstone.hotspotsa.skipHotspotSAInit";
+    static final String DAEMON_PROCESS_FLAG = "jemstone.hotspotsa.daemonProcess";
+    static final String DISABLE_PROC_MEM_READ_FLAG = "jemstone.hotspotsa.disableProcMemRead";
+    
+    static final int PROCESS_ATTACH_FAILED_EXIT_CODE = 128;
+    
+    private static final int WORKER_CANCEL_GRACE_PERIOD_IN_MSECS = 20;
+    private static final int WORKER_CANCEL_CHECK_INTERVAL_IN_MSECS = 10;
+    
+    private static final String[] PRELOADED_HOTSPOT_SA_CLASSES = {
+        "sun.jvm.hotspot.HotSpotAgent",
+        "sun.jvm.hotspot.HotSpotTypeDataBase",
+        "sun.jvm.hotspot.runtime.VM",
+        "sun.jvm.hotspot.runtime.Threads",
+        "sun.jvm.hotspot.runtime.JavaThread",
+        "sun.jvm.hotspot.oops.ObjectHeap",
+        "sun.jvm.hotspot.debugger.linux.LinuxDebuggerLocal",
+        "sun.jvm.hotspot.debugger.bsd.BsdDebuggerLocal",
+        "sun.jvm.hotspot.debugger.windbg.WindbgDebuggerLocal"
+    };
+    
+    private static final HotSpotServiceabilityAgentCodecRegistry codecRegistry =
+            new HotSpotServiceabilityAgentCodecRegistry();
+    
+    // Used to track the ongoing attach
+    private static volatile Thread attachThread;
+    // Used to detach on termination (for example, on cancel) if it is still attached
+    private static volatile HotSpotAgent attachedAgent;
+    // Used to calculate how long the target process has been paused
+    private static long attachStartTime;
+    // Used to keep the attach of the open session
+    private static HotSpotAgent sessionAgent;
+    private static HotSpotServiceabilityAgentContext sessionContext;
+    private static HotSpotServiceabilityAgentSnapshot sessionSnapshot;
+    private static HotSpotServiceabilityAgentPageFetcher sessionPageFetcher;
+    // Set when a worker hasn't responded to cancellation and is still running, 
+    // so this process must not serve any more requests
+    private static volatile boolean workerAbandoned;
+    // Used to decide about reading memory of the attached process in pages
+    private static final boolean disableProcMemRead = Boolean.getBoolean(DISABLE_PROC_MEM_READ_FLAG);
+    
+    private HotSpotServiceabilityAgentProcess() {
+    
+    }
+    
+    private static void safelyClose(MappedByteBuffer buffer) {
+        if (buffer != null) {
+            sun.misc.Cleaner cleaner = ((sun.nio.ch.DirectBuffer) buffer).cleaner();
+            cleaner.clean();
+        }
+    }
+    
+    private static void safelyClose(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+    void main(final String[] args) {
+        PrintStream originalStdOutStream = System.out;
+        ByteArrayOutputStream stdOutOutputStream = new ByteArrayOutputStream();
+        PrintStream stdOutStream = new PrintStream(stdOutOutputStream);
+        System.setOut(stdOutStream);
+        
+        ByteArrayOutputStream stdErrOutputStream = new ByteArrayOutputStream();
+        PrintStream stdErrStream = new PrintStream(stdErrOutputStream);
+        System.setErr(stdErrStream);
+        
+        final boolean daemonProcess = Boolean.getBoolean(DAEMON_PROCESS_FLAG);
+        
+        // If this process is terminated while it is attached (for example, caller process has gone
+        // without closing its session or execution has been cancelled), release the target process
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                detach(attachedAgent);
+            }
+        });
+        
+        DataInputStream in = null;
+        DataOutputStream out = null;
+        
+        try {
+            System.setProperty("sun.jvm.hotspot.debugger.useProcDebugger", "true");
+            System.setProperty("sun.jvm.hotspot.debugger.useWindbgDebugger", "true");
+            System.setProperty("sun.jvm.hotspot.runtime.VM.disableVersionCheck", "true");
+            
+            // Load HotSpot SA classes before waiting for request,
+            // since this process might be a pooled one which is started before its request
+            preloadHotSpotSAClasses();
+            
+            // Gets requests from caller process over standard input
+            in = new DataInputStream(System.in);
+            // Sends responses back to caller process over standard output
+            out = new DataOutputStream(originalStdOutStream);
+            
+            // If this is a daemon process, serve requests until caller process closes the channel.
+            // Otherwise, serve only one request and terminate.
+            do {
+                HotSpotServiceabilityAgentRequest<P, R> request = null;
+                HotSpotServiceabilityAgentResponse<R> response = null;
+                try {
+                    request = codecRegistry.readMessage(in);
+                } catch (EOFException e) {
+                    // There is no more request
+                    break;
+                } catch (Throwable t) {
+                    // If there is an error, attach it to response
+                    response = new HotSpotServiceabilityAgentResponse<R>(t);
+                }
+                
+                if (request != null) {
+                    // Standard output and standard error contents are collected per request
+                    stdOutOutputStream.reset();
+                    stdErrOutputStream.reset();
+                    
+                    response = handleRequest(request, stdOutStream, stdOutOutputStream,
+                                             stdErrStream, stdErrOutputStream, daemonProcess);
+                    if (workerAbandoned) {
+                        // Abandoned worker might still use HotSpot SA, 
+                        // so let the caller process know that this process terminates after this request
+                        response.setRetired(true);
+                    }
+                }
+                
+                // Send response back to caller process over standard output
+                codecRegistry.writeMessage(out, response);
+                
+                // Transfer result data through pipeline after the response, since caller process
+                // starts reading it after getting the response (and after detach if it is the target process)
+                if (response.getPipelineData() != null) {
+                    writePipelineData(request, response.getPipelineData());
+                }
+            } while (daemonProcess && !isAttachInProgress() && !workerAbandoned);
+        } catch (IOException e) {
+            // There is nothing to do, so just ignore
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // There is nothing to do, so just ignore
+                }
+            }
+        }
+        
+        // There might be still running threads (such as a stuck attach thread),
+        // so terminate explicitly
+        System.exit(0);
+    }
+    
+    private static void preloadHotSpotSAClasses() {
+        ClassLoader classLoader = HotSpotServiceabilityAgentProcess.class.getClassLoader();
+        for (String className : PRELOADED_HOTSPOT_SA_CLASSES) {
+            try {
+                // Just load, don't initialize
+                Class.forName(className, false, classLoader);
+            } catch (Throwable t) {
+                // Some of them are platform specific, so just ignore
+            }
+        }
+        try {
+            // When HotSpot SA classes are loaded by boot classloader (for class data sharing),
+            // VM class cannot find "sa.properties" and complains about it while it is being initialized.
+            // So initialize it here to discard the complaint with the other outputs before the first request.
+            Class.forName(HotSpotServiceabilityAgentUtil.VM_CLASSNAME, true, classLoader);
+        } catch (Throwable t) {
+            // There is nothing to do, so just ignore
+        }
+    }
+    
+    @SuppressWarnings("resource")
+    private static void writePipelineData(HotSpotServiceabilityAgentRequest<?, ?> request, byte[] data) {
+        FileChannel pipelineChannel = null;
+        MappedByteBuffer pipelineBuffer = null;
+        try {
+            pipelineChannel = new RandomAccessFile(request.getPipelineFilePath(), "rw").getChannel();
+            pipelineBuffer = pipelineChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                 HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE +
+                                                 request.getPipelineSize());
+            HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, request.getPipelineSize(),
+                                                             data, request.getTimeout());
+        } catch (IOException e) {
+            // Caller process has given up reading (for example, it has been cancelled),
+            // so there is nothing to do
+        } finally {
+            safelyClose(pipelineBuffer);
+            safelyClose(pipelineChannel);
+        }
+    }
+    
+    static boolean isWorkerAbandoned() {
+        return workerAbandoned;
+    }
+    
+    private static boolean isAttachInProgress() {
+        Thread t = attachThread;
+        return t != null && t.isAlive();
+    }
+    
+    @SuppressWarnings("resource")
+    private static
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+    HotSpotServiceabilityAgentResponse<R> handleRequest(final HotSpotServiceabilityAgentRequest<P, R> request,
+            PrintStream stdOutStream, ByteArrayOutputStream stdOutOutputStream,
+            PrintStream stdErrStream, ByteArrayOutputStream stdErrOutputStream,
+            final boolean daemonProcess) {
+        HotSpotAgent hotSpotAgent = sessionAgent;
+        HotSpotServiceabilityAgentContext context = sessionContext;
+        HotSpotServiceabilityAgentSnapshot snapshot = sessionSnapshot;
+        HotSpotServiceabilityAgentPageFetcher pageFetcher = sessionPageFetcher;
+        HotSpotServiceabilityAgentPipelineResultSink resultSink = null;
+        HotSpotServiceabilityAgentTargetResumer targetResumer = null;
+        HotSpotServiceabilityAgentResponse<R> response = null;
+        FileChannel pipelineChannel = null;
+        MappedByteBuffer pipelineBuffer = null;
+        
+        try {
+            // Open a connection to memory mapped file based pipeline between caller process and HotSpot SA process
+            pipelineChannel = new RandomAccessFile(request.getPipelineFilePath(), "rw").getChannel();
+            pipelineBuffer = pipelineChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                 HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE +
+                                                 request.getPipelineSize());
+            if (HotSpotServiceabilityAgentPipelineHeader.isCancelRequested(pipelineBuffer)) {
+                // Execution has been cancelled while the request was waiting for this daemon process
+                throw new CancellationException("Execution has been cancelled");
+            }
+            if (request.getRecordMode() != HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_NONE) {
+                // Records emitted by worker are transferred through pipeline before the result data
+                resultSink = new HotSpotServiceabilityAgentPipelineResultSink(pipelineBuffer, request, codecRegistry);
+            }
+            
+            if (request.isAttach()) {
+                if (hotSpotAgent != null) {
+                    throw new IllegalStateException("Already attached to process");
+                }
+                hotSpotAgent = HotSpotServiceabilityAgentUtil.getHotSpotAgentInstance();
+                attachedAgent = hotSpotAgent;
+                attachStartTime = System.nanoTime();
+                if (request.getCoreFile() != null) {
+                    // There is no process to pause, attach to the given core file
+                    snapshot = HotSpotServiceabilityAgentSnapshot.of(request.getCoreFile(),
+                                                                     request.getJavaExecutable());
+                } else if (request.getSnapshotCommand() != null) {
+                    // Target process is paused only while its snapshot is being taken
+                    snapshot = HotSpotServiceabilityAgentSnapshot.take(request.getSnapshotCommand(),
+                                                                       request.getProcessId(),
+                                                                       request.getSnapshotTimeout());
+                }
+                context = attach(hotSpotAgent, request, snapshot, daemonProcess);
+                if (snapshot == null && !disableProcMemRead) {
+                    // Read memory of the paused process in pages instead of word by word
+                    pageFetcher = HotSpotServiceabilityAgentPageFetcher.install(hotSpotAgent,
+                                                                                request.getProcessId());
+                }
+                if (snapshot == null && request.isDetach()) {
+                    // Attach is not kept for the next requests,
+                    // so worker can let the target process run between its pauses
+                    targetResumer = new HotSpotServiceabilityAgentTargetResumer(hotSpotAgent, request, daemonProcess,
+                                                                                pageFetcher, attachStartTime);
+                    context.setTargetResumer(targetResumer);
+                }
+                HotSpotServiceabilityAgentPipelineHeader.setAttachTime(pipelineBuffer,
+                                                                       System.nanoTime() - attachStartTime);
+            } else if (hotSpotAgent == null) {
+                throw new IllegalStateException("Not attached to any process");
+            }
+            HotSpotServiceabilityAgentPipelineHeader.setStatus(pipelineBuffer,
+                                                               HotSpotServiceabilityAgentPipelineHeader.STATUS_ATTACHED);
+            
+            final HotSpotServiceabilityAgentWorker<P, R> worker = request.getWorker();
+            final P param = request.getParameter();
+            if (worker != null) {
+                // Execute worker and gets its result
+                context.clearCancellation();
+                context.setResultSink(resultSink);
+                final R result;
+                boolean pauseLimited = request.getMaxPauseTime() > 0 && snapshot == null;
+                if (pauseLimited || daemonProcess) {
+                    // Pause time of a session attach is accumulated over its requests,
+                    // so for requests over an existing attach, only the worker's own pause is limited
+                    long pauseStartTime = request.isAttach() ? attachStartTime : System.nanoTime();
+                    // Execution on daemon process is cancelled by the caller process over pipeline
+                    // instead of destroying the daemon process, so it is watched even if pause time is not limited
+                    result = runWorkerWithWatchdog(worker, context, param, pipelineBuffer, pauseStartTime,
+                                                   pauseLimited
+                                                        ? TimeUnit.MILLISECONDS.toNanos(request.getMaxPauseTime())
+                                                        : 0,
+                                                   targetResumer);
+                } else {
+                    result = worker.run(context, param);
+                }
+                
+                // Wrap the result
+                final HotSpotServiceabilityAgentResultWrapper<R> resultWrapper =
+                        new HotSpotServiceabilityAgentResultWrapper<R>(result);
+                // Worker has been cancelled (for exceeding the maximum pause time or by the caller process),
+                // so its result is partial
+                resultWrapper.setIncomplete(context.isCancelled());
+                
+                stdOutStream.flush();
+                stdErrStream.flush();
+                
+                // Insert standard output content to result wrapper if there is
+                byte[] stdOutData = stdOutOutputStream.toByteArray();
+                if (stdOutData != null && stdOutData.length > 0) {
+                    resultWrapper.setStdOut(new String(stdOutData));
+                }
+                
+                // Insert standard error content to result wrapper if there is
+                byte[] stdErrData = stdErrOutputStream.toByteArray();
+                if (stdErrData != null && stdErrData.length > 0) {
+                    resultWrapper.setStdErr(new String(stdErrData));
+                }
+                
+                // Serialize result while attached, since worker might have returned lazily evaluated stuff
+                byte[] resultData = codecRegistry.encode(resultWrapper);
+                
+                // Create a response with the result data to be transferred through pipeline after detach
+                response = new HotSpotServiceabilityAgentResponse<R>(resultData);
+            } else {
+                // There is no result (for example, opening or closing a session),
+                // but respond anyway to report attach and pause times
+                response = new HotSpotServiceabilityAgentResponse<R>(
+                                    HotSpotServiceabilityAgentResponse.PIPELINE_DATA_NOT_USED);
+            }
+        } catch (Throwable t) {
+            // If there is an error, attach it to response
+            response = new HotSpotServiceabilityAgentResponse<R>(t);
+        } finally {
+            if (context != null && !request.isDetach() && !workerAbandoned) {
+                // Keep the attach for the next requests of the session
+                sessionAgent = hotSpotAgent;
+                sessionContext = context;
+                sessionSnapshot = snapshot;
+                sessionPageFetcher = pageFetcher;
+                if (pipelineBuffer != null) {
+                    long pauseTime = snapshot != null
+                            ? snapshot.getSnapshotTimeInNanos()
+                            : System.nanoTime() - attachStartTime;
+                    HotSpotServiceabilityAgentPipelineHeader.setPauseTime(pipelineBuffer, pauseTime);
+                }
+            } else {
+                sessionAgent = null;
+                sessionContext = null;
+                sessionSnapshot = null;
+                sessionPageFetcher = null;
+                if (targetResumer != null) {
+                    // Page fetcher is re-installed on every re-attach
+                    pageFetcher = targetResumer.getPageFetcher();
+                }
+                if (pageFetcher != null) {
+                    // Cached pages are not valid anymore once the target process continues
+                    pageFetcher.uninstall();
+                }
+                // Detach as soon as possible to let the target process continue
+                detach(hotSpotAgent);
+                attachedAgent = null;
+                if (snapshot != null) {
+                    snapshot.delete();
+                }
+                if (pipelineBuffer != null) {
+                    if (context != null) {
+                        // When snapshot is used, target process has been paused only while snapshot is being taken
+                        long pauseTime;
+                        if (snapshot != null) {
+                            pauseTime = snapshot.getSnapshotTimeInNanos();
+                        } else if (targetResumer != null) {
+                            // Target process might have been resumed by worker between its pauses
+                            pauseTime = targetResumer.getPauseTimeInNanos();
+                        } else {
+                            pauseTime = System.nanoTime() - attachStartTime;
+                        }
+                        HotSpotServiceabilityAgentPipelineHeader.setPauseTime(pipelineBuffer, pauseTime);
+                        HotSpotServiceabilityAgentPipelineHeader.setStatus(pipelineBuffer,
+                                HotSpotServiceabilityAgentPipelineHeader.STATUS_DETACHED);
+                    } else if (request.isAttach()) {
+                        HotSpotServiceabilityAgentPipelineHeader.setStatus(pipelineBuffer,
+                                HotSpotServiceabilityAgentPipelineHeader.STATUS_ATTACH_FAILED);
+                    }
+                }
+            }
+            if (context != null) {
+                context.setResultSink(null);
+                context.setTargetResumer(null);
+            }
+            if (resultSink != null) {
+                // Caller process consumes records until the end of them, even if the worker has failed.
+                // Kept records are transferred here, since target process continues after detach.
+                resultSink.close();
+            }
+            if (pipelineBuffer != null) {
+                pipelineBuffer.force();
+            }
+            safelyClose(pipelineBuffer);
+            safelyClose(pipelineChannel);
+        }
+        
+        return response;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+    R runWorkerWithWatchdog(final HotSpotServiceabilityAgentWorker<P, R> worker,
+            final HotSpotServiceabilityAgentContext context, final P param, ByteBuffer pipelineBuffer,
+            long pauseStartTime, long maxPauseTimeInNanos,
+            HotSpotServiceabilityAgentTargetResumer targetResumer) throws Throwable {
+        FutureTask<R> workerTask = new FutureTask<R>(new Callable<R>() {
+            @Override
+            public R call() {
+                return worker.run(context, param);
+            }
+        });
+        Thread workerThread = new Thread(workerTask, "jemstone-hotspotsa-worker");
+        // Cancelled worker might not stop, so don't prevent HotSpot agent process from terminating
+        workerThread.setDaemon(true);
+        workerThread.start();
+        try {
+            // No limit if maximum pause time is not specified, worker is watched only for cancel request
+            boolean pauseLimited = maxPauseTimeInNanos > 0;
+            long deadline = pauseStartTime + maxPauseTimeInNanos;
+            long cancelCheckInterval = TimeUnit.MILLISECONDS.toNanos(WORKER_CANCEL_CHECK_INTERVAL_IN_MSECS);
+            while (true) {
+                long waitTime = pauseLimited
+                        ? Math.min(cancelCheckInterval, Math.max(0, deadline - System.nanoTime()))
+                        : cancelCheckInterval;
+                try {
+                    return workerTask.get(waitTime, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (HotSpotServiceabilityAgentPipelineHeader.isCancelRequested(pipelineBuffer)) {
+                        // Execution has been cancelled by the caller process
+                        break;
+                    }
+                    if (!pauseLimited || deadline - System.nanoTime() > 0) {
+                        continue;
+                    }
+                    if (targetResumer == null) {
+                        break;
+                    }
+                    // Maximum pause time is applied to each pause, if worker has resumed the target process
+                    long currentPauseStartTime = targetResumer.getPauseStartTime();
+                    long newDeadline =
+                            currentPauseStartTime == HotSpotServiceabilityAgentTargetResumer.TARGET_RUNNING
+                                ? System.nanoTime() + maxPauseTimeInNanos
+                                : currentPauseStartTime + maxPauseTimeInNanos;
+                    if (newDeadline <= deadline) {
+                        break;
+                    }
+                    deadline = newDeadline;
+                }
+            }
+            // Maximum pause time has been exceeded or execution has been cancelled,
+            // so let the worker return what it has produced so far
+            context.cancel();
+            workerThread.interrupt();
+            try {
+                return workerTask.get(WORKER_CANCEL_GRACE_PERIOD_IN_MSECS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Worker doesn't respond to cancellation, so give up its own result 
+                // to detach immediately and use the one it has published so far if there is. 
+                // It is still running, so this process is retired after this request.
+                workerAbandoned = true;
+                return (R) context.getPartialResult();
+            }
+        } catch (ExecutionException e) {
+            if (context.isCancelled()) {
+                // Worker has failed because of the interrupt, 
+                // so the one it has published so far is the partial result if there is
+                return (R) context.getPartialResult();
+            }
+            throw e.getCause();
+        }
+    }
+    
+    static HotSpotServiceabilityAgentContext attach(final HotSpotAgent hotSpotAgent,
+            final HotSpotServiceabilityAgentRequest<?, ?> request, final HotSpotServiceabilityAgentSnapshot snapshot,
+            final boolean daemonProcess) throws InterruptedException {
+        final Throwable[] attachError = new Throwable[1];
+        final VM[] attachedVM = new VM[1];
+        // Released by attach thread as soon as attach has completed (or failed)
+        final CountDownLatch attachLatch = new CountDownLatch(1);
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    if (snapshot != null) {
+                        // Attach to the snapshot of the target process as HotSpot agent
+                        hotSpotAgent.attach(snapshot.getJavaExecutable(), snapshot.getCoreFile().getAbsolutePath());
+                    } else {
+                        // Attach to the caller process as HotSpot agent
+                        hotSpotAgent.attach(request.getProcessId());
+                    }
+                    // VM has been initialized by attach, so it is ready to use
+                    attachedVM[0] = HotSpotServiceabilityAgentUtil.getVMInstance();
+                } catch (Throwable t) {
+                    if (daemonProcess) {
+                        // Daemon process must stay alive for the next requests,
+                        // so just report the failure to the requester
+                        attachError[0] = t;
+                    } else {
+                        System.exit(PROCESS_ATTACH_FAILED_EXIT_CODE);
+                    }
+                } finally {
+                    attachLatch.countDown();
+                }
+            };
+        };
+        attachThread = t;
+        t.start();
+        
+        // Wait until attach has completed or timeout
+        attachLatch.await(request.getTimeout(), TimeUnit.MILLISECONDS);
+        VM vm = attachedVM[0];
+        
+        // Check about if VM is initialized and ready to use
+        if (vm != null) {
+            return new HotSpotServiceabilityAgentContext(hotSpotAgent, vm);
+        } else if (attachError[0] != null) {
+            throw new ProcessAttachFailedException("Attaching as Hotspot SA to process " +
+                                                   "(id=" + request.getProcessId() + ") failed: " +
+                                                   attachError[0].getMessage());
+        } else {
+            throw new IllegalStateException("VM couldn't be initialized !");
+        }
+    }
+    
+    static void detach(HotSpotAgent hotSpotAgent) {
+        // If attach is still in progress, don't wait for it (detach is synchronized with attach)
+        if (hotSpotAgent != null && !isAttachInProgress()) {
+            try {
+                hotSpotAgent.detach();
+            } catch (RuntimeException e) {
+                // There is nothing to do, so just ignore
+            }
+        }
+    }
+
+}
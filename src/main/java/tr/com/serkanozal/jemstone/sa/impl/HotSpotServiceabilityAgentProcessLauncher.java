@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>
+ * Starts HotSpot agent processes on the caller process side
+ * and owns the long-lived ones shared by the executions:
+ * the pool of idle one-shot processes and the shared daemon process.
+ * </p>
+ *
+ * <p>
+ * Every HotSpot agent process is started with the same classpath, VM arguments
+ * and class data sharing archive resolved while the support is being initialized.
+ * Only whether it is started with <code>sudo</code> and whether it is a daemon process differ.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentProcessLauncher {
+
+    private final String classpath;
+    private final Map<String, String> additionalVmArguments;
+    private final HotSpotServiceabilityAgentClassDataSharing classDataSharing;
+    private final boolean disableProcMemRead;
+    private final int processPoolSize;
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    
+    private final Object daemonLock = new Object();
+    private HotSpotServiceabilityAgentDaemon daemon;
+    private boolean daemonShutdownHookRegistered;
+    
+    private final Object processPoolLock = new Object();
+    private HotSpotServiceabilityAgentProcessPool processPool;
+    private boolean processPoolSudoRequired;
+    
+    HotSpotServiceabilityAgentProcessLauncher(String classpath, Map<String, String> additionalVmArguments,
+            HotSpotServiceabilityAgentClassDataSharing classDataSharing, boolean disableProcMemRead,
+            int processPoolSize, HotSpotServiceabilityAgentCodecRegistry codecRegistry) {
+        this.classpath = classpath;
+        this.additionalVmArguments = new HashMap<String, String>(additionalVmArguments);
+        this.classDataSharing = classDataSharing;
+        this.disableProcMemRead = disableProcMemRead;
+        this.processPoolSize = processPoolSize;
+        this.codecRegistry = codecRegistry;
+    }
+    
+    HotSpotServiceabilityAgentCodecRegistry getCodecRegistry() {
+        return codecRegistry;
+    }
+    
+    Process createProcess(boolean sudoRequired, boolean daemonProcess) throws IOException {
+        // Generate required arguments to create an external Java process
+        List<String> args = new ArrayList<String>();
+        if (sudoRequired) {
+            args.add("sudo");
+        }
+        args.add(System.getProperty("java.home").replace('\\', '/') + "/" + "bin" + "/" + "java");
+        // For preventing infinite loop if attaching process touches the manager
+        args.add("-D" + HotSpotServiceabilityAgentProcess.SKIP_HOTSPOT_SA_INIT_FLAG + "=true");
+        if (daemonProcess) {
+            args.add("-D" + HotSpotServiceabilityAgentProcess.DAEMON_PROCESS_FLAG + "=true");
+        }
+        if (disableProcMemRead) {
+            args.add("-D" + HotSpotServiceabilityAgentProcess.DISABLE_PROC_MEM_READ_FLAG + "=true");
+        }
+        if (classDataSharing != null) {
+            args.addAll(classDataSharing.getVmArguments());
+        }
+        args.add("-cp");
+        args.add(classpath);
+        for (Map.Entry<String, String> vmArg : additionalVmArguments.entrySet()) {
+            args.add("-D" + vmArg.getKey() + "=" + vmArg.getValue());
+        }
+        args.add(HotSpotServiceabilityAgentProcess.class.getName());
+        
+        ProcessBuilder processBuilder = new ProcessBuilder(args);
+        if (daemonProcess) {
+            // Nobody waits daemon process to terminate for reading its error stream.
+            // So just forward it to prevent daemon process from blocking on full pipe.
+            processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        }
+        return processBuilder.start();
+    }
+    
+    /**
+     * Takes an idle process from the pool if it is allowed and there is,
+     * otherwise creates a new one-shot process.
+     *
+     * @param sudoRequired  whether the process must be started with <code>sudo</code>
+     * @param pooled        whether a pooled process can be used.
+     *                      Pooled processes are created with the probed configuration,
+     *                      so they cannot be used while probing.
+     * @return the HotSpot agent process to send a request
+     */
+    Process takeOrCreateProcess(boolean sudoRequired, boolean pooled) throws IOException {
+        if (pooled && processPoolSize > 0) {
+            HotSpotServiceabilityAgentProcessPool pool = getOrCreateProcessPool(sudoRequired);
+            if (pool != null) {
+                Process agentProcess = pool.take();
+                if (agentProcess != null) {
+                    return agentProcess;
+                }
+            }
+        }
+        return createProcess(sudoRequired, false);
+    }
+    
+    private HotSpotServiceabilityAgentProcessPool getOrCreateProcessPool(final boolean sudoRequired) {
+        synchronized (processPoolLock) {
+            if (processPool == null) {
+                processPool = new HotSpotServiceabilityAgentProcessPool(processPoolSize, new Callable<Process>() {
+                    @Override
+                    public Process call() throws Exception {
+                        return createProcess(sudoRequired, false);
+                    }
+                });
+                processPoolSudoRequired = sudoRequired;
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        processPool.shutdown();
+                    }
+                });
+            }
+            // Pooled processes cannot serve another configuration
+            return processPoolSudoRequired == sudoRequired ? processPool : null;
+        }
+    }
+    
+    HotSpotServiceabilityAgentDaemon createDaemon(boolean sudoRequired) throws IOException {
+        return new HotSpotServiceabilityAgentDaemon(createProcess(sudoRequired, true), codecRegistry);
+    }
+    
+    HotSpotServiceabilityAgentDaemon getOrCreateSharedDaemon(boolean sudoRequired) throws IOException {
+        synchronized (daemonLock) {
+            if (daemon != null && !daemon.isAlive()) {
+                if (!daemon.isRetired()) {
+                    daemon.shutdown();
+                }
+                // Retired one is shut down by the execution of its last request 
+                // after the result has been transferred
+                daemon = null;
+            }
+            if (daemon == null) {
+                daemon = createDaemon(sudoRequired);
+                if (!daemonShutdownHookRegistered) {
+                    Runtime.getRuntime().addShutdownHook(new Thread() {
+                        @Override
+                        public void run() {
+                            shutdownSharedDaemon();
+                        }
+                    });
+                    daemonShutdownHookRegistered = true;
+                }
+            }
+            return daemon;
+        }
+    }
+    
+    /**
+     * Throws away the given daemon process since it is not usable anymore.
+     * If it is the shared one, a new one is created on the next call.
+     */
+    void discardDaemon(HotSpotServiceabilityAgentDaemon agentDaemon) {
+        synchronized (daemonLock) {
+            if (daemon == agentDaemon) {
+                daemon = null;
+            }
+        }
+        agentDaemon.shutdown();
+    }
+    
+    void shutdownSharedDaemon() {
+        synchronized (daemonLock) {
+            if (daemon != null) {
+                daemon.shutdown();
+                daemon = null;
+            }
+        }
+    }
+
+}
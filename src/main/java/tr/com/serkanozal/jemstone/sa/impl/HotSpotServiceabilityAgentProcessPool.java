@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>
+ * Pool of idle HotSpot agent processes which have already been started 
+ * (and have already loaded HotSpot SA classes) and are waiting for their requests. 
+ * So JVM startup is not on the critical path of executions.
+ * </p>
+ * 
+ * <p>
+ * Every pooled process still serves only one request, 
+ * so pool is replenished in background whenever a process is taken from it. 
+ * Idle processes terminate by themselves when the caller process terminates, 
+ * since their standard inputs are closed.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentProcessPool {
+
+    private final BlockingQueue<Process> idleProcesses;
+    private final Callable<Process> processFactory;
+    private final ExecutorService replenishExecutor;
+    private volatile boolean shutdown;
+    
+    HotSpotServiceabilityAgentProcessPool(int size, Callable<Process> processFactory) {
+        this.idleProcesses = new ArrayBlockingQueue<Process>(size);
+        this.processFactory = processFactory;
+        this.replenishExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "jemstone-hotspotsa-process-pool");
+                // Don't prevent the application from terminating
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        for (int i = 0; i < size; i++) {
+            replenish();
+        }
+    }
+    
+    /**
+     * Takes an idle process from the pool.
+     * 
+     * @return the idle process or <code>null</code> if there is no idle process at the moment
+     */
+    Process take() {
+        Process process;
+        while ((process = idleProcesses.poll()) != null) {
+            replenish();
+            // Idle process might have been terminated (for example, killed from outside)
+            if (process.isAlive()) {
+                return process;
+            }
+        }
+        return null;
+    }
+    
+    private void replenish() {
+        if (shutdown) {
+            return;
+        }
+        replenishExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (shutdown) {
+                    return;
+                }
+                try {
+                    Process process = processFactory.call();
+                    if (shutdown || !idleProcesses.offer(process)) {
+                        process.destroy();
+                    }
+                } catch (Exception e) {
+                    // There is nothing to do, so just ignore. 
+                    // Process is created on demand if there is no idle process in the pool.
+                }
+            }
+        });
+    }
+    
+    void shutdown() {
+        shutdown = true;
+        replenishExecutor.shutdownNow();
+        Process process;
+        while ((process = idleProcesses.poll()) != null) {
+            process.destroy();
+        }
+    }
+    
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordHandler;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordStream;
+
+/**
+ * {@link Iterator} over the records handled as {@link HotSpotServiceabilityAgentRecordHandler} 
+ * of an asynchronous execution. Records are buffered in a bounded queue, 
+ * so handling waits (and so does the worker) while the iterator is behind. 
+ * Closing it cancels the execution by its {@link Future}, 
+ * so the worker doesn't wait for the records which will never be consumed.
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentRecordIterator<T> 
+        implements HotSpotServiceabilityAgentRecordStream<T>, HotSpotServiceabilityAgentRecordHandler<T> {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final Object END_OF_RECORDS = new Object();
+    
+    private final BlockingQueue<Object> records = new ArrayBlockingQueue<Object>(DEFAULT_CAPACITY);
+    private volatile Throwable error;
+    private volatile Future<?> execution;
+    private volatile boolean closed;
+    private Object next;
+    
+    /**
+     * Binds the asynchronous execution emitting the records, so it is cancelled when this iterator is closed.
+     * 
+     * @param execution the {@link Future} of the asynchronous execution
+     */
+    void bind(Future<?> execution) {
+        this.execution = execution;
+        if (closed) {
+            // Already closed before the execution has been bound
+            execution.cancel(true);
+        }
+    }
+    
+    @Override
+    public void onRecord(T record) {
+        if (closed) {
+            // Nobody consumes records anymore
+            return;
+        }
+        try {
+            records.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for records to be consumed");
+        }
+    }
+    
+    /**
+     * Completes the records after the execution has finished.
+     * 
+     * @param t the error of the execution, <code>null</code> if it has succeeded
+     */
+    void complete(Throwable t) {
+        error = t;
+        if (closed) {
+            return;
+        }
+        try {
+            records.put(END_OF_RECORDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (next == null) {
+            try {
+                next = records.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for records");
+            }
+        }
+        if (next == END_OF_RECORDS) {
+            // Keep the end for the next calls
+            records.offer(END_OF_RECORDS);
+            next = null;
+            Throwable t = error;
+            if (t != null) {
+                if (t instanceof RuntimeException) {
+                    throw (RuntimeException) t;
+                }
+                throw new RuntimeException(t.getMessage(), t);
+            }
+            return false;
+        }
+        return true;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T record = (T) next;
+        next = null;
+        return record;
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        next = null;
+        Future<?> f = execution;
+        if (f != null) {
+            f.cancel(true);
+        }
+        // Release the record handling waiting for space in the queue
+        records.clear();
+    }
+    
+}
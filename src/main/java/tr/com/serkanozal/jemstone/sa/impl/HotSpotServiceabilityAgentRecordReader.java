@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordHandler;
+
+/**
+ * <p>
+ * Consumes the records streamed by {@link HotSpotServiceabilityAgentPipelineResultSink} 
+ * through the pipeline on a dedicated thread at caller process 
+ * and passes them to the given {@link HotSpotServiceabilityAgentRecordHandler}. 
+ * </p>
+ * 
+ * <p>
+ * Records are consumed concurrently with the execution, since HotSpot agent process 
+ * sends its response only after the worker has finished. 
+ * So it must be awaited before reading the result data from the same pipeline.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentRecordReader implements Runnable {
+
+    private final ByteBuffer pipelineBuffer;
+    private final int pipelineSize;
+    private final HotSpotServiceabilityAgentCodecRegistry codecRegistry;
+    @SuppressWarnings("rawtypes")
+    private final HotSpotServiceabilityAgentRecordHandler recordHandler;
+    private Process writerProcess;
+    private Thread thread;
+    private volatile boolean finished;
+    private volatile Throwable error;
+    
+    HotSpotServiceabilityAgentRecordReader(ByteBuffer pipelineBuffer, int pipelineSize, 
+            HotSpotServiceabilityAgentCodecRegistry codecRegistry, 
+            HotSpotServiceabilityAgentRecordHandler<?> recordHandler) {
+        this.pipelineBuffer = pipelineBuffer;
+        this.pipelineSize = pipelineSize;
+        this.codecRegistry = codecRegistry;
+        this.recordHandler = recordHandler;
+    }
+    
+    /**
+     * Starts consuming records written by the given HotSpot agent process.
+     * 
+     * @param process the HotSpot agent process which writes the records
+     */
+    void start(Process process) {
+        writerProcess = process;
+        thread = new Thread(this, "jemstone-hotspotsa-record-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                int length = ByteBuffer.wrap(read(4)).getInt();
+                if (length == HotSpotServiceabilityAgentPipelineResultSink.END_OF_RECORDS) {
+                    break;
+                }
+                Object record = codecRegistry.decode(read(length));
+                if (error == null) {
+                    try {
+                        recordHandler.onRecord(record);
+                    } catch (Throwable t) {
+                        // Keep consuming to let the worker finish, error is reported after the execution
+                        error = t;
+                    }
+                }
+            }
+            finished = true;
+        } catch (Throwable t) {
+            if (error == null) {
+                error = t;
+            }
+        }
+    }
+    
+    private byte[] read(int length) throws IOException {
+        // Records are produced as long as worker runs, so there is no timeout between them. 
+        // Reading is given up when writer process has terminated or reader has been stopped.
+        return HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, pipelineSize, length, 
+                                                               Long.MAX_VALUE, writerProcess);
+    }
+    
+    /**
+     * Waits until all the records have been consumed. 
+     * It is called after the response has been received, 
+     * so the rest of the records have already been written.
+     * 
+     * @param timeoutInMsecs the timeout in milliseconds to wait at most
+     * @throws IOException if records couldn't be consumed in time
+     */
+    void await(long timeoutInMsecs) throws IOException {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(timeoutInMsecs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!finished) {
+            stop();
+            Throwable t = error;
+            if (t != null) {
+                throw new IOException("Records couldn't be consumed: " + t.getMessage(), t);
+            }
+            throw new IOException("Records couldn't be consumed in " + timeoutInMsecs + " milliseconds");
+        }
+    }
+    
+    /**
+     * Stops consuming records.
+     */
+    void stop() {
+        if (thread != null && thread.isAlive()) {
+            thread.interrupt();
+        }
+    }
+    
+    /**
+     * Gets the error thrown by the {@link HotSpotServiceabilityAgentRecordHandler} if there is.
+     * 
+     * @return the error thrown by the {@link HotSpotServiceabilityAgentRecordHandler}, 
+     *         <code>null</code> if there is no error
+     */
+    Throwable getError() {
+        return error;
+    }
+    
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.Serializable;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * Represents request to HotSpot agent process by holding process id,
+ * timeout, maximum pause time and {@link HotSpotServiceabilityAgentWorker} to execute.
+ * If snapshot command is specified, worker is executed on snapshot of the target process 
+ * instead of the target process itself. If core file is specified, 
+ * worker is executed on the core file instead of a process. 
+ * Record mode specifies whether records emitted by the worker are transferred to the caller.
+ * Also specifies whether HotSpot agent process should attach to the target process 
+ * before executing the worker and detach from it after executing the worker. 
+ * So the same attach can be shared by multiple requests.
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+class HotSpotServiceabilityAgentRequest<P extends HotSpotServiceabilityAgentParameter, 
+                                        R extends HotSpotServiceabilityAgentResult> 
+        implements Serializable {
+
+    private final int processId;
+    private final String pipelineFilePath;
+    private final HotSpotServiceabilityAgentWorker<P, R> worker;
+    private final P param;
+    private final int timeout;
+    private final int pipelineSize;
+    private final boolean attach;
+    private final boolean detach;
+    private final int maxPauseTime;
+    private final String snapshotCommand;
+    private final int snapshotTimeout;
+    private final String coreFile;
+    private final String javaExecutable;
+    private final int recordMode;
+
+    HotSpotServiceabilityAgentRequest(int processId, String pipelineFilePath,
+            HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            int timeout, int pipelineSize) {
+        this(processId, pipelineFilePath, worker, param, timeout, pipelineSize, true, true, 0, null, 0, null, null, 
+             HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_NONE);
+    }
+    
+    HotSpotServiceabilityAgentRequest(int processId, String pipelineFilePath,
+            HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            int timeout, int pipelineSize, boolean attach, boolean detach, int maxPauseTime, 
+            String snapshotCommand, int snapshotTimeout, String coreFile, String javaExecutable, int recordMode) {
+        this.processId = processId;
+        this.pipelineFilePath = pipelineFilePath;
+        this.worker = worker;
+        this.param = param;
+        this.timeout = timeout;
+        this.pipelineSize = pipelineSize;
+        this.attach = attach;
+        this.detach = detach;
+        this.maxPauseTime = maxPauseTime;
+        this.snapshotCommand = snapshotCommand;
+        this.snapshotTimeout = snapshotTimeout;
+        this.coreFile = coreFile;
+        this.javaExecutable = javaExecutable;
+        this.recordMode = recordMode;
+    }
+
+    public int getProcessId() {
+        return processId;
+    }
+    
+    public String getPipelineFilePath() {
+        return pipelineFilePath;
+    }
+
+    public HotSpotServiceabilityAgentWorker<P, R> getWorker() {
+        return worker;
+    }
+    
+    public P getParameter() {
+        return param;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+    
+    public int getPipelineSize() {
+        return pipelineSize;
+    }
+    
+    public boolean isAttach() {
+        return attach;
+    }
+    
+    public boolean isDetach() {
+        return detach;
+    }
+    
+    /**
+     * Gets the maximum time in milliseconds the target process can be paused by this request. 
+     * <code>0</code> means that there is no limit.
+     */
+    public int getMaxPauseTime() {
+        return maxPauseTime;
+    }
+    
+    /**
+     * Gets the command to take snapshot of the target process. 
+     * <code>null</code> means that attach to the target process itself.
+     */
+    public String getSnapshotCommand() {
+        return snapshotCommand;
+    }
+    
+    /**
+     * Gets the maximum time in milliseconds to wait for the snapshot command.
+     */
+    public int getSnapshotTimeout() {
+        return snapshotTimeout;
+    }
+    
+    /**
+     * Gets the path of the core file to attach. 
+     * <code>null</code> means that attach to the target process.
+     */
+    public String getCoreFile() {
+        return coreFile;
+    }
+    
+    /**
+     * Gets the path of the Java executable which has produced the core file.
+     */
+    public String getJavaExecutable() {
+        return javaExecutable;
+    }
+    
+    /**
+     * Gets the mode of transferring the records emitted by the worker 
+     * (see {@link HotSpotServiceabilityAgentPipelineResultSink}).
+     */
+    public int getRecordMode() {
+        return recordMode;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * {@link HotSpotServiceabilityAgentCodec} implementation for {@link HotSpotServiceabilityAgentRequest}. 
+ * Custom codecs registered at caller process are written before everything else, 
+ * so they are registered at HotSpot agent process before the worker and its parameter are read.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("rawtypes")
+class HotSpotServiceabilityAgentRequestCodec 
+        implements HotSpotServiceabilityAgentCodec<HotSpotServiceabilityAgentRequest> {
+
+    @Override
+    public Class<HotSpotServiceabilityAgentRequest> getType() {
+        return HotSpotServiceabilityAgentRequest.class;
+    }
+
+    @Override
+    public void encode(HotSpotServiceabilityAgentRequest request, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        List<String> codecClassNames = 
+                ((HotSpotServiceabilityAgentBinaryEncoder) encoder).getCodecRegistry().getCustomCodecClassNames();
+        encoder.writeInt(codecClassNames.size());
+        for (String codecClassName : codecClassNames) {
+            encoder.writeString(codecClassName);
+        }
+        encoder.writeInt(request.getProcessId());
+        encoder.writeString(request.getPipelineFilePath());
+        encoder.writeInt(request.getTimeout());
+        encoder.writeInt(request.getPipelineSize());
+        encoder.writeBoolean(request.isAttach());
+        encoder.writeBoolean(request.isDetach());
+        encoder.writeInt(request.getMaxPauseTime());
+        encoder.writeString(request.getSnapshotCommand());
+        encoder.writeInt(request.getSnapshotTimeout());
+        encoder.writeString(request.getCoreFile());
+        encoder.writeString(request.getJavaExecutable());
+        encoder.writeInt(request.getRecordMode());
+        encoder.writeObject(request.getWorker());
+        encoder.writeObject(request.getParameter());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public HotSpotServiceabilityAgentRequest decode(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = 
+                ((HotSpotServiceabilityAgentBinaryDecoder) decoder).getCodecRegistry();
+        int codecCount = decoder.readInt();
+        List<String> codecClassNames = new ArrayList<String>(codecCount);
+        for (int i = 0; i < codecCount; i++) {
+            codecClassNames.add(decoder.readString());
+        }
+        codecRegistry.replaceCustomCodecs(codecClassNames);
+        int processId = decoder.readInt();
+        String pipelineFilePath = decoder.readString();
+        int timeout = decoder.readInt();
+        int pipelineSize = decoder.readInt();
+        boolean attach = decoder.readBoolean();
+        boolean detach = decoder.readBoolean();
+        int maxPauseTime = decoder.readInt();
+        String snapshotCommand = decoder.readString();
+        int snapshotTimeout = decoder.readInt();
+        String coreFile = decoder.readString();
+        String javaExecutable = decoder.readString();
+        int recordMode = decoder.readInt();
+        HotSpotServiceabilityAgentWorker worker = decoder.readObject();
+        HotSpotServiceabilityAgentParameter param = decoder.readObject();
+        return new HotSpotServiceabilityAgentRequest(processId, pipelineFilePath, worker, param, 
+                                                     timeout, pipelineSize, attach, detach, maxPauseTime, 
+                                                     snapshotCommand, snapshotTimeout, coreFile, javaExecutable, 
+                                                     recordMode);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.Serializable;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * Represents response from HotSpot agent process by holding result and error if occurred.
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+class HotSpotServiceabilityAgentResponse<R extends HotSpotServiceabilityAgentResult> 
+        implements Serializable {
+
+    static final int PIPELINE_DATA_NOT_USED = -1;
+    
+    private final HotSpotServiceabilityAgentResultWrapper<R> resultWrapper;
+    private final Throwable error;
+    private final int pipelineDataSize;
+    // Set when HotSpot agent process doesn't serve any more requests after this one
+    private boolean retired;
+    // Transferred through pipeline after the response, not as part of the response
+    private transient byte[] pipelineData;
+
+    HotSpotServiceabilityAgentResponse(HotSpotServiceabilityAgentResultWrapper<R> resultWrapper) {
+        this.resultWrapper = resultWrapper;
+        this.error = null;
+        this.pipelineDataSize = PIPELINE_DATA_NOT_USED;
+    }
+
+    HotSpotServiceabilityAgentResponse(Throwable error) {
+        this.resultWrapper = null;
+        this.error = error;
+        this.pipelineDataSize = PIPELINE_DATA_NOT_USED;
+    }
+    
+    HotSpotServiceabilityAgentResponse(int pipelineDataSize) {
+        this.resultWrapper = null;
+        this.error = null;
+        this.pipelineDataSize = pipelineDataSize;
+    }
+    
+    HotSpotServiceabilityAgentResponse(HotSpotServiceabilityAgentResultWrapper<R> resultWrapper, 
+            Throwable error, int pipelineDataSize) {
+        this.resultWrapper = resultWrapper;
+        this.error = error;
+        this.pipelineDataSize = pipelineDataSize;
+    }
+    
+    HotSpotServiceabilityAgentResponse(byte[] pipelineData) {
+        this.resultWrapper = null;
+        this.error = null;
+        this.pipelineDataSize = pipelineData.length;
+        this.pipelineData = pipelineData;
+    }
+
+    public HotSpotServiceabilityAgentResultWrapper<R> getResultWrapper() {
+        return resultWrapper;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+    
+    public int getPipelineDataSize() {
+        return pipelineDataSize;
+    }
+    
+    byte[] getPipelineData() {
+        return pipelineData;
+    }
+    
+    /**
+     * Returns <code>true</code> if HotSpot agent process terminates after this response 
+     * (for example, a worker which doesn't respond to cancellation is still running on it), 
+     * so no more request must be sent to it.
+     */
+    boolean isRetired() {
+        return retired;
+    }
+    
+    void setRetired(boolean retired) {
+        this.retired = retired;
+    }
+
+}
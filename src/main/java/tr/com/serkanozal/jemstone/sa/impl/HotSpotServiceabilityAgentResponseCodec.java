@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+
+/**
+ * {@link HotSpotServiceabilityAgentCodec} implementation for {@link HotSpotServiceabilityAgentResponse}. 
+ * Data transferred through pipeline is not part of the response, only its size is written.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("rawtypes")
+class HotSpotServiceabilityAgentResponseCodec 
+        implements HotSpotServiceabilityAgentCodec<HotSpotServiceabilityAgentResponse> {
+
+    @Override
+    public Class<HotSpotServiceabilityAgentResponse> getType() {
+        return HotSpotServiceabilityAgentResponse.class;
+    }
+
+    @Override
+    public void encode(HotSpotServiceabilityAgentResponse response, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeInt(response.getPipelineDataSize());
+        encoder.writeObject(response.getError());
+        encoder.writeObject(response.getResultWrapper());
+        encoder.writeBoolean(response.isRetired());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public HotSpotServiceabilityAgentResponse decode(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        int pipelineDataSize = decoder.readInt();
+        Throwable error = decoder.readObject();
+        HotSpotServiceabilityAgentResultWrapper resultWrapper = decoder.readObject();
+        HotSpotServiceabilityAgentResponse response = 
+                new HotSpotServiceabilityAgentResponse(resultWrapper, error, pipelineDataSize);
+        response.setRetired(decoder.readBoolean());
+        return response;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.Serializable;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * Represents a wrapper object from HotSpot agent process by holding 
+ * result, standard output and standard error contents. 
+ * Also specifies whether the result is incomplete since the worker has been cancelled 
+ * for exceeding the maximum pause time.
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+class HotSpotServiceabilityAgentResultWrapper<R extends HotSpotServiceabilityAgentResult> 
+        implements Serializable {
+    
+    private final R result;
+    private String stdOut;
+    private String stdErr;
+    private boolean incomplete;
+    
+    HotSpotServiceabilityAgentResultWrapper(R result) {
+        this.result = result;
+    }
+    
+    public R getResult() {
+        return result;
+    }
+    
+    public String getStdOut() {
+        return stdOut;
+    }
+    
+    public void setStdOut(String stdOut) {
+        this.stdOut = stdOut;
+    }
+    
+    public String getStdErr() {
+        return stdErr;
+    }
+    
+    public void setStdErr(String stdErr) {
+        this.stdErr = stdErr;
+    }
+    
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
+    }
+    
+}
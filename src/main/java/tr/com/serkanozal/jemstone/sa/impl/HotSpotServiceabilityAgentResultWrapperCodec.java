@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.IOException;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * {@link HotSpotServiceabilityAgentCodec} implementation for {@link HotSpotServiceabilityAgentResultWrapper}.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("rawtypes")
+class HotSpotServiceabilityAgentResultWrapperCodec 
+        implements HotSpotServiceabilityAgentCodec<HotSpotServiceabilityAgentResultWrapper> {
+
+    @Override
+    public Class<HotSpotServiceabilityAgentResultWrapper> getType() {
+        return HotSpotServiceabilityAgentResultWrapper.class;
+    }
+
+    @Override
+    public void encode(HotSpotServiceabilityAgentResultWrapper resultWrapper, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeObject(resultWrapper.getResult());
+        encoder.writeString(resultWrapper.getStdOut());
+        encoder.writeString(resultWrapper.getStdErr());
+        encoder.writeBoolean(resultWrapper.isIncomplete());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public HotSpotServiceabilityAgentResultWrapper decode(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        HotSpotServiceabilityAgentResult result = decoder.readObject();
+        HotSpotServiceabilityAgentResultWrapper resultWrapper = 
+                new HotSpotServiceabilityAgentResultWrapper(result);
+        resultWrapper.setStdOut(decoder.readString());
+        resultWrapper.setStdErr(decoder.readString());
+        resultWrapper.setIncomplete(decoder.readBoolean());
+        return resultWrapper;
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentRecordHandler;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentSession;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * Implementation of {@link HotSpotServiceabilityAgentSession} which owns a dedicated 
+ * HotSpot agent process staying attached to the target process until session is closed.
+ * 
+ * @see HotSpotServiceabilityAgentSession
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentSessionImpl implements HotSpotServiceabilityAgentSession {
+
+    private final HotSpotServiceabilityAgentExecutor executor;
+    private final HotSpotServiceabilityAgentDaemon agentDaemon;
+    private final int processId;
+    private final int timeout;
+    private final int pipelineSize;
+    private final int maxPauseTime;
+    private volatile boolean closed;
+    
+    HotSpotServiceabilityAgentSessionImpl(HotSpotServiceabilityAgentExecutor executor, 
+            HotSpotServiceabilityAgentDaemon agentDaemon, int processId, int timeout, int pipelineSize, 
+            int maxPauseTime) {
+        this.executor = executor;
+        this.agentDaemon = agentDaemon;
+        this.processId = processId;
+        this.timeout = timeout;
+        this.pipelineSize = pipelineSize;
+        this.maxPauseTime = maxPauseTime;
+    }
+    
+    private HotSpotServiceabilityAgentExecutionOptions createExecutionOptions(boolean detach) {
+        // Attach is kept by HotSpot agent process of the session until it is closed
+        return new HotSpotServiceabilityAgentExecutionOptions(processId, timeout, pipelineSize)
+                        .setSessionDaemon(agentDaemon)
+                        .setAttach(false)
+                        .setDetach(detach)
+                        .setMaxPauseTimeInMsecs(maxPauseTime);
+    }
+    
+    private void checkOpen() {
+        if (!isOpen()) {
+            throw new IllegalStateException("Session to process " + "(id=" + processId + ") is not open");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getProcessId() {
+        return processId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOpen() {
+        return !closed && agentDaemon.isAlive();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass) {
+        return execute((HotSpotServiceabilityAgentWorker<P, R>) 
+                            HotSpotServiceabilityAgentManagerImpl.createWorkerInstance(workerClass), 
+                       null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass, P param) {
+        return execute((HotSpotServiceabilityAgentWorker<P, R>) 
+                            HotSpotServiceabilityAgentManagerImpl.createWorkerInstance(workerClass), 
+                       param);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(HotSpotServiceabilityAgentWorker<P, R> worker) {
+        return execute(worker, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(HotSpotServiceabilityAgentWorker<P, R> worker, P param) {
+        return execute(worker, param, null);
+    }
+    
+    <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    R execute(HotSpotServiceabilityAgentWorker<P, R> worker, P param, 
+            HotSpotServiceabilityAgentRecordHandler<?> recordHandler) {
+        checkOpen();
+        
+        return executor.execute(worker, param, createExecutionOptions(false).setRecordHandler(recordHandler));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (agentDaemon.isAlive()) {
+                // Detach explicitly to let the target process continue as soon as possible
+                executor.execute(null, null, createExecutionOptions(true));
+            }
+        } catch (RuntimeException e) {
+            // There is nothing to do, HotSpot agent process detaches while terminating anyway
+        } finally {
+            agentDaemon.shutdown();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotServiceabilityAgentSession [" + 
+                "processId=" + processId + 
+                ", open=" + isOpen() + "]";
+    }
+
+}
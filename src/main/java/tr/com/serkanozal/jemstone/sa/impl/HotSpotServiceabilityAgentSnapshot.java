@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Snapshot of a target process as core file taken by an external command (<code>gcore</code> by default). 
+ * The target process is paused only while its memory is being copied into the core file, 
+ * then HotSpot agent process attaches to the core file and runs the worker 
+ * while the target process is already running.
+ * </p>
+ * 
+ * <p>
+ * Snapshot command is split by whitespaces and <code>{pid}</code> and <code>{output}</code> 
+ * placeholders in it are replaced with the id of the target process and 
+ * the path of the core file to be written. Like <code>gcore</code> does, 
+ * command might append <code>.&lt;pid&gt;</code> to the given output path.
+ * </p>
+ * 
+ * <p>
+ * An existing core file can also be used as snapshot, then it is not deleted after use.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentSnapshot {
+
+    static final String DEFAULT_SNAPSHOT_COMMAND = "gcore -o {output} {pid}";
+    
+    private static final String PROCESS_ID_PLACEHOLDER = "{pid}";
+    private static final String OUTPUT_PLACEHOLDER = "{output}";
+    // Only the end of the output is put into the error message, since error is reported at the end
+    private static final int MAX_OUTPUT_SIZE_IN_ERROR = 4096;
+    
+    private final File coreFile;
+    private final String javaExecutable;
+    private final long snapshotTimeInNanos;
+    private final boolean owned;
+    
+    private HotSpotServiceabilityAgentSnapshot(File coreFile, String javaExecutable, long snapshotTimeInNanos, 
+            boolean owned) {
+        this.coreFile = coreFile;
+        this.javaExecutable = javaExecutable;
+        this.snapshotTimeInNanos = snapshotTimeInNanos;
+        this.owned = owned;
+    }
+    
+    static HotSpotServiceabilityAgentSnapshot of(String coreFile, String javaExecutable) {
+        File file = new File(coreFile);
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("Core file " + coreFile + " doesn't exist");
+        }
+        // No process has been paused for an existing core file
+        return new HotSpotServiceabilityAgentSnapshot(file, javaExecutable, 0, false);
+    }
+    
+    static HotSpotServiceabilityAgentSnapshot take(String snapshotCommand, int processId, int timeoutInMsecs) 
+            throws IOException, InterruptedException {
+        // Resolve executable before snapshot, since target process might terminate meanwhile
+        String javaExecutable = findJavaExecutable(processId);
+        
+        File output = File.createTempFile("jemstone-hotspotsa-snapshot-", ".core");
+        output.delete();
+        // Like "gcore" does, command might append id of the target process to the given output path
+        File outputWithProcessId = new File(output.getAbsolutePath() + "." + processId);
+        
+        List<String> args = new ArrayList<String>();
+        for (String arg : snapshotCommand.trim().split("\\s+")) {
+            args.add(arg.replace(PROCESS_ID_PLACEHOLDER, String.valueOf(processId))
+                        .replace(OUTPUT_PLACEHOLDER, output.getAbsolutePath()));
+        }
+        
+        // Output of the snapshot command is not consumed while it is running. 
+        // So it is written into a file, otherwise the command might block when the pipe is full.
+        File logFile = File.createTempFile("jemstone-hotspotsa-snapshot-", ".log");
+        HotSpotServiceabilityAgentSnapshot snapshot = null;
+        Process snapshotProcess;
+        long snapshotStartTime = System.nanoTime();
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(args);
+            processBuilder.redirectErrorStream(true);
+            processBuilder.redirectOutput(logFile);
+            snapshotProcess = processBuilder.start();
+        } catch (IOException e) {
+            logFile.delete();
+            throw e;
+        }
+        snapshotProcess.getOutputStream().close();
+        try {
+            if (!snapshotProcess.waitFor(timeoutInMsecs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Snapshot of process (id=" + processId + ") " + 
+                                                "couldn't be taken in " + timeoutInMsecs + " milliseconds");
+            }
+            long snapshotTime = System.nanoTime() - snapshotStartTime;
+            
+            File coreFile = outputWithProcessId.isFile() ? outputWithProcessId : output;
+            if (snapshotProcess.exitValue() != 0 || !coreFile.isFile()) {
+                throw new IllegalStateException("Snapshot of process (id=" + processId + ") couldn't be taken " + 
+                                                "(exit code=" + snapshotProcess.exitValue() + "): " + 
+                                                readOutput(logFile));
+            }
+            snapshot = new HotSpotServiceabilityAgentSnapshot(coreFile, javaExecutable, snapshotTime, true);
+            return snapshot;
+        } finally {
+            try {
+                if (snapshot == null && snapshotProcess.isAlive()) {
+                    // Make sure that snapshot command doesn't write anymore before removing its output
+                    snapshotProcess.destroyForcibly().waitFor(timeoutInMsecs, TimeUnit.MILLISECONDS);
+                } else {
+                    snapshotProcess.destroy();
+                }
+            } finally {
+                if (snapshot == null) {
+                    // Partially written core file (for example, on timeout) is not used, 
+                    // so remove it under any of the possible output paths
+                    output.delete();
+                    outputWithProcessId.delete();
+                }
+                logFile.delete();
+            }
+        }
+    }
+    
+    private static String findJavaExecutable(int processId) throws IOException {
+        File executable = new File("/proc/" + processId + "/exe");
+        if (executable.exists()) {
+            return executable.getCanonicalPath();
+        } else {
+            // Not a Linux, so assume that target process uses the same JDK
+            return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        }
+    }
+    
+    private static String readOutput(File logFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(logFile, "r");
+        try {
+            long start = Math.max(0, file.length() - MAX_OUTPUT_SIZE_IN_ERROR);
+            byte[] output = new byte[(int) (file.length() - start)];
+            file.seek(start);
+            file.readFully(output);
+            return new String(output, Charset.defaultCharset()).trim();
+        } finally {
+            file.close();
+        }
+    }
+    
+    File getCoreFile() {
+        return coreFile;
+    }
+    
+    String getJavaExecutable() {
+        return javaExecutable;
+    }
+    
+    /**
+     * Gets the time in nanoseconds taken by the snapshot command, 
+     * which is the upper bound of the time the target process has been paused.
+     */
+    long getSnapshotTimeInNanos() {
+        return snapshotTimeInNanos;
+    }
+    
+    void delete() {
+        if (owned) {
+            coreFile.delete();
+        }
+    }
+    
+}
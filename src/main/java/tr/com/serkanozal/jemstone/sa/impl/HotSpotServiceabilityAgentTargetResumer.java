@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import sun.jvm.hotspot.HotSpotAgent;
+import sun.jvm.hotspot.runtime.VM;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+
+/**
+ * <p>
+ * {@link HotSpotServiceabilityAgentContext.TargetResumer} implementation used by HotSpot agent process 
+ * on one-shot executions to let the target process run between the pauses of the worker.
+ * </p>
+ * 
+ * <p>
+ * Tracks the pauses of the target process, so only the time it has been paused 
+ * (not the time it has been running) is reported as pause time and limited by maximum pause time.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+class HotSpotServiceabilityAgentTargetResumer implements HotSpotServiceabilityAgentContext.TargetResumer {
+
+    static final long TARGET_RUNNING = Long.MIN_VALUE;
+    
+    private final HotSpotAgent hotSpotAgent;
+    private final HotSpotServiceabilityAgentRequest<?, ?> request;
+    private final boolean daemonProcess;
+    private final boolean procMemReadEnabled;
+    private volatile HotSpotServiceabilityAgentPageFetcher pageFetcher;
+    private volatile long pauseStartTime;
+    private volatile long previousPauseTime;
+    
+    HotSpotServiceabilityAgentTargetResumer(HotSpotAgent hotSpotAgent, HotSpotServiceabilityAgentRequest<?, ?> request, 
+            boolean daemonProcess, HotSpotServiceabilityAgentPageFetcher pageFetcher, long pauseStartTime) {
+        this.hotSpotAgent = hotSpotAgent;
+        this.request = request;
+        this.daemonProcess = daemonProcess;
+        this.procMemReadEnabled = pageFetcher != null;
+        this.pageFetcher = pageFetcher;
+        this.pauseStartTime = pauseStartTime;
+    }
+    
+    @Override
+    public VM resume(long timeInMsecs) throws InterruptedException {
+        if (pageFetcher != null) {
+            // Cached pages are not valid anymore once the target process continues
+            pageFetcher.uninstall();
+            pageFetcher = null;
+        }
+        HotSpotServiceabilityAgentProcess.detach(hotSpotAgent);
+        previousPauseTime += System.nanoTime() - pauseStartTime;
+        pauseStartTime = TARGET_RUNNING;
+        
+        Thread.sleep(timeInMsecs);
+        
+        // Target process is paused as soon as re-attach has started
+        pauseStartTime = System.nanoTime();
+        VM vm = HotSpotServiceabilityAgentProcess.attach(hotSpotAgent, request, null, daemonProcess).getVM();
+        if (procMemReadEnabled) {
+            pageFetcher = HotSpotServiceabilityAgentPageFetcher.install(hotSpotAgent, request.getProcessId());
+        }
+        return vm;
+    }
+    
+    /**
+     * Gets the start time of the current pause of the target process 
+     * or {@link #TARGET_RUNNING} if the target process is running now.
+     */
+    long getPauseStartTime() {
+        return pauseStartTime;
+    }
+    
+    /**
+     * Gets the total time in nanoseconds the target process has been paused so far.
+     */
+    long getPauseTimeInNanos() {
+        long currentPauseStartTime = pauseStartTime;
+        if (currentPauseStartTime == TARGET_RUNNING) {
+            return previousPauseTime;
+        } else {
+            return previousPauseTime + (System.nanoTime() - currentPauseStartTime);
+        }
+    }
+    
+    /**
+     * Gets the page fetcher installed on the current attach if there is.
+     */
+    HotSpotServiceabilityAgentPageFetcher getPageFetcher() {
+        return pageFetcher;
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.batch;
+
+import java.io.Serializable;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * Represents a {@link HotSpotServiceabilityAgentWorker} and its 
+ * {@link HotSpotServiceabilityAgentParameter} to be executed as part of a batch.
+ * 
+ * @see HotSpotSABatchWorker
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSABatchItem<P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+        implements Serializable {
+
+    private final HotSpotServiceabilityAgentWorker<P, R> worker;
+    private final P param;
+    
+    public HotSpotSABatchItem(HotSpotServiceabilityAgentWorker<P, R> worker) {
+        this(worker, null);
+    }
+    
+    public HotSpotSABatchItem(HotSpotServiceabilityAgentWorker<P, R> worker, P param) {
+        if (worker == null) {
+            throw new IllegalArgumentException("Worker cannot be null");
+        }
+        this.worker = worker;
+        this.param = param;
+    }
+
+    public HotSpotServiceabilityAgentWorker<P, R> getWorker() {
+        return worker;
+    }
+
+    public P getParameter() {
+        return param;
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSABatchItem [" +
+                "worker=" + worker.getClass().getName() + 
+                ", param=" + param + "]";
+    }
+    
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+
+/**
+ * {@link HotSpotServiceabilityAgentParameter} implementation for {@link HotSpotSABatchWorker} 
+ * which holds the {@link HotSpotSABatchItem}s to be executed in the given order.
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSABatchParameter implements HotSpotServiceabilityAgentParameter {
+
+    private final List<HotSpotSABatchItem<?, ?>> items;
+    
+    public HotSpotSABatchParameter() {
+        this.items = new ArrayList<HotSpotSABatchItem<?, ?>>();
+    }
+    
+    public HotSpotSABatchParameter(List<HotSpotSABatchItem<?, ?>> items) {
+        this.items = new ArrayList<HotSpotSABatchItem<?, ?>>(items);
+    }
+    
+    public List<HotSpotSABatchItem<?, ?>> getItems() {
+        return items;
+    }
+    
+    public HotSpotSABatchParameter addItem(HotSpotSABatchItem<?, ?> item) {
+        items.add(item);
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSABatchParameter [" +
+                "items=" + items + "]";
+    }
+
+}
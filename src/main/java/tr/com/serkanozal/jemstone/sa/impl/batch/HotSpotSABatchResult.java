@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPartialResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * Holds the results of {@link HotSpotSABatchItem}s in the same order with them. 
+ * If an item has failed, its error is held instead of its result. 
+ * If the batch has been cancelled, it is incomplete and only holds the items executed until cancellation.
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSABatchResult implements HotSpotServiceabilityAgentPartialResult {
+
+    private final List<HotSpotServiceabilityAgentResult> results = new ArrayList<HotSpotServiceabilityAgentResult>();
+    private final List<Throwable> errors = new ArrayList<Throwable>();
+    private boolean incomplete;
+    
+    public HotSpotSABatchResult() {
+        
+    }
+    
+    HotSpotSABatchResult(HotSpotSABatchResult result) {
+        results.addAll(result.results);
+        errors.addAll(result.errors);
+        incomplete = result.incomplete;
+    }
+    
+    public int size() {
+        return results.size();
+    }
+    
+    public List<HotSpotServiceabilityAgentResult> getResults() {
+        return results;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <R extends HotSpotServiceabilityAgentResult> R getResult(int index) {
+        return (R) results.get(index);
+    }
+    
+    public Throwable getError(int index) {
+        return errors.get(index);
+    }
+    
+    public boolean isFailed(int index) {
+        return errors.get(index) != null;
+    }
+    
+    public void addResult(HotSpotServiceabilityAgentResult result) {
+        results.add(result);
+        errors.add(null);
+    }
+    
+    public void addError(Throwable error) {
+        results.add(null);
+        errors.add(error);
+    }
+    
+    @Override
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+    @Override
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HotSpotSABatchResult [");
+        if (incomplete) {
+            sb.append("incomplete=true, ");
+        }
+        sb.append("results=");
+        for (int i = 0; i < results.size(); i++) {
+            sb
+                .append("\n")
+                .append("- [").append(i).append("] ");
+            if (errors.get(i) != null) {
+                sb.append("Error: ").append(errors.get(i));
+            } else {
+                sb.append(results.get(i));
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+}
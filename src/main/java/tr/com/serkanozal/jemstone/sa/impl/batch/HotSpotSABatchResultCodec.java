@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.batch;
+
+import java.io.IOException;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * {@link HotSpotServiceabilityAgentCodec} implementation for {@link HotSpotSABatchResult}. 
+ * Results of the items are written with their own codecs if there are.
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotSABatchResultCodec implements HotSpotServiceabilityAgentCodec<HotSpotSABatchResult> {
+
+    @Override
+    public Class<HotSpotSABatchResult> getType() {
+        return HotSpotSABatchResult.class;
+    }
+
+    @Override
+    public void encode(HotSpotSABatchResult result, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeInt(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            if (result.isFailed(i)) {
+                encoder.writeBoolean(true);
+                encoder.writeObject(result.getError(i));
+            } else {
+                encoder.writeBoolean(false);
+                encoder.writeObject(result.getResult(i));
+            }
+        }
+        encoder.writeBoolean(result.isIncomplete());
+    }
+
+    @Override
+    public HotSpotSABatchResult decode(HotSpotServiceabilityAgentDecoder decoder) throws IOException {
+        HotSpotSABatchResult result = new HotSpotSABatchResult();
+        int size = decoder.readInt();
+        for (int i = 0; i < size; i++) {
+            if (decoder.readBoolean()) {
+                Throwable error = decoder.readObject();
+                result.addError(error);
+            } else {
+                HotSpotServiceabilityAgentResult itemResult = decoder.readObject();
+                result.addResult(itemResult);
+            }
+        }
+        result.setIncomplete(decoder.readBoolean());
+        return result;
+    }
+
+}
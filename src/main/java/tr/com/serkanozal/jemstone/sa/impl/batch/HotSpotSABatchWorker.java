@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.batch;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPartialResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+/**
+ * {@link HotSpotServiceabilityAgentWorker} implementation which runs the given 
+ * {@link HotSpotSABatchItem}s sequentially on the same attach. 
+ * So process creation, attach and VM initialization are paid once for all items. 
+ * Failure of an item doesn't prevent the other items from being executed. 
+ * When the batch is cancelled, the remaining items are not executed 
+ * and the results of the items executed so far are returned as incomplete.
+ *
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSABatchWorker 
+        implements HotSpotServiceabilityAgentWorker<HotSpotSABatchParameter, HotSpotSABatchResult> {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public HotSpotSABatchResult run(HotSpotServiceabilityAgentContext context, 
+                                    HotSpotSABatchParameter param) {
+        HotSpotSABatchResult result = new HotSpotSABatchResult();
+        for (HotSpotSABatchItem item : param.getItems()) {
+            if (context.isCancelled()) {
+                // Maximum pause time has been exceeded, so return the results of the items executed so far
+                break;
+            }
+            try {
+                HotSpotServiceabilityAgentWorker worker = item.getWorker();
+                HotSpotServiceabilityAgentParameter itemParam = item.getParameter();
+                HotSpotServiceabilityAgentResult itemResult = worker.run(context, itemParam);
+                if (context.isCancelled() && itemResult instanceof HotSpotServiceabilityAgentPartialResult) {
+                    // Item has returned what it has produced until cancellation
+                    ((HotSpotServiceabilityAgentPartialResult) itemResult).setIncomplete(true);
+                }
+                result.addResult(itemResult);
+            } catch (Throwable t) {
+                result.addError(t);
+            }
+            if (context.isCancelled()) {
+                // Item might have cleared the interrupt while handling it, 
+                // so restore it for the rest of the cancelled execution
+                Thread.currentThread().interrupt();
+                break;
+            }
+            // Published result is returned if the batch doesn't return in time after cancellation. 
+            // So a copy is published, since the result is still being modified by this worker.
+            context.publishPartialResult(new HotSpotSABatchResult(result));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.compressedrefs;
+
+import java.io.IOException;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+
+public class HotSpotSACompressedReferencesResultCodec 
+        implements HotSpotServiceabilityAgentCodec<HotSpotSACompressedReferencesResult> {
+
+    @Override
+    public Class<HotSpotSACompressedReferencesResult> getType() {
+        return HotSpotSACompressedReferencesResult.class;
+    }
+
+    @Override
+    public void encode(HotSpotSACompressedReferencesResult result, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeInt(result.getAddressSize());
+        encoder.writeInt(result.getObjectAlignment());
+        encoder.writeInt(result.getOopSize());
+        encoder.writeBoolean(result.isCompressedOopsEnabled());
+        encoder.writeLong(result.getNarrowOopBase());
+        encoder.writeInt(result.getNarrowOopShift());
+        encoder.writeInt(result.getKlassOopSize());
+        encoder.writeBoolean(result.isCompressedKlassOopsEnabled());
+        encoder.writeLong(result.getNarrowKlassBase());
+        encoder.writeInt(result.getNarrowKlassShift());
+    }
+
+    @Override
+    public HotSpotSACompressedReferencesResult decode(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        return new HotSpotSACompressedReferencesResult(decoder.readInt(), decoder.readInt(), 
+                                                       decoder.readInt(), decoder.readBoolean(), 
+                                                       decoder.readLong(), decoder.readInt(), 
+                                                       decoder.readInt(), decoder.readBoolean(), 
+                                                       decoder.readLong(), decoder.readInt());
+    }
+
+}
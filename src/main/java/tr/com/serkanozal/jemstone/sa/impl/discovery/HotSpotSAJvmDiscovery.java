@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Discovers live HotSpot JVMs on the local machine by scanning 
+ * <code>hsperfdata_&lt;user&gt;</code> directories under temporary directory of VM 
+ * and reading performance data file of each JVM there.
+ * </p>
+ * 
+ * <p>
+ * Performance data files are shared memory files exported by every HotSpot JVM 
+ * (unless it is started with <code>-XX:-UsePerfData</code>) and named by their process ids. 
+ * So no attach is needed to list JVMs, which makes discovery cheap 
+ * enough to select target processes before attaching to them.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+public final class HotSpotSAJvmDiscovery {
+
+    private static final String PERF_DATA_DIRECTORY_PREFIX = "hsperfdata_";
+    private static final int PERF_DATA_MAGIC = 0xCAFEC0C0;
+    private static final int PERF_DATA_BIG_ENDIAN = 0;
+    private static final int PERF_DATA_MAJOR_VERSION = 2;
+    private static final int PERF_DATA_PROLOGUE_SIZE = 32;
+    private static final int PERF_DATA_ENTRY_HEADER_SIZE = 20;
+    private static final byte PERF_DATA_TYPE_BYTE = 'B';
+    private static final byte PERF_DATA_TYPE_LONG = 'J';
+    
+    private static final String JAVA_COMMAND_COUNTER = "sun.rt.javaCommand";
+    private static final String JVM_NAME_COUNTER = "java.property.java.vm.name";
+    private static final String JVM_VERSION_COUNTER = "java.property.java.vm.version";
+    private static final String VM_START_TIME_COUNTER = "sun.rt.createVmBeginTime";
+    private static final String HRT_TICKS_COUNTER = "sun.os.hrt.ticks";
+    private static final String HRT_FREQUENCY_COUNTER = "sun.os.hrt.frequency";
+    
+    private static final Charset PERF_DATA_CHARSET = Charset.forName("UTF-8");
+    private static final File PROC_DIRECTORY = new File("/proc");
+    private static final String DEFAULT_VM_TEMPORARY_DIRECTORY = "/tmp";
+    // JVMs create their performance data directories under the temporary directory of VM 
+    // which doesn't change by "java.io.tmpdir" system property
+    private static final File PERF_DATA_ROOT_DIRECTORY = new File(getVMTemporaryDirectory());
+    
+    private HotSpotSAJvmDiscovery() {
+        
+    }
+    
+    /**
+     * Discovers all of the live HotSpot JVMs (including the current one) 
+     * whose performance data files are readable by the current user.
+     * 
+     * @return the {@link HotSpotSAJvmInfo}s of discovered JVMs ordered by their process ids
+     */
+    public static List<HotSpotSAJvmInfo> discoverJvms() {
+        return discoverJvms(null);
+    }
+    
+    /**
+     * Discovers the live HotSpot JVMs (including the current one) 
+     * whose performance data files are readable by the current user 
+     * and whose Java command (main class and arguments) contains a match of the given pattern.
+     * 
+     * @param javaCommandPattern the regular expression to be found in Java command of JVMs.
+     *                           <code>null</code> means all JVMs.
+     * @return the {@link HotSpotSAJvmInfo}s of discovered JVMs ordered by their process ids
+     */
+    public static List<HotSpotSAJvmInfo> discoverJvms(String javaCommandPattern) {
+        Pattern pattern = javaCommandPattern != null ? Pattern.compile(javaCommandPattern) : null;
+        List<HotSpotSAJvmInfo> jvms = new ArrayList<HotSpotSAJvmInfo>();
+        File[] perfDataDirectories = 
+                PERF_DATA_ROOT_DIRECTORY.listFiles();
+        if (perfDataDirectories == null) {
+            return jvms;
+        }
+        for (File perfDataDirectory : perfDataDirectories) {
+            if (!perfDataDirectory.isDirectory() 
+                    || !perfDataDirectory.getName().startsWith(PERF_DATA_DIRECTORY_PREFIX)) {
+                continue;
+            }
+            File[] perfDataFiles = perfDataDirectory.listFiles();
+            if (perfDataFiles == null) {
+                // Not readable by the current user
+                continue;
+            }
+            for (File perfDataFile : perfDataFiles) {
+                HotSpotSAJvmInfo jvm = readJvmInfo(perfDataFile);
+                if (jvm != null 
+                        && (pattern == null 
+                                || (jvm.getJavaCommand() != null && pattern.matcher(jvm.getJavaCommand()).find()))) {
+                    jvms.add(jvm);
+                }
+            }
+        }
+        Collections.sort(jvms, new Comparator<HotSpotSAJvmInfo>() {
+            @Override
+            public int compare(HotSpotSAJvmInfo jvm1, HotSpotSAJvmInfo jvm2) {
+                return Integer.compare(jvm1.getProcessId(), jvm2.getProcessId());
+            }
+        });
+        return jvms;
+    }
+    
+    /**
+     * Reads the {@link HotSpotSAJvmInfo} of JVM with the given process id 
+     * from its performance data file.
+     * 
+     * @param processId the id of process
+     * @return the {@link HotSpotSAJvmInfo} of JVM, 
+     *         <code>null</code> if there is no live HotSpot JVM with the given process id 
+     *         or its performance data file is not readable by the current user
+     */
+    public static HotSpotSAJvmInfo findJvm(int processId) {
+        File[] perfDataDirectories = 
+                PERF_DATA_ROOT_DIRECTORY.listFiles();
+        if (perfDataDirectories != null) {
+            for (File perfDataDirectory : perfDataDirectories) {
+                if (perfDataDirectory.isDirectory() 
+                        && perfDataDirectory.getName().startsWith(PERF_DATA_DIRECTORY_PREFIX)) {
+                    File perfDataFile = new File(perfDataDirectory, String.valueOf(processId));
+                    if (perfDataFile.isFile()) {
+                        HotSpotSAJvmInfo jvm = readJvmInfo(perfDataFile);
+                        if (jvm != null) {
+                            return jvm;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    private static String getVMTemporaryDirectory() {
+        try {
+            // Same as "jps" does
+            String vmTemporaryDirectory = sun.misc.VMSupport.getVMTemporaryDirectory();
+            if (vmTemporaryDirectory != null) {
+                return vmTemporaryDirectory;
+            }
+        } catch (Throwable t) {
+            // Not supported by the current JVM, so use the default one
+        }
+        return DEFAULT_VM_TEMPORARY_DIRECTORY;
+    }
+    
+    static HotSpotSAJvmInfo readJvmInfo(File perfDataFile) {
+        int processId;
+        try {
+            processId = Integer.parseInt(perfDataFile.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        // Performance data files of crashed or killed JVMs are left behind, 
+        // so if process liveness can be checked, skip the dead ones
+        if (PROC_DIRECTORY.isDirectory() && !new File(PROC_DIRECTORY, String.valueOf(processId)).exists()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = readPerfData(perfDataFile);
+            if (buffer == null) {
+                return null;
+            }
+            return parsePerfData(processId, buffer);
+        } catch (IOException e) {
+            return null;
+        } catch (BufferUnderflowException e) {
+            // Corrupted or being initialized
+            return null;
+        } catch (IndexOutOfBoundsException e) {
+            // Corrupted or being initialized
+            return null;
+        } catch (IllegalArgumentException e) {
+            // Corrupted or being initialized
+            return null;
+        }
+    }
+    
+    private static ByteBuffer readPerfData(File perfDataFile) throws IOException {
+        long length = perfDataFile.length();
+        if (length < PERF_DATA_PROLOGUE_SIZE || length > Integer.MAX_VALUE) {
+            return null;
+        }
+        byte[] data = new byte[(int) length];
+        InputStream in = new FileInputStream(perfDataFile);
+        try {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+            if (offset < PERF_DATA_PROLOGUE_SIZE) {
+                return null;
+            }
+            return ByteBuffer.wrap(data, 0, offset).slice();
+        } finally {
+            in.close();
+        }
+    }
+    
+    static HotSpotSAJvmInfo parsePerfData(int processId, ByteBuffer buffer) {
+        // Magic number is always in big endian
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt(0) != PERF_DATA_MAGIC) {
+            return null;
+        }
+        buffer.order(buffer.get(4) == PERF_DATA_BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        byte majorVersion = buffer.get(5);
+        byte accessible = buffer.get(7);
+        if (majorVersion != PERF_DATA_MAJOR_VERSION || accessible == 0) {
+            return null;
+        }
+        int entryOffset = buffer.getInt(24);
+        int entryCount = buffer.getInt(28);
+        
+        String javaCommand = null;
+        String jvmName = null;
+        String jvmVersion = null;
+        long startTime = -1;
+        long hrtTicks = -1;
+        long hrtFrequency = -1;
+        
+        int offset = entryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (offset < PERF_DATA_PROLOGUE_SIZE 
+                    || offset + PERF_DATA_ENTRY_HEADER_SIZE > buffer.limit()) {
+                break;
+            }
+            int entryLength = buffer.getInt(offset);
+            int nameOffset = buffer.getInt(offset + 4);
+            int vectorLength = buffer.getInt(offset + 8);
+            byte dataType = buffer.get(offset + 12);
+            int dataOffset = buffer.getInt(offset + 16);
+            if (entryLength <= 0) {
+                break;
+            }
+            
+            String name = readString(buffer, offset + nameOffset, offset + entryLength);
+            int dataStart = offset + dataOffset;
+            if (dataType == PERF_DATA_TYPE_BYTE && vectorLength > 0) {
+                int dataEnd = Math.min(dataStart + vectorLength, offset + entryLength);
+                if (JAVA_COMMAND_COUNTER.equals(name)) {
+                    javaCommand = readString(buffer, dataStart, dataEnd);
+                } else if (JVM_NAME_COUNTER.equals(name)) {
+                    jvmName = readString(buffer, dataStart, dataEnd);
+                } else if (JVM_VERSION_COUNTER.equals(name)) {
+                    jvmVersion = readString(buffer, dataStart, dataEnd);
+                }
+            } else if (dataType == PERF_DATA_TYPE_LONG && vectorLength == 0) {
+                if (VM_START_TIME_COUNTER.equals(name)) {
+                    startTime = buffer.getLong(dataStart);
+                } else if (HRT_TICKS_COUNTER.equals(name)) {
+                    hrtTicks = buffer.getLong(dataStart);
+                } else if (HRT_FREQUENCY_COUNTER.equals(name)) {
+                    hrtFrequency = buffer.getLong(dataStart);
+                }
+            }
+            
+            offset += entryLength;
+        }
+        
+        long uptime = -1;
+        if (hrtTicks >= 0 && hrtFrequency > 0) {
+            // Elapsed ticks are periodically updated by JVM itself, so they are independent of wall clock
+            uptime = (long) (hrtTicks * (1000.0 / hrtFrequency));
+        } else if (startTime > 0) {
+            uptime = Math.max(0, System.currentTimeMillis() - startTime);
+        }
+        
+        return new HotSpotSAJvmInfo(processId, javaCommand, jvmName, jvmVersion, startTime, uptime);
+    }
+    
+    private static String readString(ByteBuffer buffer, int start, int end) {
+        int limit = Math.min(end, buffer.limit());
+        int length = 0;
+        while (start + length < limit && buffer.get(start + length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, PERF_DATA_CHARSET);
+    }
+    
+}
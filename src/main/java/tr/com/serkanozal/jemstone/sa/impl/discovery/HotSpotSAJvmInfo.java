@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.discovery;
+
+/**
+ * Information about a live HotSpot JVM on the local machine 
+ * read from its performance data (<code>hsperfdata</code>) file without attaching to it.
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotSAJvmInfo {
+
+    private final int processId;
+    private final String javaCommand;
+    private final String mainClass;
+    private final String jvmName;
+    private final String jvmVersion;
+    private final long startTime;
+    private final long uptime;
+    
+    public HotSpotSAJvmInfo(int processId, String javaCommand, String jvmName, String jvmVersion, 
+            long startTime, long uptime) {
+        this.processId = processId;
+        this.javaCommand = javaCommand;
+        this.mainClass = findMainClass(javaCommand);
+        this.jvmName = jvmName;
+        this.jvmVersion = jvmVersion;
+        this.startTime = startTime;
+        this.uptime = uptime;
+    }
+    
+    private static String findMainClass(String javaCommand) {
+        if (javaCommand == null) {
+            return null;
+        }
+        String command = javaCommand.trim();
+        int index = command.indexOf(' ');
+        return index < 0 ? command : command.substring(0, index);
+    }
+    
+    public int getProcessId() {
+        return processId;
+    }
+    
+    /**
+     * Gets the main class (or the jar file if JVM is started with <code>-jar</code>) 
+     * followed by the application arguments.
+     */
+    public String getJavaCommand() {
+        return javaCommand;
+    }
+    
+    /**
+     * Gets the main class (or the jar file if JVM is started with <code>-jar</code>).
+     */
+    public String getMainClass() {
+        return mainClass;
+    }
+    
+    public String getJvmName() {
+        return jvmName;
+    }
+    
+    public String getJvmVersion() {
+        return jvmVersion;
+    }
+    
+    /**
+     * Gets the start time of JVM in milliseconds since epoch, 
+     * or <code>-1</code> if it is not available.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+    
+    /**
+     * Gets the uptime of JVM in milliseconds at the time it is discovered, 
+     * or <code>-1</code> if it is not available.
+     */
+    public long getUptime() {
+        return uptime;
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSAJvmInfo [" + 
+                    "processId=" + processId + 
+                    ", mainClass=" + mainClass + 
+                    ", javaCommand=" + javaCommand + 
+                    ", jvmName=" + jvmName + 
+                    ", jvmVersion=" + jvmVersion + 
+                    ", startTime=" + startTime + 
+                    ", uptime=" + uptime + 
+                "]";
+    }
+    
+}
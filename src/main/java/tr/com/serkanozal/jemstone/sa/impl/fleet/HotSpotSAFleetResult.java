@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.fleet;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * Holds the results of the same worker executed on multiple processes by their process ids. 
+ * If execution on a process has failed, its error is held instead of its result.
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotSAFleetResult<R extends HotSpotServiceabilityAgentResult> {
+
+    private final Map<Integer, R> results = new LinkedHashMap<Integer, R>();
+    private final Map<Integer, Throwable> errors = new LinkedHashMap<Integer, Throwable>();
+    
+    public HotSpotSAFleetResult() {
+        
+    }
+    
+    public int size() {
+        return results.size() + errors.size();
+    }
+    
+    public Set<Integer> getProcessIds() {
+        Set<Integer> processIds = new LinkedHashSet<Integer>(results.keySet());
+        processIds.addAll(errors.keySet());
+        return processIds;
+    }
+    
+    public Map<Integer, R> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+    
+    public Map<Integer, Throwable> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+    
+    public R getResult(int processId) {
+        return results.get(processId);
+    }
+    
+    public Throwable getError(int processId) {
+        return errors.get(processId);
+    }
+    
+    public boolean isFailed(int processId) {
+        return errors.containsKey(processId);
+    }
+    
+    public void addResult(int processId, R result) {
+        results.put(processId, result);
+    }
+    
+    public void addError(int processId, Throwable error) {
+        errors.put(processId, error);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HotSpotSAFleetResult [results=");
+        for (Map.Entry<Integer, R> entry : results.entrySet()) {
+            sb
+                .append("\n")
+                .append("- [").append(entry.getKey()).append("] ")
+                .append(entry.getValue());
+        }
+        for (Map.Entry<Integer, Throwable> entry : errors.entrySet()) {
+            sb
+                .append("\n")
+                .append("- [").append(entry.getKey()).append("] ")
+                .append("Error: ").append(entry.getValue());
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerParameter;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAThreadSelector;
+
+/**
+ * Parameter of {@link HotSpotSASamplingProfilerWorker} to specify 
+ * how many samples are taken in which interval and which frames are sampled.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSASamplingProfilerParameter implements HotSpotServiceabilityAgentParameter {
+
+    public static final int DEFAULT_SAMPLE_COUNT = 10;
+    public static final int DEFAULT_SAMPLE_INTERVAL_IN_MSECS = 100;
+    
+    private final Set<String> threadNames;
+    private HotSpotSAThreadSelector threadSelector;
+    private int sampleCount = DEFAULT_SAMPLE_COUNT;
+    private int sampleIntervalInMsecs = DEFAULT_SAMPLE_INTERVAL_IN_MSECS;
+    private int maxFrames = HotSpotSAStackTracerParameter.UNLIMITED_FRAMES;
+    private final Set<String> includedPackages = new LinkedHashSet<String>();
+    private final Set<String> excludedPackages = new LinkedHashSet<String>();
+    
+    public HotSpotSASamplingProfilerParameter() {
+        // No "threadNames" means all threads
+        this.threadNames = null;
+    }
+    
+    public HotSpotSASamplingProfilerParameter(Set<String> threadNames) {
+        this.threadNames = threadNames;
+    }
+    
+    public HotSpotSASamplingProfilerParameter(String ... threadNames) {
+        if (threadNames == null || threadNames.length == 0) {
+            this.threadNames = null;
+        } else {
+            this.threadNames = new HashSet<String>(threadNames.length);
+            for (String threadName : threadNames) {
+                this.threadNames.add(threadName);
+            }
+        }
+    }
+    
+    public Set<String> getThreadNames() {
+        return threadNames;
+    }
+    
+    public HotSpotSAThreadSelector getThreadSelector() {
+        return threadSelector;
+    }
+    
+    /**
+     * Sets the selector of the sampled threads. 
+     * Selection is evaluated again for each sample.
+     * 
+     * @param threadSelector the selector of the threads to be sampled
+     * @return this parameter
+     * @see HotSpotSAStackTracerParameter#setThreadSelector(HotSpotSAThreadSelector)
+     */
+    public HotSpotSASamplingProfilerParameter setThreadSelector(HotSpotSAThreadSelector threadSelector) {
+        this.threadSelector = threadSelector;
+        return this;
+    }
+    
+    public int getSampleCount() {
+        return sampleCount;
+    }
+    
+    /**
+     * Sets the number of samples to be taken. Default is {@link #DEFAULT_SAMPLE_COUNT}.
+     * 
+     * @param sampleCount the number of samples to be taken
+     * @return this parameter
+     */
+    public HotSpotSASamplingProfilerParameter setSampleCount(int sampleCount) {
+        if (sampleCount <= 0) {
+            throw new IllegalArgumentException("Sample count must be positive: " + sampleCount);
+        }
+        this.sampleCount = sampleCount;
+        return this;
+    }
+    
+    public int getSampleIntervalInMsecs() {
+        return sampleIntervalInMsecs;
+    }
+    
+    /**
+     * Sets the time in milliseconds the target process runs between two samples. 
+     * Default is {@link #DEFAULT_SAMPLE_INTERVAL_IN_MSECS}.
+     * 
+     * @param sampleIntervalInMsecs the time in milliseconds between two samples
+     * @return this parameter
+     */
+    public HotSpotSASamplingProfilerParameter setSampleIntervalInMsecs(int sampleIntervalInMsecs) {
+        if (sampleIntervalInMsecs < 0) {
+            throw new IllegalArgumentException("Sample interval cannot be negative: " + sampleIntervalInMsecs);
+        }
+        this.sampleIntervalInMsecs = sampleIntervalInMsecs;
+        return this;
+    }
+    
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+    
+    /**
+     * Sets the maximum number of frames sampled per thread. 
+     * 
+     * @param maxFrames the maximum number of frames sampled per thread 
+     *                  or {@link HotSpotSAStackTracerParameter#UNLIMITED_FRAMES} for no limit
+     * @return this parameter
+     * @see HotSpotSAStackTracerParameter#setMaxFrames(int)
+     */
+    public HotSpotSASamplingProfilerParameter setMaxFrames(int maxFrames) {
+        if (maxFrames < 0 && maxFrames != HotSpotSAStackTracerParameter.UNLIMITED_FRAMES) {
+            throw new IllegalArgumentException("Max frames cannot be negative: " + maxFrames);
+        }
+        this.maxFrames = maxFrames;
+        return this;
+    }
+    
+    public Set<String> getIncludedPackages() {
+        return includedPackages;
+    }
+    
+    /**
+     * Adds a package (or class name prefix) whose frames are sampled.
+     * 
+     * @param packageName name of the package to be included
+     * @return this parameter
+     * @see HotSpotSAStackTracerParameter#addIncludedPackage(String)
+     */
+    public HotSpotSASamplingProfilerParameter addIncludedPackage(String packageName) {
+        includedPackages.add(packageName);
+        return this;
+    }
+    
+    public Set<String> getExcludedPackages() {
+        return excludedPackages;
+    }
+    
+    /**
+     * Adds a package (or class name prefix) whose frames are not sampled.
+     * 
+     * @param packageName name of the package to be excluded
+     * @return this parameter
+     * @see HotSpotSAStackTracerParameter#addExcludedPackage(String)
+     */
+    public HotSpotSASamplingProfilerParameter addExcludedPackage(String packageName) {
+        excludedPackages.add(packageName);
+        return this;
+    }
+    
+    HotSpotSAStackTracerParameter toStackTracerParameter() {
+        HotSpotSAStackTracerParameter stackTracerParam = 
+                new HotSpotSAStackTracerParameter(threadNames)
+                    .setThreadSelector(threadSelector)
+                    .setCaptureLevel(HotSpotSAStackTracerParameter.CaptureLevel.FRAMES)
+                    .setMaxFrames(maxFrames);
+        for (String includedPackage : includedPackages) {
+            stackTracerParam.addIncludedPackage(includedPackage);
+        }
+        for (String excludedPackage : excludedPackages) {
+            stackTracerParam.addExcludedPackage(excludedPackage);
+        }
+        return stackTracerParam;
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSASamplingProfilerParameter [" +
+                "threadNames=" + threadNames + 
+                ", threadSelector=" + threadSelector + 
+                ", sampleCount=" + sampleCount + 
+                ", sampleIntervalInMsecs=" + sampleIntervalInMsecs + 
+                ", maxFrames=" + maxFrames + 
+                ", includedPackages=" + includedPackages + 
+                ", excludedPackages=" + excludedPackages + "]";
+    }
+
+}
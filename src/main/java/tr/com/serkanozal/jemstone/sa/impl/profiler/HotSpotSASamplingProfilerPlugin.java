@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import tr.com.serkanozal.jemstone.Jemstone;
+import tr.com.serkanozal.jemstone.sa.HotSpotSAPluginInvalidArgumentException;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentConfig;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPlugin;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResultProcessor;
+
+public class HotSpotSASamplingProfilerPlugin 
+        implements HotSpotServiceabilityAgentPlugin<
+            HotSpotSASamplingProfilerParameter,  
+            HotSpotSASamplingProfilerResult,
+            HotSpotSASamplingProfilerWorker> {
+
+    public static final String PLUGIN_ID = "HotSpot_Sampling_Profiler";
+    
+    // Added to the total sampling time as timeout for attaching and transferring the result
+    private static final int TIMEOUT_MARGIN_IN_MSECS = 30 * 1000; // 30 seconds
+    
+    private static final JavaVersion[] SUPPORTED_JAVA_VERSION = 
+            new JavaVersion[] { 
+                JavaVersion.ALL_VERSIONS 
+            };
+    private static final String USAGE = 
+            Jemstone.class.getName() + " " + 
+                "(-i " + "\"" + PLUGIN_ID + "\"" + 
+                    " <process_id> [<sample_count> [<sample_interval_in_msecs> [thread_name]*]])" + 
+                " | " + 
+                "(-p " + HotSpotSASamplingProfilerPlugin.class.getName() + 
+                    " <process_id> [<sample_count> [<sample_interval_in_msecs> [thread_name]*]])" + 
+           "\n" +
+           "\t- default sample_count is " + HotSpotSASamplingProfilerParameter.DEFAULT_SAMPLE_COUNT + 
+           "\n" +
+           "\t- default sample_interval_in_msecs is " + 
+                HotSpotSASamplingProfilerParameter.DEFAULT_SAMPLE_INTERVAL_IN_MSECS + 
+           "\n" +
+           "\t- empty thread_name(s) means that use all threads";
+    
+    private int processId = HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET;
+    private long samplingTimeInMsecs;
+    
+    @Override
+    public String getId() {
+        return PLUGIN_ID;
+    }
+    
+    @Override
+    public String getUsage() {
+        return USAGE;
+    }
+
+    @Override
+    public JavaVersion[] getSupportedJavaVersions() {
+        return SUPPORTED_JAVA_VERSION;
+    }
+
+    @Override
+    public HotSpotSASamplingProfilerWorker getWorker() {
+        return new HotSpotSASamplingProfilerWorker();
+    }
+
+    @Override
+    public HotSpotSASamplingProfilerParameter getParamater(String[] args) {
+        if (args == null || args.length == 0) {
+            throw new HotSpotSAPluginInvalidArgumentException(
+                    PLUGIN_ID, "Process id is required");
+        }
+        try {
+            processId = Integer.parseInt(args[0]);
+            Set<String> threadNames = null;
+            if (args.length > 3) {
+                threadNames = new HashSet<String>();
+                for (int i = 3; i < args.length; i++) {
+                    threadNames.add(args[i]);
+                }
+            }
+            HotSpotSASamplingProfilerParameter param = new HotSpotSASamplingProfilerParameter(threadNames);
+            if (args.length > 1) {
+                param.setSampleCount(Integer.parseInt(args[1]));
+            }
+            if (args.length > 2) {
+                param.setSampleIntervalInMsecs(Integer.parseInt(args[2]));
+            }
+            samplingTimeInMsecs = (long) param.getSampleCount() * param.getSampleIntervalInMsecs();
+            return param;
+        } catch (IllegalArgumentException e) {
+            throw new HotSpotSAPluginInvalidArgumentException(PLUGIN_ID, e.getMessage());
+        }
+    }
+
+    @Override
+    public HotSpotServiceabilityAgentConfig getConfig() {
+        if (processId != HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET) {
+            HotSpotServiceabilityAgentConfig config = new HotSpotServiceabilityAgentConfig();
+            // Only set "process id" and "timeout" and don't touch others ("pipeline size").
+            // Samples are taken in a single execution, so timeout must cover all of them.
+            config.setProcessId(processId);
+            config.setTimeoutInMsecs((int) Math.min(Integer.MAX_VALUE, 
+                                                    samplingTimeInMsecs + TIMEOUT_MARGIN_IN_MSECS));
+            return config;
+        } else {
+            // Use default configuration, so just returns "null"
+            return null;
+        }
+    }
+    
+    @Override
+    public HotSpotServiceabilityAgentResultProcessor<HotSpotSASamplingProfilerResult> getResultProcessor() {
+        // Use default result processor (print to console)
+        return null;
+    }
+
+}
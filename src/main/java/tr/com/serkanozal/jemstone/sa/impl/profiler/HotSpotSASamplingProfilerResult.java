@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPartialResult;
+
+/**
+ * Result of {@link HotSpotSASamplingProfilerWorker} which holds the counts of sampled stacks 
+ * per thread and thread state. Stacks are in collapsed format, so they can be given to 
+ * flame graph tools directly by {@link #toCollapsedStacks()}.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSASamplingProfilerResult implements HotSpotServiceabilityAgentPartialResult {
+
+    private final Map<HotSpotSAStackSample, Long> stackSampleCounts = 
+            new LinkedHashMap<HotSpotSAStackSample, Long>();
+    private int sampleCount;
+    private boolean incomplete;
+    
+    public HotSpotSASamplingProfilerResult() {
+        
+    }
+    
+    /**
+     * Gets the number of samples taken from the target process.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+    
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+    
+    /**
+     * Gets the counts of the sampled stacks per thread and thread state.
+     */
+    public Map<HotSpotSAStackSample, Long> getStackSampleCounts() {
+        return stackSampleCounts;
+    }
+    
+    public void addStackSample(HotSpotSAStackSample stackSample, long count) {
+        Long currentCount = stackSampleCounts.get(stackSample);
+        stackSampleCounts.put(stackSample, currentCount != null ? currentCount + count : count);
+    }
+    
+    /**
+     * Gets the counts of the sampled stacks over all threads.
+     */
+    public Map<String, Long> getCollapsedStacks() {
+        return getCollapsedStacks(null, null);
+    }
+    
+    /**
+     * Gets the counts of the sampled stacks of the thread with the given name.
+     * 
+     * @param threadName name of the thread
+     */
+    public Map<String, Long> getCollapsedStacksOfThread(String threadName) {
+        return getCollapsedStacks(threadName, null);
+    }
+    
+    /**
+     * Gets the counts of the sampled stacks of the threads in the given state.
+     * 
+     * @param threadState name of the {@link Thread.State}
+     */
+    public Map<String, Long> getCollapsedStacksOfState(String threadState) {
+        return getCollapsedStacks(null, threadState);
+    }
+    
+    private Map<String, Long> getCollapsedStacks(String threadName, String threadState) {
+        Map<String, Long> collapsedStacks = new LinkedHashMap<String, Long>();
+        for (Map.Entry<HotSpotSAStackSample, Long> entry : stackSampleCounts.entrySet()) {
+            HotSpotSAStackSample stackSample = entry.getKey();
+            if (threadName != null && !threadName.equals(stackSample.getThreadName())) {
+                continue;
+            }
+            if (threadState != null && !threadState.equals(stackSample.getThreadState())) {
+                continue;
+            }
+            increment(collapsedStacks, stackSample.getStack(), entry.getValue());
+        }
+        return collapsedStacks;
+    }
+    
+    /**
+     * Gets the number of the sampled stacks per thread name.
+     */
+    public Map<String, Long> getThreadSampleCounts() {
+        Map<String, Long> threadSampleCounts = new LinkedHashMap<String, Long>();
+        for (Map.Entry<HotSpotSAStackSample, Long> entry : stackSampleCounts.entrySet()) {
+            increment(threadSampleCounts, entry.getKey().getThreadName(), entry.getValue());
+        }
+        return threadSampleCounts;
+    }
+    
+    /**
+     * Gets the number of the sampled stacks per thread state.
+     */
+    public Map<String, Long> getStateSampleCounts() {
+        Map<String, Long> stateSampleCounts = new LinkedHashMap<String, Long>();
+        for (Map.Entry<HotSpotSAStackSample, Long> entry : stackSampleCounts.entrySet()) {
+            increment(stateSampleCounts, entry.getKey().getThreadState(), entry.getValue());
+        }
+        return stateSampleCounts;
+    }
+    
+    private static void increment(Map<String, Long> counts, String key, long count) {
+        Long currentCount = counts.get(key);
+        counts.put(key, currentCount != null ? currentCount + count : count);
+    }
+    
+    /**
+     * Formats the counts of the sampled stacks over all threads in collapsed stack format 
+     * (<code>frame1;frame2;...;frameN count</code> per line) sorted by their counts.
+     */
+    public String toCollapsedStacks() {
+        List<Map.Entry<String, Long>> entries = 
+                new ArrayList<Map.Entry<String, Long>>(getCollapsedStacks().entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+                return e2.getValue().compareTo(e1.getValue());
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : entries) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+    @Override
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HotSpotSASamplingProfilerResult [");
+        if (incomplete) {
+            sb.append("incomplete=true, ");
+        }
+        sb.append("sampleCount=").append(sampleCount)
+          .append(", threadSampleCounts=").append(getThreadSampleCounts())
+          .append(", stateSampleCounts=").append(getStateSampleCounts())
+          .append(", collapsedStacks=\n")
+          .append(toCollapsedStacks())
+          .append("]");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.io.IOException;
+import java.util.Map;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+
+public class HotSpotSASamplingProfilerResultCodec 
+        implements HotSpotServiceabilityAgentCodec<HotSpotSASamplingProfilerResult> {
+
+    @Override
+    public Class<HotSpotSASamplingProfilerResult> getType() {
+        return HotSpotSASamplingProfilerResult.class;
+    }
+
+    @Override
+    public void encode(HotSpotSASamplingProfilerResult result, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeInt(result.getSampleCount());
+        Map<HotSpotSAStackSample, Long> stackSampleCounts = result.getStackSampleCounts();
+        encoder.writeInt(stackSampleCounts.size());
+        for (Map.Entry<HotSpotSAStackSample, Long> entry : stackSampleCounts.entrySet()) {
+            HotSpotSAStackSample stackSample = entry.getKey();
+            // Same stacks are sampled from many threads, so they are written only once
+            encoder.writeString(stackSample.getThreadName());
+            encoder.writeString(stackSample.getThreadState());
+            encoder.writeString(stackSample.getStack());
+            encoder.writeLong(entry.getValue());
+        }
+        encoder.writeBoolean(result.isIncomplete());
+    }
+
+    @Override
+    public HotSpotSASamplingProfilerResult decode(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.setSampleCount(decoder.readInt());
+        int size = decoder.readInt();
+        for (int i = 0; i < size; i++) {
+            HotSpotSAStackSample stackSample = 
+                    new HotSpotSAStackSample(decoder.readString(), decoder.readString(), decoder.readString());
+            result.addStackSample(stackSample, decoder.readLong());
+        }
+        result.setIncomplete(decoder.readBoolean());
+        return result;
+    }
+
+}
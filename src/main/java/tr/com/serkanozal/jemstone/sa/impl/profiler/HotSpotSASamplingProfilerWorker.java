@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackFrame;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerParameter;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerResult;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerWorker;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAThreadStackTrace;
+
+/**
+ * <p>
+ * Sampling profiler which takes frame-only samples of the target process 
+ * by {@link HotSpotSAStackTracerWorker} at the given interval and aggregates them 
+ * into collapsed stack counts at HotSpot agent process. So only the counts 
+ * (not the samples) are transferred to the caller.
+ * </p>
+ * 
+ * <p>
+ * All samples are taken over the same HotSpot agent process in a single execution. 
+ * Target process is resumed between the samples by {@link HotSpotServiceabilityAgentContext#resumeTarget(long)}, 
+ * so it is paused only while a sample is being taken (and while re-attaching to it). 
+ * If the target process cannot be resumed (for example, on a session or a core file), 
+ * only one sample is taken since all of them would be the same.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSASamplingProfilerWorker 
+        implements HotSpotServiceabilityAgentWorker<HotSpotSASamplingProfilerParameter,  
+                                                    HotSpotSASamplingProfilerResult> {
+    
+    @Override
+    public HotSpotSASamplingProfilerResult run(HotSpotServiceabilityAgentContext context,
+                                               HotSpotSASamplingProfilerParameter param) {
+        if (param == null) {
+            param = new HotSpotSASamplingProfilerParameter();
+        }
+        HotSpotSAStackTracerParameter stackTracerParam = param.toStackTracerParameter();
+        HotSpotSAStackTracerWorker stackTracer = new HotSpotSAStackTracerWorker();
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        for (int i = 0; i < param.getSampleCount(); i++) {
+            if (i > 0) {
+                if (!context.isTargetResumable()) {
+                    break;
+                }
+                try {
+                    context.resumeTarget(param.getSampleIntervalInMsecs());
+                } catch (InterruptedException e) {
+                    // Worker has been cancelled, so return the samples taken so far
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (context.isCancelled()) {
+                // Maximum pause time has been exceeded, so return the samples taken so far
+                break;
+            }
+            HotSpotSAStackTracerResult sample = stackTracer.run(context, stackTracerParam);
+            for (HotSpotSAThreadStackTrace stackTrace : sample.getThreadStackTraces().values()) {
+                String stack = toCollapsedStack(stackTrace.getFrames());
+                if (stack != null) {
+                    result.addStackSample(new HotSpotSAStackSample(stackTrace.getThreadName(), 
+                                                                   stackTrace.getThreadState(), 
+                                                                   stack), 
+                                          1);
+                }
+            }
+            result.setSampleCount(i + 1);
+        }
+        return result;
+    }
+    
+    static String toCollapsedStack(List<HotSpotSAStackFrame> frames) {
+        if (frames.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        // Frames are from the top frame to the root frame, but collapsed stacks are in the reverse order
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            String method = frames.get(i).getMethod();
+            int signatureStart = method.indexOf('(');
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(signatureStart >= 0 ? method.substring(0, signatureStart) : method);
+        }
+        return sb.toString();
+    }
+   
+}
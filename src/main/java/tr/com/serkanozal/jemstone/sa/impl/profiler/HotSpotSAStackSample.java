@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.io.Serializable;
+
+/**
+ * Identifies the sampled stacks of a thread in a specific state. 
+ * Stack is in collapsed format, which consists of frames (from the root frame to the top frame) 
+ * separated by <code>;</code>.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSAStackSample implements Serializable {
+
+    private final String threadName;
+    private final String threadState;
+    private final String stack;
+    
+    public HotSpotSAStackSample(String threadName, String threadState, String stack) {
+        this.threadName = threadName;
+        this.threadState = threadState;
+        this.stack = stack;
+    }
+    
+    public String getThreadName() {
+        return threadName;
+    }
+    
+    /**
+     * Gets the name of the {@link Thread.State} of the thread 
+     * or <code>null</code> if it is not known.
+     */
+    public String getThreadState() {
+        return threadState;
+    }
+    
+    public String getStack() {
+        return stack;
+    }
+    
+    @Override
+    public int hashCode() {
+        int result = threadName != null ? threadName.hashCode() : 0;
+        result = 31 * result + (threadState != null ? threadState.hashCode() : 0);
+        result = 31 * result + stack.hashCode();
+        return result;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HotSpotSAStackSample)) {
+            return false;
+        }
+        HotSpotSAStackSample other = (HotSpotSAStackSample) obj;
+        return (threadName != null ? threadName.equals(other.threadName) : other.threadName == null) 
+                && (threadState != null ? threadState.equals(other.threadState) : other.threadState == null) 
+                && stack.equals(other.stack);
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSAStackSample [" + 
+                "threadName=" + threadName + 
+                ", threadState=" + threadState + 
+                ", stack=" + stack + "]";
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.scheduler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentConfig;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionInfo;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionListener;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentManager;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPlugin;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResultProcessor;
+
+/**
+ * <p>
+ * Runs registered plugins periodically on target processes 
+ * over {@link HotSpotServiceabilityAgentManager} by keeping the total pause time 
+ * imposed on each target process in the given {@link HotSpotSAPauseBudget}.
+ * </p>
+ * 
+ * <p>
+ * Before each capture, the pause time of the previous capture on the same target 
+ * is used as estimation. If the capture doesn't fit into the budget of the target process, 
+ * it is delayed until it fits if this is still in its interval, otherwise it is skipped. 
+ * So there is at most one capture in an interval and captures never exceed the budget 
+ * (except that a capture longer than the whole budget runs when the target process 
+ * hasn't been paused in the current window).
+ * </p>
+ * 
+ * <p>
+ * All captures are run one by one on a single thread, 
+ * so at most one target process is paused by the scheduler at a time.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotSACaptureScheduler {
+
+    private static final Logger logger = Logger.getLogger(HotSpotSACaptureScheduler.class.getName());
+    
+    static final long SKIP_CAPTURE = -1;
+    
+    private final HotSpotServiceabilityAgentManager hotSpotSAManager;
+    private final HotSpotSAPauseBudget pauseBudget;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadLocal<HotSpotSAScheduledCapture<?>> runningCapture = 
+            new ThreadLocal<HotSpotSAScheduledCapture<?>>();
+    private final HotSpotServiceabilityAgentExecutionListener captureListener = 
+            new HotSpotServiceabilityAgentExecutionListener() {
+                @Override
+                public void onExecutionCompleted(HotSpotServiceabilityAgentExecutionInfo executionInfo) {
+                    // Listeners are called on the caller thread, 
+                    // so this is the capture running on the scheduler thread (if there is)
+                    HotSpotSAScheduledCapture<?> capture = runningCapture.get();
+                    if (capture != null && executionInfo.isDetached()) {
+                        capture.setLastPauseTimeInNanos(executionInfo.getPauseTimeInNanos());
+                    }
+                }
+            };
+    
+    public HotSpotSACaptureScheduler(HotSpotServiceabilityAgentManager hotSpotSAManager, 
+            long maxPauseTimeInMsecs, long windowInMsecs) {
+        this(hotSpotSAManager, new HotSpotSAPauseBudget(maxPauseTimeInMsecs, windowInMsecs));
+    }
+    
+    public HotSpotSACaptureScheduler(HotSpotServiceabilityAgentManager hotSpotSAManager, 
+            HotSpotSAPauseBudget pauseBudget) {
+        this.hotSpotSAManager = hotSpotSAManager;
+        this.pauseBudget = pauseBudget;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "jemstone-hotspotsa-capture-scheduler");
+                // Don't prevent the application from terminating
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        hotSpotSAManager.addExecutionListener(pauseBudget);
+        hotSpotSAManager.addExecutionListener(captureListener);
+    }
+    
+    public HotSpotSAPauseBudget getPauseBudget() {
+        return pauseBudget;
+    }
+    
+    /**
+     * Schedules the plugin with the given id to run on the target process 
+     * at the given interval by starting immediately.
+     * 
+     * @param pluginId          the id of the plugin to run
+     * @param processId         id of target process to attach and run plugin on it
+     * @param param             the parameter to plugin (can be <code>null</code> if plugin allows)
+     * @param intervalInMsecs   the interval in milliseconds between captures
+     * @param resultProcessor   the {@link HotSpotServiceabilityAgentResultProcessor} to process 
+     *                          results of captures, <code>null</code> means that use 
+     *                          the result processor of plugin (if there is)
+     * @return the {@link HotSpotSAScheduledCapture} to track and cancel scheduled captures
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+    HotSpotSAScheduledCapture<R> schedulePlugin(String pluginId, int processId, P param, 
+            long intervalInMsecs, HotSpotServiceabilityAgentResultProcessor<R> resultProcessor) {
+        if (intervalInMsecs <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + intervalInMsecs);
+        }
+        HotSpotServiceabilityAgentPlugin<P, R, ?> plugin = hotSpotSAManager.getPlugin(pluginId);
+        if (plugin == null) {
+            throw new IllegalArgumentException("No plugin found with id " + pluginId);
+        }
+        if (resultProcessor == null) {
+            resultProcessor = plugin.getResultProcessor();
+        }
+        HotSpotSAScheduledCapture<R> capture = 
+                new HotSpotSAScheduledCapture<R>(pluginId, processId, intervalInMsecs);
+        CaptureTask<P, R> task = new CaptureTask<P, R>(capture, param, resultProcessor, System.nanoTime());
+        capture.setFuture(scheduler.schedule(task, 0, TimeUnit.NANOSECONDS));
+        return capture;
+    }
+    
+    /**
+     * Stops all of the scheduled captures and unregisters the {@link HotSpotSAPauseBudget}.
+     * The ongoing capture (if there is) is not interrupted.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        hotSpotSAManager.removeExecutionListener(captureListener);
+        hotSpotSAManager.removeExecutionListener(pauseBudget);
+    }
+    
+    /**
+     * Gets the time in nanoseconds to delay the capture until its estimated pause fits into the budget. 
+     * 
+     * @param pauseBudget               the budget of the target processes
+     * @param capture                   the capture to run
+     * @param nextScheduledTime         the time in nanoseconds when the next interval of the capture starts
+     * @param now                       the current time in nanoseconds as given by {@link System#nanoTime()}
+     * @return the time in nanoseconds to delay the capture, <code>0</code> if it can run now 
+     *         or {@link #SKIP_CAPTURE} if it doesn't fit into the budget in its interval
+     */
+    static long getCaptureDelayInNanos(HotSpotSAPauseBudget pauseBudget, HotSpotSAScheduledCapture<?> capture, 
+            long nextScheduledTime, long now) {
+        long waitTime = 
+                pauseBudget.getWaitTimeInNanos(capture.getProcessId(), capture.getLastPauseTimeInNanos(), now);
+        if (waitTime <= 0) {
+            return 0;
+        } else if (now + waitTime < nextScheduledTime) {
+            return waitTime;
+        } else {
+            return SKIP_CAPTURE;
+        }
+    }
+    
+    private class CaptureTask<P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult> 
+            implements Runnable {
+        
+        private final HotSpotSAScheduledCapture<R> capture;
+        private final P param;
+        private final HotSpotServiceabilityAgentResultProcessor<R> resultProcessor;
+        private final long intervalInNanos;
+        private long scheduledTime;
+        
+        private CaptureTask(HotSpotSAScheduledCapture<R> capture, P param, 
+                HotSpotServiceabilityAgentResultProcessor<R> resultProcessor, long scheduledTime) {
+            this.capture = capture;
+            this.param = param;
+            this.resultProcessor = resultProcessor;
+            this.intervalInNanos = TimeUnit.MILLISECONDS.toNanos(capture.getIntervalInMsecs());
+            this.scheduledTime = scheduledTime;
+        }
+        
+        @Override
+        public void run() {
+            if (capture.isCancelled()) {
+                return;
+            }
+            long nextScheduledTime = scheduledTime + intervalInNanos;
+            long now = System.nanoTime();
+            long delay = getCaptureDelayInNanos(pauseBudget, capture, nextScheduledTime, now);
+            if (delay == SKIP_CAPTURE) {
+                capture.onSkipped();
+                scheduledTime = nextScheduledTime;
+                reschedule(nextScheduledTime - now);
+                return;
+            } else if (delay > 0) {
+                capture.onDelayed();
+                reschedule(delay);
+                return;
+            }
+            
+            capture();
+            
+            // Don't try to catch up the missed intervals if capture took longer than interval
+            scheduledTime = Math.max(nextScheduledTime, System.nanoTime());
+            reschedule(scheduledTime - System.nanoTime());
+        }
+        
+        private void capture() {
+            HotSpotServiceabilityAgentConfig config = new HotSpotServiceabilityAgentConfig();
+            // Only set "process id" and don't touch others ("pipeline size", "timeout").
+            // So default configurations will be used for them ("pipeline size", "timeout").
+            config.setProcessId(capture.getProcessId());
+            R result = null;
+            Throwable error = null;
+            runningCapture.set(capture);
+            try {
+                result = hotSpotSAManager.runPlugin(capture.getPluginId(), param, config);
+            } catch (Throwable t) {
+                error = t;
+                logger.log(Level.WARNING, "Capture of plugin " + capture.getPluginId() + 
+                                          " on process " + capture.getProcessId() + " has failed", t);
+            } finally {
+                runningCapture.remove();
+            }
+            capture.onCaptured(result, error);
+            if (result != null && resultProcessor != null) {
+                try {
+                    resultProcessor.processResult(result);
+                } catch (Throwable t) {
+                    logger.log(Level.WARNING, "Processing result of plugin " + capture.getPluginId() + 
+                                              " has failed", t);
+                }
+            }
+        }
+        
+        private void reschedule(long delayInNanos) {
+            if (capture.isCancelled() || scheduler.isShutdown()) {
+                return;
+            }
+            capture.setFuture(scheduler.schedule(this, Math.max(0, delayInNanos), TimeUnit.NANOSECONDS));
+        }
+        
+    }
+    
+}
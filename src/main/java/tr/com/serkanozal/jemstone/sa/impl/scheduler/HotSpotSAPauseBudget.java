@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionInfo;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionListener;
+
+/**
+ * <p>
+ * Tracks the time each target process has been paused by HotSpot agent processes 
+ * in a sliding time window and tells whether another pause fits into the configured budget 
+ * (for example, at most 200 milliseconds of pause per minute).
+ * </p>
+ * 
+ * <p>
+ * Pause times are collected as {@link HotSpotServiceabilityAgentExecutionListener}, 
+ * so all executions over the manager it is registered to are taken into account, 
+ * not only the scheduled ones. As pause time of a session is reported cumulatively, 
+ * it is taken into account once the session is closed.
+ * </p>
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotSAPauseBudget implements HotSpotServiceabilityAgentExecutionListener {
+
+    private final long maxPauseTimeInNanos;
+    private final long windowInNanos;
+    private final Map<Integer, Deque<long[]>> pausesByProcess = new HashMap<Integer, Deque<long[]>>();
+    
+    /**
+     * Creates a pause budget.
+     * 
+     * @param maxPauseTimeInMsecs   the maximum total time in milliseconds a target process can be paused
+     *                              in any <code>windowInMsecs</code> milliseconds
+     * @param windowInMsecs         the length of sliding time window in milliseconds 
+     */
+    public HotSpotSAPauseBudget(long maxPauseTimeInMsecs, long windowInMsecs) {
+        if (maxPauseTimeInMsecs <= 0) {
+            throw new IllegalArgumentException("Max pause time must be positive: " + maxPauseTimeInMsecs);
+        }
+        if (windowInMsecs <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowInMsecs);
+        }
+        this.maxPauseTimeInNanos = TimeUnit.MILLISECONDS.toNanos(maxPauseTimeInMsecs);
+        this.windowInNanos = TimeUnit.MILLISECONDS.toNanos(windowInMsecs);
+    }
+    
+    public long getMaxPauseTimeInMsecs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxPauseTimeInNanos);
+    }
+    
+    public long getWindowInMsecs() {
+        return TimeUnit.NANOSECONDS.toMillis(windowInNanos);
+    }
+    
+    @Override
+    public void onExecutionCompleted(HotSpotServiceabilityAgentExecutionInfo executionInfo) {
+        if (!executionInfo.isDetached() || executionInfo.getPauseTimeInNanos() <= 0) {
+            return;
+        }
+        recordPause(executionInfo.getProcessId(), executionInfo.getPauseTimeInNanos());
+    }
+    
+    /**
+     * Records the given pause of the target process as it has just ended.
+     * 
+     * @param processId         id of the paused process
+     * @param pauseTimeInNanos  the pause time in nanoseconds
+     */
+    public void recordPause(int processId, long pauseTimeInNanos) {
+        recordPause(processId, pauseTimeInNanos, System.nanoTime());
+    }
+    
+    synchronized void recordPause(int processId, long pauseTimeInNanos, long now) {
+        Deque<long[]> pauses = pausesByProcess.get(processId);
+        if (pauses == null) {
+            pauses = new ArrayDeque<long[]>();
+            pausesByProcess.put(processId, pauses);
+        }
+        pauses.addLast(new long[] { now, pauseTimeInNanos });
+    }
+    
+    /**
+     * Gets the total time in nanoseconds the target process has been paused in the current window.
+     * 
+     * @param processId id of the target process
+     * @return the total pause time in nanoseconds in the current window
+     */
+    public long getPauseTimeInNanos(int processId) {
+        return getPauseTimeInNanos(processId, System.nanoTime());
+    }
+    
+    synchronized long getPauseTimeInNanos(int processId, long now) {
+        Deque<long[]> pauses = expirePauses(processId, now);
+        long pauseTime = 0;
+        if (pauses != null) {
+            for (long[] pause : pauses) {
+                pauseTime += pause[1];
+            }
+        }
+        return pauseTime;
+    }
+    
+    /**
+     * Gets the time in nanoseconds to wait until a pause with the given estimated length 
+     * fits into the budget of the target process. A pause longer than the whole budget 
+     * is allowed only when the target process hasn't been paused in the current window.
+     * 
+     * @param processId                     id of the target process
+     * @param estimatedPauseTimeInNanos     the estimated length of the next pause in nanoseconds
+     * @return the time in nanoseconds to wait, <code>0</code> if pause fits into the budget now
+     */
+    public long getWaitTimeInNanos(int processId, long estimatedPauseTimeInNanos) {
+        return getWaitTimeInNanos(processId, estimatedPauseTimeInNanos, System.nanoTime());
+    }
+    
+    synchronized long getWaitTimeInNanos(int processId, long estimatedPauseTimeInNanos, long now) {
+        Deque<long[]> pauses = expirePauses(processId, now);
+        if (pauses == null) {
+            return 0;
+        }
+        long pauseTime = 0;
+        for (long[] pause : pauses) {
+            pauseTime += pause[1];
+        }
+        long allowedPauseTime = Math.max(0, maxPauseTimeInNanos - estimatedPauseTimeInNanos);
+        if (pauseTime <= allowedPauseTime) {
+            return 0;
+        }
+        // Find out when enough of the recorded pauses leave the window
+        for (long[] pause : pauses) {
+            pauseTime -= pause[1];
+            if (pauseTime <= allowedPauseTime) {
+                return Math.max(0, pause[0] + windowInNanos - now);
+            }
+        }
+        return 0;
+    }
+    
+    private Deque<long[]> expirePauses(int processId, long now) {
+        Deque<long[]> pauses = pausesByProcess.get(processId);
+        if (pauses == null) {
+            return null;
+        }
+        Iterator<long[]> iter = pauses.iterator();
+        while (iter.hasNext()) {
+            if (now - iter.next()[0] < windowInNanos) {
+                break;
+            }
+            iter.remove();
+        }
+        if (pauses.isEmpty()) {
+            pausesByProcess.remove(processId);
+            return null;
+        }
+        return pauses;
+    }
+    
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.scheduler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+/**
+ * Handle of a plugin scheduled to run periodically on a target process 
+ * by {@link HotSpotSACaptureScheduler}.
+ *
+ * @author Serkan Ozal
+ */
+public class HotSpotSAScheduledCapture<R extends HotSpotServiceabilityAgentResult> {
+
+    private final String pluginId;
+    private final int processId;
+    private final long intervalInMsecs;
+    private final AtomicLong captureCount = new AtomicLong();
+    private final AtomicLong delayCount = new AtomicLong();
+    private final AtomicLong skipCount = new AtomicLong();
+    private volatile long lastPauseTimeInNanos;
+    private volatile R lastResult;
+    private volatile Throwable lastError;
+    private volatile boolean cancelled;
+    private volatile ScheduledFuture<?> future;
+    
+    HotSpotSAScheduledCapture(String pluginId, int processId, long intervalInMsecs) {
+        this.pluginId = pluginId;
+        this.processId = processId;
+        this.intervalInMsecs = intervalInMsecs;
+    }
+    
+    public String getPluginId() {
+        return pluginId;
+    }
+    
+    public int getProcessId() {
+        return processId;
+    }
+    
+    public long getIntervalInMsecs() {
+        return intervalInMsecs;
+    }
+    
+    /**
+     * Gets the number of completed (successful or failed) captures.
+     */
+    public long getCaptureCount() {
+        return captureCount.get();
+    }
+    
+    /**
+     * Gets the number of captures delayed (but still run in their interval) 
+     * since they didn't fit into the pause budget of the target process at their time.
+     */
+    public long getDelayCount() {
+        return delayCount.get();
+    }
+    
+    /**
+     * Gets the number of captures skipped 
+     * since they didn't fit into the pause budget of the target process in their interval.
+     */
+    public long getSkipCount() {
+        return skipCount.get();
+    }
+    
+    /**
+     * Gets the time in nanoseconds the target process has been paused by the last capture.
+     */
+    public long getLastPauseTimeInNanos() {
+        return lastPauseTimeInNanos;
+    }
+    
+    public R getLastResult() {
+        return lastResult;
+    }
+    
+    public Throwable getLastError() {
+        return lastError;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Cancels the further captures. The ongoing capture (if there is) is not interrupted.
+     */
+    public void cancel() {
+        cancelled = true;
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+    
+    void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+        if (cancelled) {
+            future.cancel(false);
+        }
+    }
+    
+    void setLastPauseTimeInNanos(long lastPauseTimeInNanos) {
+        this.lastPauseTimeInNanos = lastPauseTimeInNanos;
+    }
+    
+    void onCaptured(R result, Throwable error) {
+        lastResult = result;
+        lastError = error;
+        captureCount.incrementAndGet();
+    }
+    
+    void onDelayed() {
+        delayCount.incrementAndGet();
+    }
+    
+    void onSkipped() {
+        skipCount.incrementAndGet();
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSAScheduledCapture [" + 
+                "pluginId=" + pluginId + 
+                ", processId=" + processId + 
+                ", intervalInMsecs=" + intervalInMsecs + 
+                ", captureCount=" + captureCount + 
+                ", delayCount=" + delayCount + 
+                ", skipCount=" + skipCount + 
+                ", lastPauseTimeInNanos=" + lastPauseTimeInNanos + 
+                ", cancelled=" + cancelled + "]";
+    }
+    
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import sun.jvm.hotspot.debugger.Address;
+import sun.jvm.hotspot.debugger.OopHandle;
+import sun.jvm.hotspot.oops.Field;
+import sun.jvm.hotspot.oops.InstanceKlass;
+import sun.jvm.hotspot.oops.Klass;
+import sun.jvm.hotspot.oops.Metadata;
+import sun.jvm.hotspot.oops.ObjArrayKlass;
+import sun.jvm.hotspot.oops.Symbol;
+import sun.jvm.hotspot.oops.TypeArrayKlass;
+import sun.jvm.hotspot.runtime.VM;
+import sun.jvm.hotspot.types.Type;
+import tr.com.serkanozal.jemstone.util.ReflectionUtil;
+
+/**
+ * Cache of the resolved klasses of the objects captured by stack tracer.
+ * Klasses are keyed by their addresses which are read directly from the object headers,
+ * so the type name and the field layout of a class are resolved only once per attach
+ * and an object of an already seen class costs only a hash lookup.
+ *
+ * @author Serkan Ozal
+ */
+final class HotSpotSAKlassCache {
+    
+    private final boolean compressedKlassPointersEnabled;
+    private final long klassOffset;
+    private final ConcurrentMap<Long, KlassInfo> klassInfoMap =
+            new ConcurrentHashMap<Long, KlassInfo>();
+    
+    HotSpotSAKlassCache(VM vm) {
+        compressedKlassPointersEnabled = vm.isCompressedKlassPointersEnabled();
+        Type oopType = vm.getTypeDataBase().lookupType("oopDesc");
+        if (compressedKlassPointersEnabled) {
+            klassOffset = oopType.getField("_metadata._compressed_klass").getOffset();
+        } else {
+            klassOffset = oopType.getField("_metadata._klass").getOffset();
+        }
+    }
+    
+    /**
+     * Gets the klass of the given object.
+     *
+     * @param oop the object whose klass is requested
+     * @return the klass of the object or <code>null</code> if its klass pointer is not set
+     */
+    KlassInfo getKlassInfo(OopHandle oop) {
+        Address klassAddress;
+        if (compressedKlassPointersEnabled) {
+            klassAddress = oop.getCompKlassAddressAt(klassOffset);
+        } else {
+            klassAddress = oop.getAddressAt(klassOffset);
+        }
+        if (klassAddress == null) {
+            return null;
+        }
+        Long key = klassAddress.minus(null);
+        KlassInfo klassInfo = klassInfoMap.get(key);
+        if (klassInfo == null) {
+            // Failures (such as for stale references) are not cached, they are thrown to the caller
+            klassInfo = new KlassInfo((Klass) Metadata.instantiateWrapperFor(klassAddress));
+            KlassInfo existingKlassInfo = klassInfoMap.putIfAbsent(key, klassInfo);
+            if (existingKlassInfo != null) {
+                klassInfo = existingKlassInfo;
+            }
+        }
+        return klassInfo;
+    }
+    
+    enum KlassKind {
+        
+        INSTANCE,
+        PRIMITIVE_ARRAY,
+        REFERENCE_ARRAY,
+        OTHER
+        
+    }
+    
+    static final class KlassInfo {
+        
+        private final Klass klass;
+        private final String typeName;
+        private final KlassKind kind;
+        private final char elementTypeCode;
+        private final String elementTypeName;
+        private volatile FieldInfo[] fields;
+        
+        private KlassInfo(Klass klass) {
+            this.klass = klass;
+            String name = klass.getName().asString();
+            if (klass instanceof InstanceKlass) {
+                this.typeName = name.replace('/', '.');
+                this.kind = KlassKind.INSTANCE;
+                this.elementTypeCode = 0;
+                this.elementTypeName = null;
+            } else if (klass instanceof TypeArrayKlass) {
+                this.typeName = ReflectionUtil.normalizeSignature(name);
+                this.kind = KlassKind.PRIMITIVE_ARRAY;
+                this.elementTypeCode = name.charAt(1);
+                this.elementTypeName = ReflectionUtil.normalizeSignature(name.substring(1));
+            } else if (klass instanceof ObjArrayKlass) {
+                this.typeName = ReflectionUtil.normalizeSignature(name);
+                this.kind = KlassKind.REFERENCE_ARRAY;
+                this.elementTypeCode = name.charAt(1);
+                this.elementTypeName = ReflectionUtil.normalizeSignature(name.substring(1));
+            } else {
+                this.typeName = name.replace('/', '.');
+                this.kind = KlassKind.OTHER;
+                this.elementTypeCode = 0;
+                this.elementTypeName = null;
+            }
+        }
+        
+        String getTypeName() {
+            return typeName;
+        }
+        
+        KlassKind getKind() {
+            return kind;
+        }
+        
+        /**
+         * Gets the type code of the elements if this is an array klass.
+         */
+        char getElementTypeCode() {
+            return elementTypeCode;
+        }
+        
+        /**
+         * Gets the type name of the elements if this is an array klass.
+         */
+        String getElementTypeName() {
+            return elementTypeName;
+        }
+        
+        /**
+         * Gets the instance fields (including the inherited ones) if this is an instance klass.
+         * Fields are resolved on first call,
+         * so the klasses of the objects which are never expanded don't pay for it.
+         */
+        FieldInfo[] getFields() {
+            FieldInfo[] fieldInfos = fields;
+            if (fieldInfos == null) {
+                // Resolving more than once on concurrent calls is harmless
+                fieldInfos = resolveFields();
+                fields = fieldInfos;
+            }
+            return fieldInfos;
+        }
+        
+        private FieldInfo[] resolveFields() {
+            if (kind != KlassKind.INSTANCE) {
+                return new FieldInfo[0];
+            }
+            @SuppressWarnings("unchecked")
+            List<Field> allFields = ((InstanceKlass) klass).getAllFields();
+            List<FieldInfo> fieldInfos = new ArrayList<FieldInfo>(allFields.size());
+            for (Field field : allFields) {
+                if (field.isStatic()) {
+                    // Static fields are not in the object but in the mirror of its class
+                    continue;
+                }
+                Symbol signature = field.getSignature();
+                fieldInfos.add(new FieldInfo(field.getID().getName(),
+                                             ReflectionUtil.normalizeSignature(signature.asString()),
+                                             (char) signature.getByteAt(0),
+                                             field.getOffset()));
+            }
+            return fieldInfos.toArray(new FieldInfo[fieldInfos.size()]);
+        }
+        
+    }
+    
+    static final class FieldInfo {
+        
+        private final String name;
+        private final String typeName;
+        private final char typeCode;
+        private final long offset;
+        
+        private FieldInfo(String name, String typeName, char typeCode, long offset) {
+            this.name = name;
+            this.typeName = typeName;
+            this.typeCode = typeCode;
+            this.offset = offset;
+        }
+        
+        String getName() {
+            return name;
+        }
+        
+        String getTypeName() {
+            return typeName;
+        }
+        
+        char getTypeCode() {
+            return typeCode;
+        }
+        
+        long getOffset() {
+            return offset;
+        }
+        
+    }
+
+}
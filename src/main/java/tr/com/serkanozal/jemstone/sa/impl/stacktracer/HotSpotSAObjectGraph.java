@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Limits and state of the expansion of the object graphs referenced by the local variables of a thread: 
+ * maximum depth, maximum number of fields and array elements per object, 
+ * visited objects (so cycles and shared objects are expanded only once) 
+ * and the remaining byte budget of the captured values.
+ *
+ * @author Serkan Ozal
+ */
+final class HotSpotSAObjectGraph {
+    
+    private final int maxDepth;
+    private final int maxFields;
+    private final int maxArrayElements;
+    private final Set<Long> visitedAddresses = new HashSet<Long>();
+    private long remainingBytes;
+    
+    HotSpotSAObjectGraph(HotSpotSAStackTracerParameter param) {
+        if (param != null) {
+            this.maxDepth = param.getMaxObjectDepth();
+            this.maxFields = param.getMaxFields();
+            this.maxArrayElements = param.getMaxArrayElements();
+            this.remainingBytes = param.getMaxBytesPerThread();
+        } else {
+            this.maxDepth = HotSpotSAStackTracerParameter.DEFAULT_MAX_OBJECT_DEPTH;
+            this.maxFields = HotSpotSAStackTracerParameter.UNLIMITED_FIELDS;
+            this.maxArrayElements = HotSpotSAStackTracerParameter.UNLIMITED_ARRAY_ELEMENTS;
+            this.remainingBytes = HotSpotSAStackTracerParameter.UNLIMITED_BYTES;
+        }
+    }
+    
+    boolean isInDepth(int depth) {
+        return maxDepth == HotSpotSAStackTracerParameter.UNLIMITED_OBJECT_DEPTH || depth <= maxDepth;
+    }
+    
+    // Returns "false" if the object has already been visited
+    boolean visit(long address) {
+        return visitedAddresses.add(address);
+    }
+    
+    boolean hasRoomForField(int capturedFieldCount) {
+        return maxFields == HotSpotSAStackTracerParameter.UNLIMITED_FIELDS || capturedFieldCount < maxFields;
+    }
+    
+    int getElementCount(int length) {
+        if (maxArrayElements == HotSpotSAStackTracerParameter.UNLIMITED_ARRAY_ELEMENTS) {
+            return length;
+        }
+        return Math.min(length, maxArrayElements);
+    }
+    
+    // Reserves bytes from the budget for the given number of units
+    // and returns the number of units which fit into the budget
+    int reserve(int count, int unitSize) {
+        if (remainingBytes == HotSpotSAStackTracerParameter.UNLIMITED_BYTES) {
+            return count;
+        }
+        int reservedCount = (int) Math.min(count, remainingBytes / unitSize);
+        remainingBytes -= (long) reservedCount * unitSize;
+        return reservedCount;
+    }
+    
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java frame in a stack trace with its method, position and typed values. 
+ * If the method has local variable table, values are split into parameters and local variables, 
+ * otherwise they are available only as local values by their order.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSAStackFrame implements Serializable {
+
+    public enum FrameType {
+        
+        INTERPRETED,
+        COMPILED,
+        OTHER
+        
+    }
+    
+    public static final int NO_LINE_NUMBER = -1;
+    
+    private final String method;
+    private final int bci;
+    private final int lineNumber;
+    private final long pc;
+    private final long methodAddress;
+    private final FrameType frameType;
+    private final boolean deoptimized;
+    private final boolean imprecise;
+    private List<HotSpotSAStackValue> parameters;
+    private List<HotSpotSAStackValue> localVariables;
+    private List<HotSpotSAStackValue> localValues;
+    private String error;
+    
+    public HotSpotSAStackFrame(String method, int bci, int lineNumber, long pc, long methodAddress, 
+            FrameType frameType, boolean deoptimized, boolean imprecise) {
+        this.method = method;
+        this.bci = bci;
+        this.lineNumber = lineNumber;
+        this.pc = pc;
+        this.methodAddress = methodAddress;
+        this.frameType = frameType;
+        this.deoptimized = deoptimized;
+        this.imprecise = imprecise;
+    }
+    
+    /**
+     * Gets the external name and signature of the method.
+     */
+    public String getMethod() {
+        return method;
+    }
+    
+    public int getBci() {
+        return bci;
+    }
+    
+    /**
+     * Gets the line number. {@link #NO_LINE_NUMBER} if it is not available.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Gets the program counter. <code>0</code> if it is not available.
+     */
+    public long getPc() {
+        return pc;
+    }
+    
+    /**
+     * Gets the address of the <code>Method*</code>. <code>0</code> if it is not available.
+     */
+    public long getMethodAddress() {
+        return methodAddress;
+    }
+    
+    public FrameType getFrameType() {
+        return frameType;
+    }
+    
+    public boolean isDeoptimized() {
+        return deoptimized;
+    }
+    
+    public boolean isImprecise() {
+        return imprecise;
+    }
+    
+    /**
+     * Gets the parameters. <code>null</code> if the method has no local variable table.
+     */
+    public List<HotSpotSAStackValue> getParameters() {
+        return parameters;
+    }
+    
+    /**
+     * Gets the local variables. <code>null</code> if the method has no local variable table 
+     * or no local variable is in scope.
+     */
+    public List<HotSpotSAStackValue> getLocalVariables() {
+        return localVariables;
+    }
+    
+    /**
+     * Gets the local values by their order. <code>null</code> if the method has local variable table.
+     */
+    public List<HotSpotSAStackValue> getLocalValues() {
+        return localValues;
+    }
+    
+    public void setParameters(List<HotSpotSAStackValue> parameters) {
+        this.parameters = parameters;
+    }
+    
+    public void setLocalVariables(List<HotSpotSAStackValue> localVariables) {
+        this.localVariables = localVariables;
+    }
+    
+    public void setLocalValues(List<HotSpotSAStackValue> localValues) {
+        this.localValues = localValues;
+    }
+    
+    /**
+     * Gets the error occurred while reading the values of this frame if there is.
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    List<HotSpotSAStackValue> getOrCreateParameters() {
+        if (parameters == null) {
+            parameters = new ArrayList<HotSpotSAStackValue>();
+        }
+        return parameters;
+    }
+    
+    List<HotSpotSAStackValue> getOrCreateLocalVariables() {
+        if (localVariables == null) {
+            localVariables = new ArrayList<HotSpotSAStackValue>();
+        }
+        return localVariables;
+    }
+    
+    List<HotSpotSAStackValue> getOrCreateLocalValues() {
+        if (localValues == null) {
+            localValues = new ArrayList<HotSpotSAStackValue>();
+        }
+        return localValues;
+    }
+    
+    @Override
+    public String toString() {
+        return method + " @bci=" + bci + (lineNumber != NO_LINE_NUMBER ? ", line=" + lineNumber : "");
+    }
+    
+}
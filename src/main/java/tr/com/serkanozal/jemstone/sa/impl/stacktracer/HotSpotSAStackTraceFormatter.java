@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.util.List;
+
+/**
+ * Formats {@link HotSpotSAThreadStackTrace}s to text at caller side, 
+ * so formatting is not done while the target process is paused.
+ * 
+ * @author Serkan Ozal
+ */
+final class HotSpotSAStackTraceFormatter {
+
+    private static final String VALUE_SEPARATOR = 
+            "==============================================================================";
+    
+    private HotSpotSAStackTraceFormatter() {
+        
+    }
+    
+    static String format(HotSpotSAThreadStackTrace stackTrace) {
+        StringBuilder sb = new StringBuilder();
+        int addressSize = stackTrace.getAddressSize();
+        for (HotSpotSAStackFrame frame : stackTrace.getFrames()) {
+            formatFrame(sb, frame, addressSize);
+        }
+        if (stackTrace.isTruncated()) {
+            sb.append("    |- ...\n");
+        }
+        if (stackTrace.getError() != null) {
+            sb.append(stackTrace.getError()).append("\n");
+        }
+        return sb.toString();
+    }
+    
+    private static void formatFrame(StringBuilder sb, HotSpotSAStackFrame frame, int addressSize) {
+        sb.append("    |- ").append(frame.getMethod()).append(" @bci=").append(frame.getBci());
+        if (frame.getLineNumber() != HotSpotSAStackFrame.NO_LINE_NUMBER) {
+            sb.append(", line=").append(frame.getLineNumber());
+        }
+        if (frame.getPc() != 0) {
+            sb.append(", pc=").append(formatAddress(frame.getPc(), addressSize));
+        }
+        if (frame.getMethodAddress() != 0) {
+            sb.append(", Method*=").append(formatAddress(frame.getMethodAddress(), addressSize));
+        }
+        if (frame.getFrameType() == HotSpotSAStackFrame.FrameType.COMPILED) {
+            sb.append(" (Compiled frame");
+            if (frame.isDeoptimized()) {
+                sb.append(" [deoptimized]");
+            }
+        } else if (frame.getFrameType() == HotSpotSAStackFrame.FrameType.INTERPRETED) {
+            sb.append(" (Interpreted frame");
+        }
+        if (frame.isImprecise()) {
+            sb.append("; information may be imprecise");
+        }
+        sb.append(")\n");
+        
+        if (frame.getParameters() != null) {
+            formatHeader(sb, "parameters", "name");
+            for (HotSpotSAStackValue parameter : frame.getParameters()) {
+                formatVariable(sb, parameter, addressSize);
+            }
+            if (frame.getLocalVariables() != null) {
+                formatHeader(sb, "local variables", "name");
+                for (HotSpotSAStackValue localVariable : frame.getLocalVariables()) {
+                    formatVariable(sb, localVariable, addressSize);
+                }
+            }
+        } else if (frame.getLocalValues() != null) {
+            formatHeader(sb, "local values", "order");
+            for (HotSpotSAStackValue localValue : frame.getLocalValues()) {
+                sb.append("\t    |- ").append(String.format("%-25s ", localValue.getName()));
+                formatLocalValue(sb, localValue, addressSize);
+                sb.append("\n");
+            }
+        }
+        if (frame.getError() != null) {
+            sb.append(frame.getError()).append("\n");
+        }
+    }
+    
+    private static void formatHeader(StringBuilder sb, String title, String nameTitle) {
+        sb.append("\t").append(title).append(":\n");
+        sb.append(String.format("\t       %-25s %-30s %s", nameTitle, "value", "type")).append("\n");
+        sb.append("\t    ").append(VALUE_SEPARATOR).append("\n");
+    }
+    
+    private static void formatVariable(StringBuilder sb, HotSpotSAStackValue variable, int addressSize) {
+        sb.append("\t    |- ").append(String.format("%-25s ", variable.getName()));
+        formatValue(sb, variable, addressSize);
+        sb.append("\n");
+        formatContent(sb, variable, "\t\t", addressSize);
+    }
+    
+    // Fields and elements of the nested objects and arrays are indented one more level
+    private static void formatContent(StringBuilder sb, HotSpotSAStackValue value, String indent, 
+            int addressSize) {
+        if (value.getFields() != null) {
+            formatFields(sb, value, indent, addressSize);
+            sb.append("\n");
+        } else if (value.getElements() != null) {
+            formatElements(sb, value, indent, addressSize);
+            sb.append("\n");
+        }
+    }
+    
+    private static void formatFields(StringBuilder sb, HotSpotSAStackValue object, String indent, 
+            int addressSize) {
+        sb.append(indent).append("fields:\n");
+        sb.append(indent).append(String.format("       %-25s %-30s %s", "name", "value", "type")).append("\n");
+        sb.append(indent).append("    ").append(VALUE_SEPARATOR).append("\n");
+        for (HotSpotSAStackValue field : object.getFields()) {
+            sb.append(indent).append("    |- ").append(String.format("%-25s ", field.getName()));
+            formatValue(sb, field, addressSize);
+            sb.append("\n");
+            formatContent(sb, field, indent + "\t", addressSize);
+        }
+        if (object.isTruncated()) {
+            sb.append(indent).append("    |- ...\n");
+        }
+    }
+    
+    private static void formatElements(StringBuilder sb, HotSpotSAStackValue array, String indent, 
+            int addressSize) {
+        sb.append(indent).append("elements:\n");
+        sb.append(indent).append(VALUE_SEPARATOR).append("\n");
+        List<HotSpotSAStackValue> elements = array.getElements();
+        for (int i = 0; i < elements.size(); i++) {
+            HotSpotSAStackValue element = elements.get(i);
+            sb.append(indent).append("    |- [").append(i).append("]: ");
+            switch (element.getKind()) {
+                case PRIMITIVE:
+                    sb.append(element.getValue());
+                    break;
+                case STRING:
+                    sb.append(element.getValue() != null 
+                                ? formatString(element) 
+                                : formatAddress(element.getAddress(), addressSize));
+                    sb.append(" (").append(element.getType()).append(")");
+                    break;
+                default:
+                    sb.append(formatAddress(element.getAddress(), addressSize));
+                    sb.append(" (").append(element.getType()).append(")");
+                    formatMarks(sb, element);
+                    break;
+            }
+            sb.append("\n");
+            formatContent(sb, element, indent + "\t", addressSize);
+        }
+        if (array.isTruncated()) {
+            sb.append(indent).append("    |- ...\n");
+        }
+    }
+    
+    private static void formatValue(StringBuilder sb, HotSpotSAStackValue value, int addressSize) {
+        switch (value.getKind()) {
+            case PRIMITIVE:
+                sb.append(String.format(primitiveFormat(value.getValue()) + " %s", value.getValue(), value.getType()));
+                break;
+            case STRING:
+                sb.append(String.format("%-30s %s", 
+                          value.getValue() != null 
+                                ? formatString(value) 
+                                : formatAddress(value.getAddress(), addressSize) + " (address)", 
+                          value.getType()));
+                break;
+            case NOT_INITIALIZED:
+                sb.append(String.format("%-30s %s", "<not initialized>", value.getType()));
+                break;
+            default:
+                sb.append(String.format("%-30s %s", 
+                          formatAddress(value.getAddress(), addressSize) + " (address)", value.getType()));
+                formatMarks(sb, value);
+                break;
+        }
+    }
+    
+    private static String formatString(HotSpotSAStackValue value) {
+        if (value.isTruncated()) {
+            return value.getValue() + "...";
+        } else {
+            return (String) value.getValue();
+        }
+    }
+    
+    private static void formatMarks(StringBuilder sb, HotSpotSAStackValue value) {
+        if (value.isVisited()) {
+            // Its fields or elements have already been printed above
+            sb.append(" [visited]");
+        }
+    }
+    
+    private static void formatLocalValue(StringBuilder sb, HotSpotSAStackValue localValue, int addressSize) {
+        switch (localValue.getKind()) {
+            case PRIMITIVE:
+                long value = ((Number) localValue.getValue()).longValue();
+                sb.append(String.format("%-30s %s", 
+                          value + " (" + "0x" + Long.toHexString(value) + ")", "<primitive>"));
+                break;
+            case OBJECT:
+                sb.append(String.format("%-30s %s", 
+                          formatAddress(localValue.getAddress(), addressSize) + " (address)", "<object>"));
+                break;
+            case CONFLICT:
+                sb.append(String.format("%-30s %s", "<unknown>", "<conflict>"));
+                break;
+            default:
+                sb.append(String.format("%-30s %s", "<unknown>", "<unknown>"));
+                break;
+        }
+    }
+    
+    private static String primitiveFormat(Object value) {
+        if (value instanceof Character) {
+            return "%-30c";
+        } else if (value instanceof Float || value instanceof Double) {
+            return "%-30f";
+        } else if (value instanceof Boolean) {
+            return "%-30s";
+        } else {
+            return "%-30d";
+        }
+    }
+    
+    static String formatAddress(long address, int addressSize) {
+        if (address == 0) {
+            return "null";
+        }
+        String hex = addressSize == 4 ? Integer.toHexString((int) address) : Long.toHexString(address);
+        StringBuilder sb = new StringBuilder("0x");
+        for (int i = hex.length(); i < 2 * addressSize; i++) {
+            sb.append('0');
+        }
+        return sb.append(hex).toString();
+    }
+    
+}
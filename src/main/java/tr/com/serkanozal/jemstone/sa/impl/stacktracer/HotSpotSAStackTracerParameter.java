@@ -17,6 +17,7 @@
 package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
@@ -24,7 +25,71 @@ import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
 @SuppressWarnings("serial")
 public class HotSpotSAStackTracerParameter implements HotSpotServiceabilityAgentParameter {
 
+    /**
+     * Level of the details captured for each stack frame.
+     */
+    public enum CaptureLevel {
+        
+        /**
+         * Only the frames (method, bci, line, pc and frame type) are captured.
+         */
+        FRAMES,
+        
+        /**
+         * Frames and values of their parameters are captured. 
+         * Objects, arrays and strings are not dereferenced, only their addresses are captured.
+         */
+        PARAMETERS,
+        
+        /**
+         * Frames, parameters and local variables are captured 
+         * with fields of objects, elements of arrays and contents of strings.
+         */
+        FULL
+        
+    }
+    
+    /**
+     * Represents that there is no limit on the captured frames per thread.
+     */
+    public static final int UNLIMITED_FRAMES = -1;
+    
+    /**
+     * Default depth of the object graphs expanded from the local variables. 
+     * Only the fields and elements of the local variables themselves are captured.
+     */
+    public static final int DEFAULT_MAX_OBJECT_DEPTH = 1;
+    
+    /**
+     * Represents that there is no limit on the depth of the expanded object graphs.
+     */
+    public static final int UNLIMITED_OBJECT_DEPTH = -1;
+    
+    /**
+     * Represents that there is no limit on the captured fields per object.
+     */
+    public static final int UNLIMITED_FIELDS = -1;
+    
+    /**
+     * Represents that there is no limit on the captured elements per array.
+     */
+    public static final int UNLIMITED_ARRAY_ELEMENTS = -1;
+    
+    /**
+     * Represents that there is no limit on the bytes read from the objects of a thread.
+     */
+    public static final long UNLIMITED_BYTES = -1;
+    
     private final Set<String> threadNames;
+    private HotSpotSAThreadSelector threadSelector;
+    private CaptureLevel captureLevel = CaptureLevel.FULL;
+    private int maxFrames = UNLIMITED_FRAMES;
+    private int maxObjectDepth = DEFAULT_MAX_OBJECT_DEPTH;
+    private int maxFields = UNLIMITED_FIELDS;
+    private int maxArrayElements = UNLIMITED_ARRAY_ELEMENTS;
+    private long maxBytesPerThread = UNLIMITED_BYTES;
+    private final Set<String> includedPackages = new LinkedHashSet<String>();
+    private final Set<String> excludedPackages = new LinkedHashSet<String>();
 
     public HotSpotSAStackTracerParameter() {
         // No "threadNames" means all threads
@@ -50,10 +115,195 @@ public class HotSpotSAStackTracerParameter implements HotSpotServiceabilityAgent
         return threadNames;
     }
     
+    public HotSpotSAThreadSelector getThreadSelector() {
+        return threadSelector;
+    }
+    
+    /**
+     * Sets the selector to select the threads by their names, states, ids and stack depths 
+     * in addition to the thread names. If thread names are also specified, 
+     * a thread is selected by name if it has one of the thread names or its name matches the selector.
+     * 
+     * @param threadSelector the selector of the threads whose stack traces are captured
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setThreadSelector(HotSpotSAThreadSelector threadSelector) {
+        this.threadSelector = threadSelector;
+        return this;
+    }
+    
+    public CaptureLevel getCaptureLevel() {
+        return captureLevel;
+    }
+    
+    /**
+     * Sets the level of the details captured for each stack frame. 
+     * Default is {@link CaptureLevel#FULL}.
+     * 
+     * @param captureLevel the level of the details captured for each stack frame
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setCaptureLevel(CaptureLevel captureLevel) {
+        if (captureLevel == null) {
+            throw new IllegalArgumentException("Capture level cannot be null!");
+        }
+        this.captureLevel = captureLevel;
+        return this;
+    }
+    
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+    
+    /**
+     * Sets the maximum number of frames captured per thread. 
+     * Stack walking of a thread stops when this limit is reached. 
+     * Default is {@link #UNLIMITED_FRAMES}.
+     * 
+     * @param maxFrames the maximum number of frames captured per thread 
+     *                  or {@link #UNLIMITED_FRAMES} for no limit
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setMaxFrames(int maxFrames) {
+        if (maxFrames < 0 && maxFrames != UNLIMITED_FRAMES) {
+            throw new IllegalArgumentException("Max frames cannot be negative: " + maxFrames);
+        }
+        this.maxFrames = maxFrames;
+        return this;
+    }
+    
+    public int getMaxObjectDepth() {
+        return maxObjectDepth;
+    }
+    
+    /**
+     * Sets the depth of the object graphs expanded from the local variables 
+     * on {@link CaptureLevel#FULL} capture level. 
+     * Local variables are at depth <code>0</code>, so for example, 
+     * <code>2</code> means that the fields of the local variables and the fields of them are captured. 
+     * Objects and arrays beyond this depth are captured only by their addresses. 
+     * Default is {@link #DEFAULT_MAX_OBJECT_DEPTH}.
+     * 
+     * @param maxObjectDepth the depth of the object graphs expanded from the local variables 
+     *                       or {@link #UNLIMITED_OBJECT_DEPTH} for no limit
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setMaxObjectDepth(int maxObjectDepth) {
+        if (maxObjectDepth < 0 && maxObjectDepth != UNLIMITED_OBJECT_DEPTH) {
+            throw new IllegalArgumentException("Max object depth cannot be negative: " + maxObjectDepth);
+        }
+        this.maxObjectDepth = maxObjectDepth;
+        return this;
+    }
+    
+    public int getMaxFields() {
+        return maxFields;
+    }
+    
+    /**
+     * Sets the maximum number of fields captured per object. 
+     * Default is {@link #UNLIMITED_FIELDS}.
+     * 
+     * @param maxFields the maximum number of fields captured per object 
+     *                  or {@link #UNLIMITED_FIELDS} for no limit
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setMaxFields(int maxFields) {
+        if (maxFields < 0 && maxFields != UNLIMITED_FIELDS) {
+            throw new IllegalArgumentException("Max fields cannot be negative: " + maxFields);
+        }
+        this.maxFields = maxFields;
+        return this;
+    }
+    
+    public int getMaxArrayElements() {
+        return maxArrayElements;
+    }
+    
+    /**
+     * Sets the maximum number of elements captured per array. 
+     * Default is {@link #UNLIMITED_ARRAY_ELEMENTS}.
+     * 
+     * @param maxArrayElements the maximum number of elements captured per array 
+     *                         or {@link #UNLIMITED_ARRAY_ELEMENTS} for no limit
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setMaxArrayElements(int maxArrayElements) {
+        if (maxArrayElements < 0 && maxArrayElements != UNLIMITED_ARRAY_ELEMENTS) {
+            throw new IllegalArgumentException("Max array elements cannot be negative: " + maxArrayElements);
+        }
+        this.maxArrayElements = maxArrayElements;
+        return this;
+    }
+    
+    public long getMaxBytesPerThread() {
+        return maxBytesPerThread;
+    }
+    
+    /**
+     * Sets the budget of the bytes read from the objects, arrays and strings 
+     * referenced by the local variables of a thread. 
+     * When the budget is exhausted, the remaining fields, elements and characters are not captured. 
+     * Default is {@link #UNLIMITED_BYTES}.
+     * 
+     * @param maxBytesPerThread the maximum number of bytes read from the objects per thread 
+     *                          or {@link #UNLIMITED_BYTES} for no limit
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter setMaxBytesPerThread(long maxBytesPerThread) {
+        if (maxBytesPerThread < 0 && maxBytesPerThread != UNLIMITED_BYTES) {
+            throw new IllegalArgumentException("Max bytes per thread cannot be negative: " + maxBytesPerThread);
+        }
+        this.maxBytesPerThread = maxBytesPerThread;
+        return this;
+    }
+    
+    public Set<String> getIncludedPackages() {
+        return includedPackages;
+    }
+    
+    /**
+     * Adds a package (or class name prefix) whose frames are captured. 
+     * If there is any included package, only the frames of methods 
+     * declared in the included packages are captured.
+     * 
+     * @param packageName name of the package to be included
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter addIncludedPackage(String packageName) {
+        includedPackages.add(packageName);
+        return this;
+    }
+    
+    public Set<String> getExcludedPackages() {
+        return excludedPackages;
+    }
+    
+    /**
+     * Adds a package (or class name prefix) whose frames are not captured. 
+     * Exclusions are applied after inclusions.
+     * 
+     * @param packageName name of the package to be excluded
+     * @return this parameter
+     */
+    public HotSpotSAStackTracerParameter addExcludedPackage(String packageName) {
+        excludedPackages.add(packageName);
+        return this;
+    }
+    
     @Override
     public String toString() {
         return "HotSpotSAStackTracerParameter [" +
-                "threadNames=" + threadNames + "]";
+                "threadNames=" + threadNames + 
+                ", threadSelector=" + threadSelector + 
+                ", captureLevel=" + captureLevel + 
+                ", maxFrames=" + maxFrames + 
+                ", maxObjectDepth=" + maxObjectDepth + 
+                ", maxFields=" + maxFields + 
+                ", maxArrayElements=" + maxArrayElements + 
+                ", maxBytesPerThread=" + maxBytesPerThread + 
+                ", includedPackages=" + includedPackages + 
+                ", excludedPackages=" + excludedPackages + "]";
     }
 
 }
@@ -39,11 +39,22 @@ public class HotSpotSAStackTracerPlugin
             };
     private static final String USAGE = 
             Jemstone.class.getName() + " " + 
-                "(-i " + "\"" + PLUGIN_ID + "\"" + " <process_id> [thread_name]*)" + 
+                "(-i " + "\"" + PLUGIN_ID + "\"" + " <process_id> [thread_name | thread_selector]*)" + 
                 " | " + 
-                "(-p " + HotSpotSAStackTracerPlugin.class.getName() + " <process_id> [thread_name]*)" + 
+                "(-p " + HotSpotSAStackTracerPlugin.class.getName() + " <process_id> [thread_name | thread_selector]*)" + 
            "\n" +
-           "\t- empty thread_name(s) means that use all threads";
+           "\t- empty thread_name(s) and thread_selector(s) means that use all threads" + 
+           "\n" +
+           "\t- thread_selector is one of " + 
+                "prefix=<thread_name_prefix>, regex=<thread_name_regex>, state=<thread_state>, " + 
+                "id=<java_thread_id>, tid=<native_thread_id>, top=<top_threads_by_stack_depth>";
+    
+    private static final String PREFIX_SELECTOR = "prefix=";
+    private static final String REGEX_SELECTOR = "regex=";
+    private static final String STATE_SELECTOR = "state=";
+    private static final String ID_SELECTOR = "id=";
+    private static final String TID_SELECTOR = "tid=";
+    private static final String TOP_SELECTOR = "top=";
     
     private int processId = HotSpotServiceabilityAgentConfig.CONFIG_NOT_SET;
     
@@ -75,13 +86,54 @@ public class HotSpotSAStackTracerPlugin
         }
         processId = Integer.parseInt(args[0]);
         Set<String> threadNames = null;
-        if (args.length > 1) {
-            threadNames = new HashSet<String>();
-            for (int i = 1; i < args.length; i++) {
-                threadNames.add(args[i]);
+        HotSpotSAThreadSelector threadSelector = null;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (isSelector(arg)) {
+                if (threadSelector == null) {
+                    threadSelector = new HotSpotSAThreadSelector();
+                }
+                addSelector(threadSelector, arg);
+            } else {
+                if (threadNames == null) {
+                    threadNames = new HashSet<String>();
+                }
+                threadNames.add(arg);
             }
         }
-        return new HotSpotSAStackTracerParameter(threadNames);
+        return new HotSpotSAStackTracerParameter(threadNames).setThreadSelector(threadSelector);
+    }
+    
+    private static boolean isSelector(String arg) {
+        return arg.startsWith(PREFIX_SELECTOR) 
+                || arg.startsWith(REGEX_SELECTOR) 
+                || arg.startsWith(STATE_SELECTOR) 
+                || arg.startsWith(ID_SELECTOR) 
+                || arg.startsWith(TID_SELECTOR) 
+                || arg.startsWith(TOP_SELECTOR);
+    }
+    
+    private static void addSelector(HotSpotSAThreadSelector threadSelector, String arg) {
+        try {
+            if (arg.startsWith(PREFIX_SELECTOR)) {
+                threadSelector.addThreadNamePrefix(arg.substring(PREFIX_SELECTOR.length()));
+            } else if (arg.startsWith(REGEX_SELECTOR)) {
+                threadSelector.setThreadNamePattern(arg.substring(REGEX_SELECTOR.length()));
+            } else if (arg.startsWith(STATE_SELECTOR)) {
+                threadSelector.addThreadState(
+                        Thread.State.valueOf(arg.substring(STATE_SELECTOR.length()).toUpperCase()));
+            } else if (arg.startsWith(ID_SELECTOR)) {
+                threadSelector.addThreadId(Long.parseLong(arg.substring(ID_SELECTOR.length())));
+            } else if (arg.startsWith(TID_SELECTOR)) {
+                threadSelector.addNativeThreadId(Long.parseLong(arg.substring(TID_SELECTOR.length())));
+            } else if (arg.startsWith(TOP_SELECTOR)) {
+                threadSelector.setTopThreadsByStackDepth(Integer.parseInt(arg.substring(TOP_SELECTOR.length())));
+            }
+        } catch (IllegalArgumentException e) {
+            // "NumberFormatException" and "PatternSyntaxException" are also "IllegalArgumentException"
+            throw new HotSpotSAPluginInvalidArgumentException(
+                    PLUGIN_ID, "Invalid thread selector: " + arg + " (" + e.getMessage() + ")");
+        }
     }
 
     @Override
@@ -16,46 +16,182 @@
 
 package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
-import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPartialResult;
 
 @SuppressWarnings("serial")
-public class HotSpotSAStackTracerResult implements HotSpotServiceabilityAgentResult {
+public class HotSpotSAStackTracerResult implements HotSpotServiceabilityAgentPartialResult {
 
-    private final Map<String, String> stackTraces = new HashMap<String, String>();
+    private final Map<String, HotSpotSAThreadStackTrace> threadStackTraces = 
+            new LinkedHashMap<String, HotSpotSAThreadStackTrace>();
+    // Created on demand, since it is just a view
+    private transient Map<String, String> stackTraces;
+    private boolean incomplete;
 
     public HotSpotSAStackTracerResult() {
 
     }
 
+    /**
+     * Gets the structured stack traces of threads by their names.
+     * 
+     * @return the structured stack traces of threads
+     */
+    public Map<String, HotSpotSAThreadStackTrace> getThreadStackTraces() {
+        return threadStackTraces;
+    }
+    
+    /**
+     * Gets the structured stack trace of the thread with the given name.
+     * 
+     * @param threadName name of the thread
+     * @return the structured stack trace of the thread, 
+     *         <code>null</code> if there is no such thread
+     */
+    public HotSpotSAThreadStackTrace getThreadStackTrace(String threadName) {
+        return threadStackTraces.get(threadName);
+    }
+    
+    /**
+     * Gets the stack traces of threads by their names as formatted text. 
+     * Returned map is a live view of the stack traces of this result 
+     * and each stack trace is formatted at caller side whenever it is accessed. 
+     * Formatted stack traces put into it are added to this result as they are.
+     * 
+     * @return the formatted stack traces of threads
+     */
     public Map<String, String> getStackTraces() {
+        if (stackTraces == null) {
+            stackTraces = new FormattedStackTraces();
+        }
         return stackTraces;
     }
     
+    /**
+     * Gets the stack trace of the thread with the given name as formatted text.
+     * 
+     * @param threadName name of the thread
+     * @return the formatted stack trace of the thread, 
+     *         <code>null</code> if there is no such thread
+     */
     public String getStackTrace(String threadName) {
-        return stackTraces.get(threadName);
+        HotSpotSAThreadStackTrace threadStackTrace = threadStackTraces.get(threadName);
+        return threadStackTrace != null ? threadStackTrace.format() : null;
+    }
+    
+    public void addStackTrace(HotSpotSAThreadStackTrace threadStackTrace) {
+        threadStackTraces.put(threadStackTrace.getThreadName(), threadStackTrace);
     }
     
+    /**
+     * Adds the given formatted stack trace of the thread with the given name.
+     * 
+     * @param threadName name of the thread
+     * @param stackTrace formatted stack trace of the thread
+     * @deprecated use {@link #addStackTrace(HotSpotSAThreadStackTrace)} with the structured stack trace
+     */
+    @Deprecated
     public void addStackTrace(String threadName, String stackTrace) {
-        stackTraces.put(threadName, stackTrace);
+        addStackTrace(new HotSpotSAThreadStackTrace(threadName, stackTrace));
+    }
+    
+    @Override
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+    @Override
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
     }
      
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("HotSpotSAStackTracerResult [stackTraces=");
-        for (Map.Entry<String, String> entry : stackTraces.entrySet()) {
+        sb.append("HotSpotSAStackTracerResult [");
+        if (incomplete) {
+            sb.append("incomplete=true, ");
+        }
+        sb.append("stackTraces=");
+        for (Map.Entry<String, HotSpotSAThreadStackTrace> entry : threadStackTraces.entrySet()) {
             sb
                 .append("\n")
                 .append("- Thread Name: ")
                 .append(entry.getKey())
                 .append("\n")
-                .append(entry.getValue());
+                .append(entry.getValue().format());
         }
         sb.append("]");
         return sb.toString();
     }
 
+    // Live view of the structured stack traces as formatted text
+    private class FormattedStackTraces extends AbstractMap<String, String> {
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<Map.Entry<String, String>>() {
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    final Iterator<Map.Entry<String, HotSpotSAThreadStackTrace>> iter = 
+                            threadStackTraces.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, String>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iter.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, String> next() {
+                            Map.Entry<String, HotSpotSAThreadStackTrace> entry = iter.next();
+                            return new AbstractMap.SimpleImmutableEntry<String, String>(
+                                            entry.getKey(), entry.getValue().format());
+                        }
+
+                        @Override
+                        public void remove() {
+                            iter.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return threadStackTraces.size();
+                }
+            };
+        }
+        
+        @Override
+        public boolean containsKey(Object threadName) {
+            return threadStackTraces.containsKey(threadName);
+        }
+        
+        @Override
+        public String get(Object threadName) {
+            HotSpotSAThreadStackTrace threadStackTrace = threadStackTraces.get(threadName);
+            return threadStackTrace != null ? threadStackTrace.format() : null;
+        }
+        
+        @Override
+        public String put(String threadName, String stackTrace) {
+            HotSpotSAThreadStackTrace old = 
+                    threadStackTraces.put(threadName, new HotSpotSAThreadStackTrace(threadName, stackTrace));
+            return old != null ? old.format() : null;
+        }
+        
+        @Override
+        public String remove(Object threadName) {
+            HotSpotSAThreadStackTrace old = threadStackTraces.remove(threadName);
+            return old != null ? old.format() : null;
+        }
+        
+    }
+
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+
+public class HotSpotSAStackTracerResultCodec 
+        implements HotSpotServiceabilityAgentCodec<HotSpotSAStackTracerResult> {
+
+    private static final int NULL_LIST = -1;
+    
+    private static final HotSpotSAStackFrame.FrameType[] FRAME_TYPES = 
+            HotSpotSAStackFrame.FrameType.values();
+    private static final HotSpotSAStackValue.Kind[] VALUE_KINDS = 
+            HotSpotSAStackValue.Kind.values();
+    
+    @Override
+    public Class<HotSpotSAStackTracerResult> getType() {
+        return HotSpotSAStackTracerResult.class;
+    }
+
+    @Override
+    public void encode(HotSpotSAStackTracerResult result, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeInt(result.getThreadStackTraces().size());
+        for (HotSpotSAThreadStackTrace threadStackTrace : result.getThreadStackTraces().values()) {
+            encoder.writeString(threadStackTrace.getThreadName());
+            encoder.writeByte(threadStackTrace.getAddressSize());
+            encoder.writeString(threadStackTrace.getThreadState());
+            encoder.writeLong(threadStackTrace.getThreadId());
+            encoder.writeLong(threadStackTrace.getNativeThreadId());
+            List<HotSpotSAStackFrame> frames = threadStackTrace.getFrames();
+            encoder.writeInt(frames.size());
+            for (HotSpotSAStackFrame frame : frames) {
+                encodeFrame(frame, encoder);
+            }
+            encoder.writeBoolean(threadStackTrace.isTruncated());
+            encoder.writeString(threadStackTrace.getError());
+            encoder.writeString(threadStackTrace.getText());
+        }
+        // Result might be an item of a batch which has been cancelled while running this item
+        encoder.writeBoolean(result.isIncomplete());
+    }
+    
+    private void encodeFrame(HotSpotSAStackFrame frame, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        // Method names, types and variable names are repeated a lot between threads, 
+        // so they are written only once by the encoder
+        encoder.writeString(frame.getMethod());
+        encoder.writeInt(frame.getBci());
+        encoder.writeInt(frame.getLineNumber());
+        encoder.writeLong(frame.getPc());
+        encoder.writeLong(frame.getMethodAddress());
+        encoder.writeByte(frame.getFrameType().ordinal());
+        encoder.writeBoolean(frame.isDeoptimized());
+        encoder.writeBoolean(frame.isImprecise());
+        encodeValues(frame.getParameters(), encoder);
+        encodeValues(frame.getLocalVariables(), encoder);
+        encodeValues(frame.getLocalValues(), encoder);
+        encoder.writeString(frame.getError());
+    }
+    
+    private void encodeValues(List<HotSpotSAStackValue> values, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        if (values == null) {
+            encoder.writeInt(NULL_LIST);
+            return;
+        }
+        encoder.writeInt(values.size());
+        for (HotSpotSAStackValue value : values) {
+            encodeValue(value, encoder);
+        }
+    }
+    
+    private void encodeValue(HotSpotSAStackValue value, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        encoder.writeByte(value.getKind().ordinal());
+        encoder.writeString(value.getName());
+        encoder.writeString(value.getType());
+        switch (value.getKind()) {
+            case PRIMITIVE:
+                encodePrimitive(value.getValue(), encoder);
+                break;
+            case STRING:
+                encoder.writeString((String) value.getValue());
+                break;
+            default:
+                break;
+        }
+        encoder.writeLong(value.getAddress());
+        encoder.writeBoolean(value.isVisited());
+        encoder.writeBoolean(value.isTruncated());
+        encodeValues(value.getFields(), encoder);
+        encodeValues(value.getElements(), encoder);
+    }
+    
+    private void encodePrimitive(Object value, 
+            HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+        if (value instanceof Boolean) {
+            encoder.writeByte('Z');
+            encoder.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            encoder.writeByte('C');
+            encoder.writeChar((Character) value);
+        } else if (value instanceof Byte) {
+            encoder.writeByte('B');
+            encoder.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            encoder.writeByte('S');
+            encoder.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            encoder.writeByte('I');
+            encoder.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            encoder.writeByte('J');
+            encoder.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            encoder.writeByte('F');
+            encoder.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            encoder.writeByte('D');
+            encoder.writeDouble((Double) value);
+        } else {
+            throw new IOException("Unsupported primitive value: " + value);
+        }
+    }
+
+    @Override
+    public HotSpotSAStackTracerResult decode(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        int size = decoder.readInt();
+        for (int i = 0; i < size; i++) {
+            String threadName = decoder.readString();
+            int addressSize = decoder.readByte();
+            String threadState = decoder.readString();
+            long threadId = decoder.readLong();
+            long nativeThreadId = decoder.readLong();
+            int frameCount = decoder.readInt();
+            List<HotSpotSAStackFrame> frames = new ArrayList<HotSpotSAStackFrame>(frameCount);
+            for (int j = 0; j < frameCount; j++) {
+                frames.add(decodeFrame(decoder));
+            }
+            boolean truncated = decoder.readBoolean();
+            String error = decoder.readString();
+            String text = decoder.readString();
+            HotSpotSAThreadStackTrace threadStackTrace = 
+                    text != null
+                        ? new HotSpotSAThreadStackTrace(threadName, text)
+                        : new HotSpotSAThreadStackTrace(threadName, addressSize, frames);
+            threadStackTrace.setThreadState(threadState);
+            threadStackTrace.setThreadId(threadId);
+            threadStackTrace.setNativeThreadId(nativeThreadId);
+            threadStackTrace.setTruncated(truncated);
+            threadStackTrace.setError(error);
+            result.addStackTrace(threadStackTrace);
+        }
+        result.setIncomplete(decoder.readBoolean());
+        return result;
+    }
+    
+    private HotSpotSAStackFrame decodeFrame(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        String method = decoder.readString();
+        int bci = decoder.readInt();
+        int lineNumber = decoder.readInt();
+        long pc = decoder.readLong();
+        long methodAddress = decoder.readLong();
+        HotSpotSAStackFrame.FrameType frameType = FRAME_TYPES[decoder.readByte()];
+        boolean deoptimized = decoder.readBoolean();
+        boolean imprecise = decoder.readBoolean();
+        HotSpotSAStackFrame frame = 
+                new HotSpotSAStackFrame(method, bci, lineNumber, pc, methodAddress, 
+                                        frameType, deoptimized, imprecise);
+        frame.setParameters(decodeValues(decoder));
+        frame.setLocalVariables(decodeValues(decoder));
+        frame.setLocalValues(decodeValues(decoder));
+        frame.setError(decoder.readString());
+        return frame;
+    }
+    
+    private List<HotSpotSAStackValue> decodeValues(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        int size = decoder.readInt();
+        if (size == NULL_LIST) {
+            return null;
+        }
+        List<HotSpotSAStackValue> values = new ArrayList<HotSpotSAStackValue>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(decodeValue(decoder));
+        }
+        return values;
+    }
+    
+    private HotSpotSAStackValue decodeValue(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        HotSpotSAStackValue.Kind kind = VALUE_KINDS[decoder.readByte()];
+        String name = decoder.readString();
+        String type = decoder.readString();
+        Object value = null;
+        switch (kind) {
+            case PRIMITIVE:
+                value = decodePrimitive(decoder);
+                break;
+            case STRING:
+                value = decoder.readString();
+                break;
+            default:
+                break;
+        }
+        long address = decoder.readLong();
+        HotSpotSAStackValue stackValue = new HotSpotSAStackValue(kind, name, type, value, address);
+        stackValue.setVisited(decoder.readBoolean());
+        stackValue.setTruncated(decoder.readBoolean());
+        stackValue.setFields(decodeValues(decoder));
+        stackValue.setElements(decodeValues(decoder));
+        return stackValue;
+    }
+    
+    private Object decodePrimitive(HotSpotServiceabilityAgentDecoder decoder) 
+            throws IOException {
+        byte tag = decoder.readByte();
+        switch (tag) {
+            case 'Z':
+                return decoder.readBoolean();
+            case 'C':
+                return decoder.readChar();
+            case 'B':
+                return decoder.readByte();
+            case 'S':
+                return decoder.readShort();
+            case 'I':
+                return decoder.readInt();
+            case 'J':
+                return decoder.readLong();
+            case 'F':
+                return decoder.readFloat();
+            case 'D':
+                return decoder.readDouble();
+            default:
+                throw new IOException("Unknown primitive tag: " + (char) tag);
+        }
+    }
+
+}
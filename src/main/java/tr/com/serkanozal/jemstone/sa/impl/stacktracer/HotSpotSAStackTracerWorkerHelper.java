@@ -16,40 +16,43 @@
 
 package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 
 import sun.jvm.hotspot.debugger.Address;
 import sun.jvm.hotspot.debugger.AddressException;
 import sun.jvm.hotspot.debugger.OopHandle;
-import sun.jvm.hotspot.debugger.UnalignedAddressException;
-import sun.jvm.hotspot.debugger.UnmappedAddressException;
 import sun.jvm.hotspot.memory.SystemDictionary;
 import sun.jvm.hotspot.oops.ConstantPool;
 import sun.jvm.hotspot.oops.Field;
 import sun.jvm.hotspot.oops.InstanceKlass;
 import sun.jvm.hotspot.oops.LocalVariableTableElement;
 import sun.jvm.hotspot.oops.Method;
+import sun.jvm.hotspot.oops.Oop;
+import sun.jvm.hotspot.oops.OopUtilities;
 import sun.jvm.hotspot.oops.Symbol;
 import sun.jvm.hotspot.oops.TypeArray;
 import sun.jvm.hotspot.runtime.BasicType;
+import sun.jvm.hotspot.runtime.Frame;
 import sun.jvm.hotspot.runtime.JavaThread;
 import sun.jvm.hotspot.runtime.JavaVFrame;
+import sun.jvm.hotspot.runtime.OSThread;
 import sun.jvm.hotspot.runtime.StackValue;
 import sun.jvm.hotspot.runtime.StackValueCollection;
 import sun.jvm.hotspot.runtime.Threads;
 import sun.jvm.hotspot.runtime.VM;
 import sun.jvm.hotspot.types.Type;
-import sun.jvm.hotspot.utilities.SystemDictionaryHelper;
 import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
 import tr.com.serkanozal.jemstone.util.ReflectionUtil;
 
 class HotSpotSAStackTracerWorkerHelper {
     
     private static final String JEMSTONE_HOTSPOT_SA_PACKAGE_PREFIX = "tr.com.serkanozal.jemstone.sa";
+    private static final String JEMSTONE_HOTSPOT_SA_INTERNAL_PACKAGE_PREFIX = 
+            JEMSTONE_HOTSPOT_SA_PACKAGE_PREFIX.replace('.', '/');
     
     // Java type codes
     private static final int JVM_SIGNATURE_BOOLEAN = 'Z';
@@ -63,8 +66,15 @@ class HotSpotSAStackTracerWorkerHelper {
     private static final int JVM_SIGNATURE_ARRAY   = '[';
     private static final int JVM_SIGNATURE_CLASS   = 'L';
     
+    // JVMTI thread state bits
+    private static final int JVMTI_THREAD_STATE_ALIVE                    = 0x0001;
+    private static final int JVMTI_THREAD_STATE_TERMINATED               = 0x0002;
+    private static final int JVMTI_THREAD_STATE_RUNNABLE                 = 0x0004;
+    private static final int JVMTI_THREAD_STATE_WAITING_INDEFINITELY     = 0x0010;
+    private static final int JVMTI_THREAD_STATE_WAITING_WITH_TIMEOUT     = 0x0020;
+    private static final int JVMTI_THREAD_STATE_BLOCKED_ON_MONITOR_ENTER = 0x0400;
+    
     private static java.lang.reflect.Method getAddressMethod;
-    private static java.lang.reflect.Constructor<?> instanceKlassConstructor;
 
     private static long byteArrayBaseOffset;
     private static long booleanArrayBaseOffset;
@@ -90,12 +100,21 @@ class HotSpotSAStackTracerWorkerHelper {
     private static Field stringValueArrayField;
     private static int arrayLengthOffset;
     private static boolean compressedOopsEnabled;
+    private static HotSpotSAKlassCache klassCache;
     
-    static {
-        init();
-    }
+    // The VM instance which the offsets, sizes and the klass cache above belong to. 
+    // Same HotSpot agent process might attach to different processes one after another, 
+    // so they are re-initialized when the attached VM changes.
+    private static VM initializedVM;
 
-    private static void init() {
+    private static synchronized void ensureInitialized(VM vm) {
+        if (initializedVM != vm) {
+            init(vm);
+            initializedVM = vm;
+        }
+    }
+    
+    private static void init(VM vm) {
         try {
             getAddressMethod = Method.class.getDeclaredMethod("getAddress");
         } catch (NoSuchMethodException e) {
@@ -104,16 +123,6 @@ class HotSpotSAStackTracerWorkerHelper {
             
         }
         
-        try {
-            instanceKlassConstructor = InstanceKlass.class.getConstructor(Address.class);
-        } catch (NoSuchMethodException e) {
-
-        } catch (SecurityException e) {
-
-        }
-        
-        VM vm = VM.getVM(); 
-        
         byteArrayBaseOffset = TypeArray.baseOffsetInBytes(BasicType.T_BYTE);
         booleanArrayBaseOffset = TypeArray.baseOffsetInBytes(BasicType.T_BOOLEAN);
         charArrayBaseOffset = TypeArray.baseOffsetInBytes(BasicType.T_CHAR);
@@ -151,490 +160,673 @@ class HotSpotSAStackTracerWorkerHelper {
         } else {
             arrayLengthOffset = typeSize;
         }
+        
+        klassCache = new HotSpotSAKlassCache(vm);
     }
     
     static HotSpotSAStackTracerResult run(HotSpotServiceabilityAgentContext context,
                                           HotSpotSAStackTracerParameter param) {
+        ensureInitialized(context.getVM());
+        
         HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
         Set<String> threadNames = param != null ? param.getThreadNames() : null;
-        Threads threads = context.getVM().getThreads();
-        for (JavaThread cur = threads.first(); cur != null; cur = cur.next()) {
-            if (cur.isJavaThread() && 
-                    (threadNames == null || threadNames.isEmpty() || threadNames.contains(cur.getThreadName()))) {
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
-                PrintStream tty = new PrintStream(os);
-                try {
-                    for (JavaVFrame vf = cur.getLastJavaVFrameDbg(); vf != null; vf = vf.javaSender()) {
-                        try {
-                            Method method = vf.getMethod();
-                            String methodNameAndSignature = method.externalNameAndSignature();
-                            if (methodNameAndSignature.startsWith(JEMSTONE_HOTSPOT_SA_PACKAGE_PREFIX)) {
-                                os = null;
-                                tty = null;
-                                continue;
-                            }
-                            if (os == null) {
-                                os = new ByteArrayOutputStream();
-                                tty = new PrintStream(os);
-                            }
-                            tty.print("    |- " + methodNameAndSignature + " @bci=" + vf.getBCI());
-    
-                            int lineNumber = method.getLineNumberFromBCI(vf.getBCI());
-                            if (lineNumber != -1) {
-                                tty.print(", line=" + lineNumber);
-                            }
-    
-                            Address pc = vf.getFrame().getPC();
-                            if (pc != null) {
-                                tty.print(", pc=" + pc);
-                            }
-    
-                            if (getAddressMethod != null) {
-                                tty.print(", Method*=" + getAddressMethod.invoke(method));
-                            }
-                            
-                            if (vf.isCompiledFrame()) {
-                                tty.print(" (Compiled frame");
-                                if (vf.isDeoptimized()) {
-                                  tty.print(" [deoptimized]");
-                                }
-                            }
-                            if (vf.isInterpretedFrame()) {
-                                tty.print(" (Interpreted frame");
-                            }
-                            if (vf.mayBeImpreciseDbg()) {
-                                tty.print("; information may be imprecise");
-                            }
-                            tty.println(")");
-                            
-                            ConstantPool cp = method.getConstants();
-                            int paramCount = (int) method.getSizeOfParameters();
-                            StackValueCollection localValues = vf.getLocals();
-                            int vfBCI = vf.getBCI();
-
-                            if (method.hasLocalVariableTable()) {
-                                tty.println("\tparameters:");
-                                tty.println(String.format("\t       %-25s %-30s %s", "name", "value", "type"));
-                                tty.println("\t    ==============================================================================");
-                                
-                                LocalVariableTableElement[] localVariables = method.getLocalVariableTable();
-                                int index = 0;
-                                for (LocalVariableTableElement localVariable : localVariables) {
-                                    if (index == paramCount) {
-                                        tty.println("\tlocal variables:");
-                                        tty.println(String.format("\t       %-25s %-30s %s", "name", "value", "type"));
-                                        tty.println("\t    ==============================================================================");
-                                    }
-                                    
-                                    if (localVariable.getStartBCI() + localVariable.getLength() < vf.getBCI()) {
-                                        continue;
-                                    }
-                                    
-                                    Symbol localVariableName = 
-                                            method.getLocalVariableName(localVariable.getStartBCI(), 
-                                                                        localVariable.getSlot());
-                                    String localVariableNameStr = localVariableName.asString();
-                                    if ("this".equals(localVariableNameStr)) {
-                                        continue;
-                                    }
-                                    
-                                    Symbol localVariableType = 
-                                            cp.getSymbolAt(localVariable.getDescriptorCPIndex());
-                                    String localVariableTypeStr = localVariableType.asString();
-                                    Class<?> localVariableTypeClass = 
-                                            ReflectionUtil.signatureToClass(localVariableTypeStr);
-                                    
-                                    tty.print("\t    |- ");
-                                    tty.print(String.format("%-25s ", localVariableNameStr));
-                                    if (localVariable.getStartBCI() >= vfBCI) {
-                                        tty.print(String.format("%-30s %s", 
-                                                  "<not initialized>",
-                                                  ReflectionUtil.normalizeSignature(localVariableTypeStr))); 
-                                    } else {
-                                        int localVariableIndex = index;
-                                        if (localVariableTypeClass.equals(long.class) || 
-                                                localVariableTypeClass.equals(double.class)) {
-                                            localVariableIndex++;
-                                        }
-                                        printLocalVariable(tty, localValues, localVariableTypeStr, 
-                                                           localVariable.getSlot(), localVariableIndex);
-                                    }
-                                    tty.println();
-                                    
-                                    index++;
-                                    if (localVariableTypeClass.equals(long.class) || 
-                                            localVariableTypeClass.equals(double.class)) {
-                                        index++;
-                                    } 
-                                }
-                            } else {
-                                tty.println("\tlocal values:");
-                                tty.println(String.format("\t       %-25s %-30s %s", "order", "value", "type"));
-                                tty.println("\t    ==============================================================================");
-                                for (int i = 0; i < localValues.size(); i++) {
-                                    tty.print("\t    |- ");
-                                    tty.print(String.format("%-25d ", i));
-                                    StackValue localValue = localValues.get(i);
-                                    int type = localValue.getType();
-                                    switch (type) {
-                                        case BasicType.tInt:
-                                            long value = localValue.getInteger();
-                                            tty.print(String.format("%-30s %s", 
-                                                        value + " (" + "0x" + Long.toHexString(value) + ")", 
-                                                        "<primitive>"));
-                                            break;
-                                        case BasicType.tObject:
-                                            tty.print(String.format("%-30s %s", 
-                                                        localValue.getObject() + " (address)", 
-                                                        "<object>"));
-                                            break;  
-                                        case BasicType.tConflict:
-                                            tty.print(String.format("%-30s %s", "<unknown>", "<conflict>"));
-                                            break;
-                                        default:
-                                            tty.print(String.format("%-30s %s", "<unknown>", "<unknown>"));
-                                            break;
-                                    }
-                                    tty.println();
-                                }
-                            }
-                        } catch (Exception e) {
-                            tty.println("Error occurred during thread walking: " + e.getMessage());
-                        } 
+        HotSpotSAThreadSelector threadSelector = param != null ? param.getThreadSelector() : null;
+        HotSpotSAStackTracerParameter.CaptureLevel captureLevel = 
+                param != null ? param.getCaptureLevel() : HotSpotSAStackTracerParameter.CaptureLevel.FULL;
+        int maxFrames = param != null ? param.getMaxFrames() : HotSpotSAStackTracerParameter.UNLIMITED_FRAMES;
+        Set<String> includedPackages = param != null ? param.getIncludedPackages() : null;
+        Set<String> excludedPackages = param != null ? param.getExcludedPackages() : null;
+        int addressSize = (int) context.getVM().getAddressSize();
+        List<SelectedThread> selectedThreads = selectThreads(context, threadNames, threadSelector);
+        for (SelectedThread selectedThread : selectedThreads) {
+            if (context.isCancelled()) {
+                // Maximum pause time has been exceeded, so return the stack traces collected so far
+                break;
+            }
+            JavaThread cur = selectedThread.thread;
+            // Only the values are collected here while the target process is paused. 
+            // Formatting them to text is left to the caller side.
+            HotSpotSAThreadStackTrace stackTrace = 
+                    new HotSpotSAThreadStackTrace(selectedThread.threadName, addressSize);
+            stackTrace.setThreadState(selectedThread.threadState);
+            stackTrace.setThreadId(selectedThread.threadId);
+            stackTrace.setNativeThreadId(selectedThread.nativeThreadId);
+            List<HotSpotSAStackFrame> frames = stackTrace.getFrames();
+            // Objects are expanded only on full capture level. 
+            // Visited objects and byte budget are tracked per thread.
+            HotSpotSAObjectGraph objectGraph = 
+                    captureLevel == HotSpotSAStackTracerParameter.CaptureLevel.FULL 
+                        ? new HotSpotSAObjectGraph(param) 
+                        : null;
+            try {
+                for (JavaVFrame vf = cur.getLastJavaVFrameDbg(); vf != null; vf = vf.javaSender()) {
+                    Method method = vf.getMethod();
+                    if (stackTrace.isTruncated()) {
+                        // Frames are not captured anymore, but there might still be Jemstone frames below. 
+                        // Then the frames captured so far are above them and the ones to capture are their callers.
+                        if (isJemstoneFrame(method)) {
+                            frames.clear();
+                            stackTrace.setTruncated(false);
+                        }
+                        continue;
+                    }
+                    String methodNameAndSignature = method.externalNameAndSignature();
+                    if (methodNameAndSignature.startsWith(JEMSTONE_HOTSPOT_SA_PACKAGE_PREFIX)) {
+                        frames.clear();
+                        continue;
+                    }
+                    if (!isIncluded(methodNameAndSignature, includedPackages, excludedPackages)) {
+                        continue;
+                    }
+                    if (maxFrames != HotSpotSAStackTracerParameter.UNLIMITED_FRAMES 
+                            && frames.size() >= maxFrames) {
+                        // Limit is applied to the kept frames, so keep walking without capturing
+                        stackTrace.setTruncated(true);
+                        continue;
                     }
-                } catch (AddressException e) {
-                    tty.println("Error accessing address 0x" + Long.toHexString(e.getAddress()));
-                } catch (Exception e) {
-                    tty.println("Error occurred during stack walking: " + e.getMessage());
-                } finally {
-                    tty.flush();
-                    
-                    String output = os.toString();
-                    result.addStackTrace(cur.getThreadName(), output.substring(0, output.length()));
-                    tty.close();
+                    HotSpotSAStackFrame frame = createFrame(vf, method, methodNameAndSignature);
+                    frames.add(frame);
+                    if (captureLevel == HotSpotSAStackTracerParameter.CaptureLevel.FRAMES) {
+                        continue;
+                    }
+                    try {
+                        collectLocals(vf, method, frame, objectGraph);
+                    } catch (Exception e) {
+                        frame.setError("Error occurred during thread walking: " + e.getMessage());
+                    } 
                 }
+            } catch (AddressException e) {
+                stackTrace.setError("Error accessing address 0x" + Long.toHexString(e.getAddress()));
+            } catch (Exception e) {
+                stackTrace.setError("Error occurred during stack walking: " + e.getMessage());
+            } finally {
+                result.addStackTrace(stackTrace);
             }
         }    
         return result;
     }
-   
-    private static void printLocalVariable(PrintStream tty, StackValueCollection values, String type, 
-            int slot, int index) throws Exception {
-        Class<?> valueClass = ReflectionUtil.signatureToClass(type);
-        if (valueClass.isPrimitive()) {
-            printPrimitiveValue(tty, values, slot, index, valueClass);
-        } else if (valueClass.equals(String.class)) { 
-            printStringValue(tty, values, slot);
-        } else if (valueClass.isArray()) { 
-            Class<?> elementClass = valueClass.getComponentType();
-            if (elementClass.isPrimitive()) {
-                printPrimitiveArrayValue(tty, values, type, slot, index, 
-                                         valueClass, elementClass);
+    
+    // Threads are selected before walking any stack, 
+    // so only a few fields are read from the threads which are not selected
+    private static List<SelectedThread> selectThreads(HotSpotServiceabilityAgentContext context, 
+            Set<String> threadNames, HotSpotSAThreadSelector threadSelector) {
+        if (threadSelector == null) {
+            // Without selector, threads are only selected by their names (if any)
+            threadSelector = new HotSpotSAThreadSelector();
+        }
+        List<SelectedThread> selectedThreads = new ArrayList<SelectedThread>();
+        Threads threads = context.getVM().getThreads();
+        for (JavaThread cur = threads.first(); cur != null; cur = cur.next()) {
+            if (context.isCancelled()) {
+                break;
+            }
+            if (!cur.isJavaThread()) {
+                continue;
+            }
+            String threadName = cur.getThreadName();
+            if (!threadSelector.isNameSelected(threadName, threadNames)) {
+                continue;
+            }
+            String threadState = getThreadState(cur);
+            if (!threadSelector.isThreadStateSelected(threadState)) {
+                continue;
+            }
+            long threadId = getThreadId(cur);
+            if (!threadSelector.isThreadIdSelected(threadId)) {
+                continue;
+            }
+            long nativeThreadId = getNativeThreadId(cur);
+            if (!threadSelector.isNativeThreadIdSelected(nativeThreadId)) {
+                continue;
+            }
+            selectedThreads.add(new SelectedThread(cur, threadName, threadState, threadId, nativeThreadId));
+        }
+        
+        int topThreadsByStackDepth = threadSelector.getTopThreadsByStackDepth();
+        if (topThreadsByStackDepth != HotSpotSAThreadSelector.ALL_THREADS 
+                && selectedThreads.size() > topThreadsByStackDepth) {
+            for (SelectedThread selectedThread : selectedThreads) {
+                selectedThread.stackDepth = getStackDepth(selectedThread.thread);
+            }
+            selectedThreads = selectTopThreadsByStackDepth(selectedThreads, topThreadsByStackDepth);
+        }
+        return selectedThreads;
+    }
+    
+    static List<SelectedThread> selectTopThreadsByStackDepth(List<SelectedThread> selectedThreads, 
+            int topThreadsByStackDepth) {
+        List<SelectedThread> sortedThreads = new ArrayList<SelectedThread>(selectedThreads);
+        // Sort is stable, so threads with the same stack depth are kept in their order
+        Collections.sort(sortedThreads, new Comparator<SelectedThread>() {
+            @Override
+            public int compare(SelectedThread t1, SelectedThread t2) {
+                return Long.compare(t2.stackDepth, t1.stackDepth);
+            }
+        });
+        if (sortedThreads.size() <= topThreadsByStackDepth) {
+            return sortedThreads;
+        }
+        return new ArrayList<SelectedThread>(sortedThreads.subList(0, topThreadsByStackDepth));
+    }
+    
+    private static long getThreadId(JavaThread thread) {
+        try {
+            Oop threadObj = thread.getThreadObj();
+            if (threadObj == null) {
+                return HotSpotSAThreadStackTrace.UNKNOWN_THREAD_ID;
+            }
+            return OopUtilities.threadOopGetTID(threadObj);
+        } catch (RuntimeException e) {
+            // Thread id is optional
+            return HotSpotSAThreadStackTrace.UNKNOWN_THREAD_ID;
+        }
+    }
+    
+    private static long getNativeThreadId(JavaThread thread) {
+        try {
+            OSThread osThread = thread.getOSThread();
+            if (osThread == null) {
+                return HotSpotSAThreadStackTrace.UNKNOWN_THREAD_ID;
+            }
+            return osThread.threadId();
+        } catch (RuntimeException e) {
+            // Native thread id is optional
+            return HotSpotSAThreadStackTrace.UNKNOWN_THREAD_ID;
+        }
+    }
+    
+    // Stack depth is measured as the used stack size in bytes, so the stack is not walked
+    private static long getStackDepth(JavaThread thread) {
+        try {
+            Address stackBase = thread.getStackBase();
+            // Last Java SP is only set while the thread is not running Java code, 
+            // otherwise the current frame is guessed from the registers
+            Address sp = thread.getLastJavaSP();
+            if (sp == null) {
+                Frame currentFrame = thread.getCurrentFrameGuess();
+                if (currentFrame != null) {
+                    sp = currentFrame.getSP();
+                }
+            }
+            if (stackBase == null || sp == null) {
+                return 0L;
+            }
+            // Stack grows downwards
+            return stackBase.minus(sp);
+        } catch (RuntimeException e) {
+            // Stack depth is unknown, so the thread is selected last
+            return 0L;
+        }
+    }
+    
+    private static String getThreadState(JavaThread thread) {
+        try {
+            Oop threadObj = thread.getThreadObj();
+            if (threadObj == null) {
+                return null;
+            }
+            // Same mapping with the one from thread status to "Thread.State" in JDK
+            int status = OopUtilities.threadOopGetThreadStatus(threadObj);
+            if ((status & JVMTI_THREAD_STATE_RUNNABLE) != 0) {
+                return Thread.State.RUNNABLE.name();
+            } else if ((status & JVMTI_THREAD_STATE_BLOCKED_ON_MONITOR_ENTER) != 0) {
+                return Thread.State.BLOCKED.name();
+            } else if ((status & JVMTI_THREAD_STATE_WAITING_INDEFINITELY) != 0) {
+                return Thread.State.WAITING.name();
+            } else if ((status & JVMTI_THREAD_STATE_WAITING_WITH_TIMEOUT) != 0) {
+                return Thread.State.TIMED_WAITING.name();
+            } else if ((status & JVMTI_THREAD_STATE_TERMINATED) != 0) {
+                return Thread.State.TERMINATED.name();
+            } else if ((status & JVMTI_THREAD_STATE_ALIVE) == 0) {
+                return Thread.State.NEW.name();
             } else {
-                printComplexArrayValue(tty, values, type, slot, index, 
-                                       valueClass, elementClass);
+                return Thread.State.RUNNABLE.name();
+            }
+        } catch (RuntimeException e) {
+            // Thread state is optional
+            return null;
+        }
+    }
+    
+    // Only the name of the holder class is read, since the frames are not captured
+    private static boolean isJemstoneFrame(Method method) {
+        return method.getMethodHolder().getName().asString().startsWith(JEMSTONE_HOTSPOT_SA_INTERNAL_PACKAGE_PREFIX);
+    }
+    
+    private static boolean isIncluded(String methodNameAndSignature, 
+            Set<String> includedPackages, Set<String> excludedPackages) {
+        if (includedPackages != null && !includedPackages.isEmpty()) {
+            boolean included = false;
+            for (String includedPackage : includedPackages) {
+                if (methodNameAndSignature.startsWith(includedPackage)) {
+                    included = true;
+                    break;
+                }
+            }
+            if (!included) {
+                return false;
+            }
+        }
+        if (excludedPackages != null) {
+            for (String excludedPackage : excludedPackages) {
+                if (methodNameAndSignature.startsWith(excludedPackage)) {
+                    return false;
+                }
             }
+        }
+        return true;
+    }
+    
+    private static long toLong(Address address) {
+        return address != null ? address.minus(null) : 0L;
+    }
+    
+    private static HotSpotSAStackFrame createFrame(JavaVFrame vf, Method method, String methodNameAndSignature) {
+        int bci = vf.getBCI();
+        int lineNumber = method.getLineNumberFromBCI(bci);
+        long pc = toLong(vf.getFrame().getPC());
+        long methodAddress = 0L;
+        if (getAddressMethod != null) {
+            try {
+                methodAddress = toLong((Address) getAddressMethod.invoke(method));
+            } catch (Exception e) {
+                // Method address is optional
+            }
+        }
+        HotSpotSAStackFrame.FrameType frameType;
+        if (vf.isCompiledFrame()) {
+            frameType = HotSpotSAStackFrame.FrameType.COMPILED;
+        } else if (vf.isInterpretedFrame()) {
+            frameType = HotSpotSAStackFrame.FrameType.INTERPRETED;
         } else {
-            printComplexValue(tty, values, type, slot, index, valueClass);
+            frameType = HotSpotSAStackFrame.FrameType.OTHER;
         }
+        return new HotSpotSAStackFrame(methodNameAndSignature, bci, lineNumber, pc, methodAddress, 
+                                       frameType, 
+                                       vf.isCompiledFrame() && vf.isDeoptimized(), 
+                                       vf.mayBeImpreciseDbg());
     }
     
-    private static void printPrimitiveValue(PrintStream tty, StackValueCollection values, 
+    // If "objectGraph" is null, only the parameters are collected without dereferencing objects, arrays and strings
+    private static void collectLocals(JavaVFrame vf, Method method, HotSpotSAStackFrame frame, 
+            HotSpotSAObjectGraph objectGraph) throws Exception {
+        boolean full = objectGraph != null;
+        ConstantPool cp = method.getConstants();
+        int paramCount = (int) method.getSizeOfParameters();
+        StackValueCollection localValues = vf.getLocals();
+        int vfBCI = vf.getBCI();
+
+        if (method.hasLocalVariableTable()) {
+            frame.getOrCreateParameters();
+            
+            LocalVariableTableElement[] localVariables = method.getLocalVariableTable();
+            for (LocalVariableTableElement localVariable : localVariables) {
+                // Parameters are always at the first slots, but local variable table is not ordered by slots 
+                // and the slots of the local variables out of scope are reused by the other ones
+                boolean parameter = localVariable.getSlot() < paramCount;
+                if (!parameter && !full) {
+                    continue;
+                }
+                
+                if (localVariable.getStartBCI() + localVariable.getLength() < vfBCI) {
+                    continue;
+                }
+                
+                Symbol localVariableName = 
+                        method.getLocalVariableName(localVariable.getStartBCI(), 
+                                                    localVariable.getSlot());
+                String localVariableNameStr = localVariableName.asString();
+                if ("this".equals(localVariableNameStr)) {
+                    continue;
+                }
+                
+                Symbol localVariableType = 
+                        cp.getSymbolAt(localVariable.getDescriptorCPIndex());
+                String localVariableTypeStr = localVariableType.asString();
+                // Classes of the local variables are not loaded into the agent process, 
+                // so types are resolved from their signatures
+                boolean twoSlots = isTwoSlots(localVariableTypeStr);
+                
+                List<HotSpotSAStackValue> variables = 
+                        parameter ? frame.getOrCreateParameters() : frame.getOrCreateLocalVariables();
+                if (localVariable.getStartBCI() >= vfBCI) {
+                    variables.add(
+                            new HotSpotSAStackValue(HotSpotSAStackValue.Kind.NOT_INITIALIZED, 
+                                                    localVariableNameStr, 
+                                                    ReflectionUtil.normalizeSignature(localVariableTypeStr), 
+                                                    null, 0L));
+                } else {
+                    // Value of two slots variable is at its second slot
+                    int localVariableIndex = localVariable.getSlot();
+                    if (twoSlots) {
+                        localVariableIndex++;
+                    }
+                    variables.add(
+                            getLocalVariable(localValues, localVariableNameStr, localVariableTypeStr, 
+                                             localVariable.getSlot(), localVariableIndex, objectGraph));
+                }
+            }
+        } else {
+            List<HotSpotSAStackValue> values = frame.getOrCreateLocalValues();
+            int valueCount = full ? localValues.size() : Math.min(paramCount, localValues.size());
+            for (int i = 0; i < valueCount; i++) {
+                String order = String.valueOf(i);
+                StackValue localValue = localValues.get(i);
+                int type = localValue.getType();
+                switch (type) {
+                    case BasicType.tInt:
+                        values.add(new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, 
+                                                           order, null, localValue.getInteger(), 0L));
+                        break;
+                    case BasicType.tObject:
+                        values.add(new HotSpotSAStackValue(HotSpotSAStackValue.Kind.OBJECT, 
+                                                           order, null, null, toLong(localValue.getObject())));
+                        break;  
+                    case BasicType.tConflict:
+                        values.add(new HotSpotSAStackValue(HotSpotSAStackValue.Kind.CONFLICT, 
+                                                           order, null, null, 0L));
+                        break;
+                    default:
+                        values.add(new HotSpotSAStackValue(HotSpotSAStackValue.Kind.UNKNOWN, 
+                                                           order, null, null, 0L));
+                        break;
+                }
+            }
+        }
+    }
+   
+    private static boolean isTwoSlots(String signature) {
+        return "J".equals(signature) || "D".equals(signature);
+    }
+    
+    private static HotSpotSAStackValue getLocalVariable(StackValueCollection values, String name, String type, 
+            int slot, int index, HotSpotSAObjectGraph objectGraph) {
+        char typeCode = type.charAt(0);
+        if (typeCode != JVM_SIGNATURE_CLASS && typeCode != JVM_SIGNATURE_ARRAY) {
+            return getPrimitiveValue(values, name, slot, index, ReflectionUtil.signatureToClass(type));
+        }
+        String declaredType = ReflectionUtil.normalizeSignature(type);
+        OopHandle oop = values.oopHandleAt(slot);
+        if (objectGraph == null) {
+            return new HotSpotSAStackValue(getReferenceKind(declaredType), name, declaredType, 
+                                           null, toLong(oop));
+        }
+        return getReferenceValue(name, declaredType, oop, 0, objectGraph);
+    }
+    
+    private static HotSpotSAStackValue getPrimitiveValue(StackValueCollection values, String name, 
             int slot, int index, Class<?> valueClass) {
+        Object value;
         if (valueClass.equals(byte.class)) {
-            byte val = values.byteAt(slot);
-            tty.print(String.format("%-30d %s", val, "byte"));
+            value = values.byteAt(slot);
         } else if (valueClass.equals(boolean.class)) {
-            boolean val = values.booleanAt(slot);
-            tty.print(String.format("%-30s %s", val, "boolean"));
+            value = values.booleanAt(slot);
         } else if (valueClass.equals(char.class)) {
-            char val = values.charAt(slot);
-            tty.print(String.format("%-30c %s", val, "char"));
+            value = values.charAt(slot);
         } else if (valueClass.equals(short.class)) {
-            short val = values.shortAt(slot);
-            tty.print(String.format("%-30d %s", val, "short"));
+            value = values.shortAt(slot);
         } else if (valueClass.equals(int.class)) {
-            int val = values.intAt(slot);
-            tty.print(String.format("%-30d %s", val, "int"));
+            value = values.intAt(slot);
         }  else if (valueClass.equals(float.class)) {
-            float val = values.floatAt(slot);
-            tty.print(String.format("%-30f %s", val, "float"));
+            value = values.floatAt(slot);
         }  else if (valueClass.equals(long.class)) {
-            long val = values.get(index).getInteger();
-            tty.print(String.format("%-30d %s", val, "long"));
+            value = values.get(index).getInteger();
         } else if (valueClass.equals(double.class)) {
-            double val = Double.longBitsToDouble(values.get(index).getInteger());
-            tty.print(String.format("%-30f %s", val, "double"));
+            value = Double.longBitsToDouble(values.get(index).getInteger());
         } else {
             throw new IllegalArgumentException("Not primitive type: " + valueClass.getName());
         }
+        return new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, name, valueClass.getName(), value, 0L);
     }
     
-    private static void printStringValue(PrintStream tty, StackValueCollection values, int slot) {
-        OopHandle strOopHandle = values.oopHandleAt(slot);
-        if (stringValueArrayField != null) {
-            OopHandle valueOopHandle = null;
-            if (compressedOopsEnabled) {
-                valueOopHandle = strOopHandle.getCompOopHandleAt(stringValueArrayField.getOffset());
-            } else {
-                valueOopHandle = strOopHandle.getOopHandleAt(stringValueArrayField.getOffset());
-            }
-            StringBuilder sb = new StringBuilder();
-            int length = valueOopHandle.getJIntAt(arrayLengthOffset);
-            for (int i = 0; i < length; i++) {
-                long offset = charArrayBaseOffset + i * charSize;
-                sb.append(valueOopHandle.getJCharAt(offset));
-            }
-            tty.print(String.format("%-30s %s",
-                          sb.toString(),
-                          String.class.getName()));
+    private static HotSpotSAStackValue.Kind getReferenceKind(String type) {
+        if (String.class.getName().equals(type)) {
+            return HotSpotSAStackValue.Kind.STRING;
+        } else if (type.endsWith("[]")) {
+            return HotSpotSAStackValue.Kind.ARRAY;
         } else {
-            tty.print(String.format("%-30s %s",
-                        strOopHandle + " (address)",
-                        String.class.getName()));
+            return HotSpotSAStackValue.Kind.OBJECT;
         }
     }
     
-    @SuppressWarnings("unchecked")
-    private static void printComplexValue(PrintStream tty, StackValueCollection values,  String type, 
-            int slot, int index, Class<?> valueClass) {
-        OopHandle oop = values.oopHandleAt(slot);
-        tty.print(String.format("%-30s %s",
-                oop + " (address)",
-                ReflectionUtil.normalizeSignature(type)));
-        tty.println();
+    private static HotSpotSAStackValue getStringValue(String name, OopHandle strOopHandle,
+            HotSpotSAObjectGraph objectGraph) {
+        if (stringValueArrayField == null) {
+            return new HotSpotSAStackValue(HotSpotSAStackValue.Kind.STRING, name, String.class.getName(),
+                                           null, toLong(strOopHandle));
+        }
+        OopHandle valueOopHandle = getOopHandleAt(strOopHandle, stringValueArrayField.getOffset());
+        if (valueOopHandle == null) {
+            return new HotSpotSAStackValue(HotSpotSAStackValue.Kind.STRING, name, String.class.getName(),
+                                           null, toLong(strOopHandle));
+        }
+        int length = valueOopHandle.getJIntAt(arrayLengthOffset);
+        char[] chars = new char[objectGraph.reserve(length, charSize)];
+        for (int i = 0; i < chars.length; i++) {
+            long offset = charArrayBaseOffset + i * charSize;
+            chars[i] = valueOopHandle.getJCharAt(offset);
+        }
+        HotSpotSAStackValue value =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.STRING, name, String.class.getName(),
+                                        new String(chars), toLong(strOopHandle));
+        value.setTruncated(chars.length < length);
+        return value;
+    }
+    
+    private static OopHandle getOopHandleAt(OopHandle oop, long offset) {
+        if (compressedOopsEnabled) {
+            return oop.getCompOopHandleAt(offset);
+        } else {
+            return oop.getOopHandleAt(offset);
+        }
+    }
+    
+    private static HotSpotSAKlassCache.KlassInfo getKlassInfo(OopHandle oop) {
+        try {
+            return klassCache.getKlassInfo(oop);
+        } catch (RuntimeException e) {
+            // Reference might be stale (for example, on imprecise frames), so its class is not known
+            return null;
+        }
+    }
+    
+    // Captures the referenced object, array or string by its actual type.
+    // Its fields or elements are also captured if it is in the maximum depth
+    // and it has not been captured before in the same stack trace (so cycles are not followed).
+    private static HotSpotSAStackValue getReferenceValue(String name, String declaredType, OopHandle oop,
+            int depth, HotSpotSAObjectGraph objectGraph) {
+        if (oop == null) {
+            return new HotSpotSAStackValue(getReferenceKind(declaredType), name, declaredType, null, 0L);
+        }
+        long address = toLong(oop);
+        HotSpotSAKlassCache.KlassInfo klassInfo = getKlassInfo(oop);
+        String type = klassInfo != null ? klassInfo.getTypeName() : declaredType;
+        HotSpotSAStackValue.Kind kind = getReferenceKind(type);
+        if (kind == HotSpotSAStackValue.Kind.STRING) {
+            // Strings are captured as values, so their contents are read at the maximum depth too
+            if (!objectGraph.isInDepth(depth)) {
+                return new HotSpotSAStackValue(kind, name, type, null, address);
+            }
+            return getStringValue(name, oop, objectGraph);
+        }
         
-        InstanceKlass klass = SystemDictionaryHelper.findInstanceKlass(valueClass.getName());
-        List<Field> fields = klass.getAllFields();
-        tty.println("\t\tfields:");
-        tty.println(String.format("\t\t       %-25s %-30s %s", "name", "value", "type"));
-        tty.println("\t\t    ==============================================================================");
-        for (Field field : fields) {
-            tty.print("\t\t    |- ");
-            Symbol fieldSignature = field.getSignature();
-            String fieldType = ReflectionUtil.normalizeSignature(fieldSignature.asString());
-            char typeCode = (char) fieldSignature.getByteAt(0);
-            String fieldName = field.getID().getName();
-            switch (typeCode) {
-                case JVM_SIGNATURE_BOOLEAN:
-                    tty.print(String.format("%-25s %-30s %s", 
-                                fieldName,
-                                oop.getJBooleanAt(field.getOffset()), 
-                                "boolean"));
-                    break;
-                case JVM_SIGNATURE_CHAR:
-                    tty.print(String.format("%-25s %-30c %s", 
-                                fieldName,
-                                oop.getJCharAt(field.getOffset()), 
-                                "char"));
-                    break;
-                case JVM_SIGNATURE_BYTE:
-                    tty.print(String.format("%-25s %-30d %s", 
-                                fieldName,
-                                oop.getJByteAt(field.getOffset()), 
-                                "byte"));
-                    break;
-                case JVM_SIGNATURE_SHORT:
-                    tty.print(String.format("%-25s %-30d %s", 
-                                fieldName,
-                                oop.getJShortAt(field.getOffset()), 
-                                "short"));
-                    break;
-                case JVM_SIGNATURE_INT:
-                    tty.print(String.format("%-25s %-30d %s",
-                                fieldName,
-                                oop.getJIntAt(field.getOffset()), 
-                                "int"));
-                    break;
-                case JVM_SIGNATURE_FLOAT:
-                    tty.print(String.format("%-25s %-30f %s", 
-                                fieldName,
-                                oop.getJFloatAt(field.getOffset()), 
-                                "float"));
+        HotSpotSAStackValue value = new HotSpotSAStackValue(kind, name, type, null, address);
+        if (klassInfo == null || !objectGraph.isInDepth(depth + 1)) {
+            return value;
+        }
+        if (!objectGraph.visit(address)) {
+            value.setVisited(true);
+            return value;
+        }
+        try {
+            switch (klassInfo.getKind()) {
+                case INSTANCE:
+                    collectFields(value, oop, klassInfo, depth, objectGraph);
                     break;
-                case JVM_SIGNATURE_LONG:
-                    tty.print(String.format("%-25s %-30d %s", 
-                                fieldName, 
-                                oop.getJLongAt(field.getOffset()), 
-                                "long"));
+                case PRIMITIVE_ARRAY:
+                    collectPrimitiveElements(value, oop, klassInfo, objectGraph);
                     break;
-                case JVM_SIGNATURE_DOUBLE:
-                    tty.print(String.format("%-25s %-30f %s", 
-                                fieldName,
-                                oop.getJDoubleAt(field.getOffset()), 
-                                "double"));
+                case REFERENCE_ARRAY:
+                    collectReferenceElements(value, oop, klassInfo, depth, objectGraph);
                     break;
-                case JVM_SIGNATURE_CLASS:
-                case JVM_SIGNATURE_ARRAY: {
-                    if (String.class.getName().equals(fieldType)) {
-                        OopHandle strOopHandle;
-                        if (compressedOopsEnabled) {
-                            strOopHandle = oop.getCompOopHandleAt(field.getOffset());
-                        } else {
-                            strOopHandle = oop.getOopHandleAt(field.getOffset());
-                        }
-                        if (stringValueArrayField != null) {
-                            OopHandle valueOopHandle;
-                            if (compressedOopsEnabled) {
-                                valueOopHandle = strOopHandle.getCompOopHandleAt(stringValueArrayField.getOffset());
-                            } else {
-                                valueOopHandle = strOopHandle.getOopHandleAt(stringValueArrayField.getOffset());
-                            }
-                            StringBuilder sb = new StringBuilder();
-                            int length = valueOopHandle.getJIntAt(arrayLengthOffset);
-                            for (int i = 0; i < length; i++) {
-                                long offset = charArrayBaseOffset + i * charSize;
-                                sb.append(valueOopHandle.getJCharAt(offset));
-                            }
-                            tty.print(String.format("%-25s %-30s %s",
-                                        fieldName,
-                                        sb.toString(),
-                                        String.class.getName()));
-                        } else {
-                            tty.print(String.format("%-25s %-30s %s",
-                                        fieldName,
-                                        strOopHandle + " (address)",
-                                        String.class.getName()));
-                        }
-                    } else {
-                        OopHandle handle;
-                        if (compressedOopsEnabled) {
-                          handle = oop.getCompOopHandleAt(field.getOffset());
-                        } else {
-                          handle = oop.getOopHandleAt(field.getOffset());
-                        }
-                        tty.print(String.format("%-25s %-30s %s",
-                                    fieldName,
-                                    handle + " (address)",
-                                    fieldType));
-                    }
-                    break;
-                }
                 default:
-                    throw new IllegalArgumentException("Unknown type code: " + typeCode);
+                    break;
             }
-            tty.println();
+        } catch (AddressException e) {
+            // Keep what has been captured so far
+            value.setTruncated(true);
         }
+        return value;
     }
     
-    private static void printPrimitiveArrayValue(PrintStream tty, StackValueCollection values,  String type, 
-            int slot, int index, Class<?> valueClass, Class<?> elementClass) {
-        OopHandle arrayOopHandle = values.oopHandleAt(slot);
-
-        tty.println(String.format("%-30s %s",
-                        arrayOopHandle + " (address)",
-                        ReflectionUtil.normalizeSignature(type)));
-        
-        tty.println("\t\telements:");
-        tty.println("\t\t==============================================================================");
-        int length = arrayOopHandle.getJIntAt(arrayLengthOffset);
-        if (elementClass.equals(byte.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = byteArrayBaseOffset + i * byteSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJByteAt(offset));
-            }
-        } else if (elementClass.equals(boolean.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = booleanArrayBaseOffset + i * booleanSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJBooleanAt(offset));
-            }
-        } else if (elementClass.equals(char.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = charArrayBaseOffset + i * charSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJCharAt(offset));
-            }
-        } else if (elementClass.equals(short.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = shortArrayBaseOffset + i * shortSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJShortAt(offset));
-            }
-        } else if (elementClass.equals(int.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = intArrayBaseOffset + i * intSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJIntAt(offset));
-            }
-        } else if (elementClass.equals(float.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = floatArrayBaseOffset + i * floatSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJFloatAt(offset));
+    private static void collectFields(HotSpotSAStackValue value, OopHandle oop, 
+            HotSpotSAKlassCache.KlassInfo klassInfo, int depth, HotSpotSAObjectGraph objectGraph) {
+        HotSpotSAKlassCache.FieldInfo[] fields = klassInfo.getFields();
+        List<HotSpotSAStackValue> fieldValues = new ArrayList<HotSpotSAStackValue>(fields.length);
+        value.setFields(fieldValues);
+        for (HotSpotSAKlassCache.FieldInfo field : fields) {
+            char typeCode = field.getTypeCode();
+            boolean reference = typeCode == JVM_SIGNATURE_CLASS || typeCode == JVM_SIGNATURE_ARRAY;
+            if (!objectGraph.hasRoomForField(fieldValues.size())
+                    || objectGraph.reserve(1, reference ? oopSize : getPrimitiveSize(typeCode)) == 0) {
+                value.setTruncated(true);
+                break;
             }
-        } else if (elementClass.equals(long.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = longArrayBaseOffset + i * longSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJLongAt(offset));
-            }
-        } else if (elementClass.equals(double.class)) {
-            for (int i = 0; i < length; i++) {
-                long offset = doubleArrayBaseOffset + i * doubleSize;
-                tty.println("\t\t    |- [" + i + "]: " + arrayOopHandle.getJDoubleAt(offset));
+            String fieldType = field.getTypeName();
+            String fieldName = field.getName();
+            long offset = field.getOffset();
+            if (reference) {
+                fieldValues.add(getReferenceValue(fieldName, fieldType, getOopHandleAt(oop, offset),
+                                                  depth + 1, objectGraph));
+            } else {
+                fieldValues.add(
+                        new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, fieldName, fieldType,
+                                                getPrimitiveAt(oop, offset, typeCode), 0L));
             }
-        } else {
-            throw new IllegalArgumentException(elementClass.getName() + 
-                    " is not primitive element type for array");
         }
     }
     
-    private static void printComplexArrayValue(PrintStream tty, StackValueCollection values,  String type, 
-            int slot, int index, Class<?> valueClass, Class<?> elementClass) 
-                    throws ClassNotFoundException, UnmappedAddressException, UnalignedAddressException, 
-                           InstantiationException, IllegalAccessException, 
-                           IllegalArgumentException, InvocationTargetException {
-        OopHandle arrayOopHandle = values.oopHandleAt(slot);
-
-        tty.println(String.format("%-30s %s",
-                        arrayOopHandle + " (address)",
-                        ReflectionUtil.normalizeSignature(type)));
-        
-        tty.println("\t\telements:");
-        tty.println("\t\t==============================================================================");
+    private static void collectPrimitiveElements(HotSpotSAStackValue value, OopHandle arrayOopHandle,
+            HotSpotSAKlassCache.KlassInfo klassInfo, HotSpotSAObjectGraph objectGraph) {
+        char elementTypeCode = klassInfo.getElementTypeCode();
         int length = arrayOopHandle.getJIntAt(arrayLengthOffset);
-        for (int i = 0; i < length; i++) {
-            long offset = objectArrayBaseOffset + i * oopSize;
-            OopHandle elementOopHandle;
-            InstanceKlass elementKlass = null;
-            String elementType;
-            if (compressedOopsEnabled) {
-                elementOopHandle = arrayOopHandle.getCompOopHandleAt(offset);
-                if (instanceKlassConstructor != null) {
-                    elementKlass =  
-                            (InstanceKlass) instanceKlassConstructor.
-                                newInstance(elementOopHandle.getCompOopAddressAt(objectMarkHeaderSize));
-                } 
-            } else {
-                elementOopHandle = arrayOopHandle.getOopHandleAt(offset);
-                if (instanceKlassConstructor != null) {
-                    elementKlass =  
-                            (InstanceKlass) instanceKlassConstructor.
-                                newInstance(elementOopHandle.getAddressAt(objectMarkHeaderSize));
-                } 
-            }
-            if (elementKlass != null) {
-                elementType = Class.forName(elementKlass.getName().asString().replace("/", ".")).getName();
-            } else {
-                elementType = elementClass.getName();
-            }
-            if (String.class.getName().equals(elementType)) {
-                if (stringValueArrayField != null) {
-                    OopHandle valueOopHandle;
-                    if (compressedOopsEnabled) {
-                        valueOopHandle = elementOopHandle.getCompOopHandleAt(stringValueArrayField.getOffset());
-                    } else {
-                        valueOopHandle = elementOopHandle.getOopHandleAt(stringValueArrayField.getOffset());
-                    }
-                    StringBuilder sb = new StringBuilder();
-                    int strLength = valueOopHandle.getJIntAt(arrayLengthOffset);
-                    for (int j = 0; j < strLength; j++) {
-                        long charOffset = charArrayBaseOffset + j * charSize;
-                        sb.append(valueOopHandle.getJCharAt(charOffset));
-                    }
-                    tty.println("\t\t    |- [" + i + "]: " + sb.toString() + " (" + String.class.getName() + ")");
-                } else {
-                    tty.println("\t\t    |- [" + i + "]: " + elementOopHandle + " (" + String.class.getName() + ")");
-                }
-            } else {
-                tty.println("\t\t    |- [" + i + "]: " + elementOopHandle + " (" + elementType + ")");
+        int elementSize = getPrimitiveSize(elementTypeCode);
+        int count = objectGraph.reserve(objectGraph.getElementCount(length), elementSize);
+        long baseOffset = getPrimitiveArrayBaseOffset(elementTypeCode);
+        String elementType = klassInfo.getElementTypeName();
+        List<HotSpotSAStackValue> elements = new ArrayList<HotSpotSAStackValue>(count);
+        for (int i = 0; i < count; i++) {
+            Object element = getPrimitiveAt(arrayOopHandle, baseOffset + (long) i * elementSize, elementTypeCode);
+            elements.add(new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, null, elementType, element, 0L));
+        }
+        value.setElements(elements);
+        value.setTruncated(count < length);
+    }
+    
+    private static void collectReferenceElements(HotSpotSAStackValue value, OopHandle arrayOopHandle,
+            HotSpotSAKlassCache.KlassInfo klassInfo, int depth, HotSpotSAObjectGraph objectGraph) {
+        int length = arrayOopHandle.getJIntAt(arrayLengthOffset);
+        int count = objectGraph.getElementCount(length);
+        String elementType = klassInfo.getElementTypeName();
+        List<HotSpotSAStackValue> elements = new ArrayList<HotSpotSAStackValue>(count);
+        value.setElements(elements);
+        for (int i = 0; i < count; i++) {
+            if (objectGraph.reserve(1, oopSize) == 0) {
+                break;
             }
+            OopHandle elementOopHandle = getOopHandleAt(arrayOopHandle, objectArrayBaseOffset + (long) i * oopSize);
+            elements.add(getReferenceValue(null, elementType, elementOopHandle, depth + 1, objectGraph));
+        }
+        value.setTruncated(elements.size() < length);
+    }
+    
+    private static int getPrimitiveSize(char typeCode) {
+        switch (typeCode) {
+            case JVM_SIGNATURE_BOOLEAN:
+                return booleanSize;
+            case JVM_SIGNATURE_CHAR:
+                return charSize;
+            case JVM_SIGNATURE_BYTE:
+                return byteSize;
+            case JVM_SIGNATURE_SHORT:
+                return shortSize;
+            case JVM_SIGNATURE_INT:
+                return intSize;
+            case JVM_SIGNATURE_FLOAT:
+                return floatSize;
+            case JVM_SIGNATURE_LONG:
+                return longSize;
+            case JVM_SIGNATURE_DOUBLE:
+                return doubleSize;
+            default:
+                throw new IllegalArgumentException("Not primitive type code: " + typeCode);
+        }
+    }
+    
+    private static long getPrimitiveArrayBaseOffset(char typeCode) {
+        switch (typeCode) {
+            case JVM_SIGNATURE_BOOLEAN:
+                return booleanArrayBaseOffset;
+            case JVM_SIGNATURE_CHAR:
+                return charArrayBaseOffset;
+            case JVM_SIGNATURE_BYTE:
+                return byteArrayBaseOffset;
+            case JVM_SIGNATURE_SHORT:
+                return shortArrayBaseOffset;
+            case JVM_SIGNATURE_INT:
+                return intArrayBaseOffset;
+            case JVM_SIGNATURE_FLOAT:
+                return floatArrayBaseOffset;
+            case JVM_SIGNATURE_LONG:
+                return longArrayBaseOffset;
+            case JVM_SIGNATURE_DOUBLE:
+                return doubleArrayBaseOffset;
+            default:
+                throw new IllegalArgumentException("Not primitive type code: " + typeCode);
+        }
+    }
+    
+    private static Object getPrimitiveAt(OopHandle oop, long offset, char typeCode) {
+        switch (typeCode) {
+            case JVM_SIGNATURE_BOOLEAN:
+                return oop.getJBooleanAt(offset);
+            case JVM_SIGNATURE_CHAR:
+                return oop.getJCharAt(offset);
+            case JVM_SIGNATURE_BYTE:
+                return oop.getJByteAt(offset);
+            case JVM_SIGNATURE_SHORT:
+                return oop.getJShortAt(offset);
+            case JVM_SIGNATURE_INT:
+                return oop.getJIntAt(offset);
+            case JVM_SIGNATURE_FLOAT:
+                return oop.getJFloatAt(offset);
+            case JVM_SIGNATURE_LONG:
+                return oop.getJLongAt(offset);
+            case JVM_SIGNATURE_DOUBLE:
+                return oop.getJDoubleAt(offset);
+            default:
+                throw new IllegalArgumentException("Unknown type code: " + typeCode);
         }
     }
     
+    static final class SelectedThread {
+        
+        final JavaThread thread;
+        final String threadName;
+        final String threadState;
+        final long threadId;
+        final long nativeThreadId;
+        long stackDepth;
+        
+        SelectedThread(JavaThread thread, String threadName, String threadState, 
+                       long threadId, long nativeThreadId) {
+            this.thread = thread;
+            this.threadName = threadName;
+            this.threadState = threadState;
+            this.threadId = threadId;
+            this.nativeThreadId = nativeThreadId;
+        }
+        
+    }
+
 }
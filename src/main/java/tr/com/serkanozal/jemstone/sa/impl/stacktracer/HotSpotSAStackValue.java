@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Typed value of a parameter, local variable, field or array element in a stack frame. 
+ * Object values hold their fields and array values hold their elements if they have been read.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSAStackValue implements Serializable {
+
+    public enum Kind {
+        
+        PRIMITIVE,
+        STRING,
+        OBJECT,
+        ARRAY,
+        NOT_INITIALIZED,
+        CONFLICT,
+        UNKNOWN
+        
+    }
+    
+    private final Kind kind;
+    private final String name;
+    private final String type;
+    private final Object value;
+    private final long address;
+    private List<HotSpotSAStackValue> fields;
+    private List<HotSpotSAStackValue> elements;
+    private boolean visited;
+    private boolean truncated;
+    
+    public HotSpotSAStackValue(Kind kind, String name, String type, Object value, long address) {
+        this.kind = kind;
+        this.name = name;
+        this.type = type;
+        this.value = value;
+        this.address = address;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    /**
+     * Gets the name of the value. 
+     * It is the order of the value if the method has no local variable table 
+     * and <code>null</code> for array elements.
+     */
+    public String getName() {
+        return name;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    /**
+     * Gets the boxed primitive value or the content of the string. 
+     * <code>null</code> if the value is not primitive or the content of the string is not available.
+     */
+    public Object getValue() {
+        return value;
+    }
+    
+    /**
+     * Gets the address of the object, array or string. 
+     * <code>0</code> if the value is primitive or <code>null</code>.
+     */
+    public long getAddress() {
+        return address;
+    }
+    
+    public List<HotSpotSAStackValue> getFields() {
+        return fields;
+    }
+    
+    public void setFields(List<HotSpotSAStackValue> fields) {
+        this.fields = fields;
+    }
+    
+    public List<HotSpotSAStackValue> getElements() {
+        return elements;
+    }
+    
+    public void setElements(List<HotSpotSAStackValue> elements) {
+        this.elements = elements;
+    }
+    
+    /**
+     * Returns <code>true</code> if the object or array has already been captured 
+     * in the same stack trace (shared or cyclic reference), so its fields or elements are not captured again.
+     */
+    public boolean isVisited() {
+        return visited;
+    }
+    
+    public void setVisited(boolean visited) {
+        this.visited = visited;
+    }
+    
+    /**
+     * Returns <code>true</code> if only some of the fields, elements or characters of the string 
+     * have been captured because of the limits or the byte budget.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSAStackValue [" + 
+                    "kind=" + kind + 
+                    ", name=" + name + 
+                    ", type=" + type + 
+                    ", value=" + value + 
+                    ", address=0x" + Long.toHexString(address) + "]";
+    }
+    
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Selects the threads whose stack traces are captured.
+ * Selection is evaluated at <b>HotSpot SA Process</b> before any stack walking,
+ * so the threads which are not selected don't cost anything while the target process is paused.
+ * </p>
+ * 
+ * <p>
+ * A thread is selected if it matches all of the specified criteria:
+ * <ul>
+ *  <li>Its name starts with any of the name prefixes or matches the name pattern (if any of them is specified)</li>
+ *  <li>Its state is one of the thread states (if any is specified)</li>
+ *  <li>Its Java thread id is one of the thread ids (if any is specified)</li>
+ *  <li>Its native thread id is one of the native thread ids (if any is specified)</li>
+ * </ul>
+ * Then, if top threads by stack depth is specified, only that number of selected threads
+ * with the deepest stacks are captured.
+ * </p>
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSAThreadSelector implements Serializable {
+    
+    /**
+     * Represents that all selected threads are captured regardless of their stack depths.
+     */
+    public static final int ALL_THREADS = -1;
+    
+    private final Set<String> threadNamePrefixes = new LinkedHashSet<String>();
+    private String threadNamePattern;
+    private final Set<String> threadStates = new LinkedHashSet<String>();
+    private final Set<Long> threadIds = new LinkedHashSet<Long>();
+    private final Set<Long> nativeThreadIds = new LinkedHashSet<Long>();
+    private int topThreadsByStackDepth = ALL_THREADS;
+    // Compiled lazily at HotSpot agent process, once for all threads
+    private transient Pattern compiledThreadNamePattern;
+    
+    public Set<String> getThreadNamePrefixes() {
+        return threadNamePrefixes;
+    }
+    
+    /**
+     * Adds a prefix to select the threads whose names start with it (such as <code>worker-</code>).
+     * 
+     * @param threadNamePrefix the prefix of the names of the threads to be selected
+     * @return this selector
+     */
+    public HotSpotSAThreadSelector addThreadNamePrefix(String threadNamePrefix) {
+        if (threadNamePrefix == null) {
+            throw new IllegalArgumentException("Thread name prefix cannot be null!");
+        }
+        threadNamePrefixes.add(threadNamePrefix);
+        return this;
+    }
+    
+    public String getThreadNamePattern() {
+        return threadNamePattern;
+    }
+    
+    /**
+     * Sets the regular expression to select the threads whose names match it entirely.
+     * 
+     * @param threadNamePattern the regular expression for the names of the threads to be selected
+     * @return this selector
+     */
+    public HotSpotSAThreadSelector setThreadNamePattern(String threadNamePattern) {
+        if (threadNamePattern != null) {
+            // Fail fast at caller side instead of at HotSpot SA process
+            Pattern.compile(threadNamePattern);
+        }
+        this.threadNamePattern = threadNamePattern;
+        this.compiledThreadNamePattern = null;
+        return this;
+    }
+    
+    /**
+     * Gets the names of the {@link Thread.State}s of the threads to be selected.
+     */
+    public Set<String> getThreadStates() {
+        return threadStates;
+    }
+    
+    /**
+     * Adds a thread state to select the threads in that state.
+     * 
+     * @param threadState the state of the threads to be selected
+     * @return this selector
+     */
+    public HotSpotSAThreadSelector addThreadState(Thread.State threadState) {
+        if (threadState == null) {
+            throw new IllegalArgumentException("Thread state cannot be null!");
+        }
+        threadStates.add(threadState.name());
+        return this;
+    }
+    
+    public Set<Long> getThreadIds() {
+        return threadIds;
+    }
+    
+    /**
+     * Adds a Java thread id (as returned by {@link Thread#getId()}) to select the thread with that id.
+     * 
+     * @param threadId the Java thread id of the thread to be selected
+     * @return this selector
+     */
+    public HotSpotSAThreadSelector addThreadId(long threadId) {
+        threadIds.add(threadId);
+        return this;
+    }
+    
+    public Set<Long> getNativeThreadIds() {
+        return nativeThreadIds;
+    }
+    
+    /**
+     * Adds a native thread id (such as the LWP id on Linux as shown by <code>top -H</code>)
+     * to select the thread with that id.
+     * 
+     * @param nativeThreadId the native thread id of the thread to be selected
+     * @return this selector
+     */
+    public HotSpotSAThreadSelector addNativeThreadId(long nativeThreadId) {
+        nativeThreadIds.add(nativeThreadId);
+        return this;
+    }
+    
+    public int getTopThreadsByStackDepth() {
+        return topThreadsByStackDepth;
+    }
+    
+    /**
+     * Sets the number of the selected threads with the deepest stacks to be captured.
+     * Stack depth is measured as the used stack size of the thread,
+     * so it is found without walking the stack.
+     * Default is {@link #ALL_THREADS}.
+     * 
+     * @param topThreadsByStackDepth the number of the threads with the deepest stacks to be captured
+     *                               or {@link #ALL_THREADS} for all selected threads
+     * @return this selector
+     */
+    public HotSpotSAThreadSelector setTopThreadsByStackDepth(int topThreadsByStackDepth) {
+        if (topThreadsByStackDepth < 0 && topThreadsByStackDepth != ALL_THREADS) {
+            throw new IllegalArgumentException(
+                    "Top threads by stack depth cannot be negative: " + topThreadsByStackDepth);
+        }
+        this.topThreadsByStackDepth = topThreadsByStackDepth;
+        return this;
+    }
+    
+    /**
+     * Checks whether the thread with the given name is selected by its name. 
+     * If none of the thread names, the name prefixes and the name pattern is specified, 
+     * all threads are selected by their names.
+     * 
+     * @param threadName  the name of the thread
+     * @param threadNames the exact names of the threads to be selected (if any) 
+     *                    as specified by {@link HotSpotSAStackTracerParameter}
+     */
+    boolean isNameSelected(String threadName, Set<String> threadNames) {
+        boolean selectByName = 
+                (threadNames != null && !threadNames.isEmpty()) 
+                || !threadNamePrefixes.isEmpty() 
+                || threadNamePattern != null;
+        if (!selectByName) {
+            return true;
+        }
+        if (threadName == null) {
+            return false;
+        }
+        if (threadNames != null && threadNames.contains(threadName)) {
+            return true;
+        }
+        for (String threadNamePrefix : threadNamePrefixes) {
+            if (threadName.startsWith(threadNamePrefix)) {
+                return true;
+            }
+        }
+        if (threadNamePattern == null) {
+            return false;
+        }
+        if (compiledThreadNamePattern == null) {
+            compiledThreadNamePattern = Pattern.compile(threadNamePattern);
+        }
+        return compiledThreadNamePattern.matcher(threadName).matches();
+    }
+    
+    boolean isThreadStateSelected(String threadState) {
+        return threadStates.isEmpty() || (threadState != null && threadStates.contains(threadState));
+    }
+    
+    boolean isThreadIdSelected(long threadId) {
+        return threadIds.isEmpty() || threadIds.contains(threadId);
+    }
+    
+    boolean isNativeThreadIdSelected(long nativeThreadId) {
+        return nativeThreadIds.isEmpty() || nativeThreadIds.contains(nativeThreadId);
+    }
+    
+    @Override
+    public String toString() {
+        return "HotSpotSAThreadSelector [" +
+                "threadNamePrefixes=" + threadNamePrefixes +
+                ", threadNamePattern=" + threadNamePattern +
+                ", threadStates=" + threadStates +
+                ", threadIds=" + threadIds +
+                ", nativeThreadIds=" + nativeThreadIds +
+                ", topThreadsByStackDepth=" + topThreadsByStackDepth + "]";
+    }
+
+}
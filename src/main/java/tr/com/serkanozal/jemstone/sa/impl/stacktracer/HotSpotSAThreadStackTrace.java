@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stack trace of a thread as {@link HotSpotSAStackFrame}s from the top of the stack. 
+ * It is formatted to text only when it is printed.
+ * 
+ * @author Serkan Ozal
+ */
+@SuppressWarnings("serial")
+public class HotSpotSAThreadStackTrace implements Serializable {
+
+    /**
+     * Represents that the id of the thread is not known.
+     */
+    public static final long UNKNOWN_THREAD_ID = -1;
+    
+    private final String threadName;
+    private final int addressSize;
+    private final List<HotSpotSAStackFrame> frames;
+    private String threadState;
+    private long threadId = UNKNOWN_THREAD_ID;
+    private long nativeThreadId = UNKNOWN_THREAD_ID;
+    private boolean truncated;
+    private String error;
+    private String text;
+    
+    public HotSpotSAThreadStackTrace(String threadName, int addressSize) {
+        this(threadName, addressSize, new ArrayList<HotSpotSAStackFrame>());
+    }
+    
+    public HotSpotSAThreadStackTrace(String threadName, int addressSize, List<HotSpotSAStackFrame> frames) {
+        this.threadName = threadName;
+        this.addressSize = addressSize;
+        this.frames = frames;
+    }
+    
+    /**
+     * Creates the stack trace of which only the formatted text is known (without any frame).
+     * 
+     * @param threadName name of the thread
+     * @param text       formatted stack trace of the thread
+     */
+    public HotSpotSAThreadStackTrace(String threadName, String text) {
+        this(threadName, 0, new ArrayList<HotSpotSAStackFrame>());
+        this.text = text;
+    }
+    
+    public String getThreadName() {
+        return threadName;
+    }
+    
+    /**
+     * Gets the address size of the target process in bytes, which is used for formatting addresses.
+     */
+    public int getAddressSize() {
+        return addressSize;
+    }
+    
+    public List<HotSpotSAStackFrame> getFrames() {
+        return frames;
+    }
+    
+    /**
+     * Gets the name of the {@link Thread.State} of the thread while its stack trace was captured 
+     * or <code>null</code> if it is not known.
+     */
+    public String getThreadState() {
+        return threadState;
+    }
+    
+    public void setThreadState(String threadState) {
+        this.threadState = threadState;
+    }
+    
+    /**
+     * Gets the Java thread id (as returned by {@link Thread#getId()}) of the thread 
+     * or {@link #UNKNOWN_THREAD_ID} if it is not known.
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+    
+    public void setThreadId(long threadId) {
+        this.threadId = threadId;
+    }
+    
+    /**
+     * Gets the native thread id (such as the LWP id on Linux) of the thread 
+     * or {@link #UNKNOWN_THREAD_ID} if it is not known.
+     */
+    public long getNativeThreadId() {
+        return nativeThreadId;
+    }
+    
+    public void setNativeThreadId(long nativeThreadId) {
+        this.nativeThreadId = nativeThreadId;
+    }
+    
+    /**
+     * Returns <code>true</code> if stack walking was stopped 
+     * because the maximum number of frames per thread was reached.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+    
+    /**
+     * Gets the error occurred while walking the stack if there is.
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    /**
+     * Gets the formatted text this stack trace has been created with 
+     * or <code>null</code> if it is formatted from its frames.
+     */
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * Formats this stack trace to text.
+     */
+    public String format() {
+        return text != null ? text : HotSpotSAStackTraceFormatter.format(this);
+    }
+    
+    @Override
+    public String toString() {
+        return format();
+    }
+    
+}
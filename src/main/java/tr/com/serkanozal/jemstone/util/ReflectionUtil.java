@@ -444,27 +444,8 @@ public class ReflectionUtil {
                 return signature.substring(1, signature.length() - 1).
                             replace("/", ".");
             } else if (signature.startsWith("[")) {
-                String componentType = signature.substring(1);
-                if ("B".equals(componentType)) {
-                    return "byte[]";
-                } else if ("Z".equals(componentType)) {
-                    return "boolean[]";
-                } else if ("C".equals(componentType)) {
-                    return "char[]";
-                } else if ("S".equals(componentType)) {
-                    return "short[]";
-                } else if ("I".equals(componentType)) {
-                    return "int[]";
-                } else if ("F".equals(componentType)) {
-                    return "float[]";
-                } else if ("J".equals(componentType)) {
-                    return "long[]";
-                } else if ("D".equals(componentType)) {
-                    return "double[]";
-                } else if (componentType.startsWith("L")) {
-                    return componentType.substring(1, componentType.length() - 1).
-                                replace("/", ".") + "[]";
-                } 
+                // Multi-dimensional arrays are normalized by their component types
+                return normalizeSignature(signature.substring(1)) + "[]";
             }
             
             throw new IllegalArgumentException("Unknown signature: " + signature);
@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentCodec;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentDecoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentEncoder;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.impl.batch.HotSpotSABatchResult;
+import tr.com.serkanozal.jemstone.sa.impl.profiler.HotSpotSASamplingProfilerResult;
+import tr.com.serkanozal.jemstone.sa.impl.profiler.HotSpotSAStackSample;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackFrame;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerParameter;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerResult;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerWorker;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackValue;
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAThreadStackTrace;
+
+public class HotSpotServiceabilityAgentCodecRegistryTest {
+
+    @SuppressWarnings("serial")
+    public static class SampleResult implements HotSpotServiceabilityAgentResult {
+
+        private final String value;
+
+        public SampleResult(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+    }
+
+    public static class SampleResultCodec implements HotSpotServiceabilityAgentCodec<SampleResult> {
+
+        @Override
+        public Class<SampleResult> getType() {
+            return SampleResult.class;
+        }
+
+        @Override
+        public void encode(SampleResult result, HotSpotServiceabilityAgentEncoder encoder) throws IOException {
+            encoder.writeString(result.getValue());
+        }
+
+        @Override
+        public SampleResult decode(HotSpotServiceabilityAgentDecoder decoder) throws IOException {
+            return new SampleResult("decoded-" + decoder.readString());
+        }
+
+    }
+
+    public static class AnotherSampleResultCodec extends SampleResultCodec {
+
+        @Override
+        public SampleResult decode(HotSpotServiceabilityAgentDecoder decoder) throws IOException {
+            return new SampleResult("another-" + decoder.readString());
+        }
+
+    }
+
+    @Test
+    public void encodeAndDecodeRequest() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotServiceabilityAgentRequest<HotSpotSAStackTracerParameter, HotSpotSAStackTracerResult> request =
+                new HotSpotServiceabilityAgentRequest<HotSpotSAStackTracerParameter, HotSpotSAStackTracerResult>(
+                        1234, "/tmp/pipeline", new HotSpotSAStackTracerWorker(),
+                        new HotSpotSAStackTracerParameter("main").setMaxFrames(5),
+                        5000, 1024, true, false, 100, "gcore", 2000, "core.1234", "/usr/bin/java",
+                        HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_STREAMED);
+
+        HotSpotServiceabilityAgentRequest<HotSpotSAStackTracerParameter, HotSpotSAStackTracerResult> decoded =
+                codecRegistry.decode(codecRegistry.encode(request));
+
+        Assert.assertEquals(1234, decoded.getProcessId());
+        Assert.assertEquals("/tmp/pipeline", decoded.getPipelineFilePath());
+        Assert.assertTrue(decoded.getWorker() instanceof HotSpotSAStackTracerWorker);
+        Assert.assertEquals(Collections.singleton("main"), decoded.getParameter().getThreadNames());
+        Assert.assertEquals(5, decoded.getParameter().getMaxFrames());
+        Assert.assertEquals(5000, decoded.getTimeout());
+        Assert.assertEquals(1024, decoded.getPipelineSize());
+        Assert.assertTrue(decoded.isAttach());
+        Assert.assertFalse(decoded.isDetach());
+        Assert.assertEquals(100, decoded.getMaxPauseTime());
+        Assert.assertEquals("gcore", decoded.getSnapshotCommand());
+        Assert.assertEquals(2000, decoded.getSnapshotTimeout());
+        Assert.assertEquals("core.1234", decoded.getCoreFile());
+        Assert.assertEquals("/usr/bin/java", decoded.getJavaExecutable());
+        Assert.assertEquals(HotSpotServiceabilityAgentPipelineResultSink.RECORD_MODE_STREAMED,
+                            decoded.getRecordMode());
+    }
+
+    @Test
+    public void encodeAndDecodeResponse() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+
+        HotSpotServiceabilityAgentResponse<HotSpotSAStackTracerResult> response =
+                new HotSpotServiceabilityAgentResponse<HotSpotSAStackTracerResult>(new byte[128]);
+        response.setRetired(true);
+        HotSpotServiceabilityAgentResponse<HotSpotSAStackTracerResult> decoded =
+                codecRegistry.decode(codecRegistry.encode(response));
+        Assert.assertEquals(128, decoded.getPipelineDataSize());
+        Assert.assertNull(decoded.getError());
+        Assert.assertNull(decoded.getResultWrapper());
+        Assert.assertTrue(decoded.isRetired());
+        // Pipeline data is transferred through pipeline, not as part of the response
+        Assert.assertNull(decoded.getPipelineData());
+
+        response = new HotSpotServiceabilityAgentResponse<HotSpotSAStackTracerResult>(
+                            new IllegalStateException("Not attached to any process"));
+        decoded = codecRegistry.decode(codecRegistry.encode(response));
+        Assert.assertEquals(HotSpotServiceabilityAgentResponse.PIPELINE_DATA_NOT_USED, decoded.getPipelineDataSize());
+        Assert.assertTrue(decoded.getError() instanceof IllegalStateException);
+        Assert.assertEquals("Not attached to any process", decoded.getError().getMessage());
+        Assert.assertFalse(decoded.isRetired());
+    }
+
+    @Test
+    public void encodeAndDecodeResultWrapper() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        result.addStackTrace(new HotSpotSAThreadStackTrace("main", 8));
+        HotSpotServiceabilityAgentResultWrapper<HotSpotSAStackTracerResult> resultWrapper =
+                new HotSpotServiceabilityAgentResultWrapper<HotSpotSAStackTracerResult>(result);
+        resultWrapper.setStdOut("out");
+        resultWrapper.setStdErr("err");
+        resultWrapper.setIncomplete(true);
+
+        HotSpotServiceabilityAgentResultWrapper<HotSpotSAStackTracerResult> decoded =
+                codecRegistry.decode(codecRegistry.encode(resultWrapper));
+
+        Assert.assertEquals("out", decoded.getStdOut());
+        Assert.assertEquals("err", decoded.getStdErr());
+        Assert.assertTrue(decoded.isIncomplete());
+        Assert.assertNotNull(decoded.getResult().getThreadStackTrace("main"));
+    }
+
+    @Test
+    public void encodeAndDecodeStackTracerResult() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+
+        HotSpotSAStackValue point =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.OBJECT, "p", "Point", null, 0x1000L);
+        point.setFields(Arrays.asList(
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "x", "int", 3, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "y", "long", 7L, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "d", "double", 1.5d, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "f", "float", 2.5f, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "c", "char", 'q', 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "b", "boolean", true, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "s", "short", (short) 4, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "bt", "byte", (byte) 5, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.STRING, "label", "java.lang.String", "pt", 0L)));
+        HotSpotSAStackValue array =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.ARRAY, "ints", "int[]", null, 0x2000L);
+        array.setElements(Arrays.asList(
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "[0]", "int", 1, 0L)));
+        array.setTruncated(true);
+        HotSpotSAStackValue visited =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.OBJECT, "q", "Point", null, 0x1000L);
+        visited.setVisited(true);
+
+        HotSpotSAStackFrame frame =
+                new HotSpotSAStackFrame("Sample.work(int)", 16, 10, 0x7f00L, 0x8f00L,
+                                        HotSpotSAStackFrame.FrameType.COMPILED, true, false);
+        frame.setParameters(Arrays.asList(point, array));
+        frame.setLocalVariables(Collections.singletonList(visited));
+        HotSpotSAStackFrame failedFrame =
+                new HotSpotSAStackFrame("Sample.main(java.lang.String[])", 0, HotSpotSAStackFrame.NO_LINE_NUMBER,
+                                        0x7f10L, 0x8f10L, HotSpotSAStackFrame.FrameType.INTERPRETED, false, true);
+        failedFrame.setError("Unable to read locals");
+
+        HotSpotSAThreadStackTrace threadStackTrace =
+                new HotSpotSAThreadStackTrace("main", 8, Arrays.asList(frame, failedFrame));
+        threadStackTrace.setThreadState("BLOCKED");
+        threadStackTrace.setThreadId(1L);
+        threadStackTrace.setNativeThreadId(4321L);
+        threadStackTrace.setTruncated(true);
+        HotSpotSAThreadStackTrace failedThreadStackTrace = new HotSpotSAThreadStackTrace("worker", 8);
+        failedThreadStackTrace.setError("Unable to walk stack");
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        result.addStackTrace(threadStackTrace);
+        result.addStackTrace(failedThreadStackTrace);
+
+        HotSpotSAStackTracerResult decoded = codecRegistry.decode(codecRegistry.encode(result));
+
+        Assert.assertEquals(result.getStackTraces(), decoded.getStackTraces());
+        HotSpotSAThreadStackTrace decodedThreadStackTrace = decoded.getThreadStackTrace("main");
+        Assert.assertEquals("BLOCKED", decodedThreadStackTrace.getThreadState());
+        Assert.assertEquals(1L, decodedThreadStackTrace.getThreadId());
+        Assert.assertEquals(4321L, decodedThreadStackTrace.getNativeThreadId());
+        Assert.assertTrue(decodedThreadStackTrace.isTruncated());
+        Assert.assertEquals(2, decodedThreadStackTrace.getFrames().size());
+
+        HotSpotSAStackFrame decodedFrame = decodedThreadStackTrace.getFrames().get(0);
+        Assert.assertEquals(0x7f00L, decodedFrame.getPc());
+        Assert.assertEquals(0x8f00L, decodedFrame.getMethodAddress());
+        Assert.assertEquals(HotSpotSAStackFrame.FrameType.COMPILED, decodedFrame.getFrameType());
+        Assert.assertTrue(decodedFrame.isDeoptimized());
+        Assert.assertNull(decodedFrame.getLocalValues());
+        List<Object> fieldValues = new ArrayList<Object>();
+        for (HotSpotSAStackValue field : decodedFrame.getParameters().get(0).getFields()) {
+            fieldValues.add(field.getValue());
+        }
+        Assert.assertEquals(Arrays.<Object>asList(3, 7L, 1.5d, 2.5f, 'q', true, (short) 4, (byte) 5, "pt"),
+                            fieldValues);
+        Assert.assertTrue(decodedFrame.getParameters().get(1).isTruncated());
+        Assert.assertTrue(decodedFrame.getLocalVariables().get(0).isVisited());
+        Assert.assertEquals("Unable to read locals", decodedThreadStackTrace.getFrames().get(1).getError());
+        Assert.assertEquals("Unable to walk stack", decoded.getThreadStackTrace("worker").getError());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void encodeAndDecodeFormattedStackTrace() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        result.addStackTrace("main", "|- Sample.main(java.lang.String[])");
+
+        HotSpotSAStackTracerResult decoded = codecRegistry.decode(codecRegistry.encode(result));
+
+        Assert.assertEquals("|- Sample.main(java.lang.String[])", decoded.getStackTrace("main"));
+        Assert.assertEquals("|- Sample.main(java.lang.String[])", decoded.getThreadStackTrace("main").getText());
+    }
+
+    @Test
+    public void encodeAndDecodeBatchResult() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotSAStackTracerResult itemResult = new HotSpotSAStackTracerResult();
+        itemResult.addStackTrace(new HotSpotSAThreadStackTrace("main", 8));
+        itemResult.setIncomplete(true);
+        HotSpotSABatchResult result = new HotSpotSABatchResult();
+        result.addResult(itemResult);
+        result.addError(new IllegalStateException("Unable to find thread"));
+        result.addResult(new SampleResult("value"));
+        result.setIncomplete(true);
+
+        HotSpotSABatchResult decoded = codecRegistry.decode(codecRegistry.encode(result));
+
+        Assert.assertEquals(3, decoded.size());
+        Assert.assertTrue(decoded.isIncomplete());
+        Assert.assertFalse(decoded.isFailed(0));
+        HotSpotSAStackTracerResult decodedItemResult = decoded.getResult(0);
+        Assert.assertNotNull(decodedItemResult.getThreadStackTrace("main"));
+        Assert.assertTrue(decodedItemResult.isIncomplete());
+        Assert.assertTrue(decoded.isFailed(1));
+        Assert.assertTrue(decoded.getError(1) instanceof IllegalStateException);
+        Assert.assertEquals("Unable to find thread", decoded.getError(1).getMessage());
+        SampleResult decodedSampleResult = decoded.getResult(2);
+        Assert.assertEquals("value", decodedSampleResult.getValue());
+    }
+
+    @Test
+    public void encodeAndDecodeSamplingProfilerResult() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.setSampleCount(10);
+        result.addStackSample(new HotSpotSAStackSample("main", "RUNNABLE", "main;run"), 7);
+        result.addStackSample(new HotSpotSAStackSample("worker", "BLOCKED", "run;lock"), 3);
+        result.setIncomplete(true);
+
+        HotSpotSASamplingProfilerResult decoded = codecRegistry.decode(codecRegistry.encode(result));
+
+        Assert.assertEquals(10, decoded.getSampleCount());
+        Assert.assertEquals(result.getStackSampleCounts(), decoded.getStackSampleCounts());
+        Assert.assertTrue(decoded.isIncomplete());
+    }
+
+    @Test
+    public void repeatedStringsAreWrittenOnce() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        String str = "java.lang.Thread.sleep(long)";
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        HotSpotServiceabilityAgentBinaryEncoder encoder =
+                new HotSpotServiceabilityAgentBinaryEncoder(baos, codecRegistry);
+        encoder.writeString(str);
+        encoder.flush();
+        int firstSize = baos.size();
+        encoder.writeString(new String(str));
+        encoder.writeString(null);
+        encoder.writeString("other");
+        encoder.writeString(str);
+        encoder.close();
+        // Repeated string is written as a reference to the first one
+        Assert.assertEquals(firstSize + 4 + 4 + (4 + 4 + "other".length()) + 4, baos.size());
+
+        HotSpotServiceabilityAgentBinaryDecoder decoder =
+                new HotSpotServiceabilityAgentBinaryDecoder(new ByteArrayInputStream(baos.toByteArray()),
+                                                            codecRegistry);
+        Assert.assertEquals(str, decoder.readString());
+        Assert.assertEquals(str, decoder.readString());
+        Assert.assertNull(decoder.readString());
+        Assert.assertEquals("other", decoder.readString());
+        Assert.assertEquals(str, decoder.readString());
+        decoder.close();
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void invalidStringReferenceIsRejected() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        // Refers to a string which has not been written before
+        out.writeInt(3);
+        out.close();
+
+        HotSpotServiceabilityAgentBinaryDecoder decoder =
+                new HotSpotServiceabilityAgentBinaryDecoder(new ByteArrayInputStream(baos.toByteArray()),
+                                                            codecRegistry);
+        decoder.readString();
+    }
+
+    @Test
+    public void objectWithoutCodecIsSerialized() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        ArrayList<String> list = new ArrayList<String>(Arrays.asList("a", "bb", null));
+
+        byte[] data = codecRegistry.encode(list);
+        Assert.assertEquals(HotSpotServiceabilityAgentBinaryEncoder.SERIALIZED_OBJECT, data[0]);
+        Assert.assertEquals(list, codecRegistry.decode(data));
+
+        SampleResult decodedResult = codecRegistry.decode(codecRegistry.encode(new SampleResult("value")));
+        Assert.assertEquals("value", decodedResult.getValue());
+
+        Assert.assertNull(codecRegistry.decode(codecRegistry.encode(null)));
+    }
+
+    @Test
+    public void customCodecIsUsedOnceRegistered() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        codecRegistry.registerCodec(new SampleResultCodec());
+
+        byte[] data = codecRegistry.encode(new SampleResult("value"));
+        Assert.assertEquals(HotSpotServiceabilityAgentBinaryEncoder.CODEC_OBJECT, data[0]);
+        SampleResult decodedResult = codecRegistry.decode(data);
+        Assert.assertEquals("decoded-value", decodedResult.getValue());
+        Assert.assertEquals(Collections.singletonList(SampleResultCodec.class.getName()),
+                            codecRegistry.getCustomCodecClassNames());
+
+        codecRegistry.deregisterCodec(SampleResult.class);
+        decodedResult = codecRegistry.decode(codecRegistry.encode(new SampleResult("value")));
+        Assert.assertEquals("value", decodedResult.getValue());
+        Assert.assertTrue(codecRegistry.getCustomCodecClassNames().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builtInCodecCannotBeOverridden() {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        codecRegistry.registerCodec(new HotSpotServiceabilityAgentCodec<HotSpotSAStackTracerResult>() {
+            @Override
+            public Class<HotSpotSAStackTracerResult> getType() {
+                return HotSpotSAStackTracerResult.class;
+            }
+
+            @Override
+            public void encode(HotSpotSAStackTracerResult result, HotSpotServiceabilityAgentEncoder encoder) {
+            }
+
+            @Override
+            public HotSpotSAStackTracerResult decode(HotSpotServiceabilityAgentDecoder decoder) {
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void customCodecsAreReplacedBySentOnes() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+
+        codecRegistry.replaceCustomCodecs(Collections.singletonList(SampleResultCodec.class.getName()));
+        Assert.assertTrue(codecRegistry.getCodec(SampleResult.class.getName()) instanceof SampleResultCodec);
+
+        // Codec of the same type has been changed at the caller process side
+        codecRegistry.replaceCustomCodecs(Collections.singletonList(AnotherSampleResultCodec.class.getName()));
+        SampleResult decodedResult = codecRegistry.decode(codecRegistry.encode(new SampleResult("value")));
+        Assert.assertEquals("another-value", decodedResult.getValue());
+
+        // Codec has been deregistered at the caller process side
+        codecRegistry.replaceCustomCodecs(Collections.<String>emptyList());
+        Assert.assertNull(codecRegistry.getCodec(SampleResult.class.getName()));
+        Assert.assertTrue(codecRegistry.getCustomCodecClassNames().isEmpty());
+        // Built-in codecs are kept
+        Assert.assertNotNull(codecRegistry.getCodec(HotSpotSAStackTracerResult.class.getName()));
+    }
+
+    @Test
+    public void requestReplacesCustomCodecsOfReceiver() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry callerCodecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotServiceabilityAgentCodecRegistry agentCodecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        HotSpotServiceabilityAgentRequest<HotSpotSAStackTracerParameter, HotSpotSAStackTracerResult> request =
+                new HotSpotServiceabilityAgentRequest<HotSpotSAStackTracerParameter, HotSpotSAStackTracerResult>(
+                        1234, "/tmp/pipeline", null, null, 5000, 1024);
+
+        callerCodecRegistry.registerCodec(new SampleResultCodec());
+        agentCodecRegistry.decode(callerCodecRegistry.encode(request));
+        Assert.assertEquals(callerCodecRegistry.getCustomCodecClassNames(),
+                            agentCodecRegistry.getCustomCodecClassNames());
+
+        callerCodecRegistry.deregisterCodec(SampleResult.class);
+        agentCodecRegistry.decode(callerCodecRegistry.encode(request));
+        Assert.assertTrue(agentCodecRegistry.getCustomCodecClassNames().isEmpty());
+    }
+
+    @Test
+    public void messagesAreLengthPrefixed() throws IOException {
+        HotSpotServiceabilityAgentCodecRegistry codecRegistry = new HotSpotServiceabilityAgentCodecRegistry();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        codecRegistry.writeMessage(out, new HotSpotServiceabilityAgentResponse<SampleResult>(64));
+        codecRegistry.writeMessage(out, "second");
+        out.close();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        HotSpotServiceabilityAgentResponse<SampleResult> response = codecRegistry.readMessage(in);
+        Assert.assertEquals(64, response.getPipelineDataSize());
+        Assert.assertEquals("second", codecRegistry.readMessage(in));
+        Assert.assertEquals(-1, in.read());
+        in.close();
+    }
+
+}
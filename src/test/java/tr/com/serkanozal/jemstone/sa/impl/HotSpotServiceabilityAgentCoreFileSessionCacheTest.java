@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentSession;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+public class HotSpotServiceabilityAgentCoreFileSessionCacheTest {
+
+    public static class SampleSession implements HotSpotServiceabilityAgentSession {
+
+        private boolean open = true;
+
+        @Override
+        public int getProcessId() {
+            return -1;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+        R execute(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+        R execute(Class<? extends HotSpotServiceabilityAgentWorker<P, R>> workerClass, P param) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+        R execute(HotSpotServiceabilityAgentWorker<P, R> worker) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <P extends HotSpotServiceabilityAgentParameter, R extends HotSpotServiceabilityAgentResult>
+        R execute(HotSpotServiceabilityAgentWorker<P, R> worker, P param) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+    }
+
+    public static class SampleSessionOpener
+            implements HotSpotServiceabilityAgentCoreFileSessionCache.SessionOpener<SampleSession> {
+
+        private int openCount;
+
+        @Override
+        public SampleSession openSession() {
+            openCount++;
+            return new SampleSession();
+        }
+
+    }
+
+    @Test
+    public void sessionIsReusedForSameKey() {
+        HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession> cache =
+                new HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession>(2, 60000);
+        SampleSessionOpener opener = new SampleSessionOpener();
+
+        SampleSession session1 = cache.acquire("core1", opener);
+        cache.release("core1", session1);
+        SampleSession session2 = cache.acquire("core1", opener);
+        cache.release("core1", session2);
+
+        Assert.assertSame(session1, session2);
+        Assert.assertEquals(1, opener.openCount);
+        Assert.assertEquals(1, cache.size());
+
+        cache.closeAll();
+    }
+
+    @Test
+    public void closedSessionIsReopened() {
+        HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession> cache =
+                new HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession>(2, 60000);
+        SampleSessionOpener opener = new SampleSessionOpener();
+
+        SampleSession session1 = cache.acquire("core1", opener);
+        cache.release("core1", session1);
+        session1.close();
+        SampleSession session2 = cache.acquire("core1", opener);
+        cache.release("core1", session2);
+
+        Assert.assertNotSame(session1, session2);
+        Assert.assertTrue(session2.isOpen());
+        Assert.assertEquals(2, opener.openCount);
+
+        cache.closeAll();
+    }
+
+    @Test
+    public void leastRecentlyUsedSessionIsClosedWhenMaxSessionsIsExceeded() {
+        HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession> cache =
+                new HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession>(2, 60000);
+        SampleSessionOpener opener = new SampleSessionOpener();
+
+        SampleSession session1 = cache.acquire("core1", opener);
+        cache.release("core1", session1);
+        SampleSession session2 = cache.acquire("core2", opener);
+        cache.release("core2", session2);
+        cache.release("core1", cache.acquire("core1", opener));
+        SampleSession session3 = cache.acquire("core3", opener);
+        cache.release("core3", session3);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertTrue(session1.isOpen());
+        Assert.assertFalse(session2.isOpen());
+        Assert.assertTrue(session3.isOpen());
+
+        cache.closeAll();
+    }
+
+    @Test
+    public void sessionInUseIsNotClosedWhenMaxSessionsIsExceeded() {
+        HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession> cache =
+                new HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession>(1, 60000);
+        SampleSessionOpener opener = new SampleSessionOpener();
+
+        SampleSession session1 = cache.acquire("core1", opener);
+        SampleSession session2 = cache.acquire("core2", opener);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertTrue(session1.isOpen());
+        Assert.assertTrue(session2.isOpen());
+
+        cache.release("core1", session1);
+        cache.release("core2", session2);
+        SampleSession session3 = cache.acquire("core3", opener);
+        cache.release("core3", session3);
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertFalse(session1.isOpen());
+        Assert.assertFalse(session2.isOpen());
+        Assert.assertTrue(session3.isOpen());
+
+        cache.closeAll();
+    }
+
+    @Test
+    public void idleSessionIsClosed() {
+        HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession> cache =
+                new HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession>(2, 60000);
+        SampleSessionOpener opener = new SampleSessionOpener();
+
+        SampleSession session1 = cache.acquire("core1", opener);
+        SampleSession session2 = cache.acquire("core2", opener);
+        cache.release("core2", session2);
+
+        cache.closeIdleSessions(System.nanoTime());
+
+        Assert.assertTrue(session2.isOpen());
+
+        cache.closeIdleSessions(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertTrue(session1.isOpen());
+        Assert.assertFalse(session2.isOpen());
+
+        cache.release("core1", session1);
+        cache.closeAll();
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertFalse(session1.isOpen());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxSessionsMustBePositive() {
+        new HotSpotServiceabilityAgentCoreFileSessionCache<SampleSession>(0, 60000);
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotServiceabilityAgentFutureTest {
+
+    public static class SampleCancelHandler implements Runnable {
+
+        private int runCount;
+
+        @Override
+        public void run() {
+            runCount++;
+        }
+
+    }
+
+    @Test
+    public void cancelHandlerIsRunOnceOnCancel() {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        SampleCancelHandler cancelHandler = new SampleCancelHandler();
+        future.setCancelHandler(cancelHandler);
+
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(future.cancel(true));
+
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertEquals(1, cancelHandler.runCount);
+    }
+
+    @Test
+    public void cancelHandlerIsRunWhenItIsSetAfterCancel() {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        SampleCancelHandler cancelHandler = new SampleCancelHandler();
+
+        future.cancel(true);
+        future.setCancelHandler(cancelHandler);
+
+        Assert.assertEquals(1, cancelHandler.runCount);
+    }
+
+    @Test
+    public void unsetCancelHandlerIsNotRun() {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        SampleCancelHandler cancelHandler = new SampleCancelHandler();
+        future.setCancelHandler(cancelHandler);
+        future.setCancelHandler(null);
+
+        future.cancel(true);
+
+        Assert.assertEquals(0, cancelHandler.runCount);
+    }
+
+    @Test
+    public void cancelHandlerIsNotRunAfterCompletion() {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        SampleCancelHandler cancelHandler = new SampleCancelHandler();
+        future.setCancelHandler(cancelHandler);
+
+        future.complete("result");
+
+        Assert.assertFalse(future.cancel(true));
+        Assert.assertEquals(0, cancelHandler.runCount);
+    }
+
+    @Test
+    public void futureIsBoundToCurrentThread() {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+
+        future.bindToCurrentThread();
+
+        Assert.assertSame(future, HotSpotServiceabilityAgentFuture.current());
+
+        future.unbindFromCurrentThread();
+
+        Assert.assertNull(HotSpotServiceabilityAgentFuture.current());
+    }
+
+    public static class SampleExecution extends Thread {
+
+        private final HotSpotServiceabilityAgentFuture<String> future;
+        private final long startDelayInMsecs;
+        private final long durationInMsecs;
+
+        public SampleExecution(HotSpotServiceabilityAgentFuture<String> future,
+                               long startDelayInMsecs, long durationInMsecs) {
+            this.future = future;
+            this.startDelayInMsecs = startDelayInMsecs;
+            this.durationInMsecs = durationInMsecs;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(startDelayInMsecs);
+                future.markStarted();
+                Thread.sleep(durationInMsecs);
+                future.complete("result");
+            } catch (InterruptedException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+    }
+
+    @Test
+    public void resultIsReturnedIfExecutionCompletesInTime() throws Exception {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        new SampleExecution(future, 0, 50).start();
+
+        Assert.assertEquals("result", future.getAfterStart(5000));
+    }
+
+    @Test
+    public void timeoutStartsWhenExecutionIsStarted() throws Exception {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        // Waits for a free thread longer than the timeout, but completes in time after it is started
+        new SampleExecution(future, 600, 100).start();
+
+        Assert.assertEquals("result", future.getAfterStart(400));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void startedExecutionTimesOut() throws Exception {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        new SampleExecution(future, 0, 5000).start();
+
+        future.getAfterStart(100);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void executionStartedLateTimesOut() throws Exception {
+        HotSpotServiceabilityAgentFuture<String> future = new HotSpotServiceabilityAgentFuture<String>();
+        new SampleExecution(future, 300, 5000).start();
+
+        future.getAfterStart(100);
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotServiceabilityAgentPipelineHeaderTest {
+
+    @Test
+    public void cancelIsNotRequestedInitially() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        Assert.assertFalse(HotSpotServiceabilityAgentPipelineHeader.isCancelRequested(buffer));
+    }
+
+    @Test
+    public void cancelIsRequested() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        HotSpotServiceabilityAgentPipelineHeader.requestCancel(buffer);
+
+        Assert.assertTrue(HotSpotServiceabilityAgentPipelineHeader.isCancelRequested(buffer));
+    }
+
+    @Test
+    public void cancelRequestDoesNotOverwriteSequences() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+        HotSpotServiceabilityAgentPipelineHeader.setStatus(buffer,
+                                                           HotSpotServiceabilityAgentPipelineHeader.STATUS_ATTACHED);
+        HotSpotServiceabilityAgentPipelineHeader.setWriteSequence(buffer, 100);
+        HotSpotServiceabilityAgentPipelineHeader.setReadSequence(buffer, 50);
+
+        HotSpotServiceabilityAgentPipelineHeader.requestCancel(buffer);
+
+        Assert.assertEquals(HotSpotServiceabilityAgentPipelineHeader.STATUS_ATTACHED,
+                            HotSpotServiceabilityAgentPipelineHeader.getStatus(buffer));
+        Assert.assertEquals(100, HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(buffer));
+        Assert.assertEquals(50, HotSpotServiceabilityAgentPipelineHeader.getReadSequence(buffer));
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotServiceabilityAgentPipelineTransferTest {
+
+    public static class WriterProcess extends Process {
+
+        private volatile boolean alive = true;
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return alive;
+        }
+
+        @Override
+        public void destroy() {
+            alive = false;
+        }
+
+    }
+
+    public static class WriterThread extends Thread {
+
+        private final ByteBuffer pipelineBuffer;
+        private final int dataAreaSize;
+        private final byte[] data;
+        private volatile Throwable error;
+
+        public WriterThread(ByteBuffer pipelineBuffer, int dataAreaSize, byte[] data) {
+            this.pipelineBuffer = pipelineBuffer;
+            this.dataAreaSize = dataAreaSize;
+            this.data = data;
+        }
+
+        @Override
+        public void run() {
+            try {
+                HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, dataAreaSize, data, 5000);
+            } catch (Throwable t) {
+                error = t;
+            }
+        }
+
+    }
+
+    @Test
+    public void dataFittingIntoDataAreaIsTransferred() throws IOException {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 64);
+        byte[] data = new byte[40];
+        new Random(40).nextBytes(data);
+
+        HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, 64, data, 5000);
+        Assert.assertEquals(40, HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(pipelineBuffer));
+        Assert.assertEquals(0, HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer));
+
+        byte[] read = HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 64, 40, 5000,
+                                                                      new WriterProcess());
+        Assert.assertArrayEquals(data, read);
+        Assert.assertEquals(40, HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer));
+    }
+
+    @Test
+    public void dataBiggerThanDataAreaIsTransferredByWrappingAround() throws Exception {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 16);
+        byte[] data = new byte[1000];
+        new Random(1000).nextBytes(data);
+
+        WriterThread writer = new WriterThread(pipelineBuffer, 16, data);
+        writer.start();
+        byte[] read = HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 16, 1000, 5000,
+                                                                      new WriterProcess());
+        writer.join();
+
+        Assert.assertNull(writer.error);
+        Assert.assertArrayEquals(data, read);
+        Assert.assertEquals(1000, HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(pipelineBuffer));
+        Assert.assertEquals(1000, HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer));
+    }
+
+    @Test
+    public void consecutiveTransfersContinueFromCurrentSequences() throws Exception {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 16);
+        // Sequences are not reset between transfers (for example, records and then the result data),
+        // so they might be far beyond the data area size and even the integer range
+        long initialSequence = 3L * Integer.MAX_VALUE + 5;
+        HotSpotServiceabilityAgentPipelineHeader.setWriteSequence(pipelineBuffer, initialSequence);
+        HotSpotServiceabilityAgentPipelineHeader.setReadSequence(pipelineBuffer, initialSequence);
+        byte[] first = new byte[10];
+        new Random(10).nextBytes(first);
+        byte[] second = new byte[100];
+        new Random(100).nextBytes(second);
+
+        HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, 16, first, 5000);
+        Assert.assertArrayEquals(first,
+                                 HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 16, 10, 5000,
+                                                                                 new WriterProcess()));
+        WriterThread writer = new WriterThread(pipelineBuffer, 16, second);
+        writer.start();
+        byte[] read = HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 16, 100, 5000,
+                                                                      new WriterProcess());
+        writer.join();
+
+        Assert.assertNull(writer.error);
+        Assert.assertArrayEquals(second, read);
+        Assert.assertEquals(initialSequence + 110,
+                            HotSpotServiceabilityAgentPipelineHeader.getWriteSequence(pipelineBuffer));
+        Assert.assertEquals(initialSequence + 110,
+                            HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer));
+    }
+
+    @Test
+    public void readDoesNotConsumeMoreThanRequested() throws IOException {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 64);
+        byte[] data = new byte[10];
+        new Random(10).nextBytes(data);
+        HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, 64, data, 5000);
+
+        byte[] head = HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 64, 4, 5000, new WriterProcess());
+        Assert.assertEquals(4, HotSpotServiceabilityAgentPipelineHeader.getReadSequence(pipelineBuffer));
+        byte[] tail = HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 64, 6, 5000, new WriterProcess());
+
+        byte[] read = new byte[10];
+        System.arraycopy(head, 0, read, 0, 4);
+        System.arraycopy(tail, 0, read, 4, 6);
+        Assert.assertArrayEquals(data, read);
+    }
+
+    @Test(expected = IOException.class)
+    public void writeFailsIfReaderDoesNotFreeSpace() throws IOException {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 8);
+
+        HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, 8, new byte[16], 50);
+    }
+
+    @Test(expected = IOException.class)
+    public void readFailsIfWriterDoesNotWrite() throws IOException {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 8);
+
+        HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 8, 4, 50, new WriterProcess());
+    }
+
+    @Test
+    public void readFailsIfWriterHasTerminated() {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 8);
+        WriterProcess writerProcess = new WriterProcess();
+        writerProcess.destroy();
+
+        try {
+            HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 8, 4, 5000, writerProcess);
+            Assert.fail("Read must fail when writer has terminated without writing");
+        } catch (IOException e) {
+            Assert.assertFalse(e instanceof InterruptedIOException);
+            Assert.assertTrue(e.getMessage().contains("terminated"));
+        }
+    }
+
+    @Test
+    public void dataPublishedBeforeWriterHasTerminatedIsRead() throws IOException {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 8);
+        byte[] data = new byte[] { 1, 2, 3, 4 };
+        HotSpotServiceabilityAgentPipelineTransfer.write(pipelineBuffer, 8, data, 5000);
+        WriterProcess writerProcess = new WriterProcess();
+        writerProcess.destroy();
+
+        Assert.assertArrayEquals(data, HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 8, 4, 5000,
+                                                                                       writerProcess));
+    }
+
+    @Test
+    public void readIsGivenUpWhenInterrupted() throws IOException {
+        ByteBuffer pipelineBuffer =
+                ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE + 8);
+        Thread.currentThread().interrupt();
+
+        try {
+            HotSpotServiceabilityAgentPipelineTransfer.read(pipelineBuffer, 8, 4, 5000, new WriterProcess());
+            Assert.fail("Read must be given up when interrupted");
+        } catch (InterruptedIOException e) {
+            // Interrupt is kept for the caller (and cleared here for the next tests)
+            Assert.assertTrue(Thread.interrupted());
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotServiceabilityAgentProbeCacheTest {
+
+    @Test
+    public void storedEntryIsLoaded() throws IOException {
+        File cacheDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        cacheDirectory.deleteOnExit();
+
+        new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").store(
+                new HotSpotServiceabilityAgentProbeCache.Entry(
+                        "/jdk/lib/sa-jdi.jar",
+                        Collections.singletonMap("sun.jvm.hotspot.debugger.useProcDebugger", "true"),
+                        true));
+        File[] files = cacheDirectory.listFiles();
+        files[0].deleteOnExit();
+        HotSpotServiceabilityAgentProbeCache.Entry entry =
+                new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").load();
+
+        Assert.assertNotNull(entry);
+        Assert.assertEquals("/jdk/lib/sa-jdi.jar", entry.getClasspathForAgent());
+        Assert.assertTrue(entry.isSudoRequired());
+        Assert.assertEquals(Collections.singletonMap("sun.jvm.hotspot.debugger.useProcDebugger", "true"),
+                            entry.getAdditionalVmArguments());
+        // Only the entry itself is left, temporary file has been moved
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].getName().endsWith(".properties"));
+    }
+
+    @Test
+    public void nothingIsLoadedIfNothingIsStored() throws IOException {
+        File cacheDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        cacheDirectory.deleteOnExit();
+
+        Assert.assertNull(new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").load());
+    }
+
+    @Test
+    public void entryIsNotLoadedForDifferentClasspath() throws IOException {
+        File cacheDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        cacheDirectory.deleteOnExit();
+
+        new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").store(
+                new HotSpotServiceabilityAgentProbeCache.Entry(
+                        "/jdk/lib/sa-jdi.jar", new HashMap<String, String>(), false));
+        cacheDirectory.listFiles()[0].deleteOnExit();
+
+        Assert.assertNull(new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/other.jar").load());
+    }
+
+    @Test
+    public void entryIsNotLoadedIfStoredKeyDiffers() throws IOException {
+        File cacheDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        cacheDirectory.deleteOnExit();
+        new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").store(
+                new HotSpotServiceabilityAgentProbeCache.Entry(
+                        "/jdk/lib/sa-jdi.jar", new HashMap<String, String>(), false));
+        File cacheFile = cacheDirectory.listFiles()[0];
+        cacheFile.deleteOnExit();
+
+        // Simulate an entry of another key whose hash is the same
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(cacheFile);
+        props.load(in);
+        in.close();
+        props.setProperty("key", props.getProperty("key") + File.pathSeparator + "/opt/other.jar");
+        OutputStream out = new FileOutputStream(cacheFile);
+        props.store(out, null);
+        out.close();
+
+        Assert.assertNull(new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").load());
+    }
+
+    @Test
+    public void entryWithoutClasspathForAgentIsNotLoaded() throws IOException {
+        File cacheDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        cacheDirectory.deleteOnExit();
+        new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").store(
+                new HotSpotServiceabilityAgentProbeCache.Entry(
+                        "/jdk/lib/sa-jdi.jar", new HashMap<String, String>(), false));
+        File cacheFile = cacheDirectory.listFiles()[0];
+        cacheFile.deleteOnExit();
+
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(cacheFile);
+        props.load(in);
+        in.close();
+        props.remove("classpathForAgent");
+        OutputStream out = new FileOutputStream(cacheFile);
+        props.store(out, null);
+        out.close();
+
+        Assert.assertNull(new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").load());
+    }
+
+    @Test
+    public void storedEntryIsReplaced() throws IOException {
+        File cacheDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        cacheDirectory.deleteOnExit();
+        HotSpotServiceabilityAgentProbeCache probeCache =
+                new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar");
+
+        probeCache.store(new HotSpotServiceabilityAgentProbeCache.Entry(
+                                "/jdk/lib/sa-jdi.jar",
+                                Collections.singletonMap("sun.jvm.hotspot.debugger.useProcDebugger", "true"),
+                                true));
+        probeCache.store(new HotSpotServiceabilityAgentProbeCache.Entry(
+                                "/jdk/lib/tools.jar", new HashMap<String, String>(), false));
+        File[] files = cacheDirectory.listFiles();
+        files[0].deleteOnExit();
+        HotSpotServiceabilityAgentProbeCache.Entry entry = probeCache.load();
+
+        Assert.assertEquals("/jdk/lib/tools.jar", entry.getClasspathForAgent());
+        Assert.assertFalse(entry.isSudoRequired());
+        Assert.assertTrue(entry.getAdditionalVmArguments().isEmpty());
+        Assert.assertEquals(1, files.length);
+    }
+
+    @Test
+    public void missingCacheDirectoryIsCreated() throws IOException {
+        File parentDirectory = Files.createTempDirectory("jemstone-probe-cache").toFile();
+        parentDirectory.deleteOnExit();
+        File cacheDirectory = new File(parentDirectory, "probe");
+
+        new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").store(
+                new HotSpotServiceabilityAgentProbeCache.Entry(
+                        "/jdk/lib/sa-jdi.jar", new HashMap<String, String>(), false));
+        cacheDirectory.deleteOnExit();
+        cacheDirectory.listFiles()[0].deleteOnExit();
+
+        Assert.assertNotNull(new HotSpotServiceabilityAgentProbeCache(cacheDirectory, "/opt/app/lib/app.jar").load());
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+public class HotSpotServiceabilityAgentProcessTest {
+
+    @SuppressWarnings("serial")
+    public static class SampleResult implements HotSpotServiceabilityAgentResult {
+
+        private final String value;
+
+        public SampleResult(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    public static class SampleWorker
+            implements HotSpotServiceabilityAgentWorker<HotSpotServiceabilityAgentParameter, SampleResult> {
+
+        private final long durationInMsecs;
+        private final boolean ignoreCancellation;
+
+        public SampleWorker(long durationInMsecs, boolean ignoreCancellation) {
+            this.durationInMsecs = durationInMsecs;
+            this.ignoreCancellation = ignoreCancellation;
+        }
+
+        @Override
+        public SampleResult run(HotSpotServiceabilityAgentContext context, HotSpotServiceabilityAgentParameter param) {
+            context.publishPartialResult(new SampleResult("partial"));
+            // Busy wait, so the interrupt is not noticed either
+            long deadline = System.currentTimeMillis() + durationInMsecs;
+            while (System.currentTimeMillis() < deadline) {
+                if (!ignoreCancellation && context.isCancelled()) {
+                    return new SampleResult("cancelled");
+                }
+            }
+            return new SampleResult("completed");
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    public static class FailingWorker
+            implements HotSpotServiceabilityAgentWorker<HotSpotServiceabilityAgentParameter, SampleResult> {
+
+        private final boolean failOnInterrupt;
+
+        public FailingWorker(boolean failOnInterrupt) {
+            this.failOnInterrupt = failOnInterrupt;
+        }
+
+        @Override
+        public SampleResult run(HotSpotServiceabilityAgentContext context, HotSpotServiceabilityAgentParameter param) {
+            context.publishPartialResult(new SampleResult("partial"));
+            if (!failOnInterrupt) {
+                throw new IllegalArgumentException("Invalid parameter");
+            }
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Interrupted");
+            }
+            return new SampleResult("completed");
+        }
+
+    }
+
+    @Test
+    public void resultIsReturnedIfWorkerCompletesInTime() throws Throwable {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        ByteBuffer pipelineBuffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        SampleResult result =
+                HotSpotServiceabilityAgentProcess.runWorkerWithWatchdog(
+                        new SampleWorker(50, false), context, null, pipelineBuffer,
+                        System.nanoTime(), TimeUnit.SECONDS.toNanos(5), null);
+
+        Assert.assertEquals("completed", result.getValue());
+        Assert.assertFalse(context.isCancelled());
+    }
+
+    @Test
+    public void workerExceedingMaxPauseTimeIsCancelled() throws Throwable {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        ByteBuffer pipelineBuffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        SampleResult result =
+                HotSpotServiceabilityAgentProcess.runWorkerWithWatchdog(
+                        new SampleWorker(5000, false), context, null, pipelineBuffer,
+                        System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(50), null);
+
+        Assert.assertEquals("cancelled", result.getValue());
+        Assert.assertTrue(context.isCancelled());
+    }
+
+    @Test
+    public void workerIsCancelledOverPipeline() throws Throwable {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        ByteBuffer pipelineBuffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+        HotSpotServiceabilityAgentPipelineHeader.requestCancel(pipelineBuffer);
+
+        // Pause time is not limited, so worker is cancelled only by the caller process
+        SampleResult result =
+                HotSpotServiceabilityAgentProcess.runWorkerWithWatchdog(
+                        new SampleWorker(5000, false), context, null, pipelineBuffer,
+                        System.nanoTime(), 0, null);
+
+        Assert.assertEquals("cancelled", result.getValue());
+        Assert.assertTrue(context.isCancelled());
+    }
+
+    @Test
+    public void partialResultIsReturnedIfWorkerFailsAfterCancellation() throws Throwable {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        ByteBuffer pipelineBuffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        SampleResult result =
+                HotSpotServiceabilityAgentProcess.runWorkerWithWatchdog(
+                        new FailingWorker(true), context, null, pipelineBuffer,
+                        System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(50), null);
+
+        Assert.assertEquals("partial", result.getValue());
+        Assert.assertTrue(context.isCancelled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void errorOfWorkerIsThrownIfItIsNotCancelled() throws Throwable {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        ByteBuffer pipelineBuffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        HotSpotServiceabilityAgentProcess.runWorkerWithWatchdog(
+                new FailingWorker(false), context, null, pipelineBuffer,
+                System.nanoTime(), TimeUnit.SECONDS.toNanos(5), null);
+    }
+
+    @Test
+    public void workerNotRespondingToCancellationIsAbandoned() throws Throwable {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        ByteBuffer pipelineBuffer = ByteBuffer.allocateDirect(HotSpotServiceabilityAgentPipelineHeader.HEADER_SIZE);
+
+        long startTime = System.currentTimeMillis();
+        SampleResult result =
+                HotSpotServiceabilityAgentProcess.runWorkerWithWatchdog(
+                        new SampleWorker(1000, true), context, null, pipelineBuffer,
+                        System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(50), null);
+
+        // Published result is returned after the grace period without waiting for the worker
+        Assert.assertEquals("partial", result.getValue());
+        Assert.assertTrue(System.currentTimeMillis() - startTime < 1000);
+        Assert.assertTrue(context.isCancelled());
+        // HotSpot agent process retires after the request, since the worker is still running
+        Assert.assertTrue(HotSpotServiceabilityAgentProcess.isWorkerAbandoned());
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotServiceabilityAgentRecordIteratorTest {
+
+    @Test
+    public void recordsAreIteratedInOrder() {
+        HotSpotServiceabilityAgentRecordIterator<String> iterator = 
+                new HotSpotServiceabilityAgentRecordIterator<String>();
+        iterator.onRecord("a");
+        iterator.onRecord("b");
+        iterator.complete(null);
+
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals("a", iterator.next());
+        Assert.assertEquals("b", iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void errorIsThrownAfterRecords() {
+        HotSpotServiceabilityAgentRecordIterator<String> iterator = 
+                new HotSpotServiceabilityAgentRecordIterator<String>();
+        iterator.onRecord("a");
+        iterator.complete(new IllegalStateException());
+
+        Assert.assertEquals("a", iterator.next());
+        iterator.hasNext();
+    }
+
+    @Test
+    public void closeCancelsExecution() {
+        HotSpotServiceabilityAgentRecordIterator<String> iterator = 
+                new HotSpotServiceabilityAgentRecordIterator<String>();
+        CompletableFuture<Object> execution = new CompletableFuture<Object>();
+        iterator.bind(execution);
+        iterator.onRecord("a");
+
+        iterator.close();
+
+        Assert.assertTrue(execution.isCancelled());
+        Assert.assertFalse(iterator.hasNext());
+        iterator.onRecord("b");
+        iterator.complete(null);
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void executionBoundAfterCloseIsCancelled() {
+        HotSpotServiceabilityAgentRecordIterator<String> iterator = 
+                new HotSpotServiceabilityAgentRecordIterator<String>();
+        CompletableFuture<Object> execution = new CompletableFuture<Object>();
+
+        iterator.close();
+        iterator.bind(execution);
+
+        Assert.assertTrue(execution.isCancelled());
+    }
+
+    @Test
+    public void closeReleasesWaitingRecordHandling() throws InterruptedException {
+        final HotSpotServiceabilityAgentRecordIterator<Integer> iterator = 
+                new HotSpotServiceabilityAgentRecordIterator<Integer>();
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                // More than the iterator buffers, so handling waits until it is closed
+                for (int i = 0; i < 10000; i++) {
+                    iterator.onRecord(i);
+                }
+            }
+        };
+        producer.start();
+        Assert.assertEquals(Integer.valueOf(0), iterator.next());
+
+        iterator.close();
+        producer.join(10000);
+
+        Assert.assertFalse(producer.isAlive());
+    }
+
+}
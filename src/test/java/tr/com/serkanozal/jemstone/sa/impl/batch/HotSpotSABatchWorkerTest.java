@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentContext;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentParameter;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentPartialResult;
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentWorker;
+
+public class HotSpotSABatchWorkerTest {
+
+    @SuppressWarnings("serial")
+    public static class SampleResult implements HotSpotServiceabilityAgentPartialResult {
+
+        private final int value;
+        private boolean incomplete;
+
+        public SampleResult(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isIncomplete() {
+            return incomplete;
+        }
+
+        @Override
+        public void setIncomplete(boolean incomplete) {
+            this.incomplete = incomplete;
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    public static class SampleWorker 
+            implements HotSpotServiceabilityAgentWorker<HotSpotServiceabilityAgentParameter, SampleResult> {
+
+        private final int value;
+        private final boolean cancel;
+
+        public SampleWorker(int value, boolean cancel) {
+            this.value = value;
+            this.cancel = cancel;
+        }
+
+        @Override
+        public SampleResult run(HotSpotServiceabilityAgentContext context, HotSpotServiceabilityAgentParameter param) {
+            if (cancel) {
+                // As if maximum pause time has been exceeded while this worker is running
+                context.cancel();
+            }
+            return new SampleResult(value);
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    public static class FailingWorker 
+            implements HotSpotServiceabilityAgentWorker<HotSpotServiceabilityAgentParameter, SampleResult> {
+
+        @Override
+        public SampleResult run(HotSpotServiceabilityAgentContext context, HotSpotServiceabilityAgentParameter param) {
+            throw new IllegalStateException("failed");
+        }
+
+    }
+
+    @Test
+    public void allItemsAreExecuted() {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        HotSpotSABatchParameter param = 
+                new HotSpotSABatchParameter()
+                        .addItem(new HotSpotSABatchItem<HotSpotServiceabilityAgentParameter, SampleResult>(
+                                        new SampleWorker(1, false)))
+                        .addItem(new HotSpotSABatchItem<HotSpotServiceabilityAgentParameter, SampleResult>(
+                                        new FailingWorker()))
+                        .addItem(new HotSpotSABatchItem<HotSpotServiceabilityAgentParameter, SampleResult>(
+                                        new SampleWorker(3, false)));
+
+        HotSpotSABatchResult result = new HotSpotSABatchWorker().run(context, param);
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertFalse(result.isIncomplete());
+        Assert.assertEquals(1, result.<SampleResult>getResult(0).getValue());
+        Assert.assertTrue(result.isFailed(1));
+        Assert.assertEquals(3, result.<SampleResult>getResult(2).getValue());
+
+        HotSpotSABatchResult partialResult = (HotSpotSABatchResult) context.getPartialResult();
+        Assert.assertNotSame(result, partialResult);
+        Assert.assertEquals(3, partialResult.size());
+    }
+
+    @Test
+    public void remainingItemsAreNotExecutedAfterCancel() throws InterruptedException {
+        HotSpotServiceabilityAgentContext context = new HotSpotServiceabilityAgentContext(null, null);
+        HotSpotSABatchParameter param = 
+                new HotSpotSABatchParameter()
+                        .addItem(new HotSpotSABatchItem<HotSpotServiceabilityAgentParameter, SampleResult>(
+                                        new SampleWorker(1, false)))
+                        .addItem(new HotSpotSABatchItem<HotSpotServiceabilityAgentParameter, SampleResult>(
+                                        new SampleWorker(2, true)))
+                        .addItem(new HotSpotSABatchItem<HotSpotServiceabilityAgentParameter, SampleResult>(
+                                        new SampleWorker(3, false)));
+
+        HotSpotSABatchResult result = new HotSpotSABatchWorker().run(context, param);
+
+        // Cancel interrupt is kept for the rest of the cancelled execution
+        Assert.assertTrue(Thread.interrupted());
+        Assert.assertEquals(2, result.size());
+        Assert.assertFalse(result.<SampleResult>getResult(0).isIncomplete());
+        Assert.assertTrue(result.<SampleResult>getResult(1).isIncomplete());
+
+        HotSpotSABatchResult partialResult = (HotSpotSABatchResult) context.getPartialResult();
+        Assert.assertEquals(1, partialResult.size());
+    }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotSAJvmDiscoveryTest {
+
+    // Builds performance data in the layout exported by HotSpot JVMs:
+    // 32 bytes of prologue followed by the entries,
+    // each of which has 20 bytes of header, the nul terminated name and the data
+    public static class SamplePerfData {
+
+        private final List<byte[]> names = new ArrayList<byte[]>();
+        private final List<byte[]> values = new ArrayList<byte[]>();
+        private final List<Byte> dataTypes = new ArrayList<Byte>();
+        private int magic = 0xCAFEC0C0;
+        private byte accessible = 1;
+        private int extraEntryCount;
+
+        public SamplePerfData setMagic(int magic) {
+            this.magic = magic;
+            return this;
+        }
+
+        public SamplePerfData setAccessible(boolean accessible) {
+            this.accessible = accessible ? (byte) 1 : (byte) 0;
+            return this;
+        }
+
+        public SamplePerfData setExtraEntryCount(int extraEntryCount) {
+            this.extraEntryCount = extraEntryCount;
+            return this;
+        }
+
+        public SamplePerfData addString(String name, String value) {
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+            // String counters are byte arrays with a nul terminator and a fixed capacity
+            byte[] bytes = new byte[value.length() + 16];
+            byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(valueBytes, 0, bytes, 0, valueBytes.length);
+            values.add(bytes);
+            dataTypes.add((byte) 'B');
+            return this;
+        }
+
+        public SamplePerfData addLong(String name, long value) {
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+            values.add(ByteBuffer.allocate(8).putLong(value).array());
+            dataTypes.add((byte) 'J');
+            return this;
+        }
+
+        public ByteBuffer build(ByteOrder byteOrder) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.BIG_ENDIAN);
+            buffer.putInt(magic);
+            buffer.order(byteOrder);
+            buffer.put(byteOrder == ByteOrder.BIG_ENDIAN ? (byte) 0 : (byte) 1);
+            buffer.put((byte) 2); // Major version
+            buffer.put((byte) 0); // Minor version
+            buffer.put(accessible);
+            buffer.position(24);
+            buffer.putInt(32); // Entry offset
+            buffer.putInt(names.size() + extraEntryCount);
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i);
+                byte dataType = dataTypes.get(i);
+                byte[] value = values.get(i);
+                int nameOffset = 20;
+                // Data is aligned to 8 bytes
+                int dataOffset = (nameOffset + name.length + 1 + 7) & ~7;
+                int entryLength = (dataOffset + value.length + 7) & ~7;
+                int entryStart = buffer.position();
+                buffer.putInt(entryLength);
+                buffer.putInt(nameOffset);
+                buffer.putInt(dataType == 'B' ? value.length : 0);
+                buffer.put(dataType);
+                buffer.put((byte) 0); // Flags
+                buffer.put((byte) 0); // Units
+                buffer.put((byte) 0); // Variability
+                buffer.putInt(dataOffset);
+                buffer.put(name);
+                buffer.position(entryStart + dataOffset);
+                if (dataType == 'J') {
+                    buffer.putLong(ByteBuffer.wrap(value).getLong());
+                } else {
+                    buffer.put(value);
+                }
+                buffer.position(entryStart + entryLength);
+            }
+            buffer.flip();
+            return buffer.slice();
+        }
+
+        public SamplePerfData addJvmCounters() {
+            return addString("sun.rt.javaCommand", "com.acme.Main --port 8080")
+                    .addLong("sun.os.hrt.frequency", 1000000000L)
+                    .addString("java.property.java.vm.name", "OpenJDK 64-Bit Server VM")
+                    .addLong("sun.os.hrt.ticks", 5000000000L)
+                    .addString("java.property.java.vm.version", "25.392-b08")
+                    .addLong("sun.rt.createVmBeginTime", 1500000000000L);
+        }
+
+    }
+
+    @Test
+    public void bigEndianPerfDataIsParsed() {
+        ByteBuffer buffer = new SamplePerfData().addJvmCounters().build(ByteOrder.BIG_ENDIAN);
+
+        HotSpotSAJvmInfo jvm = HotSpotSAJvmDiscovery.parsePerfData(1234, buffer);
+
+        Assert.assertEquals(1234, jvm.getProcessId());
+        Assert.assertEquals("com.acme.Main --port 8080", jvm.getJavaCommand());
+        Assert.assertEquals("com.acme.Main", jvm.getMainClass());
+        Assert.assertEquals("OpenJDK 64-Bit Server VM", jvm.getJvmName());
+        Assert.assertEquals("25.392-b08", jvm.getJvmVersion());
+        Assert.assertEquals(1500000000000L, jvm.getStartTime());
+        // Uptime is calculated from high resolution ticks and their frequency
+        Assert.assertEquals(5000L, jvm.getUptime());
+    }
+
+    @Test
+    public void littleEndianPerfDataIsParsed() {
+        ByteBuffer buffer = new SamplePerfData().addJvmCounters().build(ByteOrder.LITTLE_ENDIAN);
+
+        HotSpotSAJvmInfo jvm = HotSpotSAJvmDiscovery.parsePerfData(1234, buffer);
+
+        Assert.assertEquals(1234, jvm.getProcessId());
+        Assert.assertEquals("com.acme.Main --port 8080", jvm.getJavaCommand());
+        Assert.assertEquals("com.acme.Main", jvm.getMainClass());
+        Assert.assertEquals("OpenJDK 64-Bit Server VM", jvm.getJvmName());
+        Assert.assertEquals("25.392-b08", jvm.getJvmVersion());
+        Assert.assertEquals(1500000000000L, jvm.getStartTime());
+        Assert.assertEquals(5000L, jvm.getUptime());
+    }
+
+    @Test
+    public void perfDataWithUnknownMagicIsIgnored() {
+        ByteBuffer buffer = new SamplePerfData().addJvmCounters().setMagic(0xCAFEBABE).build(ByteOrder.BIG_ENDIAN);
+
+        Assert.assertNull(HotSpotSAJvmDiscovery.parsePerfData(1234, buffer));
+    }
+
+    @Test
+    public void inaccessiblePerfDataIsIgnored() {
+        // Performance data is not accessible until JVM has initialized it
+        ByteBuffer buffer = new SamplePerfData().addJvmCounters().setAccessible(false).build(ByteOrder.BIG_ENDIAN);
+
+        Assert.assertNull(HotSpotSAJvmDiscovery.parsePerfData(1234, buffer));
+    }
+
+    @Test
+    public void entriesBeyondPerfDataAreIgnored() {
+        ByteBuffer buffer = new SamplePerfData().addJvmCounters().setExtraEntryCount(10).build(ByteOrder.BIG_ENDIAN);
+
+        HotSpotSAJvmInfo jvm = HotSpotSAJvmDiscovery.parsePerfData(1234, buffer);
+
+        Assert.assertEquals("com.acme.Main --port 8080", jvm.getJavaCommand());
+        Assert.assertEquals(1500000000000L, jvm.getStartTime());
+        Assert.assertEquals(5000L, jvm.getUptime());
+    }
+
+    @Test
+    public void uptimeIsCalculatedFromStartTimeWithoutHighResolutionTicks() {
+        long startTime = System.currentTimeMillis() - 10000;
+        ByteBuffer buffer =
+                new SamplePerfData().addString("sun.rt.javaCommand", "com.acme.Main --port 8080")
+                                    .addLong("sun.rt.createVmBeginTime", startTime)
+                                    .build(ByteOrder.BIG_ENDIAN);
+
+        HotSpotSAJvmInfo jvm = HotSpotSAJvmDiscovery.parsePerfData(1234, buffer);
+
+        Assert.assertEquals(startTime, jvm.getStartTime());
+        Assert.assertTrue(jvm.getUptime() >= 10000);
+        Assert.assertNull(jvm.getJvmName());
+        Assert.assertNull(jvm.getJvmVersion());
+    }
+
+    @Test
+    public void perfDataFileOfLiveProcessIsRead() throws IOException {
+        String processName = ManagementFactory.getRuntimeMXBean().getName();
+        int processId = Integer.parseInt(processName.substring(0, processName.indexOf('@')));
+        File perfDataDirectory = Files.createTempDirectory("hsperfdata_test").toFile();
+        perfDataDirectory.deleteOnExit();
+        File perfDataFile = new File(perfDataDirectory, String.valueOf(processId));
+        perfDataFile.deleteOnExit();
+        ByteBuffer buffer = new SamplePerfData().addJvmCounters().build(ByteOrder.LITTLE_ENDIAN);
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        Files.write(perfDataFile.toPath(), data);
+
+        HotSpotSAJvmInfo jvm = HotSpotSAJvmDiscovery.readJvmInfo(perfDataFile);
+
+        Assert.assertEquals(processId, jvm.getProcessId());
+        Assert.assertEquals("com.acme.Main --port 8080", jvm.getJavaCommand());
+        Assert.assertEquals("com.acme.Main", jvm.getMainClass());
+    }
+
+    @Test
+    public void perfDataFileNotNamedByProcessIdIsIgnored() throws IOException {
+        File perfDataFile = File.createTempFile("hsperfdata", ".tmp");
+        perfDataFile.deleteOnExit();
+
+        Assert.assertNull(HotSpotSAJvmDiscovery.readJvmInfo(perfDataFile));
+    }
+
+    @Test
+    public void truncatedPerfDataFileIsIgnored() throws IOException {
+        String processName = ManagementFactory.getRuntimeMXBean().getName();
+        int processId = Integer.parseInt(processName.substring(0, processName.indexOf('@')));
+        File perfDataDirectory = Files.createTempDirectory("hsperfdata_test").toFile();
+        perfDataDirectory.deleteOnExit();
+        File perfDataFile = new File(perfDataDirectory, String.valueOf(processId));
+        perfDataFile.deleteOnExit();
+        Files.write(perfDataFile.toPath(), new byte[16]);
+
+        Assert.assertNull(HotSpotSAJvmDiscovery.readJvmInfo(perfDataFile));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.profiler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackFrame;
+
+public class HotSpotSASamplingProfilerResultTest {
+
+    @Test
+    public void sameStackSamplesAreAggregated() {
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.addStackSample(new HotSpotSAStackSample("worker-1", "RUNNABLE", "main;run;compute"), 5);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "RUNNABLE", "main;run;compute"), 3);
+        result.addStackSample(new HotSpotSAStackSample("worker-1", "RUNNABLE", "main;run;compute"), 2);
+
+        Map<HotSpotSAStackSample, Long> stackSampleCounts = result.getStackSampleCounts();
+
+        Assert.assertEquals(2, stackSampleCounts.size());
+        Assert.assertEquals(Long.valueOf(7),
+                stackSampleCounts.get(new HotSpotSAStackSample("worker-1", "RUNNABLE", "main;run;compute")));
+        Assert.assertEquals(Long.valueOf(3),
+                stackSampleCounts.get(new HotSpotSAStackSample("worker-2", "RUNNABLE", "main;run;compute")));
+    }
+
+    @Test
+    public void collapsedStacksAreAggregatedOverAllThreads() {
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.addStackSample(new HotSpotSAStackSample("worker-1", "RUNNABLE", "main;run;compute"), 7);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "RUNNABLE", "main;run;compute"), 3);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "BLOCKED", "main;run;lock"), 4);
+
+        Map<String, Long> collapsedStacks = result.getCollapsedStacks();
+
+        Assert.assertEquals(2, collapsedStacks.size());
+        Assert.assertEquals(Long.valueOf(10), collapsedStacks.get("main;run;compute"));
+        Assert.assertEquals(Long.valueOf(4), collapsedStacks.get("main;run;lock"));
+    }
+
+    @Test
+    public void collapsedStacksAreFilteredByThreadAndState() {
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.addStackSample(new HotSpotSAStackSample("worker-1", "RUNNABLE", "main;run;compute"), 7);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "RUNNABLE", "main;run;compute"), 3);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "BLOCKED", "main;run;lock"), 4);
+
+        Map<String, Long> collapsedStacksOfThread = result.getCollapsedStacksOfThread("worker-2");
+        Assert.assertEquals(2, collapsedStacksOfThread.size());
+        Assert.assertEquals(Long.valueOf(3), collapsedStacksOfThread.get("main;run;compute"));
+        Assert.assertEquals(Long.valueOf(4), collapsedStacksOfThread.get("main;run;lock"));
+
+        Map<String, Long> collapsedStacksOfState = result.getCollapsedStacksOfState("BLOCKED");
+        Assert.assertEquals(1, collapsedStacksOfState.size());
+        Assert.assertEquals(Long.valueOf(4), collapsedStacksOfState.get("main;run;lock"));
+
+        Assert.assertTrue(result.getCollapsedStacksOfThread("unknown").isEmpty());
+    }
+
+    @Test
+    public void samplesAreCountedPerThreadAndState() {
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.addStackSample(new HotSpotSAStackSample("worker-1", "RUNNABLE", "main;run;compute"), 7);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "RUNNABLE", "main;run;compute"), 3);
+        result.addStackSample(new HotSpotSAStackSample("worker-2", "BLOCKED", "main;run;lock"), 4);
+
+        Map<String, Long> threadSampleCounts = result.getThreadSampleCounts();
+        Assert.assertEquals(Long.valueOf(7), threadSampleCounts.get("worker-1"));
+        Assert.assertEquals(Long.valueOf(7), threadSampleCounts.get("worker-2"));
+
+        Map<String, Long> stateSampleCounts = result.getStateSampleCounts();
+        Assert.assertEquals(Long.valueOf(10), stateSampleCounts.get("RUNNABLE"));
+        Assert.assertEquals(Long.valueOf(4), stateSampleCounts.get("BLOCKED"));
+    }
+
+    @Test
+    public void collapsedStacksAreFormattedByDescendingCount() {
+        HotSpotSASamplingProfilerResult result = new HotSpotSASamplingProfilerResult();
+        result.addStackSample(new HotSpotSAStackSample("t", "RUNNABLE", "a;b"), 1);
+        result.addStackSample(new HotSpotSAStackSample("t", "RUNNABLE", "a;c"), 9);
+        result.addStackSample(new HotSpotSAStackSample("t", "RUNNABLE", "a"), 4);
+
+        Assert.assertEquals("a;c 9\na 4\na;b 1\n", result.toCollapsedStacks());
+    }
+
+    @Test
+    public void framesAreCollapsedFromRootToTopWithoutSignatures() {
+        Assert.assertEquals("java.lang.Thread.run;com.acme.Worker.run;com.acme.Worker.compute",
+                            HotSpotSASamplingProfilerWorker.toCollapsedStack(Arrays.asList(
+                                    new HotSpotSAStackFrame("com.acme.Worker.compute(int)", 0, 1, 0, 0,
+                                                            HotSpotSAStackFrame.FrameType.INTERPRETED, false, false),
+                                    new HotSpotSAStackFrame("com.acme.Worker.run()", 0, 1, 0, 0,
+                                                            HotSpotSAStackFrame.FrameType.INTERPRETED, false, false),
+                                    new HotSpotSAStackFrame("java.lang.Thread.run", 0, 1, 0, 0,
+                                                            HotSpotSAStackFrame.FrameType.INTERPRETED, false, false))));
+    }
+
+    @Test
+    public void emptyStackIsNotCollapsed() {
+        Assert.assertNull(HotSpotSASamplingProfilerWorker.toCollapsedStack(
+                                Collections.<HotSpotSAStackFrame>emptyList()));
+    }
+
+}
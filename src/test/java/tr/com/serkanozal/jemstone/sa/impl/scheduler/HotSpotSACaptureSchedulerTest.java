@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentResult;
+
+public class HotSpotSACaptureSchedulerTest {
+
+    @Test
+    public void captureRunsNowWhenTargetHasNotBeenPaused() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult> capture =
+                new HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult>("plugin", 1234, 10000);
+        capture.setLastPauseTimeInNanos(TimeUnit.MILLISECONDS.toNanos(500));
+        long now = System.nanoTime();
+
+        Assert.assertEquals(0, HotSpotSACaptureScheduler.getCaptureDelayInNanos(
+                                    pauseBudget, capture, now + TimeUnit.SECONDS.toNanos(10), now));
+    }
+
+    @Test
+    public void captureRunsNowWhenItFitsIntoBudget() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult> capture =
+                new HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult>("plugin", 1234, 10000);
+        capture.setLastPauseTimeInNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        long now = System.nanoTime();
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(150), now - TimeUnit.SECONDS.toNanos(1));
+
+        Assert.assertEquals(0, HotSpotSACaptureScheduler.getCaptureDelayInNanos(
+                                    pauseBudget, capture, now + TimeUnit.SECONDS.toNanos(10), now));
+    }
+
+    @Test
+    public void captureIsDelayedWhenItFitsIntoBudgetInItsInterval() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult> capture =
+                new HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult>("plugin", 1234, 120000);
+        capture.setLastPauseTimeInNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        long now = System.nanoTime();
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(150), now - TimeUnit.SECONDS.toNanos(1));
+
+        // Recorded pause leaves the window 59 seconds later
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(59), HotSpotSACaptureScheduler.getCaptureDelayInNanos(
+                                    pauseBudget, capture, now + TimeUnit.SECONDS.toNanos(120), now));
+    }
+
+    @Test
+    public void captureIsSkippedWhenItDoesNotFitIntoBudgetInItsInterval() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult> capture =
+                new HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult>("plugin", 1234, 10000);
+        capture.setLastPauseTimeInNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        long now = System.nanoTime();
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(150), now - TimeUnit.SECONDS.toNanos(1));
+
+        Assert.assertEquals(HotSpotSACaptureScheduler.SKIP_CAPTURE,
+                            HotSpotSACaptureScheduler.getCaptureDelayInNanos(
+                                    pauseBudget, capture, now + TimeUnit.SECONDS.toNanos(10), now));
+    }
+
+    @Test
+    public void captureIsNotDelayedByPausesOfOtherTargets() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult> capture =
+                new HotSpotSAScheduledCapture<HotSpotServiceabilityAgentResult>("plugin", 1234, 10000);
+        capture.setLastPauseTimeInNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        long now = System.nanoTime();
+        pauseBudget.recordPause(5678, TimeUnit.MILLISECONDS.toNanos(200), now - TimeUnit.SECONDS.toNanos(1));
+
+        Assert.assertEquals(0, HotSpotSACaptureScheduler.getCaptureDelayInNanos(
+                                    pauseBudget, capture, now + TimeUnit.SECONDS.toNanos(10), now));
+    }
+
+}
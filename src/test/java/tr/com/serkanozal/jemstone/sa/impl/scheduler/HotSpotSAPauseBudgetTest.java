@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.HotSpotServiceabilityAgentExecutionInfo;
+
+public class HotSpotSAPauseBudgetTest {
+
+    @Test
+    public void pausesInWindowAreSummed() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        // Arbitrary origin as "System.nanoTime()" might be negative
+        long startTime = -TimeUnit.HOURS.toNanos(1);
+
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(50), startTime);
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(30), startTime + TimeUnit.SECONDS.toNanos(1));
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(80),
+                            pauseBudget.getPauseTimeInNanos(1234, startTime + TimeUnit.SECONDS.toNanos(2)));
+    }
+
+    @Test
+    public void pausesAreTrackedPerProcess() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        long startTime = -TimeUnit.HOURS.toNanos(1);
+
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(150), startTime);
+
+        Assert.assertEquals(0, pauseBudget.getPauseTimeInNanos(5678, startTime));
+        Assert.assertEquals(0, pauseBudget.getWaitTimeInNanos(5678, TimeUnit.MILLISECONDS.toNanos(100), startTime));
+    }
+
+    @Test
+    public void pausesLeaveSlidingWindow() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        long startTime = -TimeUnit.HOURS.toNanos(1);
+
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(50), startTime);
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(30), startTime + TimeUnit.SECONDS.toNanos(10));
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(80),
+                            pauseBudget.getPauseTimeInNanos(1234, startTime + TimeUnit.SECONDS.toNanos(60) - 1));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(30),
+                            pauseBudget.getPauseTimeInNanos(1234, startTime + TimeUnit.SECONDS.toNanos(60)));
+        Assert.assertEquals(0, pauseBudget.getPauseTimeInNanos(1234, startTime + TimeUnit.SECONDS.toNanos(70)));
+    }
+
+    @Test
+    public void pauseFittingIntoBudgetNeedsNoWait() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        long startTime = -TimeUnit.HOURS.toNanos(1);
+
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(100), startTime);
+
+        Assert.assertEquals(0, pauseBudget.getWaitTimeInNanos(1234, TimeUnit.MILLISECONDS.toNanos(100),
+                                                              startTime + TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void pauseExceedingBudgetWaitsUntilEnoughPausesLeaveWindow() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        long startTime = -TimeUnit.HOURS.toNanos(1);
+
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(60), startTime);
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(60), startTime + TimeUnit.SECONDS.toNanos(10));
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(60), startTime + TimeUnit.SECONDS.toNanos(20));
+        long now = startTime + TimeUnit.SECONDS.toNanos(30);
+
+        // 180 ms of pauses in window, so 20 ms more fits into the budget
+        Assert.assertEquals(0, pauseBudget.getWaitTimeInNanos(1234, TimeUnit.MILLISECONDS.toNanos(20), now));
+        // For 50 ms, the first pause must leave the window
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(30),
+                            pauseBudget.getWaitTimeInNanos(1234, TimeUnit.MILLISECONDS.toNanos(50), now));
+        // For 100 ms, the first two pauses must leave the window
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(40),
+                            pauseBudget.getWaitTimeInNanos(1234, TimeUnit.MILLISECONDS.toNanos(100), now));
+    }
+
+    @Test
+    public void pauseLongerThanBudgetWaitsUntilWindowIsEmpty() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+        long startTime = -TimeUnit.HOURS.toNanos(1);
+
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(10), startTime);
+        pauseBudget.recordPause(1234, TimeUnit.MILLISECONDS.toNanos(10), startTime + TimeUnit.SECONDS.toNanos(5));
+        long now = startTime + TimeUnit.SECONDS.toNanos(10);
+
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(55),
+                            pauseBudget.getWaitTimeInNanos(1234, TimeUnit.MILLISECONDS.toNanos(500), now));
+        // Once the process hasn't been paused in the window, long pause is allowed
+        Assert.assertEquals(0, pauseBudget.getWaitTimeInNanos(1234, TimeUnit.MILLISECONDS.toNanos(500),
+                                                              now + TimeUnit.SECONDS.toNanos(55)));
+    }
+
+    @Test
+    public void onlyDetachedExecutionsWithPauseAreRecorded() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+
+        pauseBudget.onExecutionCompleted(new HotSpotServiceabilityAgentExecutionInfo(
+                                                1234, "worker", 0, TimeUnit.MILLISECONDS.toNanos(40), true, null));
+        // Session executions are not detached, their pause time is recorded once the session is closed
+        pauseBudget.onExecutionCompleted(new HotSpotServiceabilityAgentExecutionInfo(
+                                                1234, "worker", 0, TimeUnit.MILLISECONDS.toNanos(70), false, null));
+        pauseBudget.onExecutionCompleted(new HotSpotServiceabilityAgentExecutionInfo(
+                                                1234, "worker", 0, 0, true, null));
+
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(40), pauseBudget.getPauseTimeInNanos(1234));
+    }
+
+    @Test
+    public void budgetIsConvertedToMilliseconds() {
+        HotSpotSAPauseBudget pauseBudget = new HotSpotSAPauseBudget(200, 60000);
+
+        Assert.assertEquals(200, pauseBudget.getMaxPauseTimeInMsecs());
+        Assert.assertEquals(60000, pauseBudget.getWindowInMsecs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveMaxPauseTimeIsRejected() {
+        new HotSpotSAPauseBudget(0, 60000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveWindowIsRejected() {
+        new HotSpotSAPauseBudget(200, -1);
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotSAObjectGraphTest {
+
+    @Test
+    public void depthIsLimited() {
+        HotSpotSAObjectGraph objectGraph = 
+                new HotSpotSAObjectGraph(new HotSpotSAStackTracerParameter().setMaxObjectDepth(2));
+
+        Assert.assertTrue(objectGraph.isInDepth(0));
+        Assert.assertTrue(objectGraph.isInDepth(2));
+        Assert.assertFalse(objectGraph.isInDepth(3));
+    }
+
+    @Test
+    public void depthIsUnlimited() {
+        HotSpotSAObjectGraph objectGraph = 
+                new HotSpotSAObjectGraph(new HotSpotSAStackTracerParameter().setMaxObjectDepth(
+                        HotSpotSAStackTracerParameter.UNLIMITED_OBJECT_DEPTH));
+
+        Assert.assertTrue(objectGraph.isInDepth(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void defaultsAreUsedWithoutParameter() {
+        HotSpotSAObjectGraph objectGraph = new HotSpotSAObjectGraph(null);
+
+        Assert.assertTrue(objectGraph.isInDepth(HotSpotSAStackTracerParameter.DEFAULT_MAX_OBJECT_DEPTH));
+        Assert.assertFalse(objectGraph.isInDepth(HotSpotSAStackTracerParameter.DEFAULT_MAX_OBJECT_DEPTH + 1));
+        Assert.assertTrue(objectGraph.hasRoomForField(Integer.MAX_VALUE - 1));
+        Assert.assertEquals(1000, objectGraph.getElementCount(1000));
+        Assert.assertEquals(1000, objectGraph.reserve(1000, 8));
+    }
+
+    @Test
+    public void objectIsVisitedOnlyOnce() {
+        HotSpotSAObjectGraph objectGraph = new HotSpotSAObjectGraph(new HotSpotSAStackTracerParameter());
+
+        Assert.assertTrue(objectGraph.visit(0x1000L));
+        Assert.assertTrue(objectGraph.visit(0x2000L));
+        // Cycle back to the first object or another reference to it
+        Assert.assertFalse(objectGraph.visit(0x1000L));
+    }
+
+    @Test
+    public void fieldsAreLimited() {
+        HotSpotSAObjectGraph objectGraph = 
+                new HotSpotSAObjectGraph(new HotSpotSAStackTracerParameter().setMaxFields(2));
+
+        Assert.assertTrue(objectGraph.hasRoomForField(0));
+        Assert.assertTrue(objectGraph.hasRoomForField(1));
+        Assert.assertFalse(objectGraph.hasRoomForField(2));
+    }
+
+    @Test
+    public void arrayElementsAreLimited() {
+        HotSpotSAObjectGraph objectGraph = 
+                new HotSpotSAObjectGraph(new HotSpotSAStackTracerParameter().setMaxArrayElements(3));
+
+        Assert.assertEquals(2, objectGraph.getElementCount(2));
+        Assert.assertEquals(3, objectGraph.getElementCount(3));
+        Assert.assertEquals(3, objectGraph.getElementCount(100));
+    }
+
+    @Test
+    public void bytesAreReservedFromBudget() {
+        HotSpotSAObjectGraph objectGraph = 
+                new HotSpotSAObjectGraph(new HotSpotSAStackTracerParameter().setMaxBytesPerThread(20));
+
+        Assert.assertEquals(2, objectGraph.reserve(2, 4));
+        // Only the units which fit into the remaining budget are reserved
+        Assert.assertEquals(1, objectGraph.reserve(5, 8));
+        Assert.assertEquals(2, objectGraph.reserve(3, 2));
+        Assert.assertEquals(0, objectGraph.reserve(1, 1));
+    }
+
+}
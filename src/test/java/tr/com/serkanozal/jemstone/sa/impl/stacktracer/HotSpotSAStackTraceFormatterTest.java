@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotSAStackTraceFormatterTest {
+
+    @Test
+    public void addressIsPaddedByAddressSize() {
+        Assert.assertEquals("0x00000000cafebabe", HotSpotSAStackTraceFormatter.formatAddress(0xCAFEBABEL, 8));
+        Assert.assertEquals("0x0000beef", HotSpotSAStackTraceFormatter.formatAddress(0xBEEFL, 4));
+        Assert.assertEquals("null", HotSpotSAStackTraceFormatter.formatAddress(0L, 8));
+    }
+
+    @Test
+    public void interpretedFrameIsFormatted() {
+        HotSpotSAThreadStackTrace stackTrace = new HotSpotSAThreadStackTrace("main", 8);
+        stackTrace.getFrames().add(
+                new HotSpotSAStackFrame("Sample.main(java.lang.String[])", 5, 10, 0x1000L, 0x2000L,
+                                        HotSpotSAStackFrame.FrameType.INTERPRETED, false, false));
+
+        Assert.assertEquals("    |- Sample.main(java.lang.String[]) @bci=5, line=10, " +
+                            "pc=0x0000000000001000, Method*=0x0000000000002000 (Interpreted frame)\n",
+                            HotSpotSAStackTraceFormatter.format(stackTrace));
+    }
+
+    @Test
+    public void compiledFrameIsFormatted() {
+        HotSpotSAThreadStackTrace stackTrace = new HotSpotSAThreadStackTrace("main", 8);
+        stackTrace.getFrames().add(
+                new HotSpotSAStackFrame("Sample.run()", 3, HotSpotSAStackFrame.NO_LINE_NUMBER, 0L, 0L,
+                                        HotSpotSAStackFrame.FrameType.COMPILED, true, true));
+
+        Assert.assertEquals("    |- Sample.run() @bci=3 (Compiled frame [deoptimized]; " +
+                            "information may be imprecise)\n",
+                            HotSpotSAStackTraceFormatter.format(stackTrace));
+    }
+
+    @Test
+    public void truncatedStackTraceAndErrorAreFormatted() {
+        HotSpotSAThreadStackTrace stackTrace = new HotSpotSAThreadStackTrace("main", 8);
+        stackTrace.getFrames().add(
+                new HotSpotSAStackFrame("Sample.run()", 0, 1, 0L, 0L,
+                                        HotSpotSAStackFrame.FrameType.INTERPRETED, false, false));
+        stackTrace.setTruncated(true);
+        stackTrace.setError("Unable to walk stack");
+
+        String formatted = HotSpotSAStackTraceFormatter.format(stackTrace);
+
+        Assert.assertTrue(formatted.endsWith("    |- ...\nUnable to walk stack\n"));
+    }
+
+    @Test
+    public void parametersAndLocalVariablesAreFormatted() {
+        HotSpotSAStackFrame frame =
+                new HotSpotSAStackFrame("Sample.run(int)", 0, 1, 0L, 0L,
+                                        HotSpotSAStackFrame.FrameType.INTERPRETED, false, false);
+        frame.setParameters(Arrays.asList(
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "count", "int", 3, 0L)));
+        HotSpotSAStackValue name =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.STRING, "name", "java.lang.String", "abc", 0L);
+        name.setTruncated(true);
+        HotSpotSAStackValue array =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.ARRAY, "values", "int[]", null, 0x10L);
+        array.setElements(Arrays.asList(
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, null, "int", 7, 0L)));
+        HotSpotSAStackValue object =
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.OBJECT, "self", "Sample", null, 0x20L);
+        object.setVisited(true);
+        frame.setLocalVariables(Arrays.asList(name, array, object));
+        HotSpotSAThreadStackTrace stackTrace = new HotSpotSAThreadStackTrace("main", 4);
+        stackTrace.getFrames().add(frame);
+
+        String formatted = HotSpotSAStackTraceFormatter.format(stackTrace);
+
+        Assert.assertTrue(formatted.contains("\tparameters:\n"));
+        Assert.assertTrue(formatted.contains(String.format("|- %-25s %-30d %s\n", "count", 3, "int")));
+        Assert.assertTrue(formatted.contains("\tlocal variables:\n"));
+        Assert.assertTrue(formatted.contains(
+                String.format("|- %-25s %-30s %s\n", "name", "abc...", "java.lang.String")));
+        Assert.assertTrue(formatted.contains("\t\telements:\n"));
+        Assert.assertTrue(formatted.contains("\t\t    |- [0]: 7\n"));
+        Assert.assertTrue(formatted.contains(
+                String.format("|- %-25s %-30s %s [visited]\n", "self", "0x00000020 (address)", "Sample")));
+        Assert.assertTrue(formatted.indexOf("parameters:") < formatted.indexOf("local variables:"));
+    }
+
+    @Test
+    public void localValuesAreFormattedWithoutDebugInfo() {
+        HotSpotSAStackFrame frame =
+                new HotSpotSAStackFrame("Sample.run()", 0, 1, 0L, 0L,
+                                        HotSpotSAStackFrame.FrameType.COMPILED, false, false);
+        frame.setLocalValues(Arrays.asList(
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.PRIMITIVE, "0", null, 255, 0L),
+                new HotSpotSAStackValue(HotSpotSAStackValue.Kind.CONFLICT, "1", null, null, 0L)));
+        HotSpotSAThreadStackTrace stackTrace = new HotSpotSAThreadStackTrace("main", 8);
+        stackTrace.getFrames().add(frame);
+
+        String formatted = HotSpotSAStackTraceFormatter.format(stackTrace);
+
+        Assert.assertTrue(formatted.contains("\tlocal values:\n"));
+        Assert.assertTrue(formatted.contains(String.format("|- %-25s %-30s %s\n", "0", "255 (0xff)", "<primitive>")));
+        Assert.assertTrue(formatted.contains(String.format("|- %-25s %-30s %s\n", "1", "<unknown>", "<conflict>")));
+        Assert.assertFalse(formatted.contains("parameters:"));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HotSpotSAStackTracerResultTest {
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void formattedStackTraceIsAdded() {
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        result.addStackTrace("main", "formatted");
+
+        Assert.assertEquals("formatted", result.getStackTrace("main"));
+        Assert.assertEquals("formatted", result.getThreadStackTrace("main").format());
+        Assert.assertTrue(result.getThreadStackTrace("main").getFrames().isEmpty());
+    }
+
+    @Test
+    public void stackTracesAreLiveView() {
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        Map<String, String> stackTraces = result.getStackTraces();
+        Assert.assertTrue(stackTraces.isEmpty());
+
+        HotSpotSAThreadStackTrace threadStackTrace = new HotSpotSAThreadStackTrace("main", 8);
+        threadStackTrace.getFrames().add(
+                new HotSpotSAStackFrame("Sample.main(java.lang.String[])", 0, 10, 0L, 0L, 
+                                        HotSpotSAStackFrame.FrameType.INTERPRETED, false, false));
+        result.addStackTrace(threadStackTrace);
+        stackTraces.put("worker", "formatted");
+
+        Assert.assertEquals(Arrays.asList("main", "worker"), Arrays.asList(stackTraces.keySet().toArray()));
+        Assert.assertEquals(threadStackTrace.format(), stackTraces.get("main"));
+        Assert.assertEquals("formatted", result.getStackTrace("worker"));
+
+        stackTraces.remove("main");
+
+        Assert.assertNull(result.getThreadStackTrace("main"));
+        Assert.assertEquals(1, result.getThreadStackTraces().size());
+    }
+
+    @Test
+    public void resultIsSerializable() throws IOException, ClassNotFoundException {
+        HotSpotSAStackTracerResult result = new HotSpotSAStackTracerResult();
+        result.addStackTrace(new HotSpotSAThreadStackTrace("main", "formatted"));
+        result.getStackTraces();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(result);
+        oos.close();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+        HotSpotSAStackTracerResult deserialized = (HotSpotSAStackTracerResult) ois.readObject();
+
+        Assert.assertEquals("formatted", deserialized.getStackTraces().get("main"));
+    }
+
+}
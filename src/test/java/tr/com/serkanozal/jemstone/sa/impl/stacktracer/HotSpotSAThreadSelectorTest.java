@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 1986-2015, Serkan OZAL, All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tr.com.serkanozal.jemstone.sa.impl.stacktracer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tr.com.serkanozal.jemstone.sa.impl.stacktracer.HotSpotSAStackTracerWorkerHelper.SelectedThread;
+
+public class HotSpotSAThreadSelectorTest {
+
+    @Test
+    public void allThreadsAreSelectedByDefault() {
+        HotSpotSAThreadSelector selector = new HotSpotSAThreadSelector();
+
+        Assert.assertTrue(selector.isNameSelected("main", Collections.<String>emptySet()));
+        Assert.assertTrue(selector.isNameSelected("main", null));
+        Assert.assertTrue(selector.isNameSelected(null, null));
+        Assert.assertTrue(selector.isThreadStateSelected(Thread.State.WAITING.name()));
+        Assert.assertTrue(selector.isThreadStateSelected(null));
+        Assert.assertTrue(selector.isThreadIdSelected(1));
+        Assert.assertTrue(selector.isNativeThreadIdSelected(1234));
+    }
+
+    @Test
+    public void threadsAreSelectedByNamePrefix() {
+        HotSpotSAThreadSelector selector =
+                new HotSpotSAThreadSelector().addThreadNamePrefix("pool-").addThreadNamePrefix("worker-");
+
+        Assert.assertTrue(selector.isNameSelected("pool-1-thread-1", Collections.<String>emptySet()));
+        Assert.assertTrue(selector.isNameSelected("worker-7", Collections.<String>emptySet()));
+        Assert.assertFalse(selector.isNameSelected("main", Collections.<String>emptySet()));
+        Assert.assertFalse(selector.isNameSelected("my-pool-1", Collections.<String>emptySet()));
+        Assert.assertFalse(selector.isNameSelected(null, Collections.<String>emptySet()));
+    }
+
+    @Test
+    public void threadsAreSelectedByNamePatternMatchingWholeName() {
+        HotSpotSAThreadSelector selector = new HotSpotSAThreadSelector().setThreadNamePattern("pool-\\d+-thread-\\d+");
+
+        Assert.assertTrue(selector.isNameSelected("pool-1-thread-12", Collections.<String>emptySet()));
+        Assert.assertFalse(selector.isNameSelected("pool-1-thread-x", Collections.<String>emptySet()));
+        // Pattern must match the whole name, not just a part of it
+        Assert.assertFalse(selector.isNameSelected("my-pool-1-thread-1", Collections.<String>emptySet()));
+        Assert.assertFalse(selector.isNameSelected("pool-1-thread-1-child", Collections.<String>emptySet()));
+    }
+
+    @Test
+    public void changingNamePatternIsTakenIntoAccount() {
+        HotSpotSAThreadSelector selector = new HotSpotSAThreadSelector().setThreadNamePattern("a.*");
+        Assert.assertTrue(selector.isNameSelected("abc", Collections.<String>emptySet()));
+
+        selector.setThreadNamePattern("b.*");
+        Assert.assertFalse(selector.isNameSelected("abc", Collections.<String>emptySet()));
+        Assert.assertTrue(selector.isNameSelected("bcd", Collections.<String>emptySet()));
+    }
+
+    @Test
+    public void threadIsSelectedIfAnyOfNameCriteriaMatches() {
+        HotSpotSAThreadSelector selector =
+                new HotSpotSAThreadSelector().addThreadNamePrefix("pool-").setThreadNamePattern(".*-timer");
+        Set<String> threadNames = new HashSet<String>(Arrays.asList("main"));
+
+        Assert.assertTrue(selector.isNameSelected("main", threadNames));
+        Assert.assertTrue(selector.isNameSelected("pool-2", threadNames));
+        Assert.assertTrue(selector.isNameSelected("cache-timer", threadNames));
+        Assert.assertFalse(selector.isNameSelected("Finalizer", threadNames));
+    }
+
+    @Test
+    public void exactThreadNamesAreUsedWithoutSelector() {
+        HotSpotSAThreadSelector selector = new HotSpotSAThreadSelector();
+        Set<String> threadNames = new HashSet<String>(Arrays.asList("main"));
+
+        Assert.assertTrue(selector.isNameSelected("main", threadNames));
+        Assert.assertFalse(selector.isNameSelected("main-2", threadNames));
+    }
+
+    @Test
+    public void threadsAreSelectedByState() {
+        HotSpotSAThreadSelector selector =
+                new HotSpotSAThreadSelector().addThreadState(Thread.State.BLOCKED)
+                                             .addThreadState(Thread.State.WAITING);
+
+        Assert.assertTrue(selector.isThreadStateSelected(Thread.State.BLOCKED.name()));
+        Assert.assertTrue(selector.isThreadStateSelected(Thread.State.WAITING.name()));
+        Assert.assertFalse(selector.isThreadStateSelected(Thread.State.RUNNABLE.name()));
+        // State of the thread is unknown when its thread object could not be read
+        Assert.assertFalse(selector.isThreadStateSelected(null));
+    }
+
+    @Test
+    public void threadsAreSelectedByThreadIdAndNativeThreadId() {
+        HotSpotSAThreadSelector selector =
+                new HotSpotSAThreadSelector().addThreadId(1).addThreadId(42).addNativeThreadId(4321);
+
+        Assert.assertTrue(selector.isThreadIdSelected(1));
+        Assert.assertTrue(selector.isThreadIdSelected(42));
+        Assert.assertFalse(selector.isThreadIdSelected(4321));
+        Assert.assertTrue(selector.isNativeThreadIdSelected(4321));
+        Assert.assertFalse(selector.isNativeThreadIdSelected(42));
+    }
+
+    @Test
+    public void topThreadsAreSelectedByStackDepth() {
+        SelectedThread a = new SelectedThread(null, "a", "RUNNABLE", 0, 0);
+        a.stackDepth = 3;
+        SelectedThread b = new SelectedThread(null, "b", "RUNNABLE", 0, 0);
+        b.stackDepth = 10;
+        SelectedThread c = new SelectedThread(null, "c", "RUNNABLE", 0, 0);
+        c.stackDepth = 7;
+        SelectedThread d = new SelectedThread(null, "d", "RUNNABLE", 0, 0);
+        d.stackDepth = 1;
+        SelectedThread e = new SelectedThread(null, "e", "RUNNABLE", 0, 0);
+        e.stackDepth = 12;
+        List<SelectedThread> threads = Arrays.asList(a, b, c, d, e);
+
+        List<SelectedThread> topThreads = HotSpotSAStackTracerWorkerHelper.selectTopThreadsByStackDepth(threads, 3);
+
+        Assert.assertEquals(Arrays.asList(e, b, c), topThreads);
+        // Given threads are not modified
+        Assert.assertEquals(Arrays.asList(a, b, c, d, e), threads);
+    }
+
+    @Test
+    public void threadsWithSameStackDepthKeepTheirOrder() {
+        SelectedThread a = new SelectedThread(null, "a", "RUNNABLE", 0, 0);
+        a.stackDepth = 5;
+        SelectedThread b = new SelectedThread(null, "b", "RUNNABLE", 0, 0);
+        b.stackDepth = 8;
+        SelectedThread c = new SelectedThread(null, "c", "RUNNABLE", 0, 0);
+        c.stackDepth = 5;
+        SelectedThread d = new SelectedThread(null, "d", "RUNNABLE", 0, 0);
+        d.stackDepth = 5;
+
+        List<SelectedThread> topThreads =
+                HotSpotSAStackTracerWorkerHelper.selectTopThreadsByStackDepth(Arrays.asList(a, b, c, d), 3);
+
+        Assert.assertEquals(Arrays.asList(b, a, c), topThreads);
+    }
+
+    @Test
+    public void allThreadsAreReturnedIfThereAreLessThanTopCount() {
+        SelectedThread a = new SelectedThread(null, "a", "RUNNABLE", 0, 0);
+        a.stackDepth = 1;
+        SelectedThread b = new SelectedThread(null, "b", "RUNNABLE", 0, 0);
+        b.stackDepth = 2;
+
+        List<SelectedThread> topThreads =
+                HotSpotSAStackTracerWorkerHelper.selectTopThreadsByStackDepth(Arrays.asList(a, b), 5);
+
+        Assert.assertEquals(Arrays.asList(b, a), topThreads);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullThreadNamePrefixIsRejected() {
+        new HotSpotSAThreadSelector().addThreadNamePrefix(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThreadNamePatternIsRejected() {
+        new HotSpotSAThreadSelector().setThreadNamePattern("pool-(");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTopThreadCountIsRejected() {
+        new HotSpotSAThreadSelector().setTopThreadsByStackDepth(-5);
+    }
+
+    @Test
+    public void allThreadsCanBeSelectedAgainAfterTopThreadCount() {
+        HotSpotSAThreadSelector selector = new HotSpotSAThreadSelector().setTopThreadsByStackDepth(3);
+        selector.setTopThreadsByStackDepth(HotSpotSAThreadSelector.ALL_THREADS);
+
+        Assert.assertEquals(HotSpotSAThreadSelector.ALL_THREADS, selector.getTopThreadsByStackDepth());
+    }
+
+}
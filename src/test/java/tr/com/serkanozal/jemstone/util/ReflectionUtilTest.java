@@ -142,4 +142,38 @@ public class ReflectionUtilTest {
         Assert.assertFalse(ReflectionUtil.isCollectionType(double.class));
     }
 
+    @Test
+    public void normalizeSignature() {
+        Assert.assertEquals("void", ReflectionUtil.normalizeSignature("V"));
+        Assert.assertEquals("int", ReflectionUtil.normalizeSignature("I"));
+        Assert.assertEquals("long", ReflectionUtil.normalizeSignature("J"));
+        Assert.assertEquals("java.lang.String",
+                ReflectionUtil.normalizeSignature("Ljava/lang/String;"));
+    }
+
+    @Test
+    public void normalizeArraySignature() {
+        Assert.assertEquals("int[]", ReflectionUtil.normalizeSignature("[I"));
+        Assert.assertEquals("java.lang.String[]",
+                ReflectionUtil.normalizeSignature("[Ljava/lang/String;"));
+    }
+
+    @Test
+    public void normalizeMultiDimensionalArraySignature() {
+        Assert.assertEquals("byte[][]", ReflectionUtil.normalizeSignature("[[B"));
+        Assert.assertEquals("double[][][]", ReflectionUtil.normalizeSignature("[[[D"));
+        Assert.assertEquals("java.util.Map$Entry[][]",
+                ReflectionUtil.normalizeSignature("[[Ljava/util/Map$Entry;"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void normalizeUnknownSignature() {
+        ReflectionUtil.normalizeSignature("X");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void normalizeArraySignatureWithUnknownComponent() {
+        ReflectionUtil.normalizeSignature("[[X");
+    }
+
 }